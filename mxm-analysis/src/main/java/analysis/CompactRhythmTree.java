@@ -0,0 +1,356 @@
+package analysis;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import properties.time.Beat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A compact rhythm tree is the same conceptualization of rhythm as a {@link RhythmTree}- gradual, equal subdivisions
+ * of a measure- but made to be enumerated and compared by the million. Nodes are numbered in breadth first order, from
+ * the root at 0, and may be navigated, timed and compared without ever creating a node.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i>. A tree is stored as its breadth first array of subdivisions (the format of
+ * {@link RhythmTree#RhythmTree(int[])}, with 0 for a leaf), as one byte per node, alongside the precomputed index of
+ * each node's first child, as another. Since every node's children directly follow those of the node before it, the
+ * first children are in ascending order, and the parent of a node is found by a binary search of them rather than
+ * stored. The timing of a node is found by walking down from the root. Equality and hashing compare only the array of
+ * subdivisions, and the hash is computed once. Trees are ordered by their number of leaves, and then by their arrays of
+ * subdivisions, which is the canonical order in which {@link RhythmEnumerator} lists them.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class CompactRhythmTree implements Comparable<CompactRhythmTree> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The largest number of nodes of a tree, so that every index fits in a byte */
+    public static final int MAX_NODES = 255;
+    /** The largest subdivision of a node */
+    public static final int MAX_SUBDIVISION = Byte.MAX_VALUE;
+    /** The tree of a single, undivided node */
+    public static final CompactRhythmTree LEAF = get(0);
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets the tree of some subdivisions
+     * @param subdivisions the subdivision of every node in breadth first order, where 0 or 1 is a leaf
+     * @return the tree of these subdivisions
+     */
+    public static @NotNull CompactRhythmTree get(@NotNull int... subdivisions) {
+        byte[] bytes = new byte[subdivisions.length];
+        for(int index = 0; index < subdivisions.length; index++) {
+            int subdivision = subdivisions[index];
+            if(subdivision < 0 || subdivision > MAX_SUBDIVISION) {
+                throw Log.error("CompactRhythmTree", "Cannot subdivide a node " + subdivision + " times.");
+            }
+            bytes[index] = (byte) (subdivision == 1 ? 0 : subdivision);
+        }
+        return new CompactRhythmTree(bytes);
+    }
+    /**
+     * Gets the compact tree of a rhythm tree
+     * @param tree the rhythm tree
+     * @return the compact tree of the same subdivisions
+     */
+    public static @NotNull CompactRhythmTree of(@NotNull RhythmTree tree) {
+        ArrayList<Integer> list = tree.toList();
+        int[] subdivisions = new int[list.size()];
+        for(int index = 0; index < subdivisions.length; index++) {
+            subdivisions[index] = list.get(index);
+        }
+        return get(subdivisions);
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The subdivision of each node, in breadth first order, where 0 is a leaf */
+    private final byte[] subdivisions;
+    /** The index of the first child of each node, unsigned */
+    private final byte[] firstChildren;
+    /** The hash of the subdivisions */
+    private final int hash;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Creates a tree, and checks that its subdivisions form exactly one tree
+     * @param subdivisions the subdivision of each node, in breadth first order
+     */
+    private CompactRhythmTree(byte[] subdivisions) {
+        if(subdivisions.length == 0 || subdivisions.length > MAX_NODES) {
+            throw Log.error("CompactRhythmTree", "A tree must have from 1 to " + MAX_NODES + " nodes.");
+        }
+        this.subdivisions = subdivisions;
+        this.firstChildren = new byte[subdivisions.length];
+        int next = 1;
+        for(int node = 0; node < subdivisions.length; node++) {
+            if(node >= next) throw Log.error("CompactRhythmTree", "Not enough divisions to reach node " + node + ".");
+            firstChildren[node] = (byte) next;
+            next += subdivisions[node];
+            if(next > subdivisions.length) {
+                throw Log.error("CompactRhythmTree", "Not enough nodes for the divisions of node " + node + ".");
+            }
+        }
+        if(next != subdivisions.length) throw Log.error("CompactRhythmTree", "Leftover nodes after the last division.");
+        this.hash = Arrays.hashCode(subdivisions);
+    }
+    /**
+     * Gets the number of nodes of this tree
+     * @return the number of nodes of this tree
+     */
+    public int size() {
+        return subdivisions.length;
+    }
+    /**
+     * Gets the subdivision of a node
+     * @param node the index of the node
+     * @return the number of children of this node, which is 0 for a leaf
+     */
+    public int getSubdivision(int node) {
+        return subdivisions[node];
+    }
+    /**
+     * Checks if a node is a leaf
+     * @param node the index of the node
+     * @return true if this node is not subdivided
+     */
+    public boolean isLeaf(int node) {
+        return subdivisions[node] == 0;
+    }
+    /**
+     * Gets a child of a node
+     * @param node the index of the node
+     * @param index which child, from 0
+     * @return the index of this child
+     */
+    public int getChild(int node, int index) {
+        if(index < 0 || index >= subdivisions[node]) {
+            throw Log.error("CompactRhythmTree", "Node " + node + " has no child " + index + ".");
+        }
+        return firstChild(node) + index;
+    }
+    /**
+     * Gets the parent of a node
+     * @param node the index of the node
+     * @return the index of the parent of this node, or -1 for the root
+     */
+    public int getParent(int node) {
+        if(node == 0) return -1;
+        // The parent is the last node whose children start at or before this one
+        int low = 0, high = node - 1;
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if(firstChild(middle) <= node) low = middle;
+            else high = middle - 1;
+        }
+        return low;
+    }
+    /**
+     * Gets which child of its parent a node is
+     * @param node the index of the node
+     * @return the index of this node among its siblings, or 0 for the root
+     */
+    public int getChildIndex(int node) {
+        return node == 0 ? 0 : node - firstChild(getParent(node));
+    }
+    /**
+     * Gets the depth of a node
+     * @param node the index of the node
+     * @return the number of subdivisions above this node
+     */
+    public int getDepth(int node) {
+        int depth = 0;
+        while(node != 0) {
+            node = getParent(node);
+            depth++;
+        }
+        return depth;
+    }
+    /**
+     * Gets the timing of a node within the measure
+     * @param node the index of the node
+     * @return the beat at which this node starts
+     */
+    public @NotNull Beat getTiming(int node) {
+        long span = span(node);
+        return Beat.get((int) (span >>> 32), (int) span);
+    }
+    /**
+     * Gets the duration of a node
+     * @param node the index of the node
+     * @return the fraction of the measure which this node fills
+     */
+    public @NotNull Beat getDuration(int node) {
+        return Beat.get(1, (int) span(node));
+    }
+    /**
+     * Gets the number of leaves of this tree
+     * @return the number of leaves of this tree
+     */
+    public int getLeafCount() {
+        int leaves = 0;
+        for(byte subdivision : subdivisions) {
+            if(subdivision == 0) leaves++;
+        }
+        return leaves;
+    }
+    /**
+     * Gets the leaves of this tree, in the order they sound
+     * @return the index of every leaf, from the start of the measure to the end
+     */
+    public @NotNull int[] getLeaves() {
+        int[] leaves = new int[getLeafCount()];
+        int[] stack = new int[subdivisions.length];
+        int top = 0, count = 0;
+        stack[top++] = 0;
+        while(top > 0) {
+            int node = stack[--top];
+            if(subdivisions[node] == 0) leaves[count++] = node;
+            // Push the children last to first, so the first is visited next
+            else for(int child = firstChild(node) + subdivisions[node] - 1; child >= firstChild(node); child--) {
+                stack[top++] = child;
+            }
+        }
+        return leaves;
+    }
+    /**
+     * Gets the onsets of this tree on an even grid, such as 16 to the measure
+     * @param resolution the number of steps of the grid in a measure, which every leaf must start on
+     * @return a set of the steps at which leaves start
+     */
+    public @NotNull BitSet getOnsets(int resolution) {
+        BitSet onsets = new BitSet(resolution);
+        // Walk down the tree, keeping the start and length of each node in steps of the grid
+        int[] nodes = new int[subdivisions.length];
+        int[] starts = new int[subdivisions.length];
+        int[] lengths = new int[subdivisions.length];
+        int top = 0;
+        nodes[top] = 0;
+        lengths[top++] = resolution;
+        while(top > 0) {
+            int node = nodes[--top], start = starts[top], length = lengths[top];
+            int subdivision = subdivisions[node];
+            if(subdivision == 0) {
+                onsets.set(start);
+                continue;
+            }
+            if(length % subdivision != 0) {
+                throw Log.error("CompactRhythmTree", "A grid of " + resolution + " cannot time node " + node + ".");
+            }
+            for(int index = 0; index < subdivision; index++) {
+                nodes[top] = firstChild(node) + index;
+                starts[top] = start + index * (length / subdivision);
+                lengths[top++] = length / subdivision;
+            }
+        }
+        return onsets;
+    }
+    /**
+     * Converts this tree to a List of Integer subdivisions
+     * @return the subdivision of every node in breadth first order, where 0 is a leaf
+     */
+    public @NotNull ArrayList<Integer> toList() {
+        ArrayList<Integer> list = new ArrayList<>(subdivisions.length);
+        for(byte subdivision : subdivisions) {
+            list.add((int) subdivision);
+        }
+        return list;
+    }
+    /**
+     * Converts this tree to a rhythm tree of nodes
+     * @return a rhythm tree of the same subdivisions
+     */
+    public @NotNull RhythmTree toRhythmTree() {
+        int[] array = new int[subdivisions.length];
+        for(int index = 0; index < array.length; index++) {
+            array[index] = subdivisions[index];
+        }
+        return new RhythmTree(array);
+    }
+    /**
+     * Returns a string representation of this tree, in the format of {@link RhythmTree#toString()}
+     * @return a string representation of this tree, such as (([ ][ ])[ ])
+     */
+    @Override
+    public @NotNull String toString() {
+        StringBuilder builder = new StringBuilder();
+        append(builder, 0);
+        return builder.toString();
+    }
+    /**
+     * Checks if this tree has the same subdivisions as another object
+     * @param o the other object
+     * @return true if the other object is a tree of the same subdivisions
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(!(o instanceof CompactRhythmTree)) return false;
+        CompactRhythmTree other = (CompactRhythmTree) o;
+        return hash == other.hash && Arrays.equals(subdivisions, other.subdivisions);
+    }
+    /**
+     * Compares this tree to another, first by their number of leaves and then by their subdivisions
+     * @param other the other tree
+     * @return a comparison of these two trees, in canonical order
+     */
+    @Override
+    public int compareTo(@NotNull CompactRhythmTree other) {
+        int leaves = Integer.compare(getLeafCount(), other.getLeafCount());
+        if(leaves != 0) return leaves;
+        for(int index = 0; index < Math.min(size(), other.size()); index++) {
+            if(subdivisions[index] != other.subdivisions[index]) {
+                return Integer.compare(subdivisions[index], other.subdivisions[index]);
+            }
+        }
+        return Integer.compare(size(), other.size());
+    }
+    /**
+     * Gets the hash code of this tree
+     * @return the hash code of this tree's subdivisions
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private int firstChild(int node) {
+        return firstChildren[node] & 0xFF;
+    }
+    /** Finds the start of a node as a fraction of the measure, packed as its numerator over its denominator */
+    private long span(int node) {
+        if(node == 0) return 1L;
+        int parent = getParent(node);
+        long span = span(parent);
+        long numerator = (span >>> 32) * subdivisions[parent] + node - firstChild(parent);
+        long denominator = (span & 0xFFFFFFFFL) * subdivisions[parent];
+        if(denominator > Integer.MAX_VALUE) throw Log.error("CompactRhythmTree", "Node " + node + " is too deep to time.");
+        return (numerator << 32) | denominator;
+    }
+    private void append(StringBuilder builder, int node) {
+        if(subdivisions[node] == 0) {
+            builder.append("[ ]");
+            return;
+        }
+        builder.append('(');
+        for(int child = firstChild(node); child < firstChild(node) + subdivisions[node]; child++) {
+            append(builder, child);
+        }
+        builder.append(')');
+    }
+}
@@ -0,0 +1,362 @@
+package analysis;
+
+import distributions.Alphabet;
+import events.sound.Note;
+import form.part.IPart;
+import form.part.Line;
+import form.score.IScore;
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import properties.sound.Pitch;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A motif index finds every occurrence of a melodic motif across a corpus of scores, in any key. Every line of pitches
+ * in each score is indexed by its runs of n consecutive intervals, so that a motif is found by the places its own
+ * intervals occur, rather than by scanning every line.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * Each line is kept as its intervals, each as its code in {@link Alphabet#INTERVAL}, and each run of n intervals is
+ * packed into a long. The postings of a run- every (line, note) at which it starts- are kept in ascending order as
+ * variable-length deltas in a byte array, where each line is numbered across the whole index and maps back to its
+ * score. A motif's runs are looked up from the rarest, and their postings intersected (shifted back by where each run
+ * starts in the motif) until few candidates remain, which are then checked against the intervals of their lines.
+ * Motifs shorter than a run are found by checking every line.</p>
+ *
+ * <p> Scores may be added at any time. Since new lines are numbered after every line before them, their postings are
+ * simply appended. Scores are added in parallel: intervals are found for each line in parallel, and the postings are
+ * split into shards by run, each of which is appended to by a single thread in order. Queries may run in parallel with
+ * each other, but not with additions.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class MotifIndex {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The number of shards of postings, a power of two */
+    private static final int SHARDS = 64;
+    /** The number of candidates below which they are checked rather than intersected further */
+    private static final int MAX_CANDIDATES = 32;
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The number of intervals of each run */
+    private final int n;
+    /** Every score, in the order added */
+    private final ArrayList<IScore> scores = new ArrayList<>();
+    /** Every line, numbered across the index */
+    private final ArrayList<Line<Pitch>> lines = new ArrayList<>();
+    /** The score of each line */
+    private final ArrayList<Integer> lineScores = new ArrayList<>();
+    /** The interval codes of each line */
+    private final ArrayList<int[]> lineIntervals = new ArrayList<>();
+    /** The postings of each packed run, split into shards */
+    private final List<HashMap<Long, Postings>> shards = new ArrayList<>();
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Creates an empty motif index of runs of four intervals
+     */
+    public MotifIndex() {
+        this(4);
+    }
+    /**
+     * Creates an empty motif index
+     * @param n the number of intervals of each run indexed
+     */
+    public MotifIndex(int n) {
+        if(n < 1 || n * Alphabet.INTERVAL.getBits() > Long.SIZE - 1) {
+            throw Log.error("MotifIndex", "Runs of " + n + " intervals cannot be packed in a long.");
+        }
+        this.n = n;
+        for(int shard = 0; shard < SHARDS; shard++) {
+            shards.add(new HashMap<>());
+        }
+    }
+    /**
+     * Adds a score to this index
+     * @param score the score
+     */
+    public void add(@NotNull IScore score) {
+        addAll(Collections.singletonList(score));
+    }
+    /**
+     * Adds many scores to this index, in parallel
+     * @param scores the scores, which are numbered in this order
+     */
+    public void addAll(@NotNull Collection<? extends IScore> scores) {
+        List<? extends IScore> list = new ArrayList<>(scores);
+        // Find the lines of each score, and their intervals, in parallel
+        List<List<Line<Pitch>>> scoreLines = list.parallelStream()
+                .map(MotifIndex::linesOf)
+                .collect(Collectors.toList());
+        List<List<int[]>> scoreIntervals = scoreLines.parallelStream()
+                .map(each -> each.stream().map(MotifIndex::intervalsOf).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+        int firstLine = lines.size();
+        for(int index = 0; index < list.size(); index++) {
+            for(int line = 0; line < scoreLines.get(index).size(); line++) {
+                lines.add(scoreLines.get(index).get(line));
+                lineScores.add(this.scores.size());
+                lineIntervals.add(scoreIntervals.get(index).get(line));
+            }
+            this.scores.add(list.get(index));
+        }
+        int lastLine = lines.size();
+        // Pack the runs of each new line in parallel, then append them to each shard in order
+        long[][] runs = new long[lastLine - firstLine][];
+        IntStream.range(firstLine, lastLine).parallel()
+                .forEach(line -> runs[line - firstLine] = runsOf(lineIntervals.get(line)));
+        IntStream.range(0, SHARDS).parallel().forEach(shard -> {
+            HashMap<Long, Postings> postings = shards.get(shard);
+            for(int line = firstLine; line < lastLine; line++) {
+                long[] lineRuns = runs[line - firstLine];
+                for(int ordinal = 0; ordinal < lineRuns.length; ordinal++) {
+                    if(shardOf(lineRuns[ordinal]) != shard) continue;
+                    postings.computeIfAbsent(lineRuns[ordinal], run -> new Postings()).add(line, ordinal);
+                }
+            }
+        });
+    }
+    /**
+     * Finds every occurrence of a motif, in any key
+     * @param motif the pitches of the motif, of which there must be at least 2
+     * @return every place where the intervals of this motif occur, in the order their scores were added
+     */
+    public @NotNull List<Occurrence> find(@NotNull List<Pitch> motif) {
+        if(motif.size() < 2) throw Log.error("MotifIndex", "A motif must have at least two pitches.");
+        int[] intervals = codesOf(motif);
+        ArrayList<Occurrence> occurrences = new ArrayList<>();
+        if(intervals.length < n) {
+            for(int line = 0; line < lines.size(); line++) {
+                for(int ordinal = 0; ordinal + intervals.length <= lineIntervals.get(line).length; ordinal++) {
+                    if(matches(line, ordinal, intervals)) occurrences.add(new Occurrence(line, ordinal));
+                }
+            }
+            return occurrences;
+        }
+        // Intersect the postings of the motif's runs, from the rarest, until few candidates remain
+        long[] runs = runsOf(intervals);
+        Integer[] order = new Integer[runs.length];
+        for(int offset = 0; offset < runs.length; offset++) {
+            order[offset] = offset;
+            if(postingsOf(runs[offset]) == null) return occurrences;
+        }
+        Arrays.sort(order, Comparator.comparingInt(offset -> postingsOf(runs[offset]).count));
+        long[] candidates = null;
+        for(int offset : order) {
+            long[] postings = postingsOf(runs[offset]).decode(offset);
+            candidates = candidates == null ? postings : intersect(candidates, postings);
+            if(candidates.length <= MAX_CANDIDATES) break;
+        }
+        for(long candidate : candidates) {
+            int line = (int) (candidate >>> 32), ordinal = (int) candidate;
+            if(matches(line, ordinal, intervals)) occurrences.add(new Occurrence(line, ordinal));
+        }
+        return occurrences;
+    }
+    /**
+     * Finds every occurrence of a motif, in any key
+     * @param motif a line of the pitches of the motif
+     * @return every place where the intervals of this motif occur, in the order their scores were added
+     */
+    public @NotNull List<Occurrence> find(@NotNull Line<Pitch> motif) {
+        ArrayList<Pitch> pitches = new ArrayList<>();
+        for(Note<Pitch> note : motif.getNotes()) {
+            pitches.add(note.getSound());
+        }
+        return find(pitches);
+    }
+    /**
+     * Gets the number of scores in this index
+     * @return the number of scores in this index
+     */
+    public int size() {
+        return scores.size();
+    }
+
+    /** Finds every line of pitches of a score */
+    @SuppressWarnings("unchecked")
+    private static List<Line<Pitch>> linesOf(IScore score) {
+        ArrayList<Line<Pitch>> lines = new ArrayList<>();
+        for(IPart<?> part : score.getParts()) {
+            if(!(part instanceof Line)) continue;
+            Note<?> first = ((Line<?>) part).getNotes().getFirst();
+            if(first != null && first.getSound() instanceof Pitch) lines.add((Line<Pitch>) part);
+        }
+        return lines;
+    }
+    /** Finds the interval code from each note of a line to the next */
+    private static int[] intervalsOf(Line<Pitch> line) {
+        ArrayList<Pitch> pitches = new ArrayList<>();
+        for(Note<Pitch> note : line.getNotes()) {
+            pitches.add(note.getSound());
+        }
+        return codesOf(pitches);
+    }
+    /** Finds the interval code from each pitch to the next */
+    private static int[] codesOf(List<Pitch> pitches) {
+        int[] intervals = new int[Math.max(0, pitches.size() - 1)];
+        for(int index = 0; index < intervals.length; index++) {
+            intervals[index] = Alphabet.INTERVAL.encode(pitches.get(index).minus(pitches.get(index + 1)));
+        }
+        return intervals;
+    }
+    /** Packs the run of n intervals from each interval on */
+    private long[] runsOf(int[] intervals) {
+        long[] runs = new long[Math.max(0, intervals.length - n + 1)];
+        int bits = Alphabet.INTERVAL.getBits();
+        long run = 0L;
+        for(int index = 0; index < intervals.length; index++) {
+            run = (run << bits) | intervals[index];
+            if(index >= n - 1) {
+                runs[index - n + 1] = run & (-1L >>> (Long.SIZE - n * bits));
+            }
+        }
+        return runs;
+    }
+    private Postings postingsOf(long run) {
+        return shards.get(shardOf(run)).get(run);
+    }
+    /** Checks if the intervals of a line from a note on are those of a motif */
+    private boolean matches(int line, int ordinal, int[] intervals) {
+        int[] candidate = lineIntervals.get(line);
+        if(ordinal < 0 || ordinal + intervals.length > candidate.length) return false;
+        for(int index = 0; index < intervals.length; index++) {
+            if(candidate[ordinal + index] != intervals[index]) return false;
+        }
+        return true;
+    }
+    /** Intersects two ascending arrays */
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int size = 0;
+        for(int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if(a[i] < b[j]) i++;
+            else if(a[i] > b[j]) j++;
+            else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+    private static int shardOf(long run) {
+        run ^= run >>> 33;
+        run *= 0xff51afd7ed558ccdL;
+        run ^= run >>> 33;
+        return (int) run & (SHARDS - 1);
+    }
+
+    /**
+     * <p> <b>Class overview:</b>
+     * An occurrence of a motif: the score, line and note at which it starts.</p>
+     */
+    public final class Occurrence {
+        /** The number of the line, across the index */
+        private final int line;
+        /** The number of the note in its line, from 0 */
+        private final int ordinal;
+
+        private Occurrence(int line, int ordinal) {
+            this.line = line;
+            this.ordinal = ordinal;
+        }
+        /**
+         * A getter for the score of this occurrence
+         * @return the score in which the motif occurs
+         */
+        public @NotNull IScore getScore() {
+            return scores.get(lineScores.get(line));
+        }
+        /**
+         * A getter for the line of this occurrence
+         * @return the line in which the motif occurs
+         */
+        public @NotNull Line<Pitch> getLine() {
+            return lines.get(line);
+        }
+        /**
+         * A getter for the note at which this occurrence starts
+         * @return the number of the note in its line, from 0
+         */
+        public int getOrdinal() {
+            return ordinal;
+        }
+        /**
+         * Returns a string representation of this occurrence
+         * @return a string representation of this occurrence, such as "Chorale", note 12
+         */
+        @Override
+        public @NotNull String toString() {
+            return "\"" + getScore().getTitle() + "\", note " + ordinal;
+        }
+    }
+
+    /**
+     * <p> <b>Class overview:</b>
+     * The postings of a run, as ascending (line, note) pairs. Each is written as the change in line, and then as the
+     * note if the line changed, or else the change in note, each as a variable-length integer of 7 bits per byte.</p>
+     */
+    private static final class Postings {
+        private byte[] bytes = new byte[8];
+        private int length = 0;
+        private int count = 0;
+        private int lastLine = 0;
+        private int lastOrdinal = 0;
+
+        private void add(int line, int ordinal) {
+            write(line - lastLine);
+            write(line == lastLine && count > 0 ? ordinal - lastOrdinal : ordinal);
+            lastLine = line;
+            lastOrdinal = ordinal;
+            count++;
+        }
+        /** Decodes every posting, packed as its line over its note, with each note moved back by an offset */
+        private long[] decode(int offset) {
+            long[] postings = new long[count];
+            int size = 0, position = 0, line = 0, ordinal = 0;
+            for(int index = 0; index < count; index++) {
+                int lineDelta = 0, shift = 0, value = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    lineDelta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while(b < 0);
+                shift = 0;
+                do {
+                    b = bytes[position++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while(b < 0);
+                line += lineDelta;
+                ordinal = lineDelta == 0 && index > 0 ? ordinal + value : value;
+                // A run found before the motif could start cannot be part of it
+                if(ordinal >= offset) postings[size++] = ((long) line << 32) | (ordinal - offset);
+            }
+            return size == count ? postings : Arrays.copyOf(postings, size);
+        }
+        private void write(int value) {
+            if(length + 5 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            while((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package analysis;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import properties.time.ITime;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A rhythm enumerator lists every distinct rhythm of a measure which a {@link CompactRhythmTree} can express, up to a
+ * depth and a number of leaves, from given subdivisions. Trees which start their leaves at the same onsets- such as
+ * four quarters, and two halves each split in two- are the same rhythm, and only the simplest of them is listed. The
+ * rhythms are indexed by their onsets, so that the tree of any rhythm can be looked up.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * Trees are listed in canonical order- by number of leaves, and then by their subdivisions- which is the natural
+ * order of {@link CompactRhythmTree}. The work is split into units of every tree with a given number of leaves and
+ * root subdivision, which are generated in order and streamed lazily, one unit at a time. Within a unit, the trees are
+ * generated from the memoized lists of smaller subtrees, and each is checked in parallel against the simplest tree of
+ * its onsets, as found by a {@link RhythmInference}: a tree is listed only if it is that tree. Since a tree has exactly
+ * one leaf per onset, the simplest tree of a rhythm has no more leaves than any other, so every rhythm within the
+ * bounds is listed exactly once. Every subtree of a simplest tree is also the simplest of its own onsets, so the lists
+ * of subtrees are checked the same way, which keeps them from multiplying. Onsets are kept as sets of steps on a grid
+ * fine enough for every tree within the bounds, such as 1296 steps for four levels of 2 and 3.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class RhythmEnumerator {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The finest grid of onsets which may be indexed */
+    private static final int MAX_RESOLUTION = 1 << 24;
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The deepest a leaf may be */
+    private final int maxDepth;
+    /** The most leaves a tree may have */
+    private final int maxLeaves;
+    /** The allowed subdivisions, in ascending order */
+    private final int[] subdivisions;
+    /** Finds the simplest tree of each rhythm */
+    private final RhythmInference inference;
+    /** The number of steps of the grid of onsets in a measure */
+    private final int resolution;
+    /** Every tree of a number of leaves and depth, by leaves * 256 + depth */
+    private final ConcurrentHashMap<Integer, List<CompactRhythmTree>> subtrees = new ConcurrentHashMap<>();
+    /** The simplest tree of each set of onsets, built once it is first needed */
+    private volatile Map<BitSet, CompactRhythmTree> index;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Creates a rhythm enumerator
+     * @param maxDepth the deepest a leaf may be, where the whole measure is at depth 0
+     * @param maxLeaves the most leaves a tree may have
+     * @param subdivisions the allowed subdivisions, from most to least preferred among trees of the same rhythm
+     */
+    public RhythmEnumerator(int maxDepth, int maxLeaves, @NotNull int... subdivisions) {
+        if(maxLeaves < 1 || maxLeaves > CompactRhythmTree.MAX_NODES / 2) {
+            throw Log.error("RhythmEnumerator",
+                            "A tree must have from 1 to " + CompactRhythmTree.MAX_NODES / 2 + " leaves.");
+        }
+        this.inference = new RhythmInference(maxDepth, subdivisions);
+        this.maxDepth = maxDepth;
+        this.maxLeaves = maxLeaves;
+        this.subdivisions = subdivisions.clone();
+        Arrays.sort(this.subdivisions);
+        // The grid must divide evenly by every product of subdivisions down to the deepest leaf
+        long resolution = 1L;
+        Set<Long> products = new HashSet<>(Collections.singleton(1L));
+        for(int depth = 0; depth < maxDepth; depth++) {
+            Set<Long> next = new HashSet<>();
+            for(long product : products) {
+                for(int subdivision : this.subdivisions) {
+                    if(product * subdivision > MAX_RESOLUTION) {
+                        throw Log.error("RhythmEnumerator", "Too fine a grid to index onsets.");
+                    }
+                    next.add(product * subdivision);
+                }
+            }
+            products = next;
+            for(long product : products) {
+                resolution = resolution / gcd(resolution, product) * product;
+                if(resolution > MAX_RESOLUTION) throw Log.error("RhythmEnumerator", "Too fine a grid to index onsets.");
+            }
+        }
+        this.resolution = (int) resolution;
+    }
+    /**
+     * Lists every distinct rhythm within the bounds of this enumerator, in canonical order
+     * @return a lazy stream of the simplest tree of every rhythm
+     */
+    public @NotNull Stream<CompactRhythmTree> stream() {
+        ArrayList<int[]> units = new ArrayList<>();
+        units.add(new int[] {1, 0});
+        for(int leaves = 2; leaves <= maxLeaves; leaves++) {
+            for(int subdivision : subdivisions) {
+                if(subdivision <= leaves) units.add(new int[] {leaves, subdivision});
+            }
+        }
+        return units.stream().flatMap(unit -> unit(unit[0], unit[1]).stream());
+    }
+    /**
+     * Gets the number of steps of the grid on which onsets are indexed
+     * @return the number of steps of the grid in a measure
+     */
+    public int getResolution() {
+        return resolution;
+    }
+    /**
+     * Gets the index of every rhythm by its onsets
+     * @return an unmodifiable map from the set of steps of the grid at which leaves start, to the simplest tree
+     */
+    public @NotNull Map<BitSet, CompactRhythmTree> getIndex() {
+        Map<BitSet, CompactRhythmTree> result = index;
+        if(result == null) {
+            synchronized(this) {
+                if(index == null) {
+                    index = Collections.unmodifiableMap(stream().collect(Collectors.toMap(
+                            tree -> tree.getOnsets(resolution), tree -> tree, (first, second) -> first, HashMap::new)));
+                }
+                result = index;
+            }
+        }
+        return result;
+    }
+    /**
+     * Looks up the tree of a rhythm
+     * @param onsets the steps of the grid at which notes start, where step 0 is the start of the measure
+     * @return the simplest tree of this rhythm, or null if it is not within the bounds of this enumerator
+     */
+    public @Nullable CompactRhythmTree lookup(@NotNull BitSet onsets) {
+        return getIndex().get(onsets);
+    }
+    /**
+     * Looks up the tree of a rhythm
+     * @param onsets the times at which notes start, from the start of the measure
+     * @return the simplest tree of this rhythm, or null if it is not within the bounds of this enumerator
+     */
+    public @Nullable CompactRhythmTree lookup(@NotNull Collection<? extends ITime> onsets) {
+        BitSet steps = new BitSet(resolution);
+        // A measure always has a leaf at its start, even if it starts with a tie or a rest
+        steps.set(0);
+        for(ITime onset : onsets) {
+            int numerator = onset.getNumerator(), denominator = onset.getDenominator();
+            if(numerator < 0 || numerator >= denominator || resolution % denominator != 0) return null;
+            steps.set(numerator * (resolution / denominator));
+        }
+        return lookup(steps);
+    }
+
+    /** Lists the simplest trees of a unit, in canonical order */
+    private List<CompactRhythmTree> unit(int leaves, int subdivision) {
+        List<CompactRhythmTree> trees = subdivision == 0
+                ? subtrees(1, maxDepth)
+                : branch(leaves, maxDepth, subdivision);
+        return trees.parallelStream()
+                .filter(tree -> tree.equals(inference.simplify(tree, 0)))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+    /** Lists every tree of a number of leaves, no deeper than a depth */
+    private List<CompactRhythmTree> subtrees(int leaves, int depth) {
+        int key = leaves * 256 + depth;
+        List<CompactRhythmTree> known = subtrees.get(key);
+        if(known != null) return known;
+        ArrayList<CompactRhythmTree> trees = new ArrayList<>();
+        if(leaves == 1) trees.add(CompactRhythmTree.LEAF);
+        else if(depth > 0) {
+            for(int subdivision : subdivisions) {
+                if(subdivision <= leaves) trees.addAll(branch(leaves, depth, subdivision));
+            }
+        }
+        // Every subtree of a simplest tree is itself the simplest, so the rest may be dropped before they multiply
+        List<CompactRhythmTree> simplest = trees.parallelStream()
+                .filter(tree -> tree.equals(inference.simplify(tree, maxDepth - depth)))
+                .collect(Collectors.toList());
+        subtrees.put(key, simplest);
+        return simplest;
+    }
+    /** Lists every tree of a number of leaves, no deeper than a depth, whose root has a given subdivision */
+    private List<CompactRhythmTree> branch(int leaves, int depth, int subdivision) {
+        ArrayList<CompactRhythmTree> trees = new ArrayList<>();
+        List<List<CompactRhythmTree>> choices = new ArrayList<>(Collections.nCopies(subdivision, null));
+        share(choices, 0, leaves, depth - 1, trees);
+        return trees;
+    }
+    /** Tries every way to share the remaining leaves among the children from one on, and joins every choice */
+    private void share(List<List<CompactRhythmTree>> choices, int child, int leaves, int depth,
+                       List<CompactRhythmTree> trees) {
+        if(child == choices.size() - 1) {
+            choices.set(child, subtrees(leaves, depth));
+            if(!choices.get(child).isEmpty()) product(choices, trees);
+            return;
+        }
+        for(int share = 1; share <= leaves - (choices.size() - 1 - child); share++) {
+            choices.set(child, subtrees(share, depth));
+            if(!choices.get(child).isEmpty()) share(choices, child + 1, leaves - share, depth, trees);
+        }
+    }
+    /** Joins every choice of child trees under a root, and adds the results */
+    private static void product(List<List<CompactRhythmTree>> choices, List<CompactRhythmTree> trees) {
+        int[] picks = new int[choices.size()];
+        CompactRhythmTree[] children = new CompactRhythmTree[choices.size()];
+        while(true) {
+            for(int child = 0; child < children.length; child++) {
+                children[child] = choices.get(child).get(picks[child]);
+            }
+            trees.add(join(children));
+            int child = children.length - 1;
+            while(child >= 0 && ++picks[child] == choices.get(child).size()) {
+                picks[child--] = 0;
+            }
+            if(child < 0) return;
+        }
+    }
+    /** Joins child trees under a root, by interleaving their breadth first arrays level by level */
+    private static CompactRhythmTree join(CompactRhythmTree[] children) {
+        int size = 1;
+        int[] starts = new int[children.length];
+        int[] ends = new int[children.length];
+        for(int child = 0; child < children.length; child++) {
+            size += children[child].size();
+            ends[child] = 1;
+        }
+        int[] array = new int[size];
+        array[0] = children.length;
+        int next = 1;
+        while(next < size) {
+            for(int child = 0; child < children.length; child++) {
+                // Copy this child's current level, and find where its next level ends
+                int levelEnd = ends[child];
+                for(int node = starts[child]; node < ends[child]; node++) {
+                    array[next++] = children[child].getSubdivision(node);
+                    levelEnd += children[child].getSubdivision(node);
+                }
+                starts[child] = ends[child];
+                ends[child] = levelEnd;
+            }
+        }
+        return CompactRhythmTree.get(array);
+    }
+    private static long gcd(long a, long b) {
+        while(b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
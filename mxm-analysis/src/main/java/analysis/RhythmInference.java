@@ -0,0 +1,309 @@
+package analysis;
+
+import events.sound.Note;
+import form.part.Line;
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import properties.time.Beat;
+import properties.time.ITime;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A rhythm inference explains each measure of a line as the simplest {@link CompactRhythmTree} whose leaves start at
+ * every onset and offset of the measure- the tree of fewest nodes, built from a given set of subdivisions (such as 2
+ * and 3) no deeper than a given depth. Measures which no such tree can explain, such as 7 even notes when only 2 and 3
+ * are allowed, have no tree. A leaf may continue a note from before, as a tie, but a tree may also be simplified
+ * exactly, to the simplest tree whose every leaf starts at one of its onsets.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * Trees are found by dynamic programming. A span of the measure is either a leaf, if no onset or offset falls inside
+ * it, or else is split by each allowed subdivision, and costs one node plus the best of its children. Since the best
+ * tree of a span depends only on where its onsets fall relative to its own start, each span is scaled to a whole
+ * measure, and memoized by the subset of onsets inside it (as reduced fractions) and its depth. Thus the second half
+ * of one measure and the first beat of another share their work, as do every measure of a corpus. The memo is
+ * concurrent, so measures may be explained in parallel: at worst, two threads both solve the same span.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class RhythmInference {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** An inference of duple and triple subdivisions, down to sixteenths of a measure */
+    public static final RhythmInference DEFAULT = new RhythmInference(4, 2, 3);
+
+    /** The result of a span which cannot be explained */
+    private static final int INFEASIBLE = Integer.MAX_VALUE;
+    /** The packed fraction 0/1, the start of a span */
+    private static final long ZERO = 1L;
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The deepest a leaf may be */
+    private final int maxDepth;
+    /** The allowed subdivisions, from most to least preferred */
+    private final int[] subdivisions;
+    /** The best cost of each span, times 256, plus which subdivision achieves it (from 1), or 0 for a leaf */
+    private final ConcurrentHashMap<Span, Integer> memo = new ConcurrentHashMap<>();
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Creates a rhythm inference
+     * @param maxDepth the deepest a leaf may be, where the whole measure is at depth 0
+     * @param subdivisions the allowed subdivisions, from most to least preferred among trees of equal size
+     */
+    public RhythmInference(int maxDepth, @NotNull int... subdivisions) {
+        if(maxDepth < 0) throw Log.error("RhythmInference", "The depth of a tree may not be negative.");
+        if(subdivisions.length == 0) throw Log.error("RhythmInference", "At least one subdivision must be allowed.");
+        for(int subdivision : subdivisions) {
+            if(subdivision < 2 || subdivision > CompactRhythmTree.MAX_SUBDIVISION) {
+                throw Log.error("RhythmInference", "Cannot subdivide a node " + subdivision + " times.");
+            }
+        }
+        this.maxDepth = maxDepth;
+        this.subdivisions = subdivisions.clone();
+    }
+    /**
+     * Explains a measure by its onsets and offsets
+     * @param onsets the times at which notes start, from the start of the measure
+     * @param offsets the times at which notes end, from the start of the measure
+     * @return the simplest tree whose leaves start at every onset and offset, or null if there is none
+     */
+    public @Nullable CompactRhythmTree infer(@NotNull Collection<? extends ITime> onsets,
+                                             @NotNull Collection<? extends ITime> offsets) {
+        ArrayList<ITime> points = new ArrayList<>(onsets);
+        points.addAll(offsets);
+        return infer(points);
+    }
+    /**
+     * Explains a measure by the points at which its leaves must start
+     * @param points the times at which leaves must start, from the start of the measure, below one measure
+     * @return the simplest tree whose leaves start at every point, or null if there is none
+     */
+    public @Nullable CompactRhythmTree infer(@NotNull Collection<? extends ITime> points) {
+        TreeSet<Long> set = new TreeSet<>();
+        for(ITime point : points) {
+            long numerator = point.getNumerator(), denominator = point.getDenominator();
+            if(numerator < 0 || numerator >= denominator) {
+                throw Log.error("RhythmInference", point + " does not fall within a measure.");
+            }
+            if(numerator > 0) set.add(fraction(numerator, denominator));
+        }
+        return build(new Span(0, toArray(set), false));
+    }
+    /**
+     * Finds the simplest tree with exactly the same onsets as another, whose every leaf starts at one of them
+     * @param tree the tree
+     * @return the simplest tree whose leaves start exactly where those of this tree do, or null if there is none
+     */
+    public @Nullable CompactRhythmTree simplify(@NotNull CompactRhythmTree tree) {
+        return simplify(tree, 0);
+    }
+    /**
+     * Finds the simplest tree with exactly the same onsets as another, which is to be placed at a given depth
+     * @param tree the tree
+     * @param depth the depth of the root of this tree
+     * @return the simplest such tree, no deeper than this inference allows from this depth, or null if there is none
+     */
+    @Nullable CompactRhythmTree simplify(@NotNull CompactRhythmTree tree, int depth) {
+        int[] leaves = tree.getLeaves();
+        long[] points = new long[leaves.length];
+        for(int index = 0; index < leaves.length; index++) {
+            Beat timing = tree.getTiming(leaves[index]);
+            points[index] = fraction(timing.getNumerator(), timing.getDenominator());
+        }
+        Arrays.sort(points);
+        return build(new Span(depth, points, true));
+    }
+    /**
+     * Explains every measure of a line
+     * @param line the line
+     * @return the simplest tree of each measure from the first, which is null for any measure with no tree
+     */
+    public @NotNull List<CompactRhythmTree> infer(@NotNull Line<?> line) {
+        return inferAll(Collections.singletonList(line)).get(0);
+    }
+    /**
+     * Explains every measure of many lines, in parallel
+     * @param lines the lines
+     * @return for each line, the simplest tree of each measure from the first, which is null for any measure with no
+     * tree
+     */
+    public @NotNull List<List<CompactRhythmTree>> inferAll(@NotNull Collection<? extends Line<?>> lines) {
+        // Gather every measure of every line, so the work is split by measure rather than by line
+        ArrayList<Span> spans = new ArrayList<>();
+        int[] measureCounts = new int[lines.size()];
+        int index = 0;
+        for(Line<?> line : lines) {
+            List<Span> measures = measuresOf(line);
+            spans.addAll(measures);
+            measureCounts[index++] = measures.size();
+        }
+        CompactRhythmTree[] trees = new CompactRhythmTree[spans.size()];
+        IntStream.range(0, trees.length).parallel().forEach(measure -> trees[measure] = build(spans.get(measure)));
+        ArrayList<List<CompactRhythmTree>> result = new ArrayList<>(lines.size());
+        int start = 0;
+        for(int measureCount : measureCounts) {
+            result.add(Collections.unmodifiableList(Arrays.asList(trees).subList(start, start + measureCount)));
+            start += measureCount;
+        }
+        return result;
+    }
+
+    /** Finds the points of each measure of a line, ignoring any pickup */
+    private static List<Span> measuresOf(Line<?> line) {
+        ArrayList<TreeSet<Long>> measures = new ArrayList<>();
+        for(Note<?> note : line.getNotes()) {
+            addPoint(measures, note.getStart(), false);
+            addPoint(measures, note.getEnd(), true);
+        }
+        ArrayList<Span> spans = new ArrayList<>(measures.size());
+        for(TreeSet<Long> points : measures) {
+            spans.add(new Span(0, toArray(points), false));
+        }
+        return spans;
+    }
+    private static void addPoint(List<TreeSet<Long>> measures, ITime time, boolean isEnd) {
+        long numerator = time.getNumerator(), denominator = time.getDenominator();
+        int measure = (int) Math.floorDiv(numerator, denominator);
+        long remainder = Math.floorMod(numerator, denominator);
+        // A note which ends on a barline adds nothing to the next measure
+        if(isEnd && remainder == 0) measure--;
+        if(measure < 0) return;
+        while(measures.size() <= measure) {
+            measures.add(new TreeSet<>());
+        }
+        if(remainder > 0) measures.get(measure).add(fraction(remainder, denominator));
+    }
+    /** Builds the breadth first subdivisions of the best tree of a span */
+    private @Nullable CompactRhythmTree build(Span root) {
+        int result = solve(root);
+        if(result == INFEASIBLE) return null;
+        int[] array = new int[result >>> 8];
+        int size = 0;
+        ArrayDeque<Span> queue = new ArrayDeque<>();
+        queue.add(root);
+        while(!queue.isEmpty()) {
+            Span span = queue.poll();
+            int choice = solve(span) & 0xFF;
+            if(choice == 0) array[size++] = 0;
+            else {
+                array[size++] = subdivisions[choice - 1];
+                queue.addAll(Arrays.asList(split(span, subdivisions[choice - 1])));
+            }
+        }
+        return CompactRhythmTree.get(array);
+    }
+    /** Finds the best cost of a span, times 256, plus which subdivision achieves it */
+    private int solve(Span span) {
+        Integer known = memo.get(span);
+        if(known != null) return known;
+        int best = INFEASIBLE;
+        // A leaf may not hide a point, and when exact, must start at one
+        if(span.exact ? span.points.length == 1 && span.points[0] == ZERO : span.points.length == 0) best = 1 << 8;
+        else if(span.depth < maxDepth) {
+            for(int choice = 0; choice < subdivisions.length; choice++) {
+                int cost = 1;
+                for(Span child : split(span, subdivisions[choice])) {
+                    int result = solve(child);
+                    cost = result == INFEASIBLE ? INFEASIBLE : cost + (result >>> 8);
+                    if(cost > CompactRhythmTree.MAX_NODES) break;
+                }
+                if(cost <= CompactRhythmTree.MAX_NODES && cost < best >>> 8) best = (cost << 8) | (choice + 1);
+            }
+        }
+        memo.put(span, best);
+        return best;
+    }
+    /** Splits a span into equal children, each scaled to a whole measure */
+    private static Span[] split(Span span, int subdivision) {
+        int[] counts = new int[subdivision];
+        long[] numerators = new long[span.points.length];
+        int[] children = new int[span.points.length];
+        for(int index = 0; index < span.points.length; index++) {
+            long numerator = (span.points[index] >>> 32) * subdivision;
+            long denominator = span.points[index] & 0xFFFFFFFFL;
+            children[index] = (int) (numerator / denominator);
+            numerators[index] = numerator % denominator;
+            // A point on the boundary between children is the start of the later one
+            if(numerators[index] != 0 || span.exact) counts[children[index]]++;
+        }
+        Span[] spans = new Span[subdivision];
+        long[][] points = new long[subdivision][];
+        for(int child = 0; child < subdivision; child++) {
+            points[child] = new long[counts[child]];
+            counts[child] = 0;
+        }
+        for(int index = 0; index < span.points.length; index++) {
+            if(numerators[index] == 0 && !span.exact) continue;
+            points[children[index]][counts[children[index]]++] =
+                    fraction(numerators[index], span.points[index] & 0xFFFFFFFFL);
+        }
+        for(int child = 0; child < subdivision; child++) {
+            Arrays.sort(points[child]);
+            spans[child] = new Span(span.depth + 1, points[child], span.exact);
+        }
+        return spans;
+    }
+    /** Packs a fraction, reduced, as its numerator over its denominator */
+    private static long fraction(long numerator, long denominator) {
+        long a = numerator, b = denominator;
+        while(b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return ((numerator / a) << 32) | (denominator / a);
+    }
+    private static long[] toArray(Collection<Long> points) {
+        long[] array = new long[points.size()];
+        int index = 0;
+        for(long point : points) {
+            array[index++] = point;
+        }
+        return array;
+    }
+
+    /**
+     * <p> <b>Class overview:</b>
+     * A span of a measure, scaled to a whole measure: the points inside it, as sorted packed fractions, and its
+     * depth. An exact span also keeps a point at its start, since each of its leaves must start at a point, while
+     * any other span may have leaves which continue a note from before.</p>
+     */
+    private static final class Span {
+        private final int depth;
+        private final long[] points;
+        private final boolean exact;
+        private final int hash;
+
+        private Span(int depth, long[] points, boolean exact) {
+            this.depth = depth;
+            this.points = points;
+            this.exact = exact;
+            this.hash = 31 * (31 * depth + Arrays.hashCode(points)) + (exact ? 1 : 0);
+        }
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof Span)) return false;
+            Span other = (Span) o;
+            return depth == other.depth && exact == other.exact && Arrays.equals(points, other.points);
+        }
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
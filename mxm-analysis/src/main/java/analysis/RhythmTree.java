@@ -71,11 +71,28 @@ public class RhythmTree {
     }
 
     /**
-     * Converts this analysis.RhythmTree to a List of Integer subdivisions
+     * Converts this analysis.RhythmTree to a List of Integer subdivisions, in the same Breadth First order as the
+     * int[] constructor takes them.
      * @return A List of Integer subdivisions.
      */
     public ArrayList<Integer> toList() {
-        return root.toList();
+        ArrayList<Integer> toReturn = new ArrayList<>();
+        Queue<RhythmNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        while(!queue.isEmpty()) {
+            RhythmNode node = queue.poll();
+            toReturn.add(node.getValue());
+            queue.addAll(node.getChildren());
+        }
+        return toReturn;
+    }
+
+    /**
+     * Converts this analysis.RhythmTree to its compact form.
+     * @return A CompactRhythmTree of the same subdivisions.
+     */
+    public CompactRhythmTree compact() {
+        return CompactRhythmTree.of(this);
     }
 }
 
@@ -181,12 +198,14 @@ class RhythmNode {
         // Ensure we're not trying something stupid
         if(times > 1) {
             if(children.size()==0) {
-                int newDenominator = this.duration.getDenominator() * times;
-                int newNumerator = this.duration.getNumerator() * times;
+                // Each child starts a further 1/times of this node's duration after the start of this node
+                int newDenominator = this.timing.getDenominator() * this.duration.getDenominator() * times;
+                int newNumerator = this.timing.getNumerator() * this.duration.getDenominator() * times;
+                int step = this.duration.getNumerator() * this.timing.getDenominator();
                 // Add "times" many children
                 for (int i = 0; i < times; i++) {
-                    Beat newTiming = Beat.get(newNumerator + i, newDenominator);
-                    Beat newDuration = Beat.get(1, newDenominator);
+                    Beat newTiming = Beat.get(newNumerator + i * step, newDenominator);
+                    Beat newDuration = Beat.get(this.duration.getNumerator(), this.duration.getDenominator() * times);
                     children.add(new RhythmNode(tree,this,newTiming,newDuration));
                 }
             }
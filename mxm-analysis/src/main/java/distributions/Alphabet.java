@@ -0,0 +1,125 @@
+package distributions;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import properties.sound.Chord;
+import properties.sound.ChordClass;
+import properties.sound.Interval;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import properties.time.ITime;
+import properties.time.Time;
+
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * <p> <b>Class overview:</b>
+ * An alphabet numbers the symbols of some type- such as pitches, intervals, chords or durations- with small
+ * non-negative codes, so that a sequence of symbols can be packed into a single long.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i>. The alphabets of flyweight types number each symbol by its ordinal (a pitch by its
+ * value, a chord by its place in the table of chords), and decode a code back into the one instance of its symbol.
+ * Each alphabet has a fixed number of bits per code, which bounds the length of the n-grams it can pack.</p>
+ *
+ * @param <SymbolType> the type of symbol
+ *
+ * @author Patrick Celentano
+ */
+public final class Alphabet<SymbolType> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The largest numerator and denominator of a duration */
+    private static final int MAX_DURATION_TERM = 64;
+
+    /** Pitches, by value */
+    public static final Alphabet<Pitch> PITCH = new Alphabet<>("pitch", 7, Pitch::getValue,
+            code -> Pitch.get(PitchClass.get(code % PitchClass.TOTAL_NUM), code / PitchClass.TOTAL_NUM - 1));
+    /** Intervals, by size, from the largest downward interval up */
+    public static final Alphabet<Interval> INTERVAL = new Alphabet<>("interval", 8,
+            interval -> interval.getSize() - Interval.MIN.getSize(),
+            code -> Interval.get(code + Interval.MIN.getSize()));
+    /** Chords, by their place in the table of chords (root, then chord class) */
+    public static final Alphabet<Chord> CHORD = new Alphabet<>("chord", 16, Chord::getValue,
+            code -> Chord.get(PitchClass.get(code / ChordClass.TOTAL_NUM), ChordClass.get(code % ChordClass.TOTAL_NUM)));
+    /** Durations of up to 64 measures, which divide a measure into no more than 64 */
+    public static final Alphabet<ITime> DURATION = new Alphabet<>("duration", 12, Alphabet::encodeDuration,
+            code -> Time.get(code / MAX_DURATION_TERM + 1, code % MAX_DURATION_TERM + 1));
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The name of this alphabet */
+    private final String name;
+    /** The number of bits of each code */
+    private final int bits;
+    /** Finds the code of a symbol */
+    private final ToIntFunction<SymbolType> encoder;
+    /** Finds the symbol of a code */
+    private final IntFunction<SymbolType> decoder;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Creates an alphabet
+     * @param name the name of this alphabet
+     * @param bits the number of bits of each code
+     * @param encoder finds the code of a symbol, from 0 to 2^bits - 1
+     * @param decoder finds the symbol of a code
+     */
+    public Alphabet(@NotNull String name, int bits, @NotNull ToIntFunction<SymbolType> encoder,
+                    @NotNull IntFunction<SymbolType> decoder) {
+        if(bits < 1 || bits > 31) throw Log.error("Alphabet", "Codes must have from 1 to 31 bits.");
+        this.name = name;
+        this.bits = bits;
+        this.encoder = encoder;
+        this.decoder = decoder;
+    }
+    /**
+     * A getter for the number of bits of each code
+     * @return the number of bits of each code
+     */
+    public int getBits() {
+        return bits;
+    }
+    /**
+     * Gets the code of a symbol
+     * @param symbol the symbol
+     * @return the code of this symbol
+     */
+    public int encode(@NotNull SymbolType symbol) {
+        int code = encoder.applyAsInt(symbol);
+        if(code < 0 || code >= 1 << bits) throw Log.error("Alphabet", symbol + " is not in the " + name + " alphabet.");
+        return code;
+    }
+    /**
+     * Gets the symbol of a code
+     * @param code the code
+     * @return the symbol of this code
+     */
+    public @NotNull SymbolType decode(int code) {
+        return decoder.apply(code);
+    }
+    /**
+     * Returns the name of this alphabet
+     * @return the name of this alphabet
+     */
+    @Override
+    public @NotNull String toString() {
+        return name;
+    }
+
+    private static int encodeDuration(ITime duration) {
+        int num = duration.getNumerator();
+        int den = duration.getDenominator();
+        if(num < 1 || num > MAX_DURATION_TERM || den > MAX_DURATION_TERM) return -1;
+        return (num - 1) * MAX_DURATION_TERM + (den - 1);
+    }
+}
@@ -0,0 +1,208 @@
+package distributions;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A conditional distribution holds a {@link Distribution} of elements for each context, such as the distribution of
+ * the next pitch given the pitches before it. Conditional distributions may be built from any map of counts by
+ * context, or from the n-grams of an {@link NGramCounter}, whose first n - 1 symbols are the context of the last.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i>. The contexts are spread by hash over about the square root of their number of
+ * buckets, each a small map of its own. Changing a count returns a new conditional distribution which copies only the
+ * list of buckets and the one bucket of the changed context- O(sqrt(n)) references, rather than all n contexts- and
+ * shares every other bucket. The distribution of the changed context is itself changed cheaply, as described by
+ * {@link Distribution}. The buckets are split again once the contexts outgrow them, so the cost of an update stays
+ * near O(sqrt(n)) as contexts are added.</p>
+ *
+ * @param <ContextType> the type of context
+ * @param <ElementType> the type of element
+ *
+ * @author Patrick Celentano
+ */
+public final class ConditionalDistribution<ContextType, ElementType> {
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets the conditional distribution of some counts
+     * @param counts the count of each element, by context
+     * @param <ContextType> the type of context
+     * @param <ElementType> the type of element
+     * @return the conditional distribution of these counts
+     */
+    public static <ContextType, ElementType> @NotNull ConditionalDistribution<ContextType, ElementType> of(
+            @NotNull Map<ContextType, ? extends Map<ElementType, Long>> counts) {
+        HashMap<ContextType, Distribution<ElementType>> distributions = new HashMap<>();
+        for(Map.Entry<ContextType, ? extends Map<ElementType, Long>> entry : counts.entrySet()) {
+            distributions.put(entry.getKey(), Distribution.of(entry.getValue()));
+        }
+        return new ConditionalDistribution<>(distributions);
+    }
+    /**
+     * Gets the conditional distribution of the last symbol of each n-gram, given the symbols before it
+     * @param counts the counts of a counter whose n is at least 2
+     * @param <SymbolType> the type of symbol
+     * @return the conditional distribution of these symbols
+     */
+    public static <SymbolType> @NotNull ConditionalDistribution<List<SymbolType>, SymbolType> of(
+            @NotNull NGramCounter<SymbolType>.Counts counts) {
+        NGramCounter<SymbolType> counter = counts.getCounter();
+        if(counter.getN() < 2) throw Log.error("ConditionalDistribution", "Only n-grams of 2 or more have contexts.");
+        int bits = counter.getAlphabet().getBits();
+        long codeMask = (1L << bits) - 1L;
+        // Group the counts by packed context first, so each context is unpacked only once
+        HashMap<Long, LinkedHashMap<SymbolType, Long>> grouped = new HashMap<>();
+        counts.forEach((packed, count) -> grouped.computeIfAbsent(packed >>> bits, context -> new LinkedHashMap<>())
+                .put(counter.getAlphabet().decode((int) (packed & codeMask)), count));
+        NGramCounter<SymbolType> contexts = new NGramCounter<>(counter.getAlphabet(), counter.getN() - 1);
+        HashMap<List<SymbolType>, Distribution<SymbolType>> distributions = new HashMap<>();
+        for(Map.Entry<Long, LinkedHashMap<SymbolType, Long>> entry : grouped.entrySet()) {
+            distributions.put(contexts.unpack(entry.getKey()), Distribution.of(entry.getValue()));
+        }
+        return new ConditionalDistribution<>(distributions);
+    }
+    /** Finds the bucket of a context, among a power of two of buckets */
+    private static int bucketOf(Object context, int numBuckets) {
+        int hash = context.hashCode();
+        return (hash ^ (hash >>> 16)) & (numBuckets - 1);
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The distribution of each context, in buckets by the hash of the context */
+    private final List<Map<ContextType, Distribution<ElementType>>> buckets;
+    /** The number of contexts */
+    private final int size;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Builds a conditional distribution, and its buckets, from scratch
+     * @param distributions the distribution of each context
+     */
+    private ConditionalDistribution(Map<ContextType, Distribution<ElementType>> distributions) {
+        int numBuckets = 1;
+        while(numBuckets * numBuckets < distributions.size()) {
+            numBuckets <<= 1;
+        }
+        ArrayList<Map<ContextType, Distribution<ElementType>>> buckets = new ArrayList<>(numBuckets);
+        for(int bucket = 0; bucket < numBuckets; bucket++) {
+            buckets.add(new HashMap<>());
+        }
+        for(Map.Entry<ContextType, Distribution<ElementType>> entry : distributions.entrySet()) {
+            buckets.get(bucketOf(entry.getKey(), numBuckets)).put(entry.getKey(), entry.getValue());
+        }
+        this.buckets = buckets;
+        this.size = distributions.size();
+    }
+    /**
+     * Creates a conditional distribution which shares the buckets of another
+     * @param buckets the buckets, of which only the changed one is new
+     * @param size the number of contexts
+     */
+    private ConditionalDistribution(List<Map<ContextType, Distribution<ElementType>>> buckets, int size) {
+        this.buckets = buckets;
+        this.size = size;
+    }
+    /**
+     * Gets the distribution of a context
+     * @param context the context
+     * @return the distribution of elements in this context, or null if this context was never seen
+     */
+    public @Nullable Distribution<ElementType> given(@NotNull ContextType context) {
+        return buckets.get(bucketOf(context, buckets.size())).get(context);
+    }
+    /**
+     * Draws an element in a context, in proportion to its count
+     * @param context the context
+     * @param random the source of randomness
+     * @return the element drawn, or null if this context was never seen
+     */
+    public @Nullable ElementType sample(@NotNull ContextType context, @NotNull SplittableRandom random) {
+        Distribution<ElementType> distribution = given(context);
+        return distribution == null || distribution.getTotal() == 0L ? null : distribution.sample(random);
+    }
+    /**
+     * Gets the count of an element in a context
+     * @param context the context
+     * @param element the element
+     * @return the count of this element in this context
+     */
+    public long getCount(@NotNull ContextType context, @NotNull ElementType element) {
+        Distribution<ElementType> distribution = given(context);
+        return distribution == null ? 0L : distribution.getCount(element);
+    }
+    /**
+     * Gets every context seen
+     * @return an unmodifiable set of the contexts of this conditional distribution
+     */
+    public @NotNull Set<ContextType> getContexts() {
+        return new AbstractSet<ContextType>() {
+            @Override
+            public boolean contains(Object context) {
+                return context != null && buckets.get(bucketOf(context, buckets.size())).containsKey(context);
+            }
+            @Override
+            public Iterator<ContextType> iterator() {
+                return buckets.stream().flatMap(bucket -> bucket.keySet().stream()).iterator();
+            }
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+    /**
+     * Returns this conditional distribution with the count of one element in one context changed, in O(sqrt(n)) time
+     * for n contexts
+     * @param context the context
+     * @param element the element
+     * @param count the new count of this element in this context
+     * @return the changed conditional distribution
+     */
+    public @NotNull ConditionalDistribution<ContextType, ElementType> withCount(@NotNull ContextType context,
+                                                                               @NotNull ElementType element,
+                                                                               long count) {
+        int index = bucketOf(context, buckets.size());
+        Map<ContextType, Distribution<ElementType>> bucket = buckets.get(index);
+        Distribution<ElementType> distribution = bucket.get(context);
+        int newSize = distribution == null ? size + 1 : size;
+        if(distribution == null) distribution = Distribution.of(Collections.emptyMap());
+        HashMap<ContextType, Distribution<ElementType>> newBucket = new HashMap<>(bucket);
+        newBucket.put(context, distribution.withCount(element, count));
+        // Split the buckets again once there are twice as many contexts as they were made for
+        if(newSize > 2 * buckets.size() * buckets.size()) {
+            HashMap<ContextType, Distribution<ElementType>> all = new HashMap<>(newSize);
+            for(Map<ContextType, Distribution<ElementType>> each : buckets) {
+                all.putAll(each);
+            }
+            all.putAll(newBucket);
+            return new ConditionalDistribution<>(all);
+        }
+        ArrayList<Map<ContextType, Distribution<ElementType>>> newBuckets = new ArrayList<>(buckets);
+        newBuckets.set(index, newBucket);
+        return new ConditionalDistribution<>(newBuckets, newSize);
+    }
+    /**
+     * Returns this conditional distribution with one more occurrence of an element in a context
+     * @param context the context
+     * @param element the element
+     * @return the changed conditional distribution
+     */
+    public @NotNull ConditionalDistribution<ContextType, ElementType> plus(@NotNull ContextType context,
+                                                                          @NotNull ElementType element) {
+        return withCount(context, element, getCount(context, element) + 1L);
+    }
+}
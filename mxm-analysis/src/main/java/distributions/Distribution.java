@@ -1,19 +1,349 @@
 package distributions;
 
-import javafx.util.Pair;
+import io.Log;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
-/*
-public abstract class Distribution<ElementType extends Object> implements Iterable<Pair<ElementType, Integer>> {
-    private final HashMap<ElementType,Integer> elements;
+import java.util.*;
 
-    public Distribution() {
-        this.elements = new HashMap<>();
+/**
+ * <p> <b>Class overview:</b>
+ * A distribution assigns each element- such as a pitch, interval or chord- a count, and can be sampled in proportion to
+ * those counts, as when a generator draws its next pitch. Distributions may be built from any map of counts, or from
+ * the unigrams of an {@link NGramCounter}.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i>. A distribution is built once into Vose's alias tables, so that each sample takes
+ * constant time: one uniform draw picks a column and whether to take its element or its alias. Changing a count
+ * returns a new distribution which shares the old tables, and keeps only the changed counts on the side. Samples from
+ * the old tables are rejected in proportion to how far each count has fallen, and the mass which counts have gained is
+ * sampled from a small alias table of its own. Each change copies the changes before it, so they are kept to about
+ * sqrt(n): once more counts have changed, or too much mass would be rejected, the tables are rebuilt from scratch, for
+ * O(sqrt(n)) amortized time per change.</p>
+ *
+ * @param <ElementType> the type of element
+ *
+ * @author Patrick Celentano
+ */
+public final class Distribution<ElementType> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The fewest changes kept aside before a rebuild, however small the distribution */
+    private static final int MIN_CHANGES = 16;
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets the distribution of some counts
+     * @param counts the count of each element, none of which may be negative
+     * @param <ElementType> the type of element
+     * @return the distribution of these counts
+     */
+    public static <ElementType> @NotNull Distribution<ElementType> of(@NotNull Map<ElementType, Long> counts) {
+        return new Distribution<>(counts);
+    }
+    /**
+     * Gets the distribution in which every element is equally likely
+     * @param elements the elements
+     * @param <ElementType> the type of element
+     * @return the uniform distribution over these elements
+     */
+    public static <ElementType> @NotNull Distribution<ElementType> uniform(@NotNull Collection<ElementType> elements) {
+        LinkedHashMap<ElementType, Long> counts = new LinkedHashMap<>();
+        for(ElementType element : elements) {
+            counts.put(element, 1L);
+        }
+        return new Distribution<>(counts);
+    }
+    /**
+     * Gets the distribution of the symbols counted by a counter of unigrams
+     * @param counts the counts of a counter whose n is 1
+     * @param <ElementType> the type of element
+     * @return the distribution of these symbols
+     */
+    public static <ElementType> @NotNull Distribution<ElementType> of(
+            @NotNull NGramCounter<ElementType>.Counts counts) {
+        NGramCounter<ElementType> counter = counts.getCounter();
+        if(counter.getN() != 1) throw Log.error("Distribution", "Only unigrams form a distribution.");
+        LinkedHashMap<ElementType, Long> map = new LinkedHashMap<>();
+        counts.forEach((packed, count) -> map.put(counter.unpack(packed).get(0), count));
+        return new Distribution<>(map);
     }
+    /**
+     * Gets the most changes which are kept aside, rather than rebuilding the alias tables
+     * @param size the number of columns of the alias tables
+     * @return the most changes kept aside, about the square root of the size
+     */
+    static int getMaxChanges(int size) {
+        return Math.max(MIN_CHANGES, (int) Math.sqrt(size));
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The elements of the alias tables, by column */
+    private final Object[] elements;
+    /** The column of each element of the alias tables */
+    private final Map<ElementType, Integer> columns;
+    /** The count of each element when the alias tables were built */
+    private final long[] counts;
+    /** The sum of the counts of the alias tables */
+    private final long baseTotal;
+    /** The probability of taking each column's own element, rather than its alias */
+    private final double[] probabilities;
+    /** The alias of each column */
+    private final int[] aliases;
 
+    /** The counts which have changed since the alias tables were built */
+    private final Map<ElementType, Long> changed;
+    /** The count which is rejected from the alias tables, as counts have fallen */
+    private final long rejected;
+    /** The elements whose counts have risen, and the alias tables of how much */
+    private final Object[] gainedElements;
+    private final long gainedTotal;
+    private final double[] gainedProbabilities;
+    private final int[] gainedAliases;
+    /** The sum of every current count */
+    private final long total;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Builds a distribution, and its alias tables, from scratch
+     * @param counts the count of each element
+     */
+    private Distribution(Map<ElementType, Long> counts) {
+        int size = 0;
+        for(Long count : counts.values()) {
+            if(count < 0L) throw Log.error("Distribution", "Counts may not be negative.");
+            if(count > 0L) size++;
+        }
+        this.elements = new Object[size];
+        this.counts = new long[size];
+        this.columns = new HashMap<>();
+        long sum = 0L;
+        int column = 0;
+        for(Map.Entry<ElementType, Long> entry : counts.entrySet()) {
+            if(entry.getValue() == 0L) continue;
+            elements[column] = entry.getKey();
+            this.counts[column] = entry.getValue();
+            columns.put(entry.getKey(), column);
+            sum += entry.getValue();
+            column++;
+        }
+        this.baseTotal = sum;
+        this.probabilities = new double[size];
+        this.aliases = new int[size];
+        buildAliasTables(this.counts, sum, probabilities, aliases);
+        this.changed = Collections.emptyMap();
+        this.rejected = 0L;
+        this.gainedElements = new Object[0];
+        this.gainedTotal = 0L;
+        this.gainedProbabilities = new double[0];
+        this.gainedAliases = new int[0];
+        this.total = sum;
+    }
+    /**
+     * Creates a distribution which shares the alias tables of another, with some counts changed
+     * @param base the distribution whose alias tables to share
+     * @param changed the changed counts
+     */
+    private Distribution(Distribution<ElementType> base, Map<ElementType, Long> changed) {
+        this.elements = base.elements;
+        this.columns = base.columns;
+        this.counts = base.counts;
+        this.baseTotal = base.baseTotal;
+        this.probabilities = base.probabilities;
+        this.aliases = base.aliases;
+        this.changed = changed;
+        // Split each change into the count lost from the alias tables, and the count gained beyond them
+        long lost = 0L;
+        long sum = base.baseTotal;
+        ArrayList<Object> gained = new ArrayList<>();
+        long[] gains = new long[changed.size()];
+        long gainedSum = 0L;
+        for(Map.Entry<ElementType, Long> entry : changed.entrySet()) {
+            Integer column = columns.get(entry.getKey());
+            long before = column == null ? 0L : counts[column];
+            long after = entry.getValue();
+            sum += after - before;
+            if(after < before) lost += before - after;
+            else if(after > before) {
+                gains[gained.size()] = after - before;
+                gained.add(entry.getKey());
+                gainedSum += after - before;
+            }
+        }
+        this.rejected = lost;
+        this.gainedElements = gained.toArray();
+        this.gainedTotal = gainedSum;
+        this.gainedProbabilities = new double[gainedElements.length];
+        this.gainedAliases = new int[gainedElements.length];
+        buildAliasTables(Arrays.copyOf(gains, gainedElements.length), gainedSum, gainedProbabilities, gainedAliases);
+        this.total = sum;
+    }
+    /**
+     * Draws an element, in proportion to its count
+     * @param random the source of randomness
+     * @return the element drawn
+     */
+    @SuppressWarnings("unchecked")
+    public @NotNull ElementType sample(@NotNull SplittableRandom random) {
+        if(total == 0L) throw Log.error("Distribution", "Cannot sample an empty distribution.");
+        while(true) {
+            // Draw from the old tables or from the gains, in proportion to the mass of each
+            if(gainedTotal == 0L || random.nextLong(baseTotal + gainedTotal) < baseTotal) {
+                int column = draw(probabilities, aliases, random);
+                ElementType element = (ElementType) elements[column];
+                if(rejected == 0L) return element;
+                Long count = changed.get(element);
+                if(count == null || count >= counts[column]) return element;
+                // Keep only as much of this element as its count has fallen to
+                if(random.nextLong(counts[column]) < count) return element;
+            }
+            else return (ElementType) gainedElements[draw(gainedProbabilities, gainedAliases, random)];
+        }
+    }
+    /**
+     * Gets the count of an element
+     * @param element the element
+     * @return the count of this element, which is 0 if it is not in this distribution
+     */
+    public long getCount(@NotNull ElementType element) {
+        Long count = changed.get(element);
+        if(count != null) return count;
+        Integer column = columns.get(element);
+        return column == null ? 0L : counts[column];
+    }
+    /**
+     * Gets the probability of an element
+     * @param element the element
+     * @return the probability of drawing this element
+     */
+    public double getProbability(@NotNull ElementType element) {
+        return total == 0L ? 0.0 : (double) getCount(element) / total;
+    }
+    /**
+     * Gets the sum of every count
+     * @return the total count of this distribution
+     */
+    public long getTotal() {
+        return total;
+    }
+    /**
+     * Gets every element with a count above 0
+     * @return an unmodifiable set of the elements of this distribution
+     */
+    @SuppressWarnings("unchecked")
+    public @NotNull Set<ElementType> getElements() {
+        LinkedHashSet<ElementType> set = new LinkedHashSet<>();
+        for(Object element : elements) {
+            if(getCount((ElementType) element) > 0L) set.add((ElementType) element);
+        }
+        for(Map.Entry<ElementType, Long> entry : changed.entrySet()) {
+            if(entry.getValue() > 0L) set.add(entry.getKey());
+        }
+        return Collections.unmodifiableSet(set);
+    }
+    /**
+     * Returns this distribution with the count of one element changed
+     * @param element the element
+     * @param count the new count of this element
+     * @return the changed distribution
+     */
+    @SuppressWarnings("unchecked")
+    public @NotNull Distribution<ElementType> withCount(@NotNull ElementType element, long count) {
+        if(count < 0L) throw Log.error("Distribution", "Counts may not be negative.");
+        HashMap<ElementType, Long> newChanged = new HashMap<>(changed);
+        newChanged.put(element, count);
+        Distribution<ElementType> updated = new Distribution<>(this, newChanged);
+        // Rebuild once the changes would make sampling slow: too many to keep aside, or too much mass rejected
+        if(newChanged.size() > getMaxChanges(elements.length) || 2 * updated.rejected > baseTotal) {
+            LinkedHashMap<ElementType, Long> all = new LinkedHashMap<>();
+            for(Object each : elements) {
+                all.put((ElementType) each, updated.getCount((ElementType) each));
+            }
+            all.putAll(newChanged);
+            return new Distribution<>(all);
+        }
+        return updated;
+    }
+    /**
+     * Returns this distribution with one more occurrence of an element
+     * @param element the element
+     * @return the changed distribution
+     */
+    public @NotNull Distribution<ElementType> plus(@NotNull ElementType element) {
+        return withCount(element, getCount(element) + 1L);
+    }
+    /**
+     * Gets the number of counts which have changed since the alias tables were built
+     * @return the number of changes kept aside
+     */
+    int getChanges() {
+        return changed.size();
+    }
+    /**
+     * Returns a string representation of this distribution
+     * @return a string representation of this distribution, such as {C4=3, E4=1}
+     */
     @Override
-    public Iterable<Pair<ElementType,Integer>> iterator() {
-        return elements.entrySet().iterator();
+    public @NotNull String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        for(ElementType element : getElements()) {
+            joiner.add(element + "=" + getCount(element));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Builds the alias tables of some counts with Vose's method: columns whose scaled count is under 1 are topped up
+     * by the excess of a column which is over 1, which then becomes their alias
+     */
+    private static void buildAliasTables(long[] counts, long total, double[] probabilities, int[] aliases) {
+        int size = counts.length;
+        if(size == 0) return;
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallSize = 0, largeSize = 0;
+        for(int column = 0; column < size; column++) {
+            scaled[column] = (double) counts[column] * size / total;
+            if(scaled[column] < 1.0) small[smallSize++] = column;
+            else large[largeSize++] = column;
+        }
+        while(smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if(scaled[more] < 1.0) small[smallSize++] = more;
+            else large[largeSize++] = more;
+        }
+        // Whatever remains is 1 up to rounding error
+        while(largeSize > 0) {
+            int column = large[--largeSize];
+            probabilities[column] = 1.0;
+            aliases[column] = column;
+        }
+        while(smallSize > 0) {
+            int column = small[--smallSize];
+            probabilities[column] = 1.0;
+            aliases[column] = column;
+        }
+    }
+    /** Draws a column from alias tables */
+    private static int draw(double[] probabilities, int[] aliases, SplittableRandom random) {
+        double uniform = random.nextDouble() * probabilities.length;
+        int column = Math.min((int) uniform, probabilities.length - 1);
+        return uniform - column < probabilities[column] ? column : aliases[column];
     }
 }
-*/
\ No newline at end of file
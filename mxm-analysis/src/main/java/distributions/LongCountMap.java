@@ -0,0 +1,238 @@
+package distributions;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A long count map counts occurrences of non-negative long keys, such as packed n-grams, and can list the most
+ * common keys.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * Keys and counts are kept in two parallel primitive arrays, as an open-addressing hash table with linear probing, so
+ * that counting never boxes a key or allocates an entry. The table is a power of two in size, and grows once it is
+ * three quarters full. Since keys are non-negative, -1 marks an empty slot. This class is not thread safe- counting
+ * from many threads should give each thread its own map, and add them together with {@link #addAll(LongCountMap)} at
+ * the end.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class LongCountMap {
+
+    /**
+     * A visitor of the keys and counts of a map
+     */
+    public interface Visitor {
+        void visit(long key, long count);
+    }
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The key of an empty slot */
+    private static final long EMPTY = -1L;
+    /** The smallest capacity of a map */
+    private static final int MIN_CAPACITY = 16;
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The key in each slot, or EMPTY */
+    private long[] keys;
+    /** The count of the key in each slot */
+    private long[] counts;
+    /** The number of distinct keys */
+    private int size = 0;
+    /** The sum of every count */
+    private long total = 0L;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Creates an empty map
+     */
+    public LongCountMap() {
+        this(MIN_CAPACITY);
+    }
+    /**
+     * Creates an empty map with room for a number of keys before it must grow
+     * @param expected the number of keys expected
+     */
+    public LongCountMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while(capacity * 3L < expected * 4L) {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity];
+        this.counts = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+    /**
+     * Counts one occurrence of a key
+     * @param key the key, which may not be negative
+     */
+    public void add(long key) {
+        add(key, 1L);
+    }
+    /**
+     * Counts a number of occurrences of a key
+     * @param key the key, which may not be negative
+     * @param count the number of occurrences
+     */
+    public void add(long key, long count) {
+        if(key < 0L) throw Log.error("LongCountMap", "Keys may not be negative.");
+        int slot = slot(key);
+        if(keys[slot] == EMPTY) {
+            if((size + 1) * 4L > keys.length * 3L) {
+                grow();
+                slot = slot(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        counts[slot] += count;
+        total += count;
+    }
+    /**
+     * Adds every count of another map to this one
+     * @param other the other map
+     */
+    public void addAll(@NotNull LongCountMap other) {
+        for(int slot = 0; slot < other.keys.length; slot++) {
+            if(other.keys[slot] != EMPTY) add(other.keys[slot], other.counts[slot]);
+        }
+    }
+    /**
+     * Gets the count of a key
+     * @param key the key
+     * @return the number of times this key was counted, which is 0 if never
+     */
+    public long get(long key) {
+        if(key < 0L) return 0L;
+        int slot = slot(key);
+        return keys[slot] == EMPTY ? 0L : counts[slot];
+    }
+    /**
+     * Gets the number of distinct keys counted
+     * @return the number of distinct keys
+     */
+    public int size() {
+        return size;
+    }
+    /**
+     * Gets the sum of every count
+     * @return the total count
+     */
+    public long getTotal() {
+        return total;
+    }
+    /**
+     * Visits every key and its count, in no particular order
+     * @param visitor the visitor
+     */
+    public void forEach(@NotNull Visitor visitor) {
+        for(int slot = 0; slot < keys.length; slot++) {
+            if(keys[slot] != EMPTY) visitor.visit(keys[slot], counts[slot]);
+        }
+    }
+    /**
+     * Finds the most common keys, with a bounded heap, in O(n log k) time
+     * @param k the number of keys to find
+     * @return up to k keys, from the most common down (breaking ties by the smaller key)
+     */
+    public @NotNull long[] top(int k) {
+        k = Math.min(k, size);
+        if(k <= 0) return new long[0];
+        // A min-heap of the best slots so far, whose root is the worst of them
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for(int slot = 0; slot < keys.length; slot++) {
+            if(keys[slot] == EMPTY) continue;
+            if(heapSize < k) {
+                heap[heapSize] = slot;
+                siftUp(heap, heapSize++);
+            }
+            else if(isBetter(slot, heap[0])) {
+                heap[0] = slot;
+                siftDown(heap, 0, heapSize);
+            }
+        }
+        // Pop the heap from the worst up
+        long[] top = new long[k];
+        for(int index = k - 1; index >= 0; index--) {
+            top[index] = keys[heap[0]];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, 0, heapSize);
+        }
+        return top;
+    }
+
+    /** Finds the slot of a key, or the empty slot where it would go */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while(keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    /** Doubles the table, and places every key again */
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for(int slot = 0; slot < oldKeys.length; slot++) {
+            if(oldKeys[slot] == EMPTY) continue;
+            int newSlot = slot(oldKeys[slot]);
+            keys[newSlot] = oldKeys[slot];
+            counts[newSlot] = oldCounts[slot];
+        }
+    }
+    /** Mixes the bits of a key, since packed keys differ mostly in their low bits */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+    /** Checks if the key of one slot ranks above that of another */
+    private boolean isBetter(int slot, int other) {
+        if(counts[slot] != counts[other]) return counts[slot] > counts[other];
+        return keys[slot] < keys[other];
+    }
+    private void siftUp(int[] heap, int index) {
+        while(index > 0) {
+            int parent = (index - 1) >>> 1;
+            if(!isBetter(heap[parent], heap[index])) break;
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+    private void siftDown(int[] heap, int index, int heapSize) {
+        while(true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if(left < heapSize && isBetter(heap[worst], heap[left])) worst = left;
+            if(right < heapSize && isBetter(heap[worst], heap[right])) worst = right;
+            if(worst == index) return;
+            swap(heap, index, worst);
+            index = worst;
+        }
+    }
+    private static void swap(int[] heap, int a, int b) {
+        int temp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = temp;
+    }
+}
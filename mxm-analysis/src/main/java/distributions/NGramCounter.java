@@ -0,0 +1,259 @@
+package distributions;
+
+import events.sound.Note;
+import form.part.Line;
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import properties.sound.ISound;
+import properties.sound.Interval;
+import properties.sound.Pitch;
+import properties.time.ITime;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <p> <b>Class overview:</b>
+ * An n-gram counter counts every run of n consecutive symbols- pitches, intervals, chords or durations- across a
+ * corpus of sequences, such as the lines of many scores. The resulting {@link Counts} give the count of any n-gram,
+ * and the most common n-grams.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * Each n-gram is packed into a single long, as the codes of its symbols in an {@link Alphabet}, and counted in a
+ * {@link LongCountMap}, so that counting never boxes. The packed n-gram is rolled along each sequence, shifting in one
+ * code at a time. Sequences are counted in parallel, where each thread counts into its own shard, and the shards are
+ * added together once every sequence has been counted.</p>
+ *
+ * @param <SymbolType> the type of symbol counted
+ *
+ * @author Patrick Celentano
+ */
+public final class NGramCounter<SymbolType> {
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets the sounds of a line, in order
+     * @param line the line
+     * @param <SoundType> the type of sound of this line
+     * @return the sound of every note of this line
+     */
+    public static <SoundType extends ISound> @NotNull List<SoundType> soundsOf(@NotNull Line<SoundType> line) {
+        ArrayList<SoundType> sounds = new ArrayList<>();
+        for(Note<SoundType> note : line.getNotes()) {
+            sounds.add(note.getSound());
+        }
+        return sounds;
+    }
+    /**
+     * Gets the intervals between consecutive notes of a line, in order
+     * @param line the line
+     * @return the interval from each note to the next
+     */
+    public static @NotNull List<Interval> intervalsOf(@NotNull Line<Pitch> line) {
+        ArrayList<Interval> intervals = new ArrayList<>();
+        Pitch previous = null;
+        for(Note<Pitch> note : line.getNotes()) {
+            if(previous != null) intervals.add(previous.minus(note.getSound()));
+            previous = note.getSound();
+        }
+        return intervals;
+    }
+    /**
+     * Gets the durations of the notes of a line, in order
+     * @param line the line
+     * @return the duration of every note of this line
+     */
+    public static @NotNull List<ITime> durationsOf(@NotNull Line<?> line) {
+        ArrayList<ITime> durations = new ArrayList<>();
+        for(Note<?> note : line.getNotes()) {
+            durations.add(note.getDuration());
+        }
+        return durations;
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The alphabet of the symbols counted */
+    private final Alphabet<SymbolType> alphabet;
+    /** The number of symbols in each n-gram */
+    private final int n;
+    /** The bits of a packed n-gram */
+    private final long mask;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Creates a counter of n-grams
+     * @param alphabet the alphabet of the symbols counted
+     * @param n the number of symbols in each n-gram
+     */
+    public NGramCounter(@NotNull Alphabet<SymbolType> alphabet, int n) {
+        if(n < 1 || n * alphabet.getBits() > Long.SIZE - 1) {
+            throw Log.error("NGramCounter", n + "-grams of the " + alphabet + " alphabet cannot be packed in a long.");
+        }
+        this.alphabet = alphabet;
+        this.n = n;
+        this.mask = -1L >>> (Long.SIZE - n * alphabet.getBits());
+    }
+    /**
+     * Counts the n-grams of every sequence, in parallel
+     * @param sequences the sequences to count
+     * @return the counts of every n-gram
+     */
+    public @NotNull Counts count(@NotNull Collection<? extends Iterable<SymbolType>> sequences) {
+        ConcurrentLinkedQueue<LongCountMap> shards = new ConcurrentLinkedQueue<>();
+        ThreadLocal<LongCountMap> shard = ThreadLocal.withInitial(() -> {
+            LongCountMap map = new LongCountMap();
+            shards.add(map);
+            return map;
+        });
+        sequences.parallelStream().forEach(sequence -> countInto(sequence, shard.get()));
+        // Add the shards together, starting with the largest
+        LongCountMap total = null;
+        for(LongCountMap map : shards) {
+            if(total == null || map.size() > total.size()) total = map;
+        }
+        if(total == null) total = new LongCountMap();
+        for(LongCountMap map : shards) {
+            if(map != total) total.addAll(map);
+        }
+        return new Counts(total);
+    }
+    /**
+     * Counts the n-grams of a single sequence
+     * @param sequence the sequence to count
+     * @return the counts of every n-gram
+     */
+    public @NotNull Counts count(@NotNull Iterable<SymbolType> sequence) {
+        LongCountMap map = new LongCountMap();
+        countInto(sequence, map);
+        return new Counts(map);
+    }
+    /**
+     * A getter for the number of symbols in each n-gram
+     * @return the n of these n-grams
+     */
+    public int getN() {
+        return n;
+    }
+    /**
+     * A getter for the alphabet of the symbols counted
+     * @return the alphabet of the symbols counted
+     */
+    public @NotNull Alphabet<SymbolType> getAlphabet() {
+        return alphabet;
+    }
+    /**
+     * Packs an n-gram into a long
+     * @param ngram the n-gram, of exactly n symbols
+     * @return the packed n-gram
+     */
+    public long pack(@NotNull List<SymbolType> ngram) {
+        if(ngram.size() != n) throw Log.error("NGramCounter", "An n-gram must have exactly " + n + " symbols.");
+        long packed = 0L;
+        for(SymbolType symbol : ngram) {
+            packed = (packed << alphabet.getBits()) | alphabet.encode(symbol);
+        }
+        return packed;
+    }
+    /**
+     * Unpacks an n-gram from a long
+     * @param packed the packed n-gram
+     * @return the symbols of this n-gram
+     */
+    public @NotNull List<SymbolType> unpack(long packed) {
+        ArrayList<SymbolType> ngram = new ArrayList<>(n);
+        int bits = alphabet.getBits();
+        int codeMask = (1 << bits) - 1;
+        for(int index = n - 1; index >= 0; index--) {
+            ngram.add(alphabet.decode((int) (packed >>> (index * bits)) & codeMask));
+        }
+        return ngram;
+    }
+    /** Rolls the packed n-gram along a sequence, counting it once n symbols have been shifted in */
+    private void countInto(Iterable<SymbolType> sequence, LongCountMap map) {
+        long packed = 0L;
+        int length = 0;
+        int bits = alphabet.getBits();
+        for(SymbolType symbol : sequence) {
+            packed = ((packed << bits) | alphabet.encode(symbol)) & mask;
+            if(++length >= n) map.add(packed);
+        }
+    }
+
+    /**
+     * <p> <b>Class overview:</b>
+     * The counts of every n-gram found by a counter.</p>
+     */
+    public final class Counts {
+        /** The count of every packed n-gram */
+        private final LongCountMap counts;
+
+        private Counts(LongCountMap counts) {
+            this.counts = counts;
+        }
+        /**
+         * A getter for the counter which found these counts
+         * @return the counter which found these counts
+         */
+        public @NotNull NGramCounter<SymbolType> getCounter() {
+            return NGramCounter.this;
+        }
+        /**
+         * Gets the count of an n-gram
+         * @param ngram the n-gram
+         * @return the number of times this n-gram was found
+         */
+        public long getCount(@NotNull List<SymbolType> ngram) {
+            return counts.get(pack(ngram));
+        }
+        /**
+         * Gets the count of a packed n-gram
+         * @param packed the packed n-gram
+         * @return the number of times this n-gram was found
+         */
+        public long getCount(long packed) {
+            return counts.get(packed);
+        }
+        /**
+         * Gets the total number of n-grams found
+         * @return the total number of n-grams
+         */
+        public long getTotal() {
+            return counts.getTotal();
+        }
+        /**
+         * Gets the number of distinct n-grams found
+         * @return the number of distinct n-grams
+         */
+        public int size() {
+            return counts.size();
+        }
+        /**
+         * Finds the most common n-grams
+         * @param k the number of n-grams to find
+         * @return up to k n-grams, from the most common down
+         */
+        public @NotNull List<List<SymbolType>> top(int k) {
+            ArrayList<List<SymbolType>> top = new ArrayList<>();
+            for(long packed : counts.top(k)) {
+                top.add(unpack(packed));
+            }
+            return top;
+        }
+        /**
+         * Visits every packed n-gram and its count, in no particular order
+         * @param visitor the visitor
+         */
+        public void forEach(@NotNull LongCountMap.Visitor visitor) {
+            counts.forEach(visitor);
+        }
+    }
+}
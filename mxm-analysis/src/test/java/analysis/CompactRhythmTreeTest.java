@@ -0,0 +1,148 @@
+package analysis;
+
+import org.junit.jupiter.api.Test;
+import properties.time.Beat;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactRhythmTreeTest {
+
+    /** Nested trees in breadth first order, where 0 (or 1) is a leaf */
+    private static final int[][] TREES = {
+            { 0 },
+            { 4, 0, 0, 0, 0 },
+            { 2, 2, 0, 0, 0 },
+            { 2, 2, 3, 0, 0, 0, 0, 0 },
+            { 3, 2, 0, 2, 0, 0, 0, 0 },
+            { 2, 3, 2, 0, 2, 0, 2, 0, 0, 0, 0, 0 },
+            { 2, 2, 2, 2, 0, 0, 3, 0, 0, 0, 0, 0 }
+    };
+
+    /** Makes a random tree in breadth first order, subdividing less often deeper down */
+    static int[] randomTree(Random random, int maxNodes) {
+        ArrayList<Integer> subdivisions = new ArrayList<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>(Collections.singleton(0));
+        int nodes = 1;
+        while(!depths.isEmpty()) {
+            int depth = depths.poll();
+            int subdivision = 2 + random.nextInt(3);
+            if(nodes + subdivision > maxNodes || random.nextInt(depth + 2) > 0) subdivision = 0;
+            subdivisions.add(subdivision);
+            nodes += subdivision;
+            for(int child = 0; child < subdivision; child++) {
+                depths.add(depth + 1);
+            }
+        }
+        return subdivisions.stream().mapToInt(Integer::intValue).toArray();
+    }
+    /** Lists the nodes of a pointer tree in breadth first order */
+    private static List<RhythmNode> breadthFirst(RhythmTree tree) {
+        ArrayList<RhythmNode> nodes = new ArrayList<>();
+        nodes.add(tree.getRoot());
+        for(int index = 0; index < nodes.size(); index++) {
+            nodes.addAll(nodes.get(index).getChildren());
+        }
+        return nodes;
+    }
+    private static List<int[]> allTrees() {
+        List<int[]> trees = new ArrayList<>(Arrays.asList(TREES));
+        Random random = new Random(42);
+        for(int tree = 0; tree < 200; tree++) {
+            trees.add(randomTree(random, 60));
+        }
+        return trees;
+    }
+
+    @Test
+    void breadthFirstTest() {
+        // The children of both nodes of the first level come before any grandchild
+        assertEquals(Arrays.asList(2, 2, 3, 0, 0, 0, 0, 0), new RhythmTree(new int[] { 2, 2, 3, 1, 1, 1, 1, 1 })
+                .toList());
+        assertEquals(Arrays.asList(3, 0, 2, 0, 0, 0), new RhythmTree(new int[] { 3, 0, 2, 0, 0, 0 }).toList());
+        assertEquals(Collections.singletonList(0), new RhythmTree().toList());
+        assertEquals("(([ ][ ])([ ][ ][ ]))", new RhythmTree(new int[] { 2, 2, 3, 0, 0, 0, 0, 0 }).toString());
+        assertThrows(IllegalArgumentException.class, () -> new RhythmTree(new int[] { 2, 0 }));
+        assertThrows(IllegalArgumentException.class, () -> new RhythmTree(new int[] { 2, 0, 0, 0 }));
+    }
+    @Test
+    void roundTripTest() {
+        for(int[] array : allTrees()) {
+            RhythmTree tree = new RhythmTree(array);
+            CompactRhythmTree compact = tree.compact();
+            assertTrue(compact.equals(CompactRhythmTree.get(array)));
+            assertEquals(tree.toList(), compact.toList());
+            assertEquals(tree.toString(), compact.toString());
+            RhythmTree back = compact.toRhythmTree();
+            assertEquals(tree.toList(), back.toList());
+            assertEquals(tree.toString(), back.toString());
+            assertTrue(CompactRhythmTree.of(back).equals(compact));
+            assertEquals(compact.hashCode(), CompactRhythmTree.of(back).hashCode());
+        }
+        assertThrows(Error.class, () -> CompactRhythmTree.get(2, 0));
+        assertThrows(Error.class, () -> CompactRhythmTree.get(2, 0, 0, 0));
+        assertThrows(Error.class, () -> CompactRhythmTree.get(0, 2, 0, 0));
+    }
+    @Test
+    void navigationTest() {
+        for(int[] array : allTrees()) {
+            RhythmTree tree = new RhythmTree(array);
+            CompactRhythmTree compact = tree.compact();
+            List<RhythmNode> nodes = breadthFirst(tree);
+            assertEquals(nodes.size(), compact.size());
+            assertEquals(-1, compact.getParent(0));
+            for(int node = 0; node < nodes.size(); node++) {
+                RhythmNode pointer = nodes.get(node);
+                assertEquals(pointer.getValue(), compact.getSubdivision(node));
+                assertEquals(pointer.getValue() == 0, compact.isLeaf(node));
+                assertEquals(pointer.getDepth(), compact.getDepth(node));
+                assertEquals(pointer.getTiming(), compact.getTiming(node));
+                assertEquals(pointer.getDuration(), compact.getDuration(node));
+                List<RhythmNode> children = pointer.getChildren();
+                for(int index = 0; index < children.size(); index++) {
+                    int child = compact.getChild(node, index);
+                    assertTrue(nodes.get(child) == children.get(index));
+                    assertEquals(node, compact.getParent(child));
+                    assertEquals(index, compact.getChildIndex(child));
+                }
+                final int parent = node;
+                assertThrows(Error.class, () -> compact.getChild(parent, children.size()));
+            }
+        }
+    }
+    @Test
+    void leafTest() {
+        for(int[] array : allTrees()) {
+            RhythmTree tree = new RhythmTree(array);
+            CompactRhythmTree compact = tree.compact();
+            List<RhythmNode> nodes = breadthFirst(tree);
+            // The leaves sound one after the other, and together fill the measure
+            int[] leaves = compact.getLeaves();
+            assertEquals(compact.getLeafCount(), leaves.length);
+            Beat end = Beat.ZERO;
+            for(int leaf : leaves) {
+                RhythmNode pointer = nodes.get(leaf);
+                assertTrue(compact.isLeaf(leaf));
+                assertEquals(end, pointer.getTiming());
+                assertEquals(end, compact.getTiming(leaf));
+                end = sum(end, compact.getDuration(leaf));
+            }
+            assertEquals(Beat.ONE, end);
+        }
+        // A third, then a third split in two, then a third split in three
+        CompactRhythmTree tree = CompactRhythmTree.get(3, 0, 2, 3, 0, 0, 0, 0, 0);
+        assertArrayEquals(new int[] { 1, 4, 5, 6, 7, 8 }, tree.getLeaves());
+        assertEquals(Beat.get(1, 2), tree.getTiming(5));
+        assertEquals(Beat.get(1, 9), tree.getDuration(6));
+        assertEquals(Beat.get(7, 9), tree.getTiming(7));
+        BitSet onsets = tree.getOnsets(18);
+        assertEquals("{0, 6, 9, 12, 14, 16}", onsets.toString());
+        assertThrows(Error.class, () -> tree.getOnsets(12));
+    }
+
+    private static Beat sum(Beat a, Beat b) {
+        return Beat.get(a.getNumerator() * b.getDenominator() + b.getNumerator() * a.getDenominator(),
+                        a.getDenominator() * b.getDenominator());
+    }
+}
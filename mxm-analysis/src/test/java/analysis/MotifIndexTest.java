@@ -0,0 +1,161 @@
+package analysis;
+
+import form.score.IScore;
+import form.score.LeadSheet;
+import org.junit.jupiter.api.Test;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import properties.time.Time;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MotifIndexTest {
+
+    /** A motif of leaps which a melody of steps never makes by chance */
+    private static final int[] LEAPS = { 0, 19, 2, 25, 4 };
+
+    private static Pitch pitch(int value) {
+        return Pitch.get(PitchClass.get(value % 12), value / 12 - 1);
+    }
+    private static List<Pitch> pitches(int[] values) {
+        ArrayList<Pitch> pitches = new ArrayList<>();
+        for(int value : values) {
+            pitches.add(pitch(value));
+        }
+        return pitches;
+    }
+    private static LeadSheet sheet(String title, int[] melody) {
+        LeadSheet sheet = new LeadSheet(title);
+        for(int value : melody) {
+            sheet.getTune().add(pitch(value), Time.get(1, 4));
+        }
+        return sheet;
+    }
+    /** Makes a melody of random steps, within a range where every leap of a motif still fits */
+    private static int[] randomMelody(Random random, int length) {
+        int[] melody = new int[length];
+        int value = 50 + random.nextInt(12);
+        for(int index = 0; index < length; index++) {
+            value = Math.max(40, Math.min(70, value + random.nextInt(7) - 3));
+            melody[index] = value;
+        }
+        return melody;
+    }
+    /** Writes a motif into a melody from a note on, transposed to start on a pitch */
+    private static void plant(int[] melody, int ordinal, int[] motif, int start) {
+        for(int index = 0; index < motif.length; index++) {
+            melody[ordinal + index] = start + motif[index] - motif[0];
+        }
+    }
+    /** Finds every occurrence of a motif by checking the intervals at every note of every melody */
+    private static List<String> naiveFind(List<int[]> melodies, int[] motif) {
+        ArrayList<String> occurrences = new ArrayList<>();
+        for(int score = 0; score < melodies.size(); score++) {
+            int[] melody = melodies.get(score);
+            for(int ordinal = 0; ordinal + motif.length <= melody.length; ordinal++) {
+                boolean matches = true;
+                for(int index = 1; index < motif.length && matches; index++) {
+                    matches = melody[ordinal + index] - melody[ordinal + index - 1] == motif[index] - motif[index - 1];
+                }
+                if(matches) occurrences.add(score + ":" + ordinal);
+            }
+        }
+        return occurrences;
+    }
+    /** Lists the occurrences found by an index as the number of their score, and their note */
+    private static List<String> find(MotifIndex index, List<? extends IScore> scores, int[] motif) {
+        ArrayList<String> occurrences = new ArrayList<>();
+        for(MotifIndex.Occurrence occurrence : index.find(pitches(motif))) {
+            int score = scores.indexOf(occurrence.getScore());
+            assertTrue(occurrence.getLine() == ((LeadSheet) scores.get(score)).getTune());
+            occurrences.add(score + ":" + occurrence.getOrdinal());
+        }
+        return occurrences;
+    }
+
+    @Test
+    void randomTest() {
+        Random random = new Random(42);
+        List<int[]> melodies = new ArrayList<>();
+        List<LeadSheet> scores = new ArrayList<>();
+        for(int score = 0; score < 300; score++) {
+            int[] melody = randomMelody(random, 2 + random.nextInt(80));
+            // Every so often, the motif of leaps in some key
+            if(melody.length > LEAPS.length && random.nextInt(10) == 0) {
+                plant(melody, random.nextInt(melody.length - LEAPS.length), LEAPS, 40 + random.nextInt(12));
+            }
+            melodies.add(melody);
+            scores.add(sheet("Tune " + score, melody));
+        }
+        // Scores added all at once, and in several batches, are found alike
+        MotifIndex index = new MotifIndex();
+        index.addAll(scores);
+        MotifIndex batches = new MotifIndex(3);
+        for(int start = 0; start < scores.size(); start += 70) {
+            batches.addAll(scores.subList(start, Math.min(scores.size(), start + 70)));
+        }
+        batches.add(sheet("Empty", new int[0]));
+        assertEquals(scores.size(), index.size());
+        assertEquals(scores.size() + 1, batches.size());
+        List<int[]> motifs = new ArrayList<>();
+        motifs.add(LEAPS);
+        motifs.add(new int[] { 60, 79, 62, 85, 64 });
+        // Motifs shorter than a run, as long as one, and longer, taken from the melodies and moved to other keys
+        for(int motif = 0; motif < 200; motif++) {
+            int[] melody = melodies.get(random.nextInt(melodies.size()));
+            int length = Math.min(melody.length, 2 + random.nextInt(8));
+            int start = random.nextInt(melody.length - length + 1);
+            int[] transposed = Arrays.copyOfRange(melody, start, start + length);
+            plant(transposed, 0, transposed.clone(), 40 + random.nextInt(30));
+            motifs.add(transposed);
+        }
+        // Motifs which occur nowhere
+        motifs.add(new int[] { 60, 90 });
+        motifs.add(new int[] { 60, 61, 91, 92, 62 });
+        motifs.add(new int[] { 60, 79, 62, 85, 63 });
+        for(int[] motif : motifs) {
+            List<String> naive = naiveFind(melodies, motif);
+            assertEquals(naive, find(index, scores, motif), Arrays.toString(motif));
+            assertEquals(naive, find(batches, scores, motif), Arrays.toString(motif));
+        }
+        assertFalse(naiveFind(melodies, LEAPS).isEmpty());
+        assertTrue(naiveFind(melodies, new int[] { 60, 90 }).isEmpty());
+        assertThrows(Error.class, () -> index.find(pitches(new int[] { 60 })));
+        assertThrows(Error.class, () -> new MotifIndex(0));
+        assertThrows(Error.class, () -> new MotifIndex(8));
+    }
+    @Test
+    void gapTest() {
+        // A long line with the motif far apart, so that the changes in note take two and three bytes
+        Random random = new Random(7);
+        int[] longMelody = randomMelody(random, 40000);
+        int[] ordinals = { 3, 130, 136, 300, 17000, 39990 };
+        for(int ordinal : ordinals) {
+            plant(longMelody, ordinal, LEAPS, 40 + ordinal % 12);
+        }
+        // Many short lines with the motif in only a few, so that the changes in line take two bytes
+        List<int[]> melodies = new ArrayList<>();
+        melodies.add(longMelody);
+        for(int score = 1; score < 600; score++) {
+            int[] melody = randomMelody(random, 12);
+            if(score == 1 || score == 129 || score == 400 || score == 599) plant(melody, score % 7, LEAPS, 45);
+            melodies.add(melody);
+        }
+        List<LeadSheet> scores = new ArrayList<>();
+        for(int score = 0; score < melodies.size(); score++) {
+            scores.add(sheet("Tune " + score, melodies.get(score)));
+        }
+        for(int n : new int[] { 1, 2, 4 }) {
+            MotifIndex index = new MotifIndex(n);
+            index.addAll(scores);
+            List<String> found = find(index, scores, LEAPS);
+            assertEquals(naiveFind(melodies, LEAPS), found);
+            assertEquals(Arrays.asList("0:3", "0:130", "0:136", "0:300", "0:17000", "0:39990",
+                                       "1:1", "129:3", "400:1", "599:4"), found);
+            // The motif without its first note, whose later runs have postings too early to start it
+            assertEquals(10, find(index, scores, Arrays.copyOfRange(LEAPS, 1, LEAPS.length)).size());
+        }
+    }
+}
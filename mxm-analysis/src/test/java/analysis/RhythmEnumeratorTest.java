@@ -0,0 +1,128 @@
+package analysis;
+
+import org.junit.jupiter.api.Test;
+import properties.time.Time;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RhythmEnumeratorTest {
+
+    /** The bounds checked against the naive generator, as max depth, max leaves, and subdivisions */
+    private static final int[][] BOUNDS = {
+            { 0, 4, 2, 3 },
+            { 1, 4, 2, 3 },
+            { 2, 6, 2, 3 },
+            { 3, 8, 2, 3 },
+            { 3, 5, 2, 3 },
+            { 4, 6, 2 },
+            { 2, 9, 3 },
+            { 2, 7, 2, 3, 4 }
+    };
+
+    /** Generates every tree no deeper than a depth, as breadth first arrays of subdivisions */
+    private static List<int[]> naiveTrees(int depth, int[] subdivisions) {
+        List<int[]> trees = new ArrayList<>();
+        trees.add(new int[] { 0 });
+        if(depth == 0) return trees;
+        List<int[]> subtrees = naiveTrees(depth - 1, subdivisions);
+        for(int subdivision : subdivisions) {
+            naiveJoin(new int[subdivision][], 0, subtrees, trees);
+        }
+        return trees;
+    }
+    /** Tries every subtree for the children from one on, and adds each complete choice */
+    private static void naiveJoin(int[][] children, int child, List<int[]> subtrees, List<int[]> trees) {
+        if(child == children.length) {
+            trees.add(breadthFirst(children));
+            return;
+        }
+        for(int[] subtree : subtrees) {
+            children[child] = subtree;
+            naiveJoin(children, child + 1, subtrees, trees);
+        }
+    }
+    /** Puts children under a root, by taking their levels one at a time through a queue of nodes */
+    private static int[] breadthFirst(int[][] children) {
+        ArrayList<Integer> array = new ArrayList<>(Collections.singleton(children.length));
+        // A queue entry is a node, by the index of its tree in children and its index in that tree
+        ArrayDeque<int[]> nodes = new ArrayDeque<>();
+        int[] nexts = new int[children.length];
+        for(int child = 0; child < children.length; child++) {
+            nodes.add(new int[] { child, 0 });
+            nexts[child] = 1;
+        }
+        while(!nodes.isEmpty()) {
+            int[] node = nodes.poll();
+            int subdivision = children[node[0]][node[1]];
+            array.add(subdivision);
+            for(int index = 0; index < subdivision; index++) {
+                nodes.add(new int[] { node[0], nexts[node[0]]++ });
+            }
+        }
+        return array.stream().mapToInt(Integer::intValue).toArray();
+    }
+    /** Finds the simplest tree of every rhythm: the fewest nodes, and then the first in natural order */
+    private static List<CompactRhythmTree> naiveRhythms(int maxDepth, int maxLeaves, int[] subdivisions,
+                                                        int resolution) {
+        HashMap<BitSet, CompactRhythmTree> simplest = new HashMap<>();
+        for(int[] array : naiveTrees(maxDepth, subdivisions)) {
+            CompactRhythmTree tree = CompactRhythmTree.get(array);
+            if(tree.getLeafCount() > maxLeaves) continue;
+            simplest.merge(tree.getOnsets(resolution), tree, (first, second) ->
+                    first.size() != second.size()
+                            ? first.size() < second.size() ? first : second
+                            : first.compareTo(second) <= 0 ? first : second);
+        }
+        return simplest.values().stream().sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    void naiveTest() {
+        for(int[] bounds : BOUNDS) {
+            int[] subdivisions = Arrays.copyOfRange(bounds, 2, bounds.length);
+            RhythmEnumerator enumerator = new RhythmEnumerator(bounds[0], bounds[1], subdivisions);
+            String name = Arrays.toString(bounds);
+            List<CompactRhythmTree> trees = enumerator.stream().collect(Collectors.toList());
+            List<CompactRhythmTree> naive = naiveRhythms(bounds[0], bounds[1], subdivisions,
+                                                         enumerator.getResolution());
+            // The same rhythms, each once, by the same trees in the same order
+            assertEquals(naive.size(), trees.size(), name);
+            assertEquals(naive, trees, name);
+            assertEquals(trees.size(), new HashSet<>(trees).size(), name);
+            assertEquals(trees.size(), trees.stream().map(tree -> tree.getOnsets(enumerator.getResolution()))
+                    .distinct().count(), name);
+            for(int index = 1; index < trees.size(); index++) {
+                assertTrue(trees.get(index - 1).compareTo(trees.get(index)) < 0, name);
+            }
+            for(CompactRhythmTree tree : trees) {
+                assertEquals(tree, enumerator.lookup(tree.getOnsets(enumerator.getResolution())), name);
+            }
+        }
+        // Three levels of 2 and 3, up to eight leaves
+        assertEquals(585, new RhythmEnumerator(3, 8, 2, 3).stream().count());
+    }
+    @Test
+    void lookupTest() {
+        RhythmEnumerator enumerator = new RhythmEnumerator(3, 8, 2, 3);
+        assertEquals(216, enumerator.getResolution());
+        assertEquals(CompactRhythmTree.LEAF, enumerator.lookup(Collections.singletonList(Time.get(0))));
+        // The start of the measure is always an onset, even when it is left out
+        assertEquals(CompactRhythmTree.get(2, 0, 0), enumerator.lookup(Collections.singletonList(Time.get(1, 2))));
+        assertEquals(CompactRhythmTree.get(3, 0, 0, 0),
+                     enumerator.lookup(Arrays.asList(Time.get(0), Time.get(1, 3), Time.get(2, 3))));
+        // Too many leaves, a grid too coarse, and a point outside the measure are not within the bounds
+        assertNull(enumerator.lookup(Arrays.asList(Time.get(0), Time.get(1, 8), Time.get(2, 8), Time.get(3, 8),
+                                                   Time.get(4, 8), Time.get(5, 8), Time.get(6, 8), Time.get(7, 8),
+                                                   Time.get(15, 16))));
+        assertNull(enumerator.lookup(Collections.singletonList(Time.get(1, 5))));
+        assertNull(enumerator.lookup(Collections.singletonList(Time.get(1))));
+        assertThrows(Error.class, () -> new RhythmEnumerator(3, 0, 2, 3));
+        // Every product of subdivisions down to the deepest leaf must divide a grid no finer than 2^24 steps
+        assertEquals(1 << 24, new RhythmEnumerator(24, 30, 2).getResolution());
+        assertThrows(Error.class, () -> new RhythmEnumerator(25, 30, 2));
+        assertThrows(Error.class, () -> new RhythmEnumerator(16, 30, 2, 3));
+    }
+}
@@ -0,0 +1,113 @@
+package analysis;
+
+import form.part.Line;
+import form.score.LeadSheet;
+import org.junit.jupiter.api.Test;
+import properties.sound.Pitch;
+import properties.time.Beat;
+import properties.time.ITime;
+import properties.time.Time;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class RhythmInferenceTest {
+
+    /** A grid fine enough for every tree of the default inference */
+    private static final int RESOLUTION = 1296;
+
+    private static List<ITime> times(int denominator, int... numerators) {
+        ArrayList<ITime> times = new ArrayList<>();
+        for(int numerator : numerators) {
+            times.add(Time.get(numerator, denominator));
+        }
+        return times;
+    }
+    /** Makes a random tree of 2s and 3s in breadth first order, no deeper than a given depth */
+    private static CompactRhythmTree randomTree(Random random, int maxDepth) {
+        ArrayList<Integer> subdivisions = new ArrayList<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>(Collections.singleton(0));
+        while(!depths.isEmpty()) {
+            int depth = depths.poll();
+            int subdivision = depth < maxDepth && random.nextInt(depth + 2) < 2 ? 2 + random.nextInt(2) : 0;
+            subdivisions.add(subdivision);
+            for(int child = 0; child < subdivision; child++) {
+                depths.add(depth + 1);
+            }
+        }
+        return CompactRhythmTree.get(subdivisions.stream().mapToInt(Integer::intValue).toArray());
+    }
+    /** Gets the start of every leaf of a tree */
+    private static List<ITime> onsetsOf(CompactRhythmTree tree) {
+        ArrayList<ITime> onsets = new ArrayList<>();
+        for(int leaf : tree.getLeaves()) {
+            Beat timing = tree.getTiming(leaf);
+            onsets.add(Time.get(timing.getNumerator(), timing.getDenominator()));
+        }
+        return onsets;
+    }
+
+    @Test
+    void knownTest() {
+        RhythmInference inference = RhythmInference.DEFAULT;
+        // A whole note, or an empty measure, is a single leaf
+        assertEquals(CompactRhythmTree.LEAF, inference.infer(Collections.<ITime>emptyList()));
+        assertEquals(CompactRhythmTree.LEAF, inference.infer(times(1, 0)));
+        // Straight eighths split the measure evenly three times
+        assertEquals(CompactRhythmTree.get(2, 2, 2, 2, 2, 2, 2, 0, 0, 0, 0, 0, 0, 0, 0),
+                     inference.infer(times(8, 0, 1, 2, 3, 4, 5, 6, 7)));
+        // A triplet on the second beat splits only that beat in three
+        assertEquals(CompactRhythmTree.get(2, 2, 2, 0, 3, 0, 0, 0, 0, 0),
+                     inference.infer(times(12, 0, 3, 4, 5, 6, 9)));
+        // Eighth, quarter, eighth, half: the syncopation needs a split below the beat, and the quarter note across the
+        // second beat is tied over it
+        CompactRhythmTree syncopation = CompactRhythmTree.get(2, 2, 0, 2, 2, 0, 0, 0, 0);
+        assertEquals(syncopation, inference.infer(times(8, 0, 1, 3, 4)));
+        assertEquals(syncopation, inference.infer(times(8, 0, 1, 3), times(8, 4)));
+        assertNull(new RhythmInference(2, 2, 3).infer(times(8, 0, 1, 3, 4)));
+        // Seven even notes cannot be made of 2s and 3s, nor can a point outside the measure be placed
+        assertNull(inference.infer(times(7, 0, 1, 2, 3, 4, 5, 6)));
+        assertThrows(Error.class, () -> inference.infer(times(1, 1)));
+        // The preferred subdivision wins among trees of the same size
+        assertEquals(CompactRhythmTree.get(2, 0, 0), inference.infer(times(2, 1)));
+        assertEquals(CompactRhythmTree.get(3, 0, 0, 0), inference.infer(times(3, 1)));
+        assertEquals(CompactRhythmTree.get(3, 0, 0, 0), new RhythmInference(4, 3, 2).infer(times(3, 1)));
+    }
+    @Test
+    void lineTest() {
+        // A measure of rest, a half and two quarters, and a whole note
+        Line<Pitch> line = new LeadSheet("Test").getTune();
+        line.add(Time.get(1))
+            .add(Pitch.get(C_NATURAL, 4), Time.get(1, 2))
+            .add(Pitch.get(D_NATURAL, 4), Time.get(1, 4))
+            .add(Pitch.get(E_NATURAL, 4), Time.get(1, 4))
+            .add(Pitch.get(F_NATURAL, 4), Time.get(1));
+        List<CompactRhythmTree> trees = RhythmInference.DEFAULT.infer(line);
+        assertEquals(Arrays.asList(CompactRhythmTree.LEAF, CompactRhythmTree.get(2, 0, 2, 0, 0),
+                                   CompactRhythmTree.LEAF), trees);
+        assertEquals(Arrays.asList(trees, trees), RhythmInference.DEFAULT.inferAll(Arrays.asList(line, line)));
+    }
+    @Test
+    void randomTest() {
+        // The simplest tree of a tree's own onsets is never larger. Exactly, it starts its leaves at the same onsets,
+        // while a tree which may tie over onsetless leaves is at least as small, and starts a leaf at each onset.
+        Random random = new Random(42);
+        for(int trial = 0; trial < 2000; trial++) {
+            CompactRhythmTree tree = randomTree(random, 4);
+            BitSet onsets = tree.getOnsets(RESOLUTION);
+            CompactRhythmTree simplified = RhythmInference.DEFAULT.simplify(tree);
+            assertNotNull(simplified, tree.toString());
+            assertTrue(simplified.size() <= tree.size(), tree + " simplified to " + simplified);
+            assertEquals(onsets, simplified.getOnsets(RESOLUTION), tree.toString());
+            assertEquals(simplified, RhythmInference.DEFAULT.simplify(simplified));
+            CompactRhythmTree inferred = RhythmInference.DEFAULT.infer(onsetsOf(tree));
+            assertNotNull(inferred, tree.toString());
+            assertTrue(inferred.size() <= simplified.size(), tree + " inferred as " + inferred);
+            BitSet missing = (BitSet) onsets.clone();
+            missing.andNot(inferred.getOnsets(RESOLUTION));
+            assertTrue(missing.isEmpty(), tree + " inferred as " + inferred);
+        }
+    }
+}
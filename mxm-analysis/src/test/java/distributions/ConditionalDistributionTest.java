@@ -0,0 +1,109 @@
+package distributions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConditionalDistributionTest {
+
+    @Test
+    void frequencyTest() {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        counts.put("x", new HashMap<>(Collections.singletonMap("a", 3L)));
+        counts.get("x").put("b", 1L);
+        counts.put("y", new HashMap<>(Collections.singletonMap("c", 2L)));
+        ConditionalDistribution<String, String> conditional = ConditionalDistribution.of(counts);
+        for(String context : counts.keySet()) {
+            DistributionTest.assertFrequencies(conditional.given(context), counts.get(context), random);
+        }
+        // Changing a count changes only its own context
+        ConditionalDistribution<String, String> original = conditional;
+        conditional = conditional.withCount("x", "a", 0L).plus("x", "c").withCount("y", "d", 6L);
+        counts.get("x").put("a", 0L);
+        counts.get("x").put("c", 1L);
+        counts.get("y").put("d", 6L);
+        for(String context : counts.keySet()) {
+            DistributionTest.assertFrequencies(conditional.given(context), counts.get(context), random);
+        }
+        assertEquals(3L, original.getCount("x", "a"));
+        assertEquals(0L, original.getCount("x", "c"));
+        assertTrue(conditional.given("y") != original.given("y"));
+    }
+    @Test
+    void updateTest() {
+        // Enough new contexts to split the buckets several times, checked against nested hash maps
+        Random random = new Random(7);
+        HashMap<Integer, HashMap<Integer, Long>> naive = new HashMap<>();
+        ConditionalDistribution<Integer, Integer> conditional = ConditionalDistribution.of(naive);
+        List<ConditionalDistribution<Integer, Integer>> versions = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        for(int update = 0; update < 3000; update++) {
+            int context = random.nextInt(1000) - 500;
+            int element = random.nextInt(5);
+            long count = random.nextInt(4);
+            conditional = conditional.withCount(context, element, count);
+            naive.computeIfAbsent(context, key -> new HashMap<>()).put(element, count);
+            if(update % 500 == 0) {
+                versions.add(conditional);
+                sizes.add(naive.size());
+            }
+        }
+        assertEquals(naive.keySet(), conditional.getContexts());
+        assertEquals(naive.size(), conditional.getContexts().size());
+        assertFalse(conditional.getContexts().contains(1000));
+        for(Map.Entry<Integer, HashMap<Integer, Long>> entry : naive.entrySet()) {
+            for(int element = 0; element < 5; element++) {
+                assertEquals(entry.getValue().getOrDefault(element, 0L).longValue(),
+                             conditional.getCount(entry.getKey(), element));
+            }
+        }
+        // Earlier versions keep the contexts they had
+        for(int version = 0; version < versions.size(); version++) {
+            assertEquals((int) sizes.get(version), versions.get(version).getContexts().size());
+        }
+    }
+    @Test
+    void edgeTest() {
+        SplittableRandom random = new SplittableRandom(1);
+        ConditionalDistribution<String, String> empty = ConditionalDistribution.of(
+                Collections.<String, Map<String, Long>>emptyMap());
+        assertTrue(empty.getContexts().isEmpty());
+        assertNull(empty.given("x"));
+        assertNull(empty.sample("x", random));
+        assertEquals(0L, empty.getCount("x", "a"));
+        // A context whose counts are all 0 is seen, but cannot be sampled
+        ConditionalDistribution<String, String> zero = empty.withCount("x", "a", 0L);
+        assertEquals(Collections.singleton("x"), zero.getContexts());
+        assertNull(zero.sample("x", random));
+        // A single outcome is always drawn
+        ConditionalDistribution<String, String> single = zero.plus("x", "b");
+        for(int sample = 0; sample < 1000; sample++) {
+            assertEquals("b", single.sample("x", random));
+        }
+        assertThrows(Error.class, () -> single.withCount("x", "b", -1L));
+    }
+    @Test
+    void nGramTest() {
+        // The last symbol of each bigram, given the first
+        Alphabet<Integer> integers = new Alphabet<>("integer", 4, Integer::intValue, code -> code);
+        List<Integer> sequence = Arrays.asList(1, 2, 1, 3, 1, 2, 2);
+        ConditionalDistribution<List<Integer>, Integer> bigrams = ConditionalDistribution.of(
+                new NGramCounter<>(integers, 2).count(sequence));
+        assertEquals(new HashSet<>(Arrays.asList(Collections.singletonList(1), Collections.singletonList(2),
+                                                 Collections.singletonList(3))), bigrams.getContexts());
+        assertEquals(2L, bigrams.getCount(Collections.singletonList(1), 2));
+        assertEquals(1L, bigrams.getCount(Collections.singletonList(1), 3));
+        assertEquals(1L, bigrams.getCount(Collections.singletonList(2), 2));
+        assertEquals(1L, bigrams.getCount(Collections.singletonList(3), 1));
+        assertEquals(0L, bigrams.getCount(Collections.singletonList(3), 2));
+        // Trigrams have contexts of two symbols, and unigrams have none
+        ConditionalDistribution<List<Integer>, Integer> trigrams = ConditionalDistribution.of(
+                new NGramCounter<>(integers, 3).count(sequence));
+        assertEquals(1L, trigrams.getCount(Arrays.asList(1, 2), 1));
+        assertEquals(1L, trigrams.getCount(Arrays.asList(1, 2), 2));
+        assertThrows(Error.class, () -> ConditionalDistribution.of(new NGramCounter<>(integers, 1).count(sequence)));
+    }
+}
@@ -0,0 +1,151 @@
+package distributions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistributionTest {
+
+    /** The number of samples drawn to check frequencies */
+    private static final int SAMPLES = 200000;
+    /** The largest allowed difference between a frequency and its probability, about six standard deviations */
+    private static final double TOLERANCE = 0.007;
+
+    private static Map<String, Long> counts(Object... pairs) {
+        LinkedHashMap<String, Long> counts = new LinkedHashMap<>();
+        for(int index = 0; index < pairs.length; index += 2) {
+            counts.put((String) pairs[index], ((Integer) pairs[index + 1]).longValue());
+        }
+        return counts;
+    }
+    /** Checks that the frequency of every element drawn is its count over the total */
+    static <ElementType> void assertFrequencies(Distribution<ElementType> distribution,
+                                                Map<ElementType, Long> expected, SplittableRandom random) {
+        long total = expected.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, distribution.getTotal());
+        HashMap<ElementType, Integer> drawn = new HashMap<>();
+        for(int sample = 0; sample < SAMPLES; sample++) {
+            drawn.merge(distribution.sample(random), 1, Integer::sum);
+        }
+        for(Map.Entry<ElementType, Integer> entry : drawn.entrySet()) {
+            assertTrue(expected.getOrDefault(entry.getKey(), 0L) > 0L, entry.getKey() + " has no count");
+        }
+        for(Map.Entry<ElementType, Long> entry : expected.entrySet()) {
+            double probability = (double) entry.getValue() / total;
+            double frequency = (double) drawn.getOrDefault(entry.getKey(), 0) / SAMPLES;
+            assertEquals(probability, distribution.getProbability(entry.getKey()), 1e-12);
+            assertEquals(probability, frequency, TOLERANCE, entry.getKey() + " drawn too often or too rarely");
+        }
+    }
+
+    @Test
+    void frequencyTest() {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, Long> expected = counts("a", 1, "b", 3, "c", 6, "d", 10);
+        Distribution<String> distribution = Distribution.of(expected);
+        assertFrequencies(distribution, expected, random);
+        // Counts which fall are rejected from the old tables, and counts which rise are drawn from the gains
+        Distribution<String> original = distribution;
+        Object[][] updates = { { "b", 0 }, { "e", 5 }, { "a", 20 }, { "c", 3 }, { "b", 2 }, { "d", 1 } };
+        for(Object[] update : updates) {
+            distribution = distribution.withCount((String) update[0], ((Integer) update[1]).longValue());
+            expected.put((String) update[0], ((Integer) update[1]).longValue());
+            assertFrequencies(distribution, expected, random);
+        }
+        assertEquals("{a=20, b=2, c=3, d=1, e=5}", distribution.toString());
+        // The original is unchanged
+        assertEquals("{a=1, b=3, c=6, d=10}", original.toString());
+        // Enough changes to rebuild the tables many times over
+        Random choices = new Random(7);
+        for(int update = 0; update < 500; update++) {
+            String element = String.valueOf((char) ('a' + choices.nextInt(26)));
+            if(choices.nextInt(4) == 0) {
+                distribution = distribution.withCount(element, 0L);
+                expected.put(element, 0L);
+            } else {
+                distribution = distribution.plus(element);
+                expected.merge(element, 1L, Long::sum);
+            }
+        }
+        for(Map.Entry<String, Long> entry : expected.entrySet()) {
+            assertEquals((long) entry.getValue(), distribution.getCount(entry.getKey()));
+        }
+        assertFrequencies(distribution, expected, random);
+    }
+    @Test
+    void edgeTest() {
+        SplittableRandom random = new SplittableRandom(1);
+        // Elements with no count are never drawn, and are not elements at all
+        Distribution<String> zero = Distribution.of(counts("a", 0, "b", 2, "c", 0));
+        assertEquals(Collections.singleton("b"), zero.getElements());
+        assertEquals(0.0, zero.getProbability("a"));
+        assertEquals(0L, zero.getCount("z"));
+        for(int sample = 0; sample < 1000; sample++) {
+            assertEquals("b", zero.sample(random));
+        }
+        // A single outcome is always drawn, however its count changes
+        assertEquals(1.0, Distribution.of(counts("x", 5)).getProbability("x"));
+        Distribution<String> single = Distribution.of(counts("x", 5)).withCount("x", 1L);
+        for(int sample = 0; sample < 1000; sample++) {
+            assertEquals("x", single.sample(random));
+        }
+        // An element raised from 0 is the single outcome once the others fall to 0
+        Distribution<String> moved = zero.withCount("a", 4L).withCount("b", 0L);
+        assertEquals(Collections.singleton("a"), moved.getElements());
+        for(int sample = 0; sample < 1000; sample++) {
+            assertEquals("a", moved.sample(random));
+        }
+        // An empty distribution cannot be sampled, and counts cannot be negative
+        Distribution<String> empty = Distribution.of(Collections.<String, Long>emptyMap());
+        assertEquals(0L, empty.getTotal());
+        assertEquals(0.0, empty.getProbability("a"));
+        assertThrows(Error.class, () -> empty.sample(random));
+        assertThrows(Error.class, () -> single.withCount("x", 0L).sample(random));
+        assertThrows(Error.class, () -> single.withCount("x", -1L));
+        assertThrows(Error.class, () -> Distribution.of(counts("a", -1)));
+        assertEquals("{}", empty.toString());
+        assertEquals("{a=1}", empty.plus("a").toString());
+    }
+    @Test
+    void rebuildTest() {
+        // About the square root of the size is kept aside, and never fewer than a handful
+        assertEquals(16, Distribution.getMaxChanges(0));
+        assertEquals(16, Distribution.getMaxChanges(100));
+        assertEquals(100, Distribution.getMaxChanges(10000));
+        assertEquals(221, Distribution.getMaxChanges(49000));
+        LinkedHashMap<String, Long> expected = new LinkedHashMap<>();
+        for(int element = 0; element < 10000; element++) {
+            expected.put("e" + element, 10L);
+        }
+        Distribution<String> distribution = Distribution.of(expected);
+        // Raising counts rejects nothing, so the tables are rebuilt only once the changes pass the limit
+        for(int element = 0; element < 100; element++) {
+            distribution = distribution.plus("e" + element);
+            expected.merge("e" + element, 1L, Long::sum);
+            assertEquals(element + 1, distribution.getChanges());
+        }
+        distribution = distribution.plus("new");
+        expected.put("new", 1L);
+        assertEquals(0, distribution.getChanges());
+        for(Map.Entry<String, Long> entry : expected.entrySet()) {
+            assertEquals((long) entry.getValue(), distribution.getCount(entry.getKey()));
+        }
+        assertEquals(1, distribution.plus("e0").getChanges());
+    }
+    @Test
+    void constructionTest() {
+        SplittableRandom random = new SplittableRandom(3);
+        Distribution<String> uniform = Distribution.uniform(Arrays.asList("a", "b", "c", "d"));
+        assertFrequencies(uniform, counts("a", 1, "b", 1, "c", 1, "d", 1), random);
+        // Unigram counts form a distribution, and longer n-grams do not
+        Alphabet<Integer> integers = new Alphabet<>("integer", 4, Integer::intValue, code -> code);
+        List<Integer> sequence = Arrays.asList(1, 2, 2, 3, 3, 3, 0);
+        Distribution<Integer> unigrams = Distribution.of(new NGramCounter<>(integers, 1).count(sequence));
+        assertEquals(7L, unigrams.getTotal());
+        assertEquals(3L, unigrams.getCount(3));
+        assertEquals(0L, unigrams.getCount(4));
+        assertThrows(Error.class, () -> Distribution.of(new NGramCounter<>(integers, 2).count(sequence)));
+    }
+}
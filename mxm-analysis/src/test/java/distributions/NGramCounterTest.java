@@ -0,0 +1,156 @@
+package distributions;
+
+import org.junit.jupiter.api.Test;
+import properties.sound.Pitch;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NGramCounterTest {
+
+    /** An alphabet of small integers, whose codes are the integers themselves */
+    private static Alphabet<Integer> integers(int bits) {
+        return new Alphabet<>("integer", bits, Integer::intValue, code -> code);
+    }
+
+    @Test
+    void countTest() {
+        Random random = new Random(42);
+        List<Pitch> pitches = new ArrayList<>(Pitch.all());
+        List<List<Pitch>> sequences = new ArrayList<>();
+        for(int sequence = 0; sequence < 300; sequence++) {
+            // A narrow range of pitches, so that many n-grams recur
+            List<Pitch> pitchSequence = new ArrayList<>();
+            int length = random.nextInt(40);
+            for(int index = 0; index < length; index++) {
+                pitchSequence.add(pitches.get(60 + random.nextInt(5)));
+            }
+            sequences.add(pitchSequence);
+        }
+        for(int n = 1; n <= 4; n++) {
+            NGramCounter<Pitch> counter = new NGramCounter<>(Alphabet.PITCH, n);
+            NGramCounter<Pitch>.Counts counts = counter.count(sequences);
+            Map<List<Pitch>, Long> naive = naiveCount(sequences, n);
+            assertEquals(naive.size(), counts.size());
+            assertEquals(naive.values().stream().mapToLong(Long::longValue).sum(), counts.getTotal());
+            for(Map.Entry<List<Pitch>, Long> entry : naive.entrySet()) {
+                assertEquals((long) entry.getValue(), counts.getCount(entry.getKey()));
+                assertEquals(entry.getKey(), counter.unpack(counter.pack(entry.getKey())));
+            }
+            // The most common n-grams come first, and none left out is more common than the last
+            List<List<Pitch>> top = counts.top(10);
+            assertEquals(Math.min(10, naive.size()), top.size());
+            for(int index = 1; index < top.size(); index++) {
+                assertTrue(naive.get(top.get(index - 1)) >= naive.get(top.get(index)));
+            }
+            long least = naive.get(top.get(top.size() - 1));
+            for(Map.Entry<List<Pitch>, Long> entry : naive.entrySet()) {
+                if(!top.contains(entry.getKey())) assertTrue(entry.getValue() <= least);
+            }
+            // Counting one sequence at a time finds the same counts
+            NGramCounter<Pitch>.Counts single = counter.count(sequences.get(0));
+            Map<List<Pitch>, Long> naiveSingle = naiveCount(Collections.singletonList(sequences.get(0)), n);
+            assertEquals(naiveSingle.size(), single.size());
+        }
+        // A sequence shorter than n has no n-grams, and nothing at all has none either
+        NGramCounter<Pitch> counter = new NGramCounter<>(Alphabet.PITCH, 3);
+        assertEquals(0, counter.count(Arrays.asList(Pitch.MIN, Pitch.MAX)).getTotal());
+        assertEquals(0, counter.count(Collections.<List<Pitch>>emptyList()).size());
+        assertTrue(counter.count(Collections.<List<Pitch>>emptyList()).top(5).isEmpty());
+    }
+    @Test
+    void longCountMapTest() {
+        // Enough distinct keys to grow the table many times from its smallest size
+        Random random = new Random(7);
+        LongCountMap map = new LongCountMap();
+        HashMap<Long, Long> naive = new HashMap<>();
+        for(int index = 0; index < 100000; index++) {
+            long key = random.nextInt(20000) == 0 ? 0L : (random.nextLong() >>> 1) % 30000L;
+            long count = 1 + random.nextInt(3);
+            map.add(key, count);
+            naive.merge(key, count, Long::sum);
+        }
+        map.add(Long.MAX_VALUE);
+        naive.merge(Long.MAX_VALUE, 1L, Long::sum);
+        assertEquals(naive.size(), map.size());
+        assertEquals(naive.values().stream().mapToLong(Long::longValue).sum(), map.getTotal());
+        for(Map.Entry<Long, Long> entry : naive.entrySet()) {
+            assertEquals((long) entry.getValue(), map.get(entry.getKey()));
+        }
+        HashMap<Long, Long> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(naive, visited);
+        // Absent and negative keys have no count, and negative keys cannot be counted
+        assertEquals(0L, map.get(30000L));
+        assertEquals(0L, map.get(-1L));
+        assertEquals(0L, new LongCountMap().get(0L));
+        assertThrows(Error.class, () -> map.add(-1L));
+        // The key 0 is a key like any other, not an empty slot
+        LongCountMap zero = new LongCountMap(1);
+        zero.add(0L);
+        zero.add(0L);
+        assertEquals(1, zero.size());
+        assertEquals(2L, zero.get(0L));
+        assertArrayEquals(new long[] { 0L }, zero.top(3));
+        // Adding one map to another sums their counts
+        LongCountMap sum = new LongCountMap();
+        sum.addAll(map);
+        sum.addAll(zero);
+        assertEquals(naive.get(0L) + 2L, sum.get(0L));
+        assertEquals(map.getTotal() + 2L, sum.getTotal());
+        // Ties are broken by the smaller key
+        LongCountMap ties = new LongCountMap();
+        for(long key : new long[] { 5L, 3L, 9L, 3L, 5L, 1L }) ties.add(key);
+        assertArrayEquals(new long[] { 3L, 5L, 1L, 9L }, ties.top(10));
+        assertArrayEquals(new long[] { 3L }, ties.top(1));
+        assertEquals(0, ties.top(0).length);
+    }
+    @Test
+    void packingTest() {
+        // The largest n-grams which fit in the 63 bits of a non-negative long
+        assertEquals(9, new NGramCounter<>(integers(7), 9).getN());
+        assertThrows(Error.class, () -> new NGramCounter<>(integers(7), 10));
+        assertEquals(63, new NGramCounter<>(integers(1), 63).getN());
+        assertThrows(Error.class, () -> new NGramCounter<>(integers(1), 64));
+        assertEquals(2, new NGramCounter<>(integers(31), 2).getN());
+        assertThrows(Error.class, () -> new NGramCounter<>(integers(31), 3));
+        assertThrows(Error.class, () -> new NGramCounter<>(Alphabet.CHORD, 4));
+        assertThrows(Error.class, () -> new NGramCounter<>(Alphabet.PITCH, 0));
+        assertThrows(Error.class, () -> integers(32));
+        assertThrows(Error.class, () -> integers(0));
+        // The largest symbol of the largest n-gram fills every bit but the sign
+        NGramCounter<Integer> counter = new NGramCounter<>(integers(7), 9);
+        List<Integer> largest = Collections.nCopies(9, 127);
+        assertEquals(Long.MAX_VALUE, counter.pack(largest));
+        assertEquals(largest, counter.unpack(Long.MAX_VALUE));
+        List<Integer> mixed = Arrays.asList(127, 0, 1, 126, 64, 63, 127, 0, 127);
+        assertEquals(mixed, counter.unpack(counter.pack(mixed)));
+        assertThrows(Error.class, () -> counter.pack(Collections.nCopies(8, 127)));
+        assertThrows(Error.class, () -> integers(7).encode(128));
+        assertThrows(Error.class, () -> integers(7).encode(-1));
+        // Rolling along a sequence drops the oldest symbol cleanly at the largest n
+        List<Integer> sequence = new ArrayList<>(Collections.nCopies(12, 127));
+        sequence.set(0, 0);
+        NGramCounter<Integer>.Counts counts = counter.count(sequence);
+        assertEquals(4, counts.getTotal());
+        assertEquals(3, counts.getCount(largest));
+        assertEquals(1, counts.getCount(sequence.subList(0, 9)));
+        // The extreme pitches survive the pitch alphabet
+        NGramCounter<Pitch> pitches = new NGramCounter<>(Alphabet.PITCH, 9);
+        List<Pitch> extremes = Arrays.asList(Pitch.MAX, Pitch.MIN, Pitch.MAX, Pitch.MIN, Pitch.MAX, Pitch.MIN,
+                                             Pitch.MAX, Pitch.MIN, Pitch.MAX);
+        assertEquals(extremes, pitches.unpack(pitches.pack(extremes)));
+    }
+
+    /** Counts every n-gram of every sequence with a hash map of lists */
+    private static <SymbolType> Map<List<SymbolType>, Long> naiveCount(List<List<SymbolType>> sequences, int n) {
+        HashMap<List<SymbolType>, Long> counts = new HashMap<>();
+        for(List<SymbolType> sequence : sequences) {
+            for(int start = 0; start + n <= sequence.size(); start++) {
+                counts.merge(new ArrayList<>(sequence.subList(start, start + n)), 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+}
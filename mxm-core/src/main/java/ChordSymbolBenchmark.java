@@ -0,0 +1,71 @@
+import properties.sound.Chord;
+import properties.sound.ChordClass;
+import properties.sound.IntervalClass;
+import properties.sound.PitchClass;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static properties.sound.IntervalClass.*;
+
+/**
+ * A rough benchmark of a chord-symbol-heavy parsing workload, such as reading the changes of a large lead sheet corpus.
+ * Every symbol is split into a root and a quality, and the quality's interval classes are looked up as a ChordClass.
+ */
+public class ChordSymbolBenchmark {
+    public static int NUM_SYMBOLS = 1000000;
+    public static int SAMPLES = 20;
+
+    private static final String[] ROOTS = { "C", "Db", "D", "Eb", "E", "F", "Gb", "G", "Ab", "A", "Bb", "B" };
+    private static final Map<String, IntervalClass[]> QUALITIES = new HashMap<>();
+    static {
+        QUALITIES.put("",       new IntervalClass[] { MAJOR_THIRD, PERFECT_FIFTH });
+        QUALITIES.put("m",      new IntervalClass[] { MINOR_THIRD, PERFECT_FIFTH });
+        QUALITIES.put("7",      new IntervalClass[] { MAJOR_THIRD, PERFECT_FIFTH, MINOR_SEVENTH });
+        QUALITIES.put("maj7",   new IntervalClass[] { MAJOR_THIRD, PERFECT_FIFTH, MAJOR_SEVENTH });
+        QUALITIES.put("m7",     new IntervalClass[] { MINOR_THIRD, PERFECT_FIFTH, MINOR_SEVENTH });
+        QUALITIES.put("m7b5",   new IntervalClass[] { MINOR_THIRD, TRITONE, MINOR_SEVENTH });
+        QUALITIES.put("dim7",   new IntervalClass[] { MINOR_THIRD, TRITONE, MAJOR_SIXTH });
+        QUALITIES.put("9",      new IntervalClass[] { MAJOR_THIRD, PERFECT_FIFTH, MINOR_SEVENTH, MAJOR_SECOND });
+        QUALITIES.put("13",     new IntervalClass[] { MAJOR_THIRD, PERFECT_FIFTH, MINOR_SEVENTH, MAJOR_SECOND,
+                                                      PERFECT_FOURTH, MAJOR_SIXTH });
+    }
+
+    public static void main(String[] args) {
+        // Generate a corpus of random chord symbols
+        String[] qualities = QUALITIES.keySet().toArray(new String[0]);
+        List<String> symbols = new ArrayList<>(NUM_SYMBOLS);
+        for(int i = 0; i < NUM_SYMBOLS; i++) {
+            symbols.add(ROOTS[ThreadLocalRandom.current().nextInt(ROOTS.length)]
+                    + qualities[ThreadLocalRandom.current().nextInt(qualities.length)]);
+        }
+
+        // Parse the whole corpus several times over
+        long totalTime = 0;
+        int checksum = 0;
+        for(int sample = 0; sample < SAMPLES; sample++) {
+            long startTime = System.nanoTime();
+            for(String symbol : symbols) {
+                checksum += parse(symbol).getChordClass().getID();
+            }
+            totalTime += System.nanoTime() - startTime;
+        }
+
+        System.out.println("====================================");
+        System.out.println("Chord symbols parsed: " + ((long) NUM_SYMBOLS * SAMPLES) + " (checksum " + checksum + ")");
+        System.out.println("Average time per symbol: " + (totalTime / ((long) NUM_SYMBOLS * SAMPLES)) + " ns");
+        System.out.println("Average time per corpus: " + (totalTime / SAMPLES) / 1000000 + " ms");
+    }
+
+    private static Chord parse(String symbol) {
+        int rootLength = (symbol.length() > 1 && symbol.charAt(1) == 'b') ? 2 : 1;
+        String root = symbol.substring(0, rootLength);
+        int rootValue = 0;
+        while(!ROOTS[rootValue].equals(root)) rootValue++;
+        ChordClass chordClass = ChordClass.get(QUALITIES.get(symbol.substring(rootLength)));
+        return Chord.get(PitchClass.get(rootValue), chordClass);
+    }
+}
@@ -0,0 +1,109 @@
+import properties.note.Dynamic;
+import properties.time.Tempo;
+import properties.time.TimeSig;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A rough benchmark of the property lookups made while ingesting a large MIDI corpus. Every note-on event looks up a
+ * Dynamic from its velocity, and the occasional set-tempo and time-signature meta events look up a Tempo and TimeSig.
+ * The benchmark reports the CPU time and the number of bytes allocated on the ingesting thread, and the number of
+ * distinct instances which the lookups returned. Allocation is only counted on JVMs whose thread bean can measure it.
+ */
+public class MidiIngestBenchmark {
+    public static int NUM_EVENTS = 1000000;
+    public static int SAMPLES = 20;
+
+    /** The kinds of event in the synthetic stream */
+    private static final int NOTE_ON = 0, SET_TEMPO = 1, TIME_SIGNATURE = 2;
+
+    public static void main(String[] args) {
+        // Generate a stream of events, mostly note-ons with the occasional meta event, as in a typical MIDI file
+        int[] kinds = new int[NUM_EVENTS];
+        int[] data1 = new int[NUM_EVENTS];
+        int[] data2 = new int[NUM_EVENTS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for(int i = 0; i < NUM_EVENTS; i++) {
+            int roll = random.nextInt(100);
+            if(roll < 2) {
+                // Microseconds per quarter note, for tempi between 40 and 240 bpm
+                kinds[i] = SET_TEMPO;
+                data1[i] = 60000000 / random.nextInt(40, 241);
+            } else if(roll < 3) {
+                // A numerator and the exponent of the denominator, as they are written in the meta event
+                kinds[i] = TIME_SIGNATURE;
+                data1[i] = random.nextInt(1, 13);
+                data2[i] = random.nextInt(1, 4);
+            } else {
+                kinds[i] = NOTE_ON;
+                data1[i] = random.nextInt(1, 128);
+            }
+        }
+
+        // Ingest the whole stream several times over
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean timed = threads.isCurrentThreadCpuTimeSupported();
+        if(timed) threads.setThreadCpuTimeEnabled(true);
+        long threadId = Thread.currentThread().getId();
+        boolean counted = allocatedBytes(threads, threadId) >= 0;
+        Set<Object> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        long totalTime = 0, totalCpuTime = 0, totalBytes = 0;
+        int checksum = 0;
+        for(int sample = 0; sample < SAMPLES; sample++) {
+            long startBytes = allocatedBytes(threads, threadId);
+            long startCpuTime = timed ? threads.getCurrentThreadCpuTime() : 0;
+            long startTime = System.nanoTime();
+            for(int i = 0; i < NUM_EVENTS; i++) {
+                checksum += ingest(kinds[i], data1[i], data2[i]).hashCode();
+            }
+            totalTime += System.nanoTime() - startTime;
+            if(timed) totalCpuTime += threads.getCurrentThreadCpuTime() - startCpuTime;
+            totalBytes += allocatedBytes(threads, threadId) - startBytes;
+        }
+        // Count the distinct instances in a separate pass, so that the identity set is not part of the measurement
+        for(int i = 0; i < NUM_EVENTS; i++) {
+            instances.add(ingest(kinds[i], data1[i], data2[i]));
+        }
+
+        System.out.println("====================================");
+        System.out.println("Events ingested: " + ((long) NUM_EVENTS * SAMPLES) + " (checksum " + checksum + ")");
+        System.out.println("Distinct instances per pass: " + instances.size());
+        if(counted) {
+            System.out.println("Average bytes allocated per event: " + (totalBytes / ((long) NUM_EVENTS * SAMPLES)));
+            System.out.println("Average bytes allocated per pass: " + (totalBytes / SAMPLES));
+        } else {
+            System.out.println("Bytes allocated: not measurable on this JVM");
+        }
+        System.out.println("Average time per event: " + (totalTime / ((long) NUM_EVENTS * SAMPLES)) + " ns");
+        if(timed) {
+            System.out.println("Average CPU time per event: " + (totalCpuTime / ((long) NUM_EVENTS * SAMPLES)) + " ns");
+        }
+    }
+
+    /**
+     * Reads the bytes allocated so far by a thread, or -1 if the JVM cannot count them
+     */
+    private static long allocatedBytes(ThreadMXBean threads, long threadId) {
+        if(!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        if(!allocations.isThreadAllocatedMemorySupported()) return -1;
+        if(!allocations.isThreadAllocatedMemoryEnabled()) allocations.setThreadAllocatedMemoryEnabled(true);
+        return allocations.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * Looks up the property carried by one event
+     */
+    private static Object ingest(int kind, int data1, int data2) {
+        switch(kind) {
+            case SET_TEMPO:      return Tempo.get(Math.round(60000000f / data1));
+            case TIME_SIGNATURE: return TimeSig.get(data1, 1 << data2);
+            default:             return Dynamic.get(data1);
+        }
+    }
+}
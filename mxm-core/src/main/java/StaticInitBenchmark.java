@@ -0,0 +1,32 @@
+import java.text.DecimalFormat;
+
+/**
+ * A rough benchmark of class-initialization time for the large flyweight tables, which matters most for short-lived
+ * processes. Each class is initialized exactly once per JVM, so run this as its own process for meaningful numbers.
+ */
+public class StaticInitBenchmark {
+    private static final String[] CLASSES = {
+            "properties.sound.PitchClass",
+            "properties.sound.IntervalClass",
+            "theory.harmony.Harmony",
+            "properties.sound.ChordClass",
+            "properties.sound.Chord"
+    };
+
+    public static void main(String[] args) throws ClassNotFoundException {
+        DecimalFormat formatter = new DecimalFormat("#,###");
+        long totalTime = 0;
+        long startTime;
+        long elapsedTime;
+
+        for(String className : CLASSES) {
+            startTime = System.nanoTime();
+            Class.forName(className);
+            elapsedTime = System.nanoTime() - startTime;
+            totalTime += elapsedTime;
+            System.out.println("Initialized " + className + " in " + formatter.format(elapsedTime) + " ns");
+        }
+        System.out.println("====================================");
+        System.out.println("Total class-init time: " + formatter.format(totalTime) + " ns");
+    }
+}
@@ -12,12 +12,13 @@ public abstract class AbstractSpanningEvent implements IMusicEvent {
     protected AbstractSpanningEvent(ITime startITime, ITime endITime) {
         this.startITime = startITime;
         this.endITime = endITime;
-        this.duration = endITime.minus(endITime);
+        this.duration = endITime.minus(startITime);
     }
 
     // GETTERS
     @Override
     public final ITime getTime() { return startITime; }
-    public final ITime getStart() { return endITime; }
+    public final ITime getStart() { return startITime; }
+    public final ITime getEnd() { return endITime; }
     public final ITime getDuration() { return duration; }
 }
@@ -0,0 +1,31 @@
+package events.time;
+
+import events.AbstractInstantEvent;
+import events.IScoreEvent;
+import properties.time.ITime;
+import form.score.AbstractScore;
+import org.jetbrains.annotations.NotNull;
+import theory.harmony.Key;
+
+
+public class KeyChange extends AbstractInstantEvent implements IScoreEvent {
+    // KEY CHANGE PROPERTIES
+    private final AbstractScore score;
+    private final Key key;
+
+    // CONSTRUCTORS
+    public KeyChange(@NotNull AbstractScore score, @NotNull ITime timing, @NotNull Key key) {
+        super(timing);
+        this.score = score;
+        this.key = key;
+    }
+
+    // GETTERS
+    public @NotNull Key getKey() {
+        return key;
+    }
+    @Override
+    public AbstractScore getScore() { return score; }
+    @Override
+    public @NotNull String toString() { return key + " at " + getTime(); }
+}
@@ -0,0 +1,129 @@
+package form.part;
+
+import events.sound.Note;
+import form.score.IScore;
+import form.timeline.IFrame;
+import form.timeline.ITimeline;
+import form.timeline.ParallelTimeline;
+import org.jetbrains.annotations.NotNull;
+import properties.note.Instrument;
+import properties.sound.ISound;
+import properties.time.ITime;
+import properties.time.Time;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A {@link PolyLine} is the polyphonic counterpart of a {@link Line}- a single player (such as a pianist or guitarist)
+ * who may sound any number of notes at once, whether as whole chords or as overlapping spans of different lengths.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * Notes are stored in a {@link ParallelTimeline} of frames. Every adder hands its notes to the timeline as one batch,
+ * so a ten-note chord updates the frame structure once rather than ten times, and the notes sounding at any time are
+ * found with a single floor lookup.</p>
+ *
+ * @param <SoundType> The type of {@link ISound} that this part can play
+ *
+ * @author Patrick Celentano
+ */
+public class PolyLine<SoundType extends ISound> extends AbstractPart<SoundType> {
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** All of the notes in this line, which may overlap freely */
+    private final ParallelTimeline<Note<SoundType>> notes;
+    /** We must save the last-written-to time in this line */
+    private ITime writeHead;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * The poly line constructor, taking the score it belongs to and the instrument playing it
+     * @param score the score to which this line belongs
+     * @param instrument the instrument playing this line
+     */
+    public PolyLine(@NotNull IScore score, @NotNull Instrument instrument) {
+        super(score,instrument);
+        this.notes = new ParallelTimeline<>();
+        this.writeHead = Time.MEASURE_ONE;
+    }
+
+    //////////////////////////////
+    // Adder methods            //
+    //////////////////////////////
+
+    /**
+     * Adds a new note to this line of a given sound and length
+     * @param sound the sound of this note
+     * @param length the length of this note
+     * @return this line, for use in chaining such commands
+     */
+    public @NotNull PolyLine<SoundType> add(@NotNull SoundType sound, @NotNull ITime length) {
+        notes.add(new Note<>(this, sound, writeHead, writeHead.plus(length)));
+        writeHead = writeHead.plus(length);
+        return this;
+    }
+    /**
+     * Adds a whole chord to this line, every sound of which starts at the write head and lasts the same length
+     * @param sounds the sounds of this chord
+     * @param length the length of this chord
+     * @return this line, for use in chaining such commands
+     */
+    public @NotNull PolyLine<SoundType> add(@NotNull Collection<SoundType> sounds, @NotNull ITime length) {
+        ITime end = writeHead.plus(length);
+        ArrayList<Note<SoundType>> chord = new ArrayList<>(sounds.size());
+        for(SoundType sound : sounds) {
+            chord.add(new Note<>(this, sound, writeHead, end));
+        }
+        notes.addAll(chord);
+        writeHead = end;
+        return this;
+    }
+    /**
+     * Adds a new rest to this line of a given length
+     * @param length the length of this rest
+     * @return this line, for use in chaining such commands
+     */
+    public @NotNull PolyLine<SoundType> add(@NotNull ITime length) {
+        writeHead = writeHead.plus(length);
+        return this;
+    }
+    /**
+     * Adds a batch of notes with arbitrary, possibly overlapping spans. The write head is left untouched.
+     * @param batch the notes to add, all of which must belong to this line
+     * @return this line, for use in chaining such commands
+     */
+    public @NotNull PolyLine<SoundType> addAll(@NotNull Collection<Note<SoundType>> batch) {
+        for(Note<SoundType> note : batch) {
+            if(note.getPart() != this) throw new Error("PolyLine: Cannot add a note which belongs to another part!");
+        }
+        notes.addAll(batch);
+        return this;
+    }
+
+    //////////////////////////////
+    // Getter methods           //
+    //////////////////////////////
+
+    /**
+     * Returns all notes sounding at a given time, whether they start there or are held through it
+     * @param time the time at which to sample this line
+     * @return an unmodifiable collection of all notes sounding at this time
+     */
+    public @NotNull Collection<Note<SoundType>> getNotesAt(@NotNull ITime time) {
+        return notes.getOngoingAt(time);
+    }
+    /**
+     * Returns a timeline of all the frames (vertical slices) of notes in this line
+     * @return a timeline of all the frames in this line
+     */
+    public @NotNull ITimeline<IFrame<Note<SoundType>>> getNotes() {
+        return notes;
+    }
+}
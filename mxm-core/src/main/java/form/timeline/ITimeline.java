@@ -28,6 +28,7 @@ public interface ITimeline <TimedType extends ITimed> extends Iterable<TimedType
         return getEnd().minus(getStart());
     }
 
+    // Each of these is null when there is no such element, as in an empty timeline; getStart and getEnd are not
     @Nullable TimedType getFirst();
     @Nullable TimedType getLast();
     @Nullable TimedType getAt(@NotNull ITime time);
@@ -5,6 +5,7 @@ import events.AbstractSpanningEvent;
 import properties.time.ITime;
 import events.IMusicEvent;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.stream.Stream;
@@ -16,54 +17,122 @@ import java.util.stream.Stream;
  * other, with no overlap. In a {@link ParallelTimeline}, contemporaneous events are stored in a {@link IFrame}, which
  * is simply a vertical stack of events at a given time</p>
  *
+ * <p> <b>Design Details:</b>
+ * Events are added in batches through {@link #addAll(Collection)}, which creates every frame boundary of the batch
+ * before placing any event, so that the frame structure is updated once per batch rather than once per event.</p>
+ *
  * @param <MusicEventType> The subclass of IMusicEvent which this timeline may hold. It's worth noting that this might
  *                        be IMusicEvent itself- in which case, all music events may be stored within this timeline.
  *
  * @author Patrick Celentano
  */
-final class ParallelTimeline <MusicEventType extends IMusicEvent> implements ITimeline<IFrame<MusicEventType>> {
+public final class ParallelTimeline <MusicEventType extends IMusicEvent> implements ITimeline<IFrame<MusicEventType>> {
 
-    private final TreeMap<ITime, IFrame<MusicEventType>> frames;
+    private final TreeMap<ITime, Frame<MusicEventType>> frames;
 
     public ParallelTimeline() {
         this.frames = new TreeMap<>();
     }
 
+    // ADDERS
+    // Public only so that parts may add their notes- users should add through a part, not the timeline itself.
+    public void add(@NotNull MusicEventType event) {
+        addAll(Collections.singletonList(event));
+    }
+    /**
+     * Adds a whole batch of events (such as every note of a chord) at once. All of the frame boundaries the batch
+     * needs are created in a single ordered pass before any event is placed, so a frame which splits an existing span
+     * copies that span's continuation exactly once, no matter how many events of the batch start or end there.
+     * @param events the events to add to this timeline
+     */
+    public void addAll(@NotNull Collection<? extends MusicEventType> events) {
+        // Gather every time at which some event in this batch starts or ends
+        TreeSet<ITime> boundaries = new TreeSet<>();
+        for(MusicEventType event : events) {
+            boundaries.add(event.getTime());
+            if(event instanceof AbstractSpanningEvent) {
+                boundaries.add(((AbstractSpanningEvent) event).getEnd());
+            }
+        }
+        // Create the missing frames in order. A new frame lies strictly between two existing ones, so every spanning
+        // event which is ongoing in the previous frame simply continues through it.
+        for(ITime time : boundaries) {
+            if(!frames.containsKey(time)) {
+                Frame<MusicEventType> frame = new Frame<>(time);
+                Map.Entry<ITime, Frame<MusicEventType>> previous = frames.lowerEntry(time);
+                if(previous != null) {
+                    frame.continueFrom(previous.getValue());
+                }
+                frames.put(time, frame);
+            }
+        }
+        // Place every event into the frames it covers
+        for(MusicEventType event : events) {
+            if(event instanceof AbstractSpanningEvent) {
+                ITime start = ((AbstractSpanningEvent) event).getStart();
+                ITime end = ((AbstractSpanningEvent) event).getEnd();
+                for(Frame<MusicEventType> frame : frames.subMap(start, true, end, true).values()) {
+                    if(frame.getTime().compareTo(start) == 0) frame.addStart(event);
+                    else if(frame.getTime().compareTo(end) != 0) frame.addContinue(event);
+                    if(frame.getTime().compareTo(end) == 0) frame.addEnd(event);
+                }
+            }
+            else frames.get(event.getTime()).add(event);
+        }
+    }
+
     // PUBLIC GETTERS
     @Override
-    public final @NotNull IFrame<MusicEventType> getFirst() { return frames.firstEntry().getValue(); }
+    public final @Nullable IFrame<MusicEventType> getFirst() { return valueOf(frames.firstEntry()); }
     @Override
-    public final @NotNull IFrame<MusicEventType> getLast() { return frames.lastEntry().getValue(); }
+    public final @Nullable IFrame<MusicEventType> getLast() { return valueOf(frames.lastEntry()); }
     @Override
-    public final @NotNull IFrame<MusicEventType> getAt(@NotNull ITime time) {
+    public final @Nullable IFrame<MusicEventType> getAt(@NotNull ITime time) {
         return frames.get(time);
     }
     @Override
-    public final @NotNull IFrame<MusicEventType> getBefore(@NotNull ITime time) {
-        return frames.floorEntry(time).getValue();
+    public final @Nullable IFrame<MusicEventType> getBefore(@NotNull ITime time) {
+        return valueOf(frames.floorEntry(time));
     }
     @Override
-    public final @NotNull IFrame<MusicEventType> getAfter(@NotNull ITime time) {
-        return frames.ceilingEntry(time).getValue();
+    public final @Nullable IFrame<MusicEventType> getAfter(@NotNull ITime time) {
+        return valueOf(frames.ceilingEntry(time));
+    }
+    /**
+     * Gets every event sounding at a given time, whether it starts there or continues through it. This is a single
+     * floor lookup into the frame map, independent of how many events overlap.
+     * @param time the time at which to sample this timeline
+     * @return an unmodifiable collection of all events ongoing at this time
+     */
+    public final @NotNull Collection<MusicEventType> getOngoingAt(@NotNull ITime time) {
+        Map.Entry<ITime, Frame<MusicEventType>> entry = frames.floorEntry(time);
+        if(entry == null) return Collections.emptyList();
+        return entry.getValue().ongoingEvents();
     }
 
     @Override
     public @NotNull Stream<IFrame<MusicEventType>> stream() {
-        return java.util.Collections.unmodifiableCollection(frames.values()).stream();
+        return java.util.Collections.<IFrame<MusicEventType>>unmodifiableCollection(frames.values()).stream();
     }
 
     @Override
     public @NotNull Stream<IFrame<MusicEventType>> parallelStream() {
-        return java.util.Collections.unmodifiableCollection(frames.values()).parallelStream();
+        return java.util.Collections.<IFrame<MusicEventType>>unmodifiableCollection(frames.values()).parallelStream();
     }
     @Override
     public final @NotNull Iterator<IFrame<MusicEventType>> iterator() {
-        return java.util.Collections.unmodifiableCollection(frames.values()).iterator();
+        return java.util.Collections.<IFrame<MusicEventType>>unmodifiableCollection(frames.values()).iterator();
     }
 
     @Override
     public @NotNull Spliterator<IFrame<MusicEventType>> spliterator() {
-        return java.util.Collections.unmodifiableCollection(frames.values()).spliterator();
+        return java.util.Collections.<IFrame<MusicEventType>>unmodifiableCollection(frames.values()).spliterator();
+    }
+
+    @Nullable
+    private static <MusicEventType extends IMusicEvent> IFrame<MusicEventType> valueOf(
+            @Nullable Map.Entry<ITime, Frame<MusicEventType>> entry) {
+        return entry == null ? null : entry.getValue();
     }
 }
 
@@ -77,13 +146,13 @@ class Frame <MusicEventType extends IMusicEvent> implements IFrame<MusicEventTyp
     /** The time at which this frame occurs */
     private final ITime time;
     /** All events which start exactly on this frame */
-    private final TreeSet<MusicEventType> startedEvents;
+    private final ArrayList<MusicEventType> startedEvents;
     /** All events which start or continue through this frame */
-    private final TreeSet<MusicEventType> ongoingEvents;
+    private final ArrayList<MusicEventType> ongoingEvents;
     /** All events which continue through this frame */
-    private final TreeSet<MusicEventType> continuedEvents;
+    private final ArrayList<MusicEventType> continuedEvents;
     /** All events which end exactly on this frame */
-    private final TreeSet<MusicEventType> endedEvents;
+    private final ArrayList<MusicEventType> endedEvents;
 
     //////////////////////////////
     // Member methods           //
@@ -95,12 +164,20 @@ class Frame <MusicEventType extends IMusicEvent> implements IFrame<MusicEventTyp
      */
     Frame(@NotNull ITime time) {
         this.time = time;
-        this.startedEvents = new TreeSet<>();
-        this.ongoingEvents = new TreeSet<>();
-        this.continuedEvents = new TreeSet<>();
-        this.endedEvents = new TreeSet<>();
+        this.startedEvents = new ArrayList<>();
+        this.ongoingEvents = new ArrayList<>();
+        this.continuedEvents = new ArrayList<>();
+        this.endedEvents = new ArrayList<>();
+    }
+
+    // Package private on purpose- only the timeline may split frames.
+    void continueFrom(@NotNull Frame<MusicEventType> previous) {
+        for(MusicEventType event : previous.ongoingEvents) {
+            if(event instanceof AbstractSpanningEvent) {
+                addContinue(event);
+            }
+        }
     }
-
     // Package private on purpose- we don't want users adding events, only score.
     void add(@NotNull MusicEventType event) {
         if(event instanceof AbstractInstantEvent) {
@@ -6,6 +6,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Spliterator;
 import java.util.TreeMap;
 import java.util.stream.Stream;
@@ -40,20 +41,24 @@ public final class SerialTimeline <MusicEventType extends IMusicEvent> implement
 
     // PUBLIC GETTERS
     @Nullable
-    public MusicEventType getFirst() { return events.firstEntry().getValue(); }
+    public MusicEventType getFirst() { return valueOf(events.firstEntry()); }
     @Nullable
-    public MusicEventType getLast() { return events.lastEntry().getValue(); }
+    public MusicEventType getLast() { return valueOf(events.lastEntry()); }
     @Nullable
     public MusicEventType getAt(@NotNull ITime time) {
         return events.get(time);
     }
     @Nullable
     public MusicEventType getBefore(@NotNull ITime time) {
-        return events.floorEntry(time).getValue();
+        return valueOf(events.floorEntry(time));
     }
     @Nullable
     public MusicEventType getAfter(@NotNull ITime time) {
-        return events.ceilingEntry(time).getValue();
+        return valueOf(events.ceilingEntry(time));
+    }
+    // The entries are null when there is no such event
+    private static <MusicEventType> MusicEventType valueOf(@Nullable Map.Entry<ITime, MusicEventType> entry) {
+        return entry == null ? null : entry.getValue();
     }
 
     @NotNull
@@ -9,7 +9,8 @@ import org.jetbrains.annotations.NotNull;
  *
  * <p> <b>Design Details:</b>
  * This abstract class represents an underlying property, and provides basic variables and methods for all derived
- * classes to utilize. Essentially, this just prevents unnecessary code duplication. </p>
+ * classes to utilize. Essentially, this just prevents unnecessary code duplication. Every string property is interned
+ * by a {@link StringPropRegistry}, which gives it a dense integer id, so equality is by reference.</p>
  *
  * @author Patrick Celentano
  */
@@ -20,18 +21,22 @@ public abstract class AbstractStringProp implements IMusicProperty {
     //////////////////////////////
 
     protected String value;
+    /** The id of this property, unique among the instances of its class */
+    private final int id;
 
     //////////////////////////////
     // Member methods           //
     //////////////////////////////
 
     /**
-     * A constructor for a string-based property
+     * A constructor for a string-based property, which should only be called by a {@link StringPropRegistry}
      * @param value the value of this property
+     * @param id the id of this property, unique among the instances of its class
      */
-    protected AbstractStringProp(String value) {
+    protected AbstractStringProp(String value, int id) {
         // Set the member variables
         this.value = value;
+        this.id = id;
     }
     /**
      * A getter for the value of this string property
@@ -40,6 +45,14 @@ public abstract class AbstractStringProp implements IMusicProperty {
     public final String getValue() {
         return value;
     }
+    /**
+     * A getter for the id of this string property, a dense integer (in the order of registration) which is unique
+     * among the instances of its class
+     * @return the id of this string property
+     */
+    public final int getID() {
+        return id;
+    }
     /**
      * A basic fraction string (to be overwritten by implementations)
      * @return a string representation of this fraction
@@ -48,12 +61,21 @@ public abstract class AbstractStringProp implements IMusicProperty {
     public @NotNull String toString() {
         return value;
     }
+    /**
+     * Checks if this string property is equal to another object. Note that since the interning pattern is used,
+     * literal (reference) equality is enough to ensure that these objects are actually equal.
+     * @return if this string property is equal to another
+     */
+    @Override
+    public final boolean equals(Object object) {
+        return this == object;
+    }
     /**
      * A simple hash code in order to allow storage in certain Collections.
      * @return The hash code for this string property
      */
     @Override
     public final int hashCode() {
-        return value.hashCode();
+        return id;
     }
 }
@@ -0,0 +1,148 @@
+package properties;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A string prop registry interns the instances of one {@link AbstractStringProp} class, such as every {@link
+ * properties.sound.Noise}, so that there is exactly one instance for each value. Every instance is given a dense integer
+ * id in the order it was first registered, so that ids may index compact note storage or histograms.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * Finding an instance by value is a single read of a concurrent map, and finding one by id (or at random) is a single
+ * read of an array, none of which ever block. Registering a value that has never been seen is rare, and is done once
+ * per value under a short lock, which keeps ids dense. Each new instance is written into the id table before the
+ * (volatile) count of instances is raised, so that any id below the count which a reader sees is already filled.</p>
+ *
+ * @param <P> the type of string prop held by this registry
+ *
+ * @author Patrick Celentano
+ */
+public final class StringPropRegistry<P extends AbstractStringProp> implements Iterable<P> {
+
+    /**
+     * Creates the instance of a string prop for a value and its id
+     * @param <P> the type of string prop created
+     */
+    @FunctionalInterface
+    public interface Factory<P> {
+        @NotNull P create(@NotNull String value, int id);
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The tag with which to report errors */
+    private final String tag;
+    /** Creates new instances */
+    private final Factory<P> factory;
+    /** Every instance by its value */
+    private final ConcurrentHashMap<String, P> byValue = new ConcurrentHashMap<>();
+    /** Every instance by its id, of which the first count are filled */
+    private volatile Object[] byId = new Object[16];
+    /** The number of instances registered */
+    private volatile int count = 0;
+    /** A read-only view of every instance in id order */
+    private final List<P> view = new AbstractList<P>() {
+        @Override
+        public P get(int id) {
+            return StringPropRegistry.this.get(id);
+        }
+        @Override
+        public int size() {
+            return count;
+        }
+    };
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * The registry constructor
+     * @param tag the tag with which to report errors, usually the name of the class held
+     * @param factory the factory which creates new instances
+     */
+    public StringPropRegistry(@NotNull String tag, @NotNull Factory<P> factory) {
+        this.tag = tag;
+        this.factory = factory;
+    }
+    /**
+     * Gets the one instance of a value, registering it if it has never been seen
+     * @param value the value of the instance
+     * @return the one instance of this value
+     */
+    public @NotNull P get(@NotNull String value) {
+        P prop = byValue.get(value);
+        return prop != null ? prop : byValue.computeIfAbsent(value, this::register);
+    }
+    /**
+     * Gets an instance by its id
+     * @param id the id of the instance
+     * @return the instance with this id
+     */
+    @SuppressWarnings("unchecked")
+    public @NotNull P get(int id) {
+        int size = count;
+        if(id < 0 || id >= size) throw Log.error(tag, "This id (" + id + ") does not exist!");
+        return (P) byId[id];
+    }
+    /**
+     * Gets a random instance, in constant time
+     * @return a random instance
+     */
+    public @NotNull P random() {
+        int size = count;
+        if(size == 0) throw Log.error(tag, "There are no instances to choose from!");
+        return get(ThreadLocalRandom.current().nextInt(size));
+    }
+    /**
+     * Gets the number of instances registered, which is one greater than the highest id
+     * @return the number of instances registered
+     */
+    public int size() {
+        return count;
+    }
+    /**
+     * Returns a read-only view of every instance in id order, which grows as new instances are registered
+     * @return a list of every instance
+     */
+    public @NotNull List<P> all() {
+        return view;
+    }
+    /**
+     * Returns an iterator over every instance in id order
+     * @return an iterator over every instance
+     */
+    @Override
+    public @NotNull Iterator<P> iterator() {
+        return view.subList(0, count).iterator();
+    }
+
+    /**
+     * Registers a new value, which the concurrent map guarantees happens at most once per value
+     * @param value the new value
+     * @return the new instance
+     */
+    private synchronized P register(String value) {
+        int id = count;
+        P prop = factory.create(value, id);
+        Object[] table = byId;
+        if(id == table.length) {
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        table[id] = prop;
+        byId = table;
+        count = id + 1;
+        return prop;
+    }
+}
@@ -1,6 +1,10 @@
 package properties.note;
 
+import org.jetbrains.annotations.NotNull;
 import properties.AbstractStringProp;
+import properties.StringPropRegistry;
+
+import java.util.Collection;
 
 /**
  * <p> <b>Class overview:</b>
@@ -12,13 +16,47 @@ import properties.AbstractStringProp;
  * @author Patrick Celentano
  */
 public class Accent extends AbstractStringProp {
+    /** The registry of every accent, which must exist before any accent is created */
+    private static final StringPropRegistry<Accent> ALL = new StringPropRegistry<>("Accent", Accent::new);
+
+    /**
+     * Gets the one instance of the accent with a given value
+     * @param value the value of the accent
+     * @return the accent with this value
+     */
+    public static @NotNull Accent get(@NotNull String value) {
+        return ALL.get(value);
+    }
+    /**
+     * Gets an accent by its id
+     * @param id the id of the accent
+     * @return the accent with this id
+     */
+    public static @NotNull Accent get(int id) {
+        return ALL.get(id);
+    }
+    /**
+     * Returns an immutable collection of all accents created so far, in id order
+     * @return an immutable collection of all accents
+     */
+    public static @NotNull Collection<Accent> all() {
+        return ALL.all();
+    }
+    /**
+     * Returns a random accent
+     * @return a random accent
+     */
+    public static @NotNull Accent random() {
+        return ALL.random();
+    }
 
     /**
-     * A constructor for a string-based property
+     * A constructor for a string-based property, which is private to enforce the interning design pattern
      *
      * @param value the value of this property
+     * @param id the id of this property
      */
-    protected Accent(String value) {
-        super(value);
+    private Accent(String value, int id) {
+        super(value, id);
     }
 }
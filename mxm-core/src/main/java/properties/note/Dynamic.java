@@ -1,8 +1,10 @@
 package properties.note;
 
+import io.Log;
 import properties.AbstractIntegerProp;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -12,11 +14,13 @@ import java.util.concurrent.ThreadLocalRandom;
  * line. Note that we still use the MIDI standard's definition of loudness, just as we use midi note values.</p>
  *
  * <p> <b>Design Details:</b>
- * ASDF</p>
+ * This class is <i>immutable</i> and implements the <b>flyweight design pattern</b>- all 128 dynamics are created
+ * upfront during static initialization, so that there is exactly one instance for each value and reading velocities
+ * from a large MIDI file never allocates.</p>
  *
  * @author Patrick Celentano
  */
-public class Dynamic extends AbstractIntegerProp implements Comparator<Dynamic>, Comparable<Dynamic> {
+public final class Dynamic extends AbstractIntegerProp implements Comparator<Dynamic>, Comparable<Dynamic> {
 
     //////////////////////////////
     // Static variables         //
@@ -26,6 +30,25 @@ public class Dynamic extends AbstractIntegerProp implements Comparator<Dynamic>,
     private final static int MIN_VALUE = 0;
     /** The lowest value of dynamic */
     private final static int MAX_VALUE = 127;
+    /** The total number of dynamics */
+    private static final int TOTAL_NUM = (MAX_VALUE - MIN_VALUE) + 1;
+
+    /** A static array of all possible dynamics, stored to implement the flyweight pattern */
+    private static final Dynamic[] ALL;
+    // Static initialization block
+    static {
+        // Keep track of the start time to know how long initialization takes
+        long startTime = System.nanoTime();
+
+        // Initialize all dynamics
+        ALL = new Dynamic[TOTAL_NUM];
+        for(int val = MIN_VALUE; val <= MAX_VALUE; val++) {
+            ALL[val - MIN_VALUE] = new Dynamic(val);
+        }
+
+        // Log the initialization
+        Log.logStaticInit("Dynamic", Arrays.asList(ALL), System.nanoTime() - startTime);
+    }
 
     /** Niente, or silent */
     public static final Dynamic NIENTE = get(0);
@@ -62,9 +85,9 @@ public class Dynamic extends AbstractIntegerProp implements Comparator<Dynamic>,
      */
     public static @NotNull Dynamic get(int value) {
         if (value < MIN_VALUE || value > MAX_VALUE)
-            throw new Error("PITCH:\tInterval out of range.");
+            throw new Error("DYNAMIC:\tDynamic out of range.");
 
-        return new Dynamic(value);
+        return ALL[value - MIN_VALUE];
     }
     /**
      * Returns a random instance of this class
@@ -121,15 +144,13 @@ public class Dynamic extends AbstractIntegerProp implements Comparator<Dynamic>,
         return value + " (fff)";
     }
     /**
-     * Checks if this note.note.Dynamic equals another Object.
-     * @param o The other Object.
-     * @return If this note.note.Dynamic is equal to the Object.
+     * Checks if this dynamic is equal to another object. Note that since the flyweight pattern is used, literal
+     * (reference) equality is enough to ensure that these objects are actually equal.
+     * @param object the object to compare this dynamic to
+     * @return if this dynamic is equal to this object
      */
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Dynamic dynamic = (Dynamic) o;
-        return value == dynamic.value;
+    public final boolean equals(Object object) {
+        return this == object;
     }
 }
\ No newline at end of file
@@ -2,11 +2,13 @@ package properties.note;
 
 import org.jetbrains.annotations.NotNull;
 import properties.AbstractStringProp;
+import properties.StringPropRegistry;
 import properties.sound.ISound;
 import properties.sound.Noise;
 import properties.sound.Pitch;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -16,23 +18,58 @@ import java.util.Set;
  * instead of just "Horn" given that different transpositions of the "same" instrument have different tendencies.</p>
  *
  * <p> <b>Design Details:</b>
- * ASDF</p>
+ * Instruments are interned by name in a {@link StringPropRegistry}, so that there is exactly one instance of each
+ * instrument and each has a dense id.</p>
  *
  * @author Patrick Celentano
  */
 public class Instrument extends AbstractStringProp {
 
+    /** The registry of every instrument, which must exist before any instrument is created */
+    private static final StringPropRegistry<Instrument> ALL = new StringPropRegistry<>("Instrument", Instrument::new);
+
     private static final ArrayList<Instrument> GeneralMIDIInstrumentSet = new ArrayList<>();
 
-    public static final Instrument GRAND_PIANO     = new Instrument("Acoustic Grand Piano");
-    public static final Instrument DRUM_SET        = new Instrument("Drum Set");
+    public static final Instrument GRAND_PIANO     = get("Acoustic Grand Piano");
+    public static final Instrument DRUM_SET        = get("Drum Set");
     public static final Instrument DEFAULT = GRAND_PIANO;
 
+    /**
+     * Gets the one instance of the instrument with a given name
+     * @param name the name of the instrument
+     * @return the instrument with this name
+     */
+    public static @NotNull Instrument get(@NotNull String name) {
+        return ALL.get(name);
+    }
+    /**
+     * Gets an instrument by its id
+     * @param id the id of the instrument
+     * @return the instrument with this id
+     */
+    public static @NotNull Instrument get(int id) {
+        return ALL.get(id);
+    }
+    /**
+     * Returns an immutable collection of all instruments created so far, in id order
+     * @return an immutable collection of all instruments
+     */
+    public static @NotNull Collection<Instrument> all() {
+        return ALL.all();
+    }
+    /**
+     * Returns a random instrument
+     * @return a random instrument
+     */
+    public static @NotNull Instrument random() {
+        return ALL.random();
+    }
+
     private Set<ISound> possibleSounds;
     private Set<Technique> possibleTechniques;
 
-    public Instrument(String name) {
-        super(name);
+    private Instrument(String name, int id) {
+        super(name, id);
     }
 
     /**
@@ -55,12 +92,4 @@ public class Instrument extends AbstractStringProp {
     public @NotNull String getName() {
         return getValue();
     }
-
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Instrument instrument = (Instrument) o;
-        return getValue() != null ? getValue().equals(instrument.getValue()) : instrument.getValue() == null;
-    }
 }
@@ -1,6 +1,10 @@
 package properties.note;
 
+import org.jetbrains.annotations.NotNull;
 import properties.AbstractStringProp;
+import properties.StringPropRegistry;
+
+import java.util.Collection;
 /**
  * <p> <b>Class overview:</b>
  * ASDF</p>
@@ -11,13 +15,47 @@ import properties.AbstractStringProp;
  * @author Patrick Celentano
  */
 public class Lyric extends AbstractStringProp {
+    /** The registry of every lyric, which must exist before any lyric is created */
+    private static final StringPropRegistry<Lyric> ALL = new StringPropRegistry<>("Lyric", Lyric::new);
+
+    /**
+     * Gets the one instance of the lyric with a given value
+     * @param value the value of the lyric
+     * @return the lyric with this value
+     */
+    public static @NotNull Lyric get(@NotNull String value) {
+        return ALL.get(value);
+    }
+    /**
+     * Gets a lyric by its id
+     * @param id the id of the lyric
+     * @return the lyric with this id
+     */
+    public static @NotNull Lyric get(int id) {
+        return ALL.get(id);
+    }
+    /**
+     * Returns an immutable collection of all lyrics created so far, in id order
+     * @return an immutable collection of all lyrics
+     */
+    public static @NotNull Collection<Lyric> all() {
+        return ALL.all();
+    }
+    /**
+     * Returns a random lyric
+     * @return a random lyric
+     */
+    public static @NotNull Lyric random() {
+        return ALL.random();
+    }
 
     /**
-     * A constructor for a string-based property
+     * A constructor for a string-based property, which is private to enforce the interning design pattern
      *
      * @param value the value of this property
+     * @param id the id of this property
      */
-    protected Lyric(String value) {
-        super(value);
+    private Lyric(String value, int id) {
+        super(value, id);
     }
 }
@@ -1,6 +1,10 @@
 package properties.note;
 
+import org.jetbrains.annotations.NotNull;
 import properties.AbstractStringProp;
+import properties.StringPropRegistry;
+
+import java.util.Collection;
 
 /**
  * <p> <b>Class overview:</b>
@@ -25,20 +29,55 @@ import properties.AbstractStringProp;
  * @author Patrick Celentano
  */
 public class Technique extends AbstractStringProp {
-    public static Technique DEFAULT;
-    public static Technique PIZZICATO;
-    public static Technique STOP_MUTE;
-    public static Technique HARMON_MUTE;
+    /** The registry of every technique, which must exist before any technique is created */
+    private static final StringPropRegistry<Technique> ALL = new StringPropRegistry<>("Technique", Technique::new);
+
+    public static final Technique DEFAULT = get("default");
+    public static final Technique PIZZICATO = get("pizzicato");
+    public static final Technique STOP_MUTE = get("stop mute");
+    public static final Technique HARMON_MUTE = get("harmon mute");
 
-    public static Technique HIT;
-    public static Technique ROLL;
+    public static final Technique HIT = get("hit");
+    public static final Technique ROLL = get("roll");
+
+    /**
+     * Gets the one instance of the technique with a given value
+     * @param value the value of the technique
+     * @return the technique with this value
+     */
+    public static @NotNull Technique get(@NotNull String value) {
+        return ALL.get(value);
+    }
+    /**
+     * Gets a technique by its id
+     * @param id the id of the technique
+     * @return the technique with this id
+     */
+    public static @NotNull Technique get(int id) {
+        return ALL.get(id);
+    }
+    /**
+     * Returns an immutable collection of all techniques created so far, in id order
+     * @return an immutable collection of all techniques
+     */
+    public static @NotNull Collection<Technique> all() {
+        return ALL.all();
+    }
+    /**
+     * Returns a random technique
+     * @return a random technique
+     */
+    public static @NotNull Technique random() {
+        return ALL.random();
+    }
 
     /**
-     * A constructor for a string-based property
+     * A constructor for a string-based property, which is private to enforce the interning design pattern
      *
      * @param value the value of this property
+     * @param id the id of this property
      */
-    protected Technique(String value) {
-        super(value);
+    private Technique(String value, int id) {
+        super(value, id);
     }
 }
@@ -2,11 +2,10 @@ package properties.sound;
 
 import properties.AbstractIntegerProp;
 import theory.harmony.Harmony;
-import theory.composite.Voicing;
-import io.Log;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * <p> <b>Class overview:</b>
@@ -17,7 +16,9 @@ import java.util.*;
  * This class is <i>immutable</i> and implements the <b>interning design pattern</b>- there is exactly one instance for
  * each value such that two ADTs (Abstract Data Types) with the same value are, in fact, the same instance. This
  * simplifies equality checks and can prevent memory waste. Unlike the <b>flyweight design pattern</b>, however, new
- * instances are whenever an unencountered instance is created- that is to say- at runtime.</p>
+ * instances are whenever an unencountered instance is created- that is to say- at runtime. Each slot of the table is
+ * claimed atomically, so concurrent callers always agree on the single instance, and a chord's factors and harmony
+ * are computed from its root and chord class bitmask on demand.</p>
  *
  * @author Patrick Celentano
  */
@@ -27,33 +28,41 @@ public final class Chord extends AbstractIntegerProp implements ISound, Iterable
     // Static variables         //
     //////////////////////////////
 
-    /** The total number of chord classes */
+    /** The total number of chords */
     public static final int TOTAL_NUM = ChordClass.TOTAL_NUM * PitchClass.TOTAL_NUM;
-    /** A static array of all possible pitches, stored to implement the flyweight pattern */
-    private static final Chord[] ALL;
-
-    // Static initialization block
-    static {
-        // Keep track of the start time to know how long initialization takes
-        long startTime = System.nanoTime();
-
-        // Initialize all sound classes
-        ALL = new Chord[PitchClass.TOTAL_NUM * ChordClass.TOTAL_NUM];
-        for(int pcVal = PitchClass.MIN_VALUE; pcVal <= PitchClass.MAX_VALUE; pcVal++) {
-            for(int ccVal = 0; ccVal < ChordClass.TOTAL_NUM; ccVal++) {
-                int chordVal = (pcVal * ChordClass.TOTAL_NUM) + ccVal;
-                ALL[chordVal] = new Chord(chordVal,PitchClass.get(pcVal), ChordClass.get(ccVal));
-            }
+    /** A static table of all chords created so far, stored to implement the interning pattern */
+    private static final AtomicReferenceArray<Chord> ALL = new AtomicReferenceArray<>(TOTAL_NUM);
+    /** A lazy, unmodifiable view over every possible chord, in the same order as the table */
+    private static final List<Chord> ALL_VIEW = new AbstractList<Chord>() {
+        @Override
+        public Chord get(int chordVal) {
+            return Chord.get(chordVal);
         }
-
-        // Log the initialization
-        Log.logStaticInit("Chord", Arrays.asList(ALL),System.nanoTime() - startTime);
-    }
+        @Override
+        public int size() {
+            return TOTAL_NUM;
+        }
+    };
 
     //////////////////////////////
     // Static methods           //
     //////////////////////////////
 
+    /**
+     * Gets the chord stored at a given place in the ALL table, creating it if it has not yet been encountered
+     * @param chordVal the place of this chord in the ALL table
+     * @return the one instance of this chord
+     */
+    private static @NotNull Chord get(int chordVal) {
+        Chord chord = ALL.get(chordVal);
+        if(chord == null) {
+            int pcVal = chordVal / ChordClass.TOTAL_NUM;
+            int ccVal = chordVal % ChordClass.TOTAL_NUM;
+            ALL.compareAndSet(chordVal, null, new Chord(chordVal, PitchClass.get(pcVal), ChordClass.get(ccVal)));
+            chord = ALL.get(chordVal);
+        }
+        return chord;
+    }
     /**
      * Returns a chord with a given root (i.e. C) and chord type (i.e. major)
      * @param root the root pitch class of this chord
@@ -61,14 +70,15 @@ public final class Chord extends AbstractIntegerProp implements ISound, Iterable
      * @return a chord of this type with this root
      */
     public static @NotNull Chord get(@NotNull PitchClass root, @NotNull ChordClass chordClass) {
-        return ALL[(root.getValue() * ChordClass.TOTAL_NUM) + chordClass.getID()];
+        return get((root.getValue() * ChordClass.TOTAL_NUM) + chordClass.getID());
     }
     /**
-     * Returns an immutable collection of all valid chords, useful for iteration or streams
+     * Returns an immutable collection of all valid chords, useful for iteration or streams. Chords which have not yet
+     * been encountered are created as the collection is traversed.
      * @return an immutable collection of all valid chords
      */
     public static @NotNull Collection<Chord> all() {
-        return Collections.unmodifiableList(Arrays.asList(ALL));
+        return ALL_VIEW;
     }
     /**
      * Returns a random instance of this class
@@ -86,10 +96,6 @@ public final class Chord extends AbstractIntegerProp implements ISound, Iterable
     private final PitchClass root;
     /** Chord classes represent the types of intervals (interval classes) above the root sound class. */
     private final ChordClass chordClass;
-    /** Each position in this array represents the position of the factors in order from root through thirteenth. */
-    private final ArrayList<PitchClass> factorsInOrder;
-    /** Harmonies are essentially just sets of sound classes and do not preserve factor order. */
-    private final Harmony harmony;
 
     //////////////////////////////
     // Member methods           //
@@ -105,14 +111,6 @@ public final class Chord extends AbstractIntegerProp implements ISound, Iterable
         super(chordVal);
         this.root = root;
         this.chordClass = chordClass;
-
-        this.factorsInOrder = new ArrayList<>();
-        // For every interval in the ChordClass (which holds all intervals above the root, add a chord factor that is
-        // also that high above the root. Note that ninths become seconds,m as to interval classes wrap at the octave
-        for(IntervalClass intervalClass : chordClass) {
-            factorsInOrder.add(root.transpose(intervalClass));
-        }
-        this.harmony = Harmony.get(factorsInOrder);
     }
     /**
      * A getter for the root pitch class of this chord
@@ -133,7 +131,8 @@ public final class Chord extends AbstractIntegerProp implements ISound, Iterable
      * @return the harmony implicit in this chord
      */
     public final @NotNull Harmony getHarmony() {
-        return harmony;
+        // The root (a unison above itself) plus every factor, transposed up from C to the root
+        return Harmony.get(chordClass.getID() | 1).transpose(IntervalClass.get(root.getValue()));
     }
     /**
      * Returns a string representation of this class
@@ -143,19 +142,30 @@ public final class Chord extends AbstractIntegerProp implements ISound, Iterable
     public final @NotNull String toString() {
         return root.toString() + " " + chordClass.toString();
     }
-
-
-
-
-
-
-
     /**
-     *
-     * @return
+     * Returns an iterator over the factors of this chord- its root, then every other factor in ascending order above
+     * the root. Note that ninths become seconds, as interval classes wrap at the octave.
+     * @return an iterator over the factors of this chord
      */
     @Override
     public final @NotNull Iterator<PitchClass> iterator() {
-        return factorsInOrder.iterator();
+        Iterator<IntervalClass> factors = chordClass.iterator();
+        return new Iterator<PitchClass>() {
+            private boolean rootReturned = false;
+            @Override
+            public boolean hasNext() {
+                return !rootReturned || factors.hasNext();
+            }
+            @Override
+            public PitchClass next() {
+                if(!rootReturned) {
+                    rootReturned = true;
+                    // The root is always the first factor, so a unison factor would only repeat it
+                    if(chordClass.contains(IntervalClass.UNISON)) factors.next();
+                    return root;
+                }
+                return root.transpose(factors.next());
+            }
+        };
     }
 }
@@ -18,7 +18,8 @@ import static properties.sound.IntervalClass.*;
  * This class is <i>immutable</i> and implements the <b>flyweight design pattern</b>- there is exactly one instance for
  * each value such that two ADTs (Abstract Data Types) with the same value are, in fact, the same instance. This
  * simplifies equality checks and can prevent memory waste. Unlike the <b>interning design pattern</b>, all possible
- * instances are created upfront during static initialization.
+ * instances are created upfront during static initialization. Each instance holds nothing but its bitmask, and its
+ * factors are read off that bitmask on demand.</p>
  *
  * @author Patrick Celentano
  */
@@ -29,24 +30,18 @@ public final class ChordClass implements Iterable<IntervalClass> {
     //////////////////////////////
 
     /** The total number of chord classes */
-    public static final int TOTAL_NUM = 2 << (PitchClass.TOTAL_NUM - 1);
-    /** A static array of all possible interval classes, stored to implement the flyweight pattern */
+    public static final int TOTAL_NUM = 1 << PitchClass.TOTAL_NUM;
+    /** A static array of all possible chord classes, stored to implement the flyweight pattern */
     private static final ChordClass[] ALL;
     // Initializes the "ALL" array
     static {
         // Keep track of the start time to know how long initialization takes
         long startTime = System.nanoTime();
 
-        // Initialize all interval classes
+        // Initialize all chord classes, each of which is nothing more than its bitmask
         ALL = new ChordClass[TOTAL_NUM];
         for(int val = 0; val < TOTAL_NUM; val++) {
-            // We use some fun bit-math in order to generate all permutations of interval classes
-            ArrayList<IntervalClass> intervalClasses = new ArrayList<>();
-            for(int intClass = IntervalClass.MIN_SIZE; intClass < IntervalClass.MAX_SIZE; intClass++) {
-                if(((val >> (intClass + IntervalClass.MIN_SIZE)) & 1) == 1)
-                    intervalClasses.add(IntervalClass.get(intClass));
-            }
-            ALL[val] = new ChordClass(val,intervalClasses);
+            ALL[val] = new ChordClass(val);
         }
 
         // Log the initialization
@@ -63,17 +58,17 @@ public final class ChordClass implements Iterable<IntervalClass> {
     /** Dominant seventh chords */
     public static final ChordClass DOM_SEVENTH = get(MAJOR_THIRD, PERFECT_FIFTH, MINOR_SEVENTH);
     /** Major seventh chords */
-    public static final ChordClass MAJ_SEVENTH = get(MAJOR_THIRD, PERFECT_FIFTH, MINOR_SEVENTH);
+    public static final ChordClass MAJ_SEVENTH = get(MAJOR_THIRD, PERFECT_FIFTH, MAJOR_SEVENTH);
     /** Minor seventh chords */
     public static final ChordClass MIN_SEVENTH = get(MINOR_THIRD, PERFECT_FIFTH, MINOR_SEVENTH);
     /** Diminished seventh chords */
     public static final ChordClass DIM_SEVENTH = get(MINOR_THIRD, TRITONE, MAJOR_SIXTH);
     /** Augmented seventh chords */
-    public static final ChordClass AUG_SEVENTH = get(MAJOR_THIRD, PERFECT_FIFTH, MAJOR_SEVENTH);
+    public static final ChordClass AUG_SEVENTH = get(MAJOR_THIRD, MINOR_SIXTH, MINOR_SEVENTH);
     /** Half-diminished seventh chords */
     public static final ChordClass HALF_DIM_SEVENTH = get(MINOR_THIRD, TRITONE, MINOR_SEVENTH);
     /** Minor-major seventh chords */
-    public static final ChordClass MINOR_MAJOR_SEVENTH = get(MINOR_THIRD, PERFECT_FIFTH, MINOR_SEVENTH);
+    public static final ChordClass MINOR_MAJOR_SEVENTH = get(MINOR_THIRD, PERFECT_FIFTH, MAJOR_SEVENTH);
     /** Major sixth chords */
     public static final ChordClass MAJ_SIXTH = get(MAJOR_THIRD, PERFECT_FIFTH, MAJOR_SIXTH);
     /** Minor sixth chords */
@@ -107,17 +102,41 @@ public final class ChordClass implements Iterable<IntervalClass> {
     // Static methods           //
     //////////////////////////////
 
+    /**
+     * Gets an instance of a given chord class by its id, a bitmask in which bit n is set if interval class n is a
+     * factor of the chord class
+     * @param id The id of this chord class
+     * @return A chord class with this id
+     */
     public static @NotNull ChordClass get(int id) {
-        if(id < TOTAL_NUM) {
+        if(id >= 0 && id < TOTAL_NUM) {
             return ALL[id];
         }
         else throw Log.error("ChordClass", "This class id (" + id + ") does not exist!");
     }
+    /**
+     * Gets the chord class with these factors. The bitmask id is computed directly, so this is a single array lookup.
+     * @param factors All of the interval classes above the root in this chord class
+     * @return A chord class with these factors
+     */
     public static @NotNull ChordClass get(@NotNull IntervalClass... factors) {
-        return new ChordClass(0,Arrays.asList(factors)); // TODO: Remove this!
+        int id = 0;
+        for(IntervalClass factor : factors) {
+            id |= 1 << factor.getSize();
+        }
+        return ALL[id];
     }
-    public static @NotNull ChordClass get(Collection<IntervalClass> factors) {
-        return new ChordClass(0,factors); // TODO: Remove this!
+    /**
+     * Gets the chord class with these factors. The bitmask id is computed directly, so this is a single array lookup.
+     * @param factors All of the interval classes above the root in this chord class
+     * @return A chord class with these factors
+     */
+    public static @NotNull ChordClass get(@NotNull Collection<IntervalClass> factors) {
+        int id = 0;
+        for(IntervalClass factor : factors) {
+            id |= 1 << factor.getSize();
+        }
+        return ALL[id];
     }
 
 
@@ -133,45 +152,102 @@ public final class ChordClass implements Iterable<IntervalClass> {
      * @return a random valid chord class
      */
     public static @NotNull ChordClass random() {
-        return get(ThreadLocalRandom.current().nextInt(MIN_SIZE, MAX_SIZE + 1));
+        return get(ThreadLocalRandom.current().nextInt(TOTAL_NUM));
     }
     //////////////////////////////
     // Member variables         //
     //////////////////////////////
 
-    /** All factors of this Chord. */
+    /** The bitmask of all factors of this chord class, which is also its identity. */
     private final int id;
-    /** All factors of this Chord. */
-    private final TreeSet<IntervalClass> factors;
 
     //////////////////////////////
     // Member methods           //
     //////////////////////////////
 
-    private ChordClass(int id, @NotNull Collection<IntervalClass> factors) {
+    /**
+     * A private constructor for ChordClass which is hidden by the flyweight design pattern (use get() instead).
+     * @param id the bitmask of all interval classes in this chord class
+     */
+    private ChordClass(int id) {
         this.id = id;
-        this.factors = new TreeSet<>();
-        this.factors.addAll(factors);
     }
 
+    /**
+     * A getter for the id of this chord class, which is a bitmask of all its constituent interval classes.
+     * @return the unique id of this chord class
+     */
     public final int getID() {
         return id;
     }
 
+    /**
+     * A getter for the number of factors (interval classes) in this chord class
+     * @return the number of factors in this chord class
+     */
+    public final int size() {
+        return Integer.bitCount(id);
+    }
+    /**
+     * Checks if a given interval class is a factor of this chord class
+     * @param intervalClass the interval class to look for
+     * @return if this interval class is a factor of this chord class
+     */
+    public final boolean contains(@NotNull IntervalClass intervalClass) {
+        return ((id >> intervalClass.getSize()) & 1) == 1;
+    }
+    /**
+     * Returns a string representation of this chord class
+     * @return a string representing this chord class
+     */
+    @Override
     public final @NotNull String toString() {
         StringBuilder strBuilder = new StringBuilder();
-        int factorNum = 0;
         strBuilder.append("[");
-        for(IntervalClass ic : factors) {
-            strBuilder.append(ic);
-            if(++factorNum < factors.size())
+        for(IntervalClass ic : this) {
+            if(strBuilder.length() > 1)
                 strBuilder.append(",");
+            strBuilder.append(ic);
         }
         strBuilder.append("]");
         return strBuilder.toString();
     }
+    /**
+     * Returns an iterator over the factors of this chord class in ascending order, read directly off the bitmask
+     * @return an iterator over the factors of this chord class
+     */
+    @Override
+    public final @NotNull Iterator<IntervalClass> iterator() {
+        return new Iterator<IntervalClass>() {
+            private int remaining = id;
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+            @Override
+            public IntervalClass next() {
+                if(remaining == 0) throw new NoSuchElementException();
+                int size = Integer.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                return IntervalClass.get(size);
+            }
+        };
+    }
+    /**
+     * Checks if this chord class is equal to another object. Note that since the flyweight pattern is used, literal
+     * (reference) equality is enough to ensure that these objects are actually equal.
+     * @return if this chord class is equal to another
+     */
     @Override
-    public final Iterator<IntervalClass> iterator() {
-        return factors.iterator();
+    public final boolean equals(Object object) {
+        return this == object;
+    }
+    /**
+     * A simple hash code in order to allow storage in certain Collections.
+     * @return The hash code for this chord class
+     */
+    @Override
+    public final int hashCode() {
+        return id;
     }
 }
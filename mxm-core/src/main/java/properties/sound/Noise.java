@@ -1,10 +1,10 @@
 package properties.sound;
 
 import properties.AbstractStringProp;
+import properties.StringPropRegistry;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Collection;
 
 /**
  * <p> <b>Class Overview:</b>
@@ -12,10 +12,11 @@ import java.util.concurrent.ThreadLocalRandom;
  * parts. Noises are backed by a string- their name- and have no intrinsic ordering, unlike pitches.</p>
  *
  * <p> <b>Design Details:</b>
- * This class is <i>immutable</i> and implements the <b>flyweight design pattern</b>- there is exactly one instance for
+ * This class is <i>immutable</i> and implements the <b>interning design pattern</b>- there is exactly one instance for
  * each value such that two ADTs (Abstract Data Types) with the same value are, in fact, the same instance. This
- * simplifies equality checks and can prevent memory waste. Unlike the <b>interning design pattern</b>, all possible
- * instances are created upfront during static initialization.
+ * simplifies equality checks and can prevent memory waste. Unlike the <b>flyweight design pattern</b>, however, new
+ * instances are created when first encountered, and are kept in a {@link StringPropRegistry} which gives each a dense
+ * id.</p>
  *
  * @author Patrick Celentano
  */
@@ -25,14 +26,14 @@ public final class Noise extends AbstractStringProp implements ISound {
     // Static variables         //
     //////////////////////////////
 
+    /** The registry of every noise, which must exist before any noise is created */
+    private static final StringPropRegistry<Noise> ALL = new StringPropRegistry<>("Noise", Noise::new);
+
     /** A "hit" noise */
     public static final Noise HIT = get("hit");
     /** A "crash" noise */
     public static final Noise CRASH = get("crash");
 
-    /** A map of noise names to the noises themselves */
-    private static final HashMap<String,Noise> ALL = new HashMap<>();
-
     //////////////////////////////
     // Static Methods           //
     //////////////////////////////
@@ -42,31 +43,30 @@ public final class Noise extends AbstractStringProp implements ISound {
      * @param name The name of this noise
      * @return A noise of this name
      */
-    public static Noise get(@NotNull String name) {
-        // Standardize
-        name = name.toLowerCase();
-        // If the noise already exists, return that one
-        if (ALL.containsKey(name)) {
-            return ALL.get(name);
-        }
-        // If the noise has not already been created, create it now
-        Noise newNoise = new Noise(name);
-        ALL.put(name,newNoise);
-        return newNoise;
+    public static @NotNull Noise get(@NotNull String name) {
+        return ALL.get(name.toLowerCase());
+    }
+    /**
+     * Gets an instance of a noise by its id
+     * @param id The id of this noise
+     * @return The noise with this id
+     */
+    public static @NotNull Noise get(int id) {
+        return ALL.get(id);
     }
     /**
-     * Returns an immutable collection of all valid noises, useful for iteration or streams
-     * @return an immutable collection of all valid noises
+     * Returns an immutable collection of all noises created so far, in id order, useful for iteration or streams
+     * @return an immutable collection of all noises
      */
     public static @NotNull Collection<Noise> all() {
-        return Collections.unmodifiableCollection(ALL.values());
+        return ALL.all();
     }
     /**
      * Returns a random instance of this class
      * @return a random valid Noise
      */
     public static @NotNull Noise random() {
-        return get(new ArrayList<>(ALL.keySet()).get(ThreadLocalRandom.current().nextInt(ALL.size())));
+        return ALL.random();
     }
 
     //////////////////////////////
@@ -76,9 +76,10 @@ public final class Noise extends AbstractStringProp implements ISound {
     /**
      * The noise constructor, which is private to enforce the interning design pattern (one instance per value).
      * @param name The name of this noise
+     * @param id The id of this noise
      */
-    private Noise(String name) {
-        super(name);
+    private Noise(String name, int id) {
+        super(name, id);
     }
     /**
      * Gets the name of this noise.
@@ -87,13 +88,4 @@ public final class Noise extends AbstractStringProp implements ISound {
     public final @NotNull String getName() {
         return getValue();
     }
-    /**
-     * Checks if this noise is equal to another object. Note that since the interning pattern is used, literal
-     * (reference) equality is enough to ensure that these objects are actually equal.
-     * @return if this noise is equal to another
-     */
-    @Override
-    public final boolean equals(Object object) {
-        return this == object;
-    }
-}
\ No newline at end of file
+}
@@ -139,6 +139,13 @@ public final class Pitch extends AbstractIntegerProp implements ISound, Comparat
     public final @NotNull PitchClass getPitchClass() {
         return pitchClass;
     }
+    /**
+     * Gets the frequency of this sound in equal temperament at A440. For other tunings, see {@link Tuning}.
+     * @return The frequency of this sound, in hertz
+     */
+    public final double getFrequency() {
+        return Tuning.EQUAL_TEMPERAMENT.getFrequency(this);
+    }
     /**
      * Returns another sound which is transposed by a given interval
      * @param interval The interval to transpose by
@@ -0,0 +1,243 @@
+package properties.sound;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A tuning gives the frequency, in hertz, of every {@link Pitch}. Pitches are named in twelve-tone equal temperament,
+ * but a tuning may sound them otherwise: equal temperament at any reference pitch (A440, A415, ...), five-limit just
+ * intonation relative to a tonic, or a custom table of steps such as those found in Scala (.scl) files.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i>. Every tuning describes one period (usually the octave) as a table of steps above a
+ * root pitch, and expands it into a frequency for every pitch when it is created, so that finding a frequency is a
+ * single array read and never calls Math.pow. Since the table is never written again, one tuning may be shared freely
+ * between threads, such as those rendering separate sample blocks.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class Tuning {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The number of cents in an octave */
+    private static final double CENTS_PER_OCTAVE = 1200.0;
+    /** The ratios of five-limit just intonation above the tonic, from the unison to the major seventh */
+    private static final double[] JUST_RATIOS = {
+            1.0, 16.0 / 15, 9.0 / 8, 6.0 / 5, 5.0 / 4, 4.0 / 3, 45.0 / 32, 3.0 / 2, 8.0 / 5, 5.0 / 3, 9.0 / 5, 15.0 / 8
+    };
+
+    /** The concert pitch A4, the usual reference pitch */
+    public static final Pitch A4 = Pitch.get(PitchClass.A_NATURAL, 4);
+    /** Twelve-tone equal temperament with A4 at 440 Hz */
+    public static final Tuning EQUAL_TEMPERAMENT = equalTemperament(A4, 440.0);
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets twelve-tone equal temperament with a given pitch sounding at a given frequency, such as A4 at 415 Hz
+     * @param reference the reference pitch
+     * @param frequency the frequency of the reference pitch, in hertz
+     * @return the equal-tempered tuning with this reference
+     */
+    public static @NotNull Tuning equalTemperament(@NotNull Pitch reference, double frequency) {
+        double[] ratios = new double[PitchClass.TOTAL_NUM];
+        for(int step = 0; step < ratios.length; step++) {
+            ratios[step] = Math.pow(2, step / (double) PitchClass.TOTAL_NUM);
+        }
+        return new Tuning("12-TET (" + reference + " = " + frequency + " Hz)", ratios, 2, reference.getValue(),
+                          reference, frequency);
+    }
+    /**
+     * Gets five-limit just intonation relative to a tonic, with a given pitch sounding at a given frequency. Every
+     * pitch class is tuned by a ratio of small whole numbers above the tonic, such as 5/4 for the major third.
+     * @param tonic the tonic to which every pitch is tuned
+     * @param reference the reference pitch
+     * @param frequency the frequency of the reference pitch, in hertz
+     * @return the just tuning of this tonic with this reference
+     */
+    public static @NotNull Tuning justIntonation(@NotNull PitchClass tonic, @NotNull Pitch reference,
+                                                 double frequency) {
+        return new Tuning("Just intonation in " + tonic + " (" + reference + " = " + frequency + " Hz)",
+                          JUST_RATIOS, 2, tonic.getValue(), reference, frequency);
+    }
+    /**
+     * Gets a custom tuning from the steps of a scale in cents, as in a Scala file. The root sounds at the given
+     * frequency and each pitch above it sounds the next step, where the last step is the period (usually 1200 cents)
+     * after which the steps repeat. Note that the scale need not have twelve steps.
+     * @param name the name of this tuning
+     * @param cents the steps of the scale above the root in cents, ending with the period
+     * @param root the pitch which sounds the root of the scale
+     * @param frequency the frequency of the root, in hertz
+     * @return the tuning of this scale
+     */
+    public static @NotNull Tuning custom(@NotNull String name, @NotNull double[] cents, @NotNull Pitch root,
+                                         double frequency) {
+        if(cents.length == 0) throw Log.error("Tuning", "A tuning must have at least one step!");
+        double[] ratios = new double[cents.length];
+        ratios[0] = 1.0;
+        for(int step = 1; step < cents.length; step++) {
+            ratios[step] = Math.pow(2, cents[step - 1] / CENTS_PER_OCTAVE);
+        }
+        double period = Math.pow(2, cents[cents.length - 1] / CENTS_PER_OCTAVE);
+        return new Tuning(name, ratios, period, root.getValue(), root, frequency);
+    }
+    /**
+     * Reads a custom tuning from the text of a Scala (.scl) file: lines beginning with "!" are comments, the first
+     * other line is a description, the next is the number of steps, and each step follows on its own line, either in
+     * cents (when it contains a period, such as "701.955") or as a ratio (such as "3/2" or "2").
+     * @param scl the text of the Scala file
+     * @param root the pitch which sounds the root of the scale
+     * @param frequency the frequency of the root, in hertz
+     * @return the tuning of this scale
+     */
+    public static @NotNull Tuning fromScala(@NotNull String scl, @NotNull Pitch root, double frequency) {
+        List<String> lines = new ArrayList<>();
+        for(String line : scl.split("\\r?\\n")) {
+            if(!line.startsWith("!")) lines.add(line.trim());
+        }
+        if(lines.size() < 2) throw Log.error("Tuning", "A Scala file must have a description and a number of steps!");
+        String name = lines.get(0);
+        int numSteps;
+        try {
+            numSteps = Integer.parseInt(lines.get(1).split("\\s+")[0]);
+        } catch(NumberFormatException e) {
+            throw Log.error("Tuning", "Invalid number of steps: \"" + lines.get(1) + "\"");
+        }
+        if(lines.size() < numSteps + 2) throw Log.error("Tuning", "Expected " + numSteps + " steps!");
+        double[] cents = new double[numSteps];
+        for(int step = 0; step < numSteps; step++) {
+            cents[step] = parseScalaStep(lines.get(step + 2));
+        }
+        return custom(name.isEmpty() ? "Scala tuning" : name, cents, root, frequency);
+    }
+    /**
+     * Parses one step of a Scala file into cents, ignoring anything after the first whitespace
+     * @param line the line of the step
+     * @return the size of the step in cents
+     */
+    private static double parseScalaStep(String line) {
+        String step = line.split("\\s+")[0];
+        try {
+            if(step.contains(".")) return Double.parseDouble(step);
+            int slash = step.indexOf('/');
+            double ratio = slash < 0 ? Long.parseLong(step)
+                    : Long.parseLong(step.substring(0, slash)) / (double) Long.parseLong(step.substring(slash + 1));
+            if(ratio <= 0) throw Log.error("Tuning", "Invalid ratio: \"" + line + "\"");
+            return CENTS_PER_OCTAVE * Math.log(ratio) / Math.log(2);
+        } catch(NumberFormatException e) {
+            throw Log.error("Tuning", "Invalid step: \"" + line + "\"");
+        }
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The name of this tuning */
+    private final String name;
+    /** The frequency of every pitch, in hertz, indexed by pitch value */
+    private final double[] frequencies;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A private constructor which expands one period of steps into the frequency of every pitch
+     * @param name the name of this tuning
+     * @param ratios the ratio of each step of the period above the root, beginning with the root itself (1.0)
+     * @param period the ratio after which the steps repeat, such as 2.0 for the octave
+     * @param rootValue the value of any pitch sounding the root of the steps
+     * @param reference the reference pitch
+     * @param frequency the frequency of the reference pitch, in hertz
+     */
+    private Tuning(String name, double[] ratios, double period, int rootValue, Pitch reference, double frequency) {
+        if(!(frequency > 0) || Double.isInfinite(frequency)) {
+            throw Log.error("Tuning", "Invalid reference frequency: " + frequency + " Hz");
+        }
+        if(!(period > 1) || Double.isInfinite(period)) {
+            throw Log.error("Tuning", "The period of a tuning must be greater than a unison!");
+        }
+        this.name = name;
+        // Find the frequency of every pitch relative to the root, then scale them all to the reference
+        double[] relative = new double[Pitch.MAX_VALUE - Pitch.MIN_VALUE + 1];
+        for(int value = Pitch.MIN_VALUE; value <= Pitch.MAX_VALUE; value++) {
+            int distance = value - rootValue;
+            int step = Math.floorMod(distance, ratios.length);
+            int periods = Math.floorDiv(distance, ratios.length);
+            relative[value - Pitch.MIN_VALUE] = ratios[step] * Math.pow(period, periods);
+        }
+        double scale = frequency / relative[reference.getValue() - Pitch.MIN_VALUE];
+        this.frequencies = new double[relative.length];
+        for(int index = 0; index < relative.length; index++) {
+            frequencies[index] = relative[index] * scale;
+        }
+    }
+    /**
+     * Gets the name of this tuning
+     * @return the name of this tuning
+     */
+    public @NotNull String getName() {
+        return name;
+    }
+    /**
+     * Gets the frequency at which a pitch sounds in this tuning
+     * @param pitch the pitch
+     * @return the frequency of this pitch, in hertz
+     */
+    public double getFrequency(@NotNull Pitch pitch) {
+        return frequencies[pitch.getValue() - Pitch.MIN_VALUE];
+    }
+    /**
+     * Gets the frequency of every pitch in this tuning, indexed by pitch value
+     * @return a new array of the frequency of every pitch, in hertz
+     */
+    public @NotNull double[] getFrequencies() {
+        return frequencies.clone();
+    }
+    /**
+     * Gets how far a pitch in this tuning is from the same pitch in twelve-tone equal temperament at A440
+     * @param pitch the pitch
+     * @return the deviation of this pitch in cents, positive when it is sharper
+     */
+    public double getCentsDeviation(@NotNull Pitch pitch) {
+        return CENTS_PER_OCTAVE * Math.log(getFrequency(pitch) / EQUAL_TEMPERAMENT.getFrequency(pitch)) / Math.log(2);
+    }
+    /**
+     * Returns the name of this tuning
+     * @return the name of this tuning
+     */
+    @Override
+    public @NotNull String toString() {
+        return name;
+    }
+    /**
+     * Checks if this tuning sounds every pitch at the same frequency as another
+     * @param object the object to compare this tuning to
+     * @return if this tuning is equal to this object
+     */
+    @Override
+    public boolean equals(Object object) {
+        if(this == object) return true;
+        if(!(object instanceof Tuning)) return false;
+        return Arrays.equals(frequencies, ((Tuning) object).frequencies);
+    }
+    /**
+     * A hash code of the frequencies of this tuning
+     * @return the hash code for this tuning
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(frequencies);
+    }
+}
@@ -5,6 +5,7 @@ import properties.sound.Pitch;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * <p> <b>Class Overview:</b>
@@ -13,8 +14,10 @@ import java.util.Comparator;
  * music, we will borrow it as well.</p>
  *
  * <p> <b>Design Details:</b>
- * This class is <i>immutable</i> and implements a <b>factory design pattern</b>- users cannot construct new instances
- * of this class, but must call get() instead. This is mostly a stylistic choice.</p>
+ * This class is <i>immutable</i> and implements the <b>interning design pattern</b> for every tempo up to
+ * {@link #MAX_CACHED_BPM}, which covers any tempo found in practice- there is exactly one instance of each, created the
+ * first time it is asked for, so reading tempo changes from a large MIDI corpus does not allocate. Faster tempi are
+ * still valid, but are created anew on each call and so are compared by value.</p>
  *
  * @author Patrick Celentano
  */
@@ -24,6 +27,11 @@ public final class Tempo extends AbstractIntegerProp implements Comparator<Tempo
     // Static variables         //
     //////////////////////////////
 
+    /** The fastest tempo which is interned, in beats per minute */
+    public static final int MAX_CACHED_BPM = 1023;
+    /** A static table of all interned tempi created so far, indexed by beats per minute */
+    private static final AtomicReferenceArray<Tempo> CACHE = new AtomicReferenceArray<>(MAX_CACHED_BPM + 1);
+
     public static final Tempo DEFAULT = get(120);
 
     //////////////////////////////
@@ -38,8 +46,14 @@ public final class Tempo extends AbstractIntegerProp implements Comparator<Tempo
      */
     public static @NotNull Tempo get(int bpm) {
         if(bpm <= 0) throw new Error("Tempo:\tInvalid tempo! (" + bpm + " bpm)");
+        if(bpm > MAX_CACHED_BPM) return new Tempo(bpm);
 
-        return new Tempo(bpm);
+        Tempo tempo = CACHE.get(bpm);
+        if(tempo == null) {
+            CACHE.compareAndSet(bpm, null, new Tempo(bpm));
+            tempo = CACHE.get(bpm);
+        }
+        return tempo;
     }
 
     //////////////////////////////
@@ -88,15 +102,15 @@ public final class Tempo extends AbstractIntegerProp implements Comparator<Tempo
         return Integer.compare(tempo1.value, tempo2.value);
     }
     /**
-     * Checks if this tempo equals another object.
+     * Checks if this tempo equals another object. Interned tempi are equal only to themselves, so only the rare tempo
+     * beyond {@link #MAX_CACHED_BPM} is compared by value.
      * @param object The other object
      * @return If this tempo is equal to the object
      */
     @Override
     public final boolean equals(Object object) {
         if (this == object) return true;
-        if (object == null || getClass() != object.getClass()) return false;
-        Tempo tempo = (Tempo) object;
-        return value == tempo.value;
+        if (value <= MAX_CACHED_BPM || !(object instanceof Tempo)) return false;
+        return value == ((Tempo) object).value;
     }
 }
\ No newline at end of file
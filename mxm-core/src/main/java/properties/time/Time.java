@@ -29,6 +29,17 @@ public abstract class Time implements Comparable<Time> {
     }
 
     public static ITime get(int num, int den) {
+        // Reduce the fraction, so that sums of many short times (whose denominators multiply) cannot overflow
+        int a = Math.abs(num), b = Math.abs(den);
+        while(b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        if(a > 1) {
+            num /= a;
+            den /= a;
+        }
         // If the denominator reduces to 0
         if(num % den == 0) return new Measure(num / den);
         else return new Count(num, den);
@@ -4,6 +4,8 @@ import properties.AbstractFractionProp;
 import properties.sound.Pitch;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * <p> <b>Class Overview:</b>
  * Time signatures represent metrical (that is to say, measure-based) repetitive patterns of rhythm and organize such
@@ -11,17 +13,30 @@ import org.jetbrains.annotations.NotNull;
  * reason to ever reduce a time signature from say, 4/4 to 2/2.
  *
  * <p> <b>Design Details:</b>
- * This class is <i>immutable</i> and implements a <b>factory design pattern</b>- users cannot construct new instances
- * of this class, but must call get() instead. This is mostly a stylistic choice.</p>
+ * This class is <i>immutable</i> and implements the <b>interning design pattern</b> for every numerator up to
+ * {@link #MAX_CACHED_NUMERATOR} over every denominator up to {@link #MAX_CACHED_DENOMINATOR}- there is exactly one
+ * instance of each, created the first time it is asked for. Since the denominator is a power of two, the table is
+ * indexed by the numerator and the denominator's exponent. Larger time signatures are still valid, but are created
+ * anew on each call and so are compared by value.</p>
  *
  * @author Patrick Celentano
  */
-public class TimeSig extends AbstractFractionProp {
+public final class TimeSig extends AbstractFractionProp {
 
     //////////////////////////////
     // Static variables         //
     //////////////////////////////
 
+    /** The largest numerator which is interned */
+    public static final int MAX_CACHED_NUMERATOR = 64;
+    /** The largest denominator which is interned */
+    public static final int MAX_CACHED_DENOMINATOR = 128;
+    /** The number of interned denominators, one for each power of two up to the largest */
+    private static final int NUM_CACHED_DENOMINATORS = Integer.numberOfTrailingZeros(MAX_CACHED_DENOMINATOR) + 1;
+    /** A static table of all interned time signatures created so far, indexed by numerator then denominator */
+    private static final AtomicReferenceArray<TimeSig> CACHE =
+            new AtomicReferenceArray<>(MAX_CACHED_NUMERATOR * NUM_CACHED_DENOMINATORS);
+
     public static final TimeSig CUT_TIME = get(2,2);
     public static final TimeSig COMMON_TIME = get(4,4);
 
@@ -49,7 +64,7 @@ public class TimeSig extends AbstractFractionProp {
      * Pitch}, {@link Tempo}, and so forth.
      * @param num The desired numerator
      * @param den The desired denominator
-     * @return a tempo of this speed (in beats per minute)
+     * @return the time signature num/den
      */
     public static @NotNull TimeSig get(int num, int den) {
         // Ensure that the numerator is greater than zero
@@ -58,8 +73,16 @@ public class TimeSig extends AbstractFractionProp {
         if(den <= 0) throw new Error("Time Signature: The denominator must greater than 0!");
         // Do some bit-magic to check if the denominator is a power of two
         if(!((den & (den - 1)) == 0)) throw new Error("Time Signature: The denominator must be a power of two!");
-        // Constructor
-        return new TimeSig(num, den);
+        // Construct time signatures which are too large to intern
+        if(num > MAX_CACHED_NUMERATOR || den > MAX_CACHED_DENOMINATOR) return new TimeSig(num, den);
+
+        int index = (num - 1) * NUM_CACHED_DENOMINATORS + Integer.numberOfTrailingZeros(den);
+        TimeSig timeSig = CACHE.get(index);
+        if(timeSig == null) {
+            CACHE.compareAndSet(index, null, new TimeSig(num, den));
+            timeSig = CACHE.get(index);
+        }
+        return timeSig;
     }
 
     //////////////////////////////
@@ -83,16 +106,21 @@ public class TimeSig extends AbstractFractionProp {
         return super.toString()+ " time";
     }
     /**
-     * A noteQualities (generated) equals() method for note.time.TimeSig.
+     * Checks if this time signature equals another object. Interned time signatures are equal only to themselves, so
+     * only the rare time signature too large to intern is compared by value.
      * @param object The Object to compare this to.
      * @return If these two Objects are equal.
      */
     @Override
     public final boolean equals(Object object) {
         if (this == object) return true;
-        if (object == null || getClass() != object.getClass()) return false;
+        if (!isUncached() || !(object instanceof TimeSig)) return false;
         TimeSig timeSignature = (TimeSig) object;
         return denominator == timeSignature.denominator &&
                 numerator == timeSignature.numerator;
     }
+    /** Checks if this time signature is too large to intern */
+    private boolean isUncached() {
+        return numerator > MAX_CACHED_NUMERATOR || denominator > MAX_CACHED_DENOMINATOR;
+    }
 }
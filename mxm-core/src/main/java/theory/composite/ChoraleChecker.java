@@ -0,0 +1,392 @@
+package theory.composite;
+
+import events.sound.Note;
+import form.part.Line;
+import form.score.Chorale;
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import properties.sound.PitchClass;
+import properties.sound.Pitch;
+import properties.time.ITime;
+import properties.time.Time;
+
+import java.util.*;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A chorale checker finds where a {@link Chorale} breaks the classic rules of four-part writing: voices out of range,
+ * upper voices spaced too far apart, voices crossing or overlapping one another, and parallel fifths and octaves. Each
+ * {@link Violation} records the rule, the time at which it is broken, and the voices involved.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * A checker sweeps the four lines of its chorale together, once, cutting them into vertical slices- a new slice begins
+ * whenever any voice starts or stops a note, and at every barline- and checks each slice against the one before it.
+ * Parallels are found with a precomputed table of every pair of interval classes. The slices and violations are kept,
+ * by measure, so that after an edit only the measures which changed need to be swept and checked again with
+ * {@link #recheck(int, int)}.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class ChoraleChecker {
+
+    /**
+     * The rules of four-part writing which a chorale may break
+     */
+    public enum Rule {
+        RANGE("out of range"),
+        SPACING("spacing"),
+        CROSSING("voice crossing"),
+        OVERLAP("voice overlap"),
+        PARALLEL_FIFTHS("parallel fifths"),
+        PARALLEL_OCTAVES("parallel octaves");
+
+        private final String description;
+
+        Rule(String description) {
+            this.description = description;
+        }
+        @Override
+        public @NotNull String toString() {
+            return description;
+        }
+    }
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The number of voices in a chorale */
+    private static final int NUM_VOICES = 4;
+    /** The name of each voice, from the lowest voice up */
+    private static final String[] VOICE_NAMES = {"bass", "tenor", "alto", "soprano"};
+    /** The parallel rule broken by two voices moving from one interval class to another, indexed by the interval
+     * class before times twelve plus the interval class after (or null if none is broken) */
+    private static final Rule[] PARALLELS = new Rule[PitchClass.TOTAL_NUM * PitchClass.TOTAL_NUM];
+    static {
+        PARALLELS[7 * PitchClass.TOTAL_NUM + 7] = Rule.PARALLEL_FIFTHS;
+        PARALLELS[0] = Rule.PARALLEL_OCTAVES;
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The lines of the chorale, from the lowest voice up */
+    private final List<Line<Pitch>> lines;
+    /** The ranges and spacing of the voices */
+    private final VoicingConstraints constraints;
+    /** The number of slices */
+    private int size = 0;
+    /** The time at which each slice begins */
+    private ITime[] times = new ITime[0];
+    /** The pitch value of each voice in each slice (or -1 for a rest), four to a slice */
+    private int[] values = new int[0];
+    /** The violations found in each measure */
+    private final TreeMap<Integer, List<Violation>> violations = new TreeMap<>();
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Creates a checker of a chorale, with the usual ranges and spacing of four-part writing
+     * @param chorale the chorale to check
+     */
+    public ChoraleChecker(@NotNull Chorale chorale) {
+        this(chorale, VoicingConstraints.SATB);
+    }
+    /**
+     * Creates a checker of a chorale
+     * @param chorale the chorale to check
+     * @param constraints the range of each voice, from the bass up, and the largest spacing between them
+     */
+    public ChoraleChecker(@NotNull Chorale chorale, @NotNull VoicingConstraints constraints) {
+        if(constraints.getNumVoices() != NUM_VOICES) {
+            throw Log.error("ChoraleChecker", "A chorale must be checked against constraints of four voices!");
+        }
+        this.lines = Arrays.asList(chorale.getBass(), chorale.getTenor(), chorale.getAlto(), chorale.getSoprano());
+        this.constraints = constraints;
+    }
+    /**
+     * Checks the whole chorale
+     * @return every violation in the chorale, in order of time
+     */
+    public @NotNull List<Violation> check() {
+        ITime start = null, end = null;
+        for(Line<Pitch> line : lines) {
+            Note<Pitch> first = line.getNotes().getFirst();
+            Note<Pitch> last = line.getNotes().getLast();
+            if(first == null || last == null) continue;
+            if(start == null || first.getStart().compareTo(start) < 0) start = first.getStart();
+            if(end == null || last.getEnd().compareTo(end) > 0) end = last.getEnd();
+        }
+        size = 0;
+        violations.clear();
+        if(start == null) return getViolations();
+        return recheck(measureOf(start), measureOf(end));
+    }
+    /**
+     * Checks some measures of the chorale again, after they have been changed
+     * @param fromMeasure the first measure which changed
+     * @param toMeasure the last measure which changed
+     * @return every violation in the chorale, in order of time
+     */
+    public @NotNull List<Violation> recheck(int fromMeasure, int toMeasure) {
+        if(fromMeasure > toMeasure) throw Log.error("ChoraleChecker", "Invalid range of measures to recheck.");
+        // Keep the slices contiguous, by also sweeping any measures between these and those already swept
+        if(size > 0) {
+            fromMeasure = Math.min(fromMeasure, measureOf(times[size - 1]) + 1);
+            toMeasure = Math.max(toMeasure, measureOf(times[0]) - 1);
+        }
+        ITime from = Time.get(fromMeasure);
+        ITime to = Time.get(toMeasure + 1);
+        splice(from, to);
+        // The first slice after the measures is checked against the last slice of them, so check its measure too
+        for(int measure = fromMeasure; measure <= toMeasure + 1; measure++) {
+            violations.remove(measure);
+        }
+        int first = search(from);
+        ITime stop = Time.get(toMeasure + 2);
+        for(int slice = first; slice < size && times[slice].compareTo(stop) < 0; slice++) {
+            checkSlice(slice);
+        }
+        return getViolations();
+    }
+    /**
+     * Gets every violation found, in order of time
+     * @return an unmodifiable list of every violation
+     */
+    public @NotNull List<Violation> getViolations() {
+        ArrayList<Violation> all = new ArrayList<>();
+        for(List<Violation> inMeasure : violations.values()) {
+            all.addAll(inMeasure);
+        }
+        return Collections.unmodifiableList(all);
+    }
+    /**
+     * Gets the violations found in one measure, in order of time
+     * @param measure the measure
+     * @return an unmodifiable list of the violations in this measure
+     */
+    public @NotNull List<Violation> getViolations(int measure) {
+        List<Violation> inMeasure = violations.get(measure);
+        return inMeasure == null ? Collections.emptyList() : Collections.unmodifiableList(inMeasure);
+    }
+    /**
+     * Checks if no violations were found
+     * @return if the chorale follows every rule
+     */
+    public boolean isValid() {
+        return violations.isEmpty();
+    }
+
+    //////////////////////////////
+    // Sweeping                 //
+    //////////////////////////////
+
+    /**
+     * Sweeps the lines from one time to another, and replaces the slices between these times with what was found
+     */
+    private void splice(ITime from, ITime to) {
+        ArrayList<ITime> newTimes = new ArrayList<>();
+        int[] newValues = new int[NUM_VOICES * 16];
+        // The note of each voice sounding at, or else next after, the current time
+        List<Note<Pitch>> notes = new ArrayList<>(NUM_VOICES);
+        for(Line<Pitch> line : lines) {
+            Note<Pitch> note = line.getNotes().getBefore(from);
+            if(note == null || note.getEnd().compareTo(from) <= 0) note = line.getNotes().getAfter(from);
+            notes.add(note);
+        }
+        ITime time = from;
+        while(time.compareTo(to) < 0) {
+            if(NUM_VOICES * (newTimes.size() + 1) > newValues.length) {
+                newValues = Arrays.copyOf(newValues, newValues.length * 2);
+            }
+            // Slice the voices at this time
+            int offset = NUM_VOICES * newTimes.size();
+            newTimes.add(time);
+            ITime next = Time.get(measureOf(time) + 1);
+            if(to.compareTo(next) < 0) next = to;
+            for(int voice = 0; voice < NUM_VOICES; voice++) {
+                Note<Pitch> note = notes.get(voice);
+                boolean sounding = note != null && note.getStart().compareTo(time) <= 0;
+                newValues[offset + voice] = sounding ? note.getSound().getValue() : -1;
+                if(note == null) continue;
+                ITime boundary = sounding ? note.getEnd() : note.getStart();
+                if(boundary.compareTo(next) < 0) next = boundary;
+            }
+            time = next;
+            // Move each voice past any note which has ended
+            for(int voice = 0; voice < NUM_VOICES; voice++) {
+                Note<Pitch> note = notes.get(voice);
+                if(note != null && note.getEnd().compareTo(time) <= 0) {
+                    notes.set(voice, lines.get(voice).getNotes().getAfter(note.getEnd()));
+                }
+            }
+        }
+        // Replace the old slices in this range with the new ones
+        int lo = search(from), hi = search(to);
+        int newSize = size - (hi - lo) + newTimes.size();
+        ITime[] splicedTimes = new ITime[newSize];
+        int[] splicedValues = new int[NUM_VOICES * newSize];
+        System.arraycopy(times, 0, splicedTimes, 0, lo);
+        System.arraycopy(values, 0, splicedValues, 0, NUM_VOICES * lo);
+        for(int slice = 0; slice < newTimes.size(); slice++) {
+            splicedTimes[lo + slice] = newTimes.get(slice);
+        }
+        System.arraycopy(newValues, 0, splicedValues, NUM_VOICES * lo, NUM_VOICES * newTimes.size());
+        System.arraycopy(times, hi, splicedTimes, lo + newTimes.size(), size - hi);
+        System.arraycopy(values, NUM_VOICES * hi, splicedValues, NUM_VOICES * (lo + newTimes.size()),
+                         NUM_VOICES * (size - hi));
+        times = splicedTimes;
+        values = splicedValues;
+        size = newSize;
+    }
+    /** Finds the index of the first slice at or after a time */
+    private int search(ITime time) {
+        int lo = 0, hi = size;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(times[mid].compareTo(time) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+    private static int measureOf(ITime time) {
+        return Math.floorDiv(time.getNumerator(), time.getDenominator());
+    }
+
+    //////////////////////////////
+    // Checking                 //
+    //////////////////////////////
+
+    /**
+     * Checks one slice, and its motion from the slice before it
+     */
+    private void checkSlice(int slice) {
+        int current = NUM_VOICES * slice;
+        int previous = current - NUM_VOICES;
+        boolean hasPrevious = slice > 0;
+        if(hasPrevious) {
+            // A slice which changes nothing (such as one cut by a barline) can break no new rules
+            boolean same = true;
+            for(int voice = 0; voice < NUM_VOICES && same; voice++) {
+                same = values[current + voice] == values[previous + voice];
+            }
+            if(same) return;
+        }
+        ITime time = times[slice];
+        for(int voice = 0; voice < NUM_VOICES; voice++) {
+            int value = values[current + voice];
+            if(value < 0) continue;
+            if(value < constraints.lowValue(voice) || value > constraints.highValue(voice)) {
+                report(Rule.RANGE, time, voice, -1);
+            }
+            // Compare with the nearest sounding voice below
+            int below = voice - 1;
+            while(below >= 0 && values[current + below] < 0) below--;
+            if(below >= 0) {
+                int lower = values[current + below];
+                if(value < lower) report(Rule.CROSSING, time, below, voice);
+                else if(below == voice - 1 && value - lower > constraints.maxSpacing(below)) {
+                    report(Rule.SPACING, time, below, voice);
+                }
+            }
+            if(!hasPrevious) continue;
+            int before = values[previous + voice];
+            if(before == value) continue;
+            // A voice overlaps another by moving past where it just was
+            if(voice + 1 < NUM_VOICES) {
+                int above = values[previous + voice + 1];
+                if(above >= 0 && value > above) report(Rule.OVERLAP, time, voice, voice + 1);
+            }
+            if(voice > 0) {
+                int under = values[previous + voice - 1];
+                if(under >= 0 && value < under) report(Rule.OVERLAP, time, voice, voice - 1);
+            }
+            // Two voices which both move, from one perfect interval to the same again, are in parallel
+            if(before < 0) continue;
+            for(int lowerVoice = 0; lowerVoice < voice; lowerVoice++) {
+                int lowerBefore = values[previous + lowerVoice];
+                int lowerValue = values[current + lowerVoice];
+                if(lowerBefore < 0 || lowerValue < 0 || lowerBefore == lowerValue) continue;
+                Rule rule = parallel(lowerBefore, before, lowerValue, value);
+                if(rule != null) report(rule, time, lowerVoice, voice);
+            }
+        }
+    }
+    /**
+     * Finds the parallel rule broken by two voices moving from one pair of pitch values to another, if any. The lower
+     * voice must actually move, to a new pitch class, for the voices to be in parallel.
+     */
+    static Rule parallel(int lowerBefore, int upperBefore, int lowerAfter, int upperAfter) {
+        if(lowerBefore % PitchClass.TOTAL_NUM == lowerAfter % PitchClass.TOTAL_NUM) return null;
+        int intervalBefore = Math.floorMod(upperBefore - lowerBefore, PitchClass.TOTAL_NUM);
+        int intervalAfter = Math.floorMod(upperAfter - lowerAfter, PitchClass.TOTAL_NUM);
+        return PARALLELS[intervalBefore * PitchClass.TOTAL_NUM + intervalAfter];
+    }
+    private void report(Rule rule, ITime time, int voice, int otherVoice) {
+        violations.computeIfAbsent(measureOf(time), measure -> new ArrayList<>())
+                  .add(new Violation(rule, time, voice, otherVoice));
+    }
+
+    /**
+     * <p> <b>Class overview:</b>
+     * A violation is one breaking of a rule: the rule, the time at which it was broken, and the voice (or voices)
+     * which broke it, where voice 0 is the bass and voice 3 is the soprano.</p>
+     */
+    public static final class Violation {
+        /** The rule broken */
+        private final Rule rule;
+        /** The time at which the rule was broken */
+        private final ITime time;
+        /** The voice which broke the rule */
+        private final int voice;
+        /** The other voice involved, or -1 if the rule concerns only one voice */
+        private final int otherVoice;
+
+        private Violation(Rule rule, ITime time, int voice, int otherVoice) {
+            this.rule = rule;
+            this.time = time;
+            this.voice = voice;
+            this.otherVoice = otherVoice;
+        }
+        /**
+         * A getter for the rule broken
+         * @return the rule broken
+         */
+        public @NotNull Rule getRule() {
+            return rule;
+        }
+        /**
+         * A getter for the time at which the rule was broken
+         * @return the time of this violation
+         */
+        public @NotNull ITime getTime() {
+            return time;
+        }
+        /**
+         * A getter for the voice which broke the rule, from 0 (the bass) to 3 (the soprano)
+         * @return the voice of this violation
+         */
+        public int getVoice() {
+            return voice;
+        }
+        /**
+         * A getter for the other voice involved in this violation
+         * @return the other voice of this violation, or -1 if there is none
+         */
+        public int getOtherVoice() {
+            return otherVoice;
+        }
+        /**
+         * Returns a string representation of this violation
+         * @return a string representation of this violation, such as "parallel fifths (bass, soprano) at m. 2"
+         */
+        @Override
+        public @NotNull String toString() {
+            String voices = otherVoice < 0 ? VOICE_NAMES[voice] : VOICE_NAMES[voice] + ", " + VOICE_NAMES[otherVoice];
+            return rule + " (" + voices + ") at " + time;
+        }
+    }
+}
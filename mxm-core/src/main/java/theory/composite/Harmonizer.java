@@ -0,0 +1,521 @@
+package theory.composite;
+
+import events.sound.Note;
+import form.part.Line;
+import form.score.Chorale;
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import properties.time.ITime;
+import properties.time.Time;
+import theory.harmony.Key;
+import theory.patterns.Scale;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A harmonizer writes the alto, tenor and bass of a {@link Chorale} beneath a given soprano, in a given key. Each
+ * soprano note is set to a triad of the key which contains it (the tonic, if possible, for the last note), with the
+ * bass on the root (or the third, for a diminished triad) and every chord tone sounded. The voices must keep to their
+ * ranges and spacing, never cross or overlap, never double the leading tone, leap no more than a fifth (or an octave
+ * in the bass), and never move in parallel fifths or octaves.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * Harmonization is a constraint satisfaction problem. The domain of each voice at each note is a 128-bit set of pitch
+ * values, held in two longs, and the vertical rules (ordering and spacing of neighbouring voices) and horizontal rules
+ * (leaps) are kept arc consistent by shifting and intersecting these sets- with bounds consistency only for windows too
+ * wide to be worth shifting through. A backtracking search assigns one note's chord and voicing at a time, trying the
+ * chords in order of preference and, within each, the voicings in order of {@link VoiceLeading} cost from the note
+ * before, and propagates each assignment to every note after it. The top of the search tree is expanded in order and
+ * its subtrees are searched in parallel on the work-stealing common pool; the first subtree in search order to succeed
+ * wins, so the result is the same as that of a sequential search.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class Harmonizer {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The number of voices, and the index of each */
+    private static final int NUM_VOICES = 4, BASS = 0, TENOR = 1, ALTO = 2, SOPRANO = 3;
+    /** The largest leap of an upper voice, and of the bass, in half steps */
+    private static final int MAX_LEAP = 7, MAX_BASS_LEAP = 12;
+    /** The widest window which arc revision shifts through, beyond which it only keeps bounds consistent */
+    private static final int MAX_SHIFTED_WINDOW = 24;
+    /** The degrees of the triads of a key, in the order in which they are tried */
+    private static final int[] DEGREE_ORDER = {0, 4, 3, 1, 5, 6, 2};
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The key to harmonize in */
+    private final Key key;
+    /** The range and spacing of each voice */
+    private final VoicingConstraints constraints;
+    /** The cost by which voicings are ordered */
+    private final VoiceLeading voiceLeading;
+    /** The pitch classes of each usable triad of the key, in the order in which they are tried */
+    private final int[] chordMasks;
+    /** The pitch class which each triad must have in the bass */
+    private final int[] bassClasses;
+    /** The pitch class of the leading tone, which may not be doubled */
+    private final int leadingTone;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Creates a harmonizer in a key, for the usual ranges and spacing of four-part writing
+     * @param key the key to harmonize in
+     */
+    public Harmonizer(@NotNull Key key) {
+        this(key, VoicingConstraints.SATB, VoiceLeading.TAXICAB);
+    }
+    /**
+     * Creates a harmonizer in a key
+     * @param key the key to harmonize in
+     * @param constraints the range of each voice, from the bass up, and the largest spacing between them
+     * @param voiceLeading the cost by which the voicings of each note are ordered
+     */
+    public Harmonizer(@NotNull Key key, @NotNull VoicingConstraints constraints, @NotNull VoiceLeading voiceLeading) {
+        if(constraints.getNumVoices() != NUM_VOICES) {
+            throw Log.error("Harmonizer", "A chorale must be harmonized within constraints of four voices!");
+        }
+        this.key = key;
+        this.constraints = constraints;
+        this.voiceLeading = voiceLeading;
+        // Minor keys raise the leading tone, as in the harmonic minor scale, but skip its augmented mediant
+        Scale scale = Scale.get(key.getTonic(), key.isMajor() ? Scale.MAJOR : Scale.HARMONIC_MINOR);
+        int[] masks = new int[DEGREE_ORDER.length];
+        int[] basses = new int[DEGREE_ORDER.length];
+        int count = 0;
+        for(int degree : DEGREE_ORDER) {
+            int root = scale.getPitchClass(degree).getValue();
+            int third = scale.getPitchClass(degree + 2).getValue();
+            int fifth = scale.getPitchClass(degree + 4).getValue();
+            int thirdSize = Math.floorMod(third - root, PitchClass.TOTAL_NUM);
+            int fifthSize = Math.floorMod(fifth - root, PitchClass.TOTAL_NUM);
+            if(fifthSize == 8) continue;
+            masks[count] = (1 << root) | (1 << third) | (1 << fifth);
+            basses[count] = thirdSize == 3 && fifthSize == 6 ? third : root;
+            count++;
+        }
+        this.chordMasks = Arrays.copyOf(masks, count);
+        this.bassClasses = Arrays.copyOf(basses, count);
+        this.leadingTone = (key.getTonic().getValue() + PitchClass.TOTAL_NUM - 1) % PitchClass.TOTAL_NUM;
+    }
+    /**
+     * A getter for the key this harmonizes in
+     * @return the key of this harmonizer
+     */
+    public @NotNull Key getKey() {
+        return key;
+    }
+    /**
+     * Harmonizes a soprano line
+     * @param soprano the soprano line
+     * @param title the title of the chorale to write
+     * @return a chorale of this soprano and its harmonization, or null if it cannot be harmonized
+     */
+    public @Nullable Chorale harmonize(@NotNull Line<Pitch> soprano, @NotNull String title) {
+        List<Note<Pitch>> notes = new ArrayList<>();
+        for(Note<Pitch> note : soprano.getNotes()) {
+            notes.add(note);
+        }
+        Problem problem = new Problem(notes);
+        State solution = problem.solve();
+        if(solution == null) return null;
+        // Write the solution out, with rests wherever the soprano rests
+        Chorale chorale = new Chorale(title);
+        List<Line<Pitch>> lines = Arrays.asList(chorale.getBass(), chorale.getTenor(), chorale.getAlto(),
+                                                chorale.getSoprano());
+        ITime time = Time.MEASURE_ONE;
+        for(int slice = 0; slice < notes.size(); slice++) {
+            Note<Pitch> note = notes.get(slice);
+            boolean rest = note.getStart().compareTo(time) > 0;
+            for(int voice = 0; voice < NUM_VOICES; voice++) {
+                if(rest) lines.get(voice).add(note.getStart().minus(time));
+                Pitch pitch = VoicingConstraints.toPitch(solution.value(slice, voice));
+                lines.get(voice).add(pitch, note.getDuration());
+            }
+            time = note.getEnd();
+        }
+        return chorale;
+    }
+
+    /**
+     * The domains and choices of a search, as it assigns one note after another
+     */
+    private static final class State {
+        /** The domain of each voice of each note, as two longs of a 128-bit set of pitch values */
+        final long[] domains;
+        /** The index of the triad chosen for each note, or -1 if none has been */
+        final int[] chords;
+
+        State(long[] domains, int[] chords) {
+            this.domains = domains;
+            this.chords = chords;
+        }
+        State copy() {
+            return new State(domains.clone(), chords.clone());
+        }
+        /** Gets the lowest value in the domain of a voice, which is its value once assigned */
+        int value(int slice, int voice) {
+            int index = 2 * (NUM_VOICES * slice + voice);
+            return lowestBit(domains[index], domains[index + 1]);
+        }
+    }
+
+    /**
+     * One harmonization problem: the soprano notes, and the candidate triads and connections between them
+     */
+    private final class Problem {
+        /** The number of notes */
+        private final int size;
+        /** The value of the soprano of each note */
+        private final int[] sopranos;
+        /** If each note follows the one before it without a rest, so that the horizontal rules apply */
+        private final boolean[] connected;
+        /** The triads (as bits of their indices) which each note may be set to */
+        private final int[] candidates;
+
+        Problem(List<Note<Pitch>> notes) {
+            this.size = notes.size();
+            this.sopranos = new int[size];
+            this.connected = new boolean[size];
+            this.candidates = new int[size];
+            for(int slice = 0; slice < size; slice++) {
+                Note<Pitch> note = notes.get(slice);
+                sopranos[slice] = note.getSound().getValue();
+                connected[slice] = slice > 0 && notes.get(slice - 1).getEnd().compareTo(note.getStart()) == 0;
+                int pitchClass = sopranos[slice] % PitchClass.TOTAL_NUM;
+                for(int chord = 0; chord < chordMasks.length; chord++) {
+                    if(((chordMasks[chord] >> pitchClass) & 1) == 1) candidates[slice] |= 1 << chord;
+                }
+            }
+            // End on the tonic triad, which is tried first, if the soprano allows it
+            if(size > 0 && (candidates[size - 1] & 1) == 1) candidates[size - 1] = 1;
+        }
+
+        /**
+         * Solves this problem, searching the subtrees below the top of the search tree in parallel
+         * @return the solution, or null if there is none
+         */
+        @Nullable State solve() {
+            State root = initialState();
+            if(root == null) return null;
+            if(size == 0) return root;
+            // Expand the top of the tree, in search order, until there is enough work to share across cores
+            int target = 8 * ForkJoinPool.getCommonPoolParallelism();
+            List<State> frontier = new ArrayList<>();
+            frontier.add(root);
+            int depth = 0;
+            while(depth < size && frontier.size() < target) {
+                List<State> expanded = new ArrayList<>();
+                for(State state : frontier) {
+                    for(int[] voicing : voicings(state, depth)) {
+                        State child = assign(state, depth, voicing);
+                        if(child != null) expanded.add(child);
+                    }
+                }
+                frontier = expanded;
+                depth++;
+                if(frontier.isEmpty()) return null;
+            }
+            if(depth == size) return frontier.get(0);
+            // Search each subtree, abandoning any which come after a subtree already solved
+            final int start = depth;
+            final List<State> subtrees = frontier;
+            State[] solutions = new State[subtrees.size()];
+            AtomicInteger first = new AtomicInteger(Integer.MAX_VALUE);
+            IntStream.range(0, subtrees.size()).parallel().forEach(index -> {
+                if(index > first.get()) return;
+                State solution = search(subtrees.get(index), start, () -> index > first.get());
+                if(solution != null) {
+                    solutions[index] = solution;
+                    first.accumulateAndGet(index, Math::min);
+                }
+            });
+            return first.get() == Integer.MAX_VALUE ? null : solutions[first.get()];
+        }
+        /** Builds the domains of every voice, before any note has been assigned, and makes them arc consistent */
+        private @Nullable State initialState() {
+            long[] domains = new long[2 * NUM_VOICES * size];
+            int[] chords = new int[size];
+            Arrays.fill(chords, -1);
+            for(int slice = 0; slice < size; slice++) {
+                int pitchClasses = 0;
+                for(int chord = 0; chord < chordMasks.length; chord++) {
+                    if(((candidates[slice] >> chord) & 1) == 1) pitchClasses |= chordMasks[chord];
+                }
+                for(int voice = 0; voice < SOPRANO; voice++) {
+                    int index = 2 * (NUM_VOICES * slice + voice);
+                    for(int value = constraints.lowValue(voice); value <= constraints.highValue(voice); value++) {
+                        if(((pitchClasses >> (value % PitchClass.TOTAL_NUM)) & 1) == 0) continue;
+                        if(value < Long.SIZE) domains[index] |= 1L << value;
+                        else domains[index + 1] |= 1L << (value - Long.SIZE);
+                    }
+                }
+                int index = 2 * (NUM_VOICES * slice + SOPRANO);
+                int value = sopranos[slice];
+                if(value < Long.SIZE) domains[index] = 1L << value;
+                else domains[index + 1] = 1L << (value - Long.SIZE);
+            }
+            State state = new State(domains, chords);
+            return propagate(state, 0) ? state : null;
+        }
+        /**
+         * Searches below a state depth first, in order
+         * @return the first solution found, or null if there is none (or the search was abandoned)
+         */
+        private @Nullable State search(State state, int slice, BooleanSupplier abandoned) {
+            if(slice == size) return state;
+            if(abandoned.getAsBoolean()) return null;
+            for(int[] voicing : voicings(state, slice)) {
+                State child = assign(state, slice, voicing);
+                if(child == null) continue;
+                State solution = search(child, slice + 1, abandoned);
+                if(solution != null) return solution;
+            }
+            return null;
+        }
+        /**
+         * Lists every voicing of a note which follows the rules, as the index of its triad and then the value of each
+         * voice, in order of triad and then of voice leading cost from the note before
+         */
+        private List<int[]> voicings(State state, int slice) {
+            List<int[]> all = new ArrayList<>();
+            int[] previous = null;
+            Sonority previousSonority = null;
+            if(connected[slice]) {
+                previous = new int[NUM_VOICES];
+                for(int voice = 0; voice < NUM_VOICES; voice++) {
+                    previous[voice] = state.value(slice - 1, voice);
+                }
+                previousSonority = sonority(previous);
+            }
+            int soprano = sopranos[slice];
+            int base = 2 * NUM_VOICES * slice;
+            long[] domains = state.domains;
+            for(int chord = 0; chord < chordMasks.length; chord++) {
+                if(((candidates[slice] >> chord) & 1) == 0) continue;
+                int mask = chordMasks[chord];
+                List<int[]> forChord = new ArrayList<>();
+                List<Integer> costs = new ArrayList<>();
+                for(int bass : values(domains, base + 2 * BASS)) {
+                    if(bass % PitchClass.TOTAL_NUM != bassClasses[chord]) continue;
+                    for(int tenor : values(domains, base + 2 * TENOR)) {
+                        if(tenor <= bass || ((mask >> (tenor % PitchClass.TOTAL_NUM)) & 1) == 0) continue;
+                        if(tenor - bass > constraints.maxSpacing(BASS)) continue;
+                        for(int alto : values(domains, base + 2 * ALTO)) {
+                            if(alto <= tenor || alto >= soprano) continue;
+                            if(((mask >> (alto % PitchClass.TOTAL_NUM)) & 1) == 0) continue;
+                            if(alto - tenor > constraints.maxSpacing(TENOR)) continue;
+                            if(soprano - alto > constraints.maxSpacing(ALTO)) continue;
+                            int[] voicing = {chord, bass, tenor, alto, soprano};
+                            if(!isComplete(voicing, mask) || !followsFrom(previous, voicing)) continue;
+                            forChord.add(voicing);
+                            costs.add(previous == null ? 0 : voiceLeading.cost(previousSonority, sonority(voicing)));
+                        }
+                    }
+                }
+                // Order the voicings of this triad by the cost of moving to them, keeping ties in order
+                Integer[] order = new Integer[forChord.size()];
+                for(int index = 0; index < order.length; index++) {
+                    order[index] = index;
+                }
+                Arrays.sort(order, (a, b) -> Integer.compare(costs.get(a), costs.get(b)));
+                for(Integer index : order) {
+                    all.add(forChord.get(index));
+                }
+            }
+            return all;
+        }
+        /** Checks if a voicing sounds every tone of its triad, without doubling the leading tone */
+        private boolean isComplete(int[] voicing, int mask) {
+            int covered = 0;
+            int leadingTones = 0;
+            for(int voice = 0; voice < NUM_VOICES; voice++) {
+                int pitchClass = voicing[voice + 1] % PitchClass.TOTAL_NUM;
+                covered |= 1 << pitchClass;
+                if(pitchClass == leadingTone) leadingTones++;
+            }
+            return covered == mask && leadingTones <= 1;
+        }
+        /** Checks the horizontal rules between the voices of the note before (if any) and a voicing */
+        private boolean followsFrom(int[] previous, int[] voicing) {
+            if(previous == null) return true;
+            for(int voice = 0; voice < NUM_VOICES; voice++) {
+                int before = previous[voice];
+                int after = voicing[voice + 1];
+                if(Math.abs(after - before) > (voice == BASS ? MAX_BASS_LEAP : MAX_LEAP)) return false;
+                if(voice + 1 < NUM_VOICES && after > previous[voice + 1]) return false;
+                if(voice > 0 && after < previous[voice - 1]) return false;
+                if(before == after) continue;
+                for(int lower = 0; lower < voice; lower++) {
+                    int lowerBefore = previous[lower];
+                    int lowerAfter = voicing[lower + 1];
+                    if(lowerBefore == lowerAfter) continue;
+                    if(ChoraleChecker.parallel(lowerBefore, before, lowerAfter, after) != null) return false;
+                }
+            }
+            return true;
+        }
+        /**
+         * Assigns a voicing to a note, and propagates it to the notes after
+         * @return the new state, or null if some voice of a later note is left with no values
+         */
+        private @Nullable State assign(State state, int slice, int[] voicing) {
+            State child = state.copy();
+            child.chords[slice] = voicing[0];
+            for(int voice = 0; voice < NUM_VOICES; voice++) {
+                int index = 2 * (NUM_VOICES * slice + voice);
+                int value = voicing[voice + 1];
+                child.domains[index] = value < Long.SIZE ? 1L << value : 0L;
+                child.domains[index + 1] = value < Long.SIZE ? 0L : 1L << (value - Long.SIZE);
+            }
+            if(slice + 1 < size && connected[slice + 1]) {
+                // Since this note is assigned, no voice of the next may overlap its neighbours here
+                for(int voice = 0; voice < SOPRANO; voice++) {
+                    int index = 2 * (NUM_VOICES * (slice + 1) + voice);
+                    int low = voice > 0 ? voicing[voice] : 0;
+                    int high = voicing[voice + 2];
+                    child.domains[index] &= rangeMask(low, high + 1);
+                    child.domains[index + 1] &= rangeMask(low - Long.SIZE, high + 1 - Long.SIZE);
+                }
+            }
+            return propagate(child, slice) ? child : null;
+        }
+        /**
+         * Makes the domains of every note from one onward arc consistent, revising each until none change
+         * @return false if some voice is left with no values
+         */
+        private boolean propagate(State state, int from) {
+            long[] domains = state.domains;
+            boolean changed = true;
+            while(changed) {
+                changed = false;
+                for(int slice = from; slice < size; slice++) {
+                    int base = 2 * NUM_VOICES * slice;
+                    for(int voice = 0; voice < SOPRANO; voice++) {
+                        int lower = base + 2 * voice;
+                        int upper = lower + 2;
+                        int spacing = constraints.maxSpacing(voice);
+                        // A lower voice must lie from 1 to spacing half steps below some value of the voice above
+                        changed |= revise(domains, lower, upper, 1, spacing);
+                        changed |= revise(domains, upper, lower, -spacing, -1);
+                    }
+                    if(slice + 1 < size && connected[slice + 1]) {
+                        for(int voice = 0; voice < NUM_VOICES; voice++) {
+                            int here = base + 2 * voice;
+                            int next = here + 2 * NUM_VOICES;
+                            int leap = voice == BASS ? MAX_BASS_LEAP : MAX_LEAP;
+                            changed |= revise(domains, next, here, -leap, leap);
+                            changed |= revise(domains, here, next, -leap, leap);
+                        }
+                    }
+                    for(int voice = 0; voice < NUM_VOICES; voice++) {
+                        if((domains[base + 2 * voice] | domains[base + 2 * voice + 1]) == 0L) return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    //////////////////////////////
+    // Pitch sets               //
+    //////////////////////////////
+
+    /**
+     * Revises the domain of one voice against another, keeping only the values x for which the other has a value in
+     * x + from to x + to
+     * @return if the domain changed
+     */
+    private static boolean revise(long[] domains, int target, int support, int from, int to) {
+        long low = domains[support], high = domains[support + 1];
+        if(low == 0L && high == 0L) return false;
+        long supportedLow = 0L, supportedHigh = 0L;
+        if(to - from > MAX_SHIFTED_WINDOW) {
+            // For wide windows, only keep the bounds consistent
+            int lowest = lowestBit(low, high) - to;
+            int highest = highestBit(low, high) - from;
+            supportedLow = rangeMask(lowest, highest + 1);
+            supportedHigh = rangeMask(lowest - Long.SIZE, highest + 1 - Long.SIZE);
+        }
+        else {
+            // x is supported by y = x + k, so shift the support down by every k in the window
+            for(int k = from; k <= to; k++) {
+                supportedLow |= shiftLow(low, high, -k);
+                supportedHigh |= shiftHigh(low, high, -k);
+            }
+        }
+        long oldLow = domains[target], oldHigh = domains[target + 1];
+        domains[target] = oldLow & supportedLow;
+        domains[target + 1] = oldHigh & supportedHigh;
+        return domains[target] != oldLow || domains[target + 1] != oldHigh;
+    }
+    /** The low long of a 128-bit set shifted up by some bits (or down, if negative) */
+    private static long shiftLow(long low, long high, int bits) {
+        if(bits >= 0) return bits >= Long.SIZE ? 0L : low << bits;
+        int down = -bits;
+        if(down >= 2 * Long.SIZE) return 0L;
+        if(down >= Long.SIZE) return high >>> (down - Long.SIZE);
+        return down == 0 ? low : (low >>> down) | (high << (Long.SIZE - down));
+    }
+    /** The high long of a 128-bit set shifted up by some bits (or down, if negative) */
+    private static long shiftHigh(long low, long high, int bits) {
+        if(bits < 0) return -bits >= Long.SIZE ? 0L : high >>> -bits;
+        if(bits >= 2 * Long.SIZE) return 0L;
+        if(bits >= Long.SIZE) return low << (bits - Long.SIZE);
+        return bits == 0 ? high : (high << bits) | (low >>> (Long.SIZE - bits));
+    }
+    /** The mask of bits from one bit (inclusive) up to another (exclusive) of a single long */
+    private static long rangeMask(int fromBit, int toBit) {
+        long fromMask = fromBit <= 0 ? -1L : fromBit >= Long.SIZE ? 0L : -1L << fromBit;
+        long toMask = toBit <= 0 ? 0L : toBit >= Long.SIZE ? -1L : -1L >>> (Long.SIZE - toBit);
+        return fromMask & toMask;
+    }
+    private static int lowestBit(long low, long high) {
+        return low != 0L ? Long.numberOfTrailingZeros(low) : Long.SIZE + Long.numberOfTrailingZeros(high);
+    }
+    private static int highestBit(long low, long high) {
+        return high != 0L ? 2 * Long.SIZE - 1 - Long.numberOfLeadingZeros(high)
+                          : Long.SIZE - 1 - Long.numberOfLeadingZeros(low);
+    }
+    /** Lists the values of the set at an index of an array of domains, in ascending order */
+    private static int[] values(long[] domains, int index) {
+        long low = domains[index], high = domains[index + 1];
+        int[] values = new int[Long.bitCount(low) + Long.bitCount(high)];
+        int count = 0;
+        for(; low != 0L; low &= low - 1) {
+            values[count++] = Long.numberOfTrailingZeros(low);
+        }
+        for(; high != 0L; high &= high - 1) {
+            values[count++] = Long.SIZE + Long.numberOfTrailingZeros(high);
+        }
+        return values;
+    }
+    /** The sonority of the four voices of a voicing (following the index of its triad) or of a note's values */
+    private static Sonority sonority(int[] values) {
+        int offset = values.length - NUM_VOICES;
+        List<Pitch> pitches = new ArrayList<>(NUM_VOICES);
+        for(int voice = 0; voice < NUM_VOICES; voice++) {
+            pitches.add(VoicingConstraints.toPitch(values[offset + voice]));
+        }
+        return Sonority.get(pitches);
+    }
+}
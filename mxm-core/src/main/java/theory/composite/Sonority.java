@@ -1,86 +1,361 @@
 package theory.composite;
 
-import properties.sound.ISound;
+import io.Log;
+import properties.sound.Interval;
 import theory.harmony.Harmony;
+import theory.harmony.SetClass;
 import properties.sound.Pitch;
 import properties.sound.PitchClass;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-// IMMUTABLE;
-public class Sonority implements Iterable<Pitch> {
+/**
+ * <p> <b>Class overview:</b>
+ * A sonority is a set of pitches sounding together, such as C3, E4 and G4. Unlike a {@link Harmony}, which only knows
+ * its pitch classes, a sonority knows its exact register- and so its bass, its spacing, and its range.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i>. Since every pitch fits between 0 and 120, a sonority is nothing more than a 128-bit
+ * set of pitch values held in two longs, so that union, intersection, transposition and range slicing are a handful of
+ * bitwise operations and its {@link Harmony} is found by folding its octaves onto one another. Sonorities are compared
+ * by value; those which are kept for a long time may be passed through {@link #intern()}, after which identical
+ * sonorities are the same instance.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class Sonority implements Iterable<Pitch> {
 
-    /** The pitches inside this sonority */
-    private TreeSet<Pitch> pitches;
-    private Harmony harmony;
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
 
+    /** The value of the lowest possible pitch, which is bit 0 of a sonority */
+    private static final int MIN_VALUE = Pitch.MIN.getValue();
+    /** The number of bits used by a sonority */
+    private static final int TOTAL_BITS = Pitch.MAX.getValue() - MIN_VALUE + 1;
+    /** The bits of the high long which hold a pitch */
+    private static final long HIGH_MASK = -1L >>> (2 * Long.SIZE - TOTAL_BITS);
+    /** The bits of a harmony */
+    private static final int OCTAVE_MASK = Harmony.TOTAL_NUM - 1;
+    /** The pitches indexed by their bit, since pitches can only be found by pitch class and octave */
+    private static final Pitch[] PITCHES = new Pitch[TOTAL_BITS];
+    static {
+        for(int bit = 0; bit < TOTAL_BITS; bit++) {
+            int value = bit + MIN_VALUE;
+            PITCHES[bit] = Pitch.get(PitchClass.get(value % PitchClass.TOTAL_NUM), value / PitchClass.TOTAL_NUM - 1);
+        }
+    }
+    /** The cache of interned sonorities */
+    private static final ConcurrentHashMap<Sonority, Sonority> INTERNED = new ConcurrentHashMap<>();
+    /** The sonority of no pitches */
+    public static final Sonority EMPTY = new Sonority(0L, 0L);
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets the sonority of these pitches
+     * @param pitches the pitches sounding in this sonority
+     * @return the sonority of these pitches
+     */
     public static @NotNull Sonority get(@NotNull Pitch... pitches) {
-        return new Sonority(Arrays.asList(pitches));
+        return get(Arrays.asList(pitches));
     }
+    /**
+     * Gets the sonority of these pitches
+     * @param pitches the pitches sounding in this sonority
+     * @return the sonority of these pitches
+     */
     public static @NotNull Sonority get(@NotNull Collection<Pitch> pitches) {
-        return new Sonority(pitches);
+        long low = 0L;
+        long high = 0L;
+        for(Pitch pitch : pitches) {
+            int bit = pitch.getValue() - MIN_VALUE;
+            if(bit < Long.SIZE) low |= 1L << bit;
+            else high |= 1L << (bit - Long.SIZE);
+        }
+        return new Sonority(low, high);
     }
 
-    /* Sonorities **/
-    private Sonority(Collection<Pitch> pitches) {
-        this.pitches = new TreeSet<>(pitches);
-        Set<PitchClass> pitchClasses = new HashSet<>();
-        pitches.parallelStream().forEach((Pitch pitch) -> pitchClasses.add(pitch.getPitchClass()));
-        this.harmony = Harmony.get(pitchClasses);
-    }
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
 
-    private Sonority(@NotNull Sonority s1, @NotNull Sonority s2) {
-        this.pitches = new TreeSet<>(s1.pitches);
-        this.pitches.addAll(s2.pitches);
-        this.harmony = s1.harmony.plus(s2.harmony);
-    }
-    public @NotNull Sonority plus(Sonority other) {
-        return new Sonority(other.pitches);
-    }
+    /** The pitches from bit 0 to bit 63 */
+    private final long low;
+    /** The pitches from bit 64 upward */
+    private final long high;
 
-    public @NotNull Sonority subSonority(Pitch from, Pitch to) {
-        return new Sonority(pitches.subSet(from,to));
-    }
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
 
-    public @NotNull Harmony getHarmony() {
-        return harmony;
+    /**
+     * A private constructor for a sonority from its two bitmasks (use get() instead)
+     * @param low the pitches from bit 0 to bit 63
+     * @param high the pitches from bit 64 upward
+     */
+    private Sonority(long low, long high) {
+        this.low = low;
+        this.high = high & HIGH_MASK;
+    }
+    /**
+     * Returns the one interned instance of this sonority, such that every interned sonority of the same pitches is the
+     * same instance
+     * @return the interned instance of this sonority
+     */
+    public @NotNull Sonority intern() {
+        Sonority interned = INTERNED.putIfAbsent(this, this);
+        return interned == null ? this : interned;
     }
 
+    //////////////////////////////
+    // Set operations           //
+    //////////////////////////////
 
+    /**
+     * Returns a sonority of all the pitches in this sonority and another
+     * @param other the other sonority to add with this one
+     * @return the sum of this sonority and another
+     */
+    public @NotNull Sonority plus(@NotNull Sonority other) {
+        return union(other);
+    }
+    /**
+     * Returns a sonority of all the pitches in this sonority which are not in another
+     * @param other the sonority to remove from this one
+     * @return the difference between this sonority and another
+     */
+    public @NotNull Sonority minus(@NotNull Sonority other) {
+        return new Sonority(low & ~other.low, high & ~other.high);
+    }
+    /**
+     * Returns a sonority of all the pitches in either this sonority or another
+     * @param other the other sonority
+     * @return the union of this sonority and another
+     */
+    public @NotNull Sonority union(@NotNull Sonority other) {
+        return new Sonority(low | other.low, high | other.high);
+    }
+    /**
+     * Returns a sonority of all the pitches in both this sonority and another
+     * @param other the other sonority
+     * @return the intersection of this sonority and another
+     */
+    public @NotNull Sonority intersection(@NotNull Sonority other) {
+        return new Sonority(low & other.low, high & other.high);
+    }
+    /**
+     * Returns this sonority transposed by a given interval, which may be downward
+     * @param interval the interval to transpose by
+     * @return the transposed sonority
+     */
+    public @NotNull Sonority transpose(@NotNull Interval interval) {
+        int halfSteps = interval.getSize();
+        if(isEmpty() || halfSteps == 0) return this;
+        int lowest = lowestBit() + halfSteps;
+        int highest = highestBit() + halfSteps;
+        if(lowest < 0 || highest >= TOTAL_BITS) throw Log.error("Sonority", "Transposition out of range.");
+        if(halfSteps > 0) {
+            if(halfSteps >= Long.SIZE) return new Sonority(0L, low << (halfSteps - Long.SIZE));
+            return new Sonority(low << halfSteps, (high << halfSteps) | (low >>> (Long.SIZE - halfSteps)));
+        }
+        else {
+            halfSteps = -halfSteps;
+            if(halfSteps >= Long.SIZE) return new Sonority(high >>> (halfSteps - Long.SIZE), 0L);
+            return new Sonority((low >>> halfSteps) | (high << (Long.SIZE - halfSteps)), high >>> halfSteps);
+        }
+    }
+    /**
+     * Returns the pitches of this sonority from one pitch (inclusive) up to another (exclusive)
+     * @param from the lowest pitch to keep
+     * @param to the pitch above the highest pitch to keep
+     * @return the pitches of this sonority in this range
+     */
+    public @NotNull Sonority subSonority(@NotNull Pitch from, @NotNull Pitch to) {
+        int fromBit = from.getValue() - MIN_VALUE;
+        int toBit = to.getValue() - MIN_VALUE;
+        if(fromBit >= toBit) return EMPTY;
+        return new Sonority(low & rangeMask(fromBit, toBit), high & rangeMask(fromBit - Long.SIZE, toBit - Long.SIZE));
+    }
+    /**
+     * Builds the mask of bits from one bit (inclusive) up to another (exclusive) of a single long, where either bound
+     * may fall outside of the long
+     */
+    private static long rangeMask(int fromBit, int toBit) {
+        long fromMask = fromBit <= 0 ? -1L : fromBit >= Long.SIZE ? 0L : -1L << fromBit;
+        long toMask = toBit <= 0 ? 0L : toBit >= Long.SIZE ? -1L : -1L >>> (Long.SIZE - toBit);
+        return fromMask & toMask;
+    }
 
+    //////////////////////////////
+    // Getter methods           //
+    //////////////////////////////
 
-
+    /**
+     * Gets the harmony of this sonority, found by folding each of its octaves onto the pitch classes of the lowest
+     * @return the harmony of this sonority
+     */
+    public @NotNull Harmony getHarmony() {
+        // Bit 0 is C-1, so the pitches are folded twelve bits (an octave) at a time. The octave from bit 60 straddles
+        // both longs, with its lowest bits carried in the low long.
+        int harmony = 0;
+        for(int shift = 0; shift < Long.SIZE; shift += PitchClass.TOTAL_NUM) {
+            harmony |= (int) (low >>> shift) & OCTAVE_MASK;
+        }
+        int carried = Long.SIZE % PitchClass.TOTAL_NUM;
+        harmony |= (int) (high << carried) & OCTAVE_MASK;
+        for(int shift = PitchClass.TOTAL_NUM - carried; shift < Long.SIZE; shift += PitchClass.TOTAL_NUM) {
+            harmony |= (int) (high >>> shift) & OCTAVE_MASK;
+        }
+        return Harmony.get(harmony);
+    }
+    /**
+     * Gets the set class of this sonority, the family of every transposition and inversion of its harmony
+     * @return the set class of this sonority's harmony
+     */
+    public @NotNull SetClass getSetClass() {
+        return getHarmony().getSetClass();
+    }
+    /**
+     * Checks if a pitch sounds in this sonority
+     * @param pitch the pitch to look for
+     * @return if this pitch is in this sonority
+     */
+    public boolean contains(@NotNull Pitch pitch) {
+        int bit = pitch.getValue() - MIN_VALUE;
+        return bit < Long.SIZE ? ((low >>> bit) & 1L) == 1L : ((high >>> (bit - Long.SIZE)) & 1L) == 1L;
+    }
+    /**
+     * Gets the number of pitches in this sonority
+     * @return the number of pitches in this sonority
+     */
+    public int size() {
+        return Long.bitCount(low) + Long.bitCount(high);
+    }
+    /**
+     * Checks if this sonority has no pitches
+     * @return if this sonority is empty
+     */
+    public boolean isEmpty() {
+        return (low | high) == 0L;
+    }
+    /**
+     * Gets the lowest pitch of this sonority, its bass
+     * @return the lowest pitch of this sonority, or null if it is empty
+     */
+    public @Nullable Pitch getLowest() {
+        return isEmpty() ? null : PITCHES[lowestBit()];
+    }
+    /**
+     * Gets the highest pitch of this sonority
+     * @return the highest pitch of this sonority, or null if it is empty
+     */
+    public @Nullable Pitch getHighest() {
+        return isEmpty() ? null : PITCHES[highestBit()];
+    }
+    // Package-private accessors for the voice-leading memo, which is keyed by the bits of two sonorities
+    long lowBits() {
+        return low;
+    }
+    long highBits() {
+        return high;
+    }
+    private int lowestBit() {
+        return low != 0L ? Long.numberOfTrailingZeros(low) : Long.SIZE + Long.numberOfTrailingZeros(high);
+    }
+    private int highestBit() {
+        return high != 0L ? 2 * Long.SIZE - 1 - Long.numberOfLeadingZeros(high)
+                          : Long.SIZE - 1 - Long.numberOfLeadingZeros(low);
+    }
 
     /**
-     * Returns a stream of all the pitches in this sonority
-     * @return The
+     * Returns a stream of all the pitches in this sonority, from lowest to highest
+     * @return a stream of all the pitches in this sonority
      */
     public @NotNull Stream<Pitch> stream() {
-        return pitches.stream();
+        return StreamSupport.stream(spliterator(), false);
     }
     /**
      * Returns a stream of all the pitches in this sonority which may be accessed in parallel
-     * @return The
+     * @return a parallel stream of all the pitches in this sonority
      */
     public @NotNull Stream<Pitch> parallelStream() {
-        return pitches.parallelStream();
+        return StreamSupport.stream(spliterator(), true);
     }
     /**
-     * Returns an iterator over all
-     * @return The
+     * Returns an iterator over all the pitches in this sonority, from lowest to highest, read directly off its bits
+     * @return an iterator over all the pitches in this sonority
      */
     @Override
     public @NotNull Iterator<Pitch> iterator() {
-        return pitches.iterator();
+        return new Iterator<Pitch>() {
+            private long remainingLow = low;
+            private long remainingHigh = high;
+            @Override
+            public boolean hasNext() {
+                return (remainingLow | remainingHigh) != 0L;
+            }
+            @Override
+            public Pitch next() {
+                if(remainingLow != 0L) {
+                    int bit = Long.numberOfTrailingZeros(remainingLow);
+                    remainingLow &= remainingLow - 1;
+                    return PITCHES[bit];
+                }
+                if(remainingHigh != 0L) {
+                    int bit = Long.numberOfTrailingZeros(remainingHigh);
+                    remainingHigh &= remainingHigh - 1;
+                    return PITCHES[Long.SIZE + bit];
+                }
+                throw new NoSuchElementException();
+            }
+        };
     }
     /**
-     * Returns an iterator over all
-     * @return The
+     * Returns a spliterator over all the pitches in this sonority, from lowest to highest
+     * @return a spliterator over all the pitches in this sonority
      */
     @Override
     public @NotNull Spliterator<Pitch> spliterator() {
-        return pitches.spliterator();
+        return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED | Spliterator.SORTED
+                | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+    /**
+     * Returns a string representation of this sonority, such as [C3, E4, G4]
+     * @return a string representation of this sonority
+     */
+    @Override
+    public @NotNull String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for(Pitch pitch : this) {
+            joiner.add(pitch.toString());
+        }
+        return joiner.toString();
+    }
+    /**
+     * Checks if this sonority has the same pitches as another object
+     * @return if this sonority is equal to another
+     */
+    @Override
+    public boolean equals(Object object) {
+        if(this == object) return true;
+        if(!(object instanceof Sonority)) return false;
+        Sonority other = (Sonority) object;
+        return low == other.low && high == other.high;
+    }
+    /**
+     * A hash code of the pitches in this sonority
+     * @return the hash code for this sonority
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(low * 31 + high);
     }
 }
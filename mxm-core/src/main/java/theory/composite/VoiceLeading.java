@@ -0,0 +1,330 @@
+package theory.composite;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import properties.sound.Interval;
+import properties.sound.Pitch;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A voice leading engine finds the smoothest way to move from one {@link Sonority} to another: which pitch of the
+ * first moves to which pitch of the second, such that the total cost of every voice's motion is as small as possible.
+ * The cost of a motion depends only on its size in half steps, and is given by a table- by default, the number of half
+ * steps itself. When the sonorities differ in size, voices may split (one pitch moving to several) or merge (several
+ * pitches moving to one), but every pitch of both sonorities is part of some motion.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i> and thread safe. The optimal leading is found by dynamic programming over the pitches
+ * of the larger sonority, in ascending order, and the set of pitches of the smaller sonority reached so far- which
+ * takes O(n * m * 2^m) steps rather than the O(n!) of trying every permutation, and handles splitting and merging
+ * voices for free. Since the same transitions recur constantly in a search, leadings between sonorities are memoized in
+ * a concurrent cache keyed by the bits of the two sonorities, which parallel searches read without locking. Once the
+ * cache grows too large it is cleared, and the transitions of the current search soon fill it again.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class VoiceLeading {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The largest possible motion, in half steps */
+    private static final int MAX_DISTANCE = Pitch.MAX.getValue() - Pitch.MIN.getValue();
+    /** The largest number of pitches which the smaller of two sonorities may have */
+    public static final int MAX_VOICES = 12;
+    /** The most leadings each engine remembers */
+    private static final int MAX_CACHED = 1 << 16;
+    /** The engine in which every half step of motion costs 1, the usual measure of smooth voice leading */
+    public static final VoiceLeading TAXICAB = get(halfSteps -> halfSteps);
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets a voice leading engine from a table of costs. Motions larger than the table cost as much as its last entry.
+     * @param costs the cost of moving a voice by each number of half steps, starting with 0 (holding a common tone)
+     * @return the voice leading engine with these costs
+     */
+    public static @NotNull VoiceLeading get(@NotNull int... costs) {
+        if(costs.length == 0) throw Log.error("VoiceLeading", "The cost table must have at least one entry!");
+        return get(halfSteps -> costs[Math.min(halfSteps, costs.length - 1)]);
+    }
+    /**
+     * Gets a voice leading engine from a function of the cost of each motion
+     * @param cost the cost of moving a voice by a given number of half steps
+     * @return the voice leading engine with these costs
+     */
+    public static @NotNull VoiceLeading get(@NotNull IntUnaryOperator cost) {
+        int[] costs = new int[MAX_DISTANCE + 1];
+        for(int halfSteps = 0; halfSteps <= MAX_DISTANCE; halfSteps++) {
+            costs[halfSteps] = cost.applyAsInt(halfSteps);
+            if(costs[halfSteps] < 0) throw Log.error("VoiceLeading", "Voice leading costs cannot be negative!");
+        }
+        return new VoiceLeading(costs);
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The cost of moving a voice by each number of half steps */
+    private final int[] costs;
+    /** The leadings found since the cache was last cleared, by the bits of their two sonorities */
+    private final ConcurrentHashMap<Transition, Motion> cache = new ConcurrentHashMap<>();
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A private constructor for a voice leading engine (use get() instead)
+     * @param costs the cost of moving a voice by each number of half steps
+     */
+    private VoiceLeading(int[] costs) {
+        this.costs = costs;
+    }
+    /**
+     * Gets the cost of moving a voice by an interval, in either direction
+     * @param interval the interval
+     * @return the cost of moving a voice by this interval
+     */
+    public int getCost(@NotNull Interval interval) {
+        return costs[Math.abs(interval.getSize())];
+    }
+    /**
+     * Finds the smoothest leading from one sonority to another
+     * @param from the sonority to move from
+     * @param to the sonority to move to
+     * @return the optimal leading between these sonorities
+     */
+    public @NotNull Motion lead(@NotNull Sonority from, @NotNull Sonority to) {
+        Transition key = new Transition(from, to);
+        Motion motion = cache.get(key);
+        if(motion == null) {
+            motion = solve(from, to, values(from, from.size()), values(to, to.size()));
+            if(cache.size() >= MAX_CACHED) cache.clear();
+            Motion previous = cache.putIfAbsent(key, motion);
+            if(previous != null) motion = previous;
+        }
+        return motion;
+    }
+    /**
+     * Finds the smoothest leading from one voicing to another, regardless of which voice sounds each pitch. The
+     * voices are led directly rather than through their sonorities, so two voices on one pitch each move on their own.
+     * @param from the voicing to move from
+     * @param to the voicing to move to
+     * @return the optimal leading between the voices of these voicings
+     */
+    public @NotNull Motion lead(@NotNull Voicing from, @NotNull Voicing to) {
+        return solve(from.getSonority(), to.getSonority(), values(from, from.getVoices().size()),
+                values(to, to.getVoices().size()));
+    }
+    /**
+     * Finds the smallest total cost of leading one sonority to another
+     * @param from the sonority to move from
+     * @param to the sonority to move to
+     * @return the cost of the optimal leading between these sonorities
+     */
+    public int cost(@NotNull Sonority from, @NotNull Sonority to) {
+        return lead(from, to).getCost();
+    }
+
+    /**
+     * Solves for the optimal leading between two sets of pitch values. The pitches of the larger set are assigned in
+     * ascending order, each to one pitch of the smaller, where best[mask] is the least cost of the pitches assigned so
+     * far having reached exactly the pitches of the smaller set in mask. The leading must reach them all.
+     */
+    private Motion solve(Sonority from, Sonority to, int[] fromPitches, int[] toPitches) {
+        if((fromPitches.length == 0) != (toPitches.length == 0)) {
+            throw Log.error("VoiceLeading", "There is no voice leading between an empty and a non-empty sonority.");
+        }
+        boolean flipped = fromPitches.length < toPitches.length;
+        int[] large = flipped ? toPitches : fromPitches;
+        int[] small = flipped ? fromPitches : toPitches;
+        int n = large.length, m = small.length;
+        if(m > MAX_VOICES) throw Log.error("VoiceLeading", "Too many voices to lead (" + m + ").");
+        int full = (1 << m) - 1;
+        int[] best = new int[full + 1];
+        int[] next = new int[full + 1];
+        // The pitch of the smaller sonority chosen for each pitch of the larger, and the state it was chosen from
+        byte[][] choice = new byte[n][full + 1];
+        char[][] predecessor = new char[n][full + 1];
+        Arrays.fill(best, Integer.MAX_VALUE);
+        best[0] = 0;
+        for(int i = 0; i < n; i++) {
+            Arrays.fill(next, Integer.MAX_VALUE);
+            for(int mask = 0; mask <= full; mask++) {
+                if(best[mask] == Integer.MAX_VALUE) continue;
+                for(int j = 0; j < m; j++) {
+                    int reached = mask | (1 << j);
+                    int cost = best[mask] + costs[Math.abs(large[i] - small[j])];
+                    if(cost < next[reached]) {
+                        next[reached] = cost;
+                        choice[i][reached] = (byte) j;
+                        predecessor[i][reached] = (char) mask;
+                    }
+                }
+            }
+            int[] swap = best;
+            best = next;
+            next = swap;
+        }
+        // Walk back from the full state to recover each pitch's partner
+        int[] largeTargets = new int[n];
+        int mask = full;
+        for(int i = n - 1; i >= 0; i--) {
+            int j = choice[i][mask];
+            largeTargets[i] = j;
+            mask = predecessor[i][mask];
+        }
+        // Order the voices by the pitch they move from and then the pitch they move to, whichever set was larger
+        long[] voices = new long[n];
+        for(int i = 0; i < n; i++) {
+            int fromValue = flipped ? small[largeTargets[i]] : large[i];
+            int toValue = flipped ? large[i] : small[largeTargets[i]];
+            voices[i] = ((long) fromValue << 32) | toValue;
+        }
+        Arrays.sort(voices);
+        int[] fromValues = new int[n];
+        int[] toValues = new int[n];
+        for(int i = 0; i < n; i++) {
+            fromValues[i] = (int) (voices[i] >>> 32);
+            toValues[i] = (int) voices[i];
+        }
+        return new Motion(from, to, best[full], fromValues, toValues);
+    }
+    /** Reads the pitch values of a sonority or voicing, in ascending order */
+    private static int[] values(Iterable<Pitch> pitches, int size) {
+        int[] values = new int[size];
+        int index = 0;
+        for(Pitch pitch : pitches) {
+            values[index++] = pitch.getValue();
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    /**
+     * <p> <b>Class overview:</b>
+     * A motion is one leading from a sonority to another: a list of voices, each moving from a pitch of the first
+     * sonority to a pitch of the second, ordered by the pitch they move from and then the pitch they move to.</p>
+     */
+    public static final class Motion {
+        /** The sonority moved from */
+        private final Sonority from;
+        /** The sonority moved to */
+        private final Sonority to;
+        /** The total cost of this motion */
+        private final int cost;
+        /** The pitch value each voice moves from */
+        private final int[] fromValues;
+        /** The pitch value each voice moves to */
+        private final int[] toValues;
+
+        private Motion(Sonority from, Sonority to, int cost, int[] fromValues, int[] toValues) {
+            this.from = from;
+            this.to = to;
+            this.cost = cost;
+            this.fromValues = fromValues;
+            this.toValues = toValues;
+        }
+        /**
+         * A getter for the sonority moved from
+         * @return the sonority moved from
+         */
+        public @NotNull Sonority getFrom() {
+            return from;
+        }
+        /**
+         * A getter for the sonority moved to
+         * @return the sonority moved to
+         */
+        public @NotNull Sonority getTo() {
+            return to;
+        }
+        /**
+         * A getter for the total cost of this motion
+         * @return the total cost of this motion
+         */
+        public int getCost() {
+            return cost;
+        }
+        /**
+         * Gets the number of voices in this motion, the size of the larger sonority
+         * @return the number of voices in this motion
+         */
+        public int size() {
+            return fromValues.length;
+        }
+        /**
+         * Gets the pitch one voice moves from
+         * @param voice the voice
+         * @return the pitch this voice moves from
+         */
+        public @NotNull Pitch getFrom(int voice) {
+            return VoicingConstraints.toPitch(fromValues[voice]);
+        }
+        /**
+         * Gets the pitch one voice moves to
+         * @param voice the voice
+         * @return the pitch this voice moves to
+         */
+        public @NotNull Pitch getTo(int voice) {
+            return VoicingConstraints.toPitch(toValues[voice]);
+        }
+        /**
+         * Gets the interval one voice moves by, which is downward if negative
+         * @param voice the voice
+         * @return the interval this voice moves by
+         */
+        public @NotNull Interval getInterval(int voice) {
+            return Interval.get(toValues[voice] - fromValues[voice]);
+        }
+        /**
+         * Returns a string representation of this motion
+         * @return a string representation of this motion, such as [C4->B3, E4->E4, G4->G4] (1)
+         */
+        @Override
+        public @NotNull String toString() {
+            StringBuilder builder = new StringBuilder("[");
+            for(int voice = 0; voice < size(); voice++) {
+                if(voice > 0) builder.append(", ");
+                builder.append(getFrom(voice)).append("->").append(getTo(voice));
+            }
+            return builder.append("] (").append(cost).append(")").toString();
+        }
+    }
+
+    /**
+     * The key of a memoized leading, holding the bits of both sonorities rather than the sonorities themselves
+     */
+    private static final class Transition {
+        private final long fromLow, fromHigh, toLow, toHigh;
+
+        Transition(Sonority from, Sonority to) {
+            this.fromLow = from.lowBits();
+            this.fromHigh = from.highBits();
+            this.toLow = to.lowBits();
+            this.toHigh = to.highBits();
+        }
+        @Override
+        public boolean equals(Object object) {
+            if(this == object) return true;
+            if(!(object instanceof Transition)) return false;
+            Transition other = (Transition) object;
+            return fromLow == other.fromLow && fromHigh == other.fromHigh
+                && toLow == other.toLow && toHigh == other.toHigh;
+        }
+        @Override
+        public int hashCode() {
+            long hash = ((fromLow * 31 + fromHigh) * 31 + toLow) * 31 + toHigh;
+            return Long.hashCode(hash);
+        }
+    }
+}
@@ -1,16 +1,380 @@
 package theory.composite;
 
+import org.jetbrains.annotations.NotNull;
+import properties.sound.Chord;
 import properties.sound.Interval;
+import properties.sound.IntervalClass;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import theory.harmony.Harmony;
 
-import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-// Vertical relationships... a bunch of intervals above a root
-public class Voicing implements Iterable<Interval> {
-    private TreeSet<Interval> factors;
+/**
+ * <p> <b>Class overview:</b>
+ * A voicing is one way of sounding a {@link Chord}: a pitch for every voice, from the lowest voice up, such as C3, G3,
+ * E4 and C5 for a C major chord in four voices. The voicings of a chord within a set of {@link VoicingConstraints} may
+ * be enumerated with {@link #stream(Chord, VoicingConstraints)} or {@link #all(Chord, VoicingConstraints)}.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i>. Voicings are enumerated lazily by a depth-first search from the bass upward, which
+ * prunes any partial voicing whose remaining voices are too few to sound the chord tones still missing. The search is
+ * a {@link Spliterator} whose untried branches can be handed to another thread, so that a parallel stream splits the
+ * search space across cores. Since the same handful of chords recur constantly, {@link #all(Chord, VoicingConstraints)}
+ * caches its results for every chord and set of constraints.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class Voicing implements Iterable<Pitch> {
 
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The voicings already enumerated, by their constraints and then by chord */
+    private static final ConcurrentHashMap<VoicingConstraints, ConcurrentHashMap<Chord, List<Voicing>>> CACHE
+            = new ConcurrentHashMap<>();
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Lazily enumerates every voicing of a chord within some constraints, ordered from the lowest bass upward. The
+     * stream may be made parallel to split the search across cores.
+     * @param chord the chord to voice
+     * @param constraints the constraints on each voicing
+     * @return a stream of every voicing of this chord
+     */
+    public static @NotNull Stream<Voicing> stream(@NotNull Chord chord, @NotNull VoicingConstraints constraints) {
+        return StreamSupport.stream(new Enumerator(chord, constraints), false);
+    }
+    /**
+     * Gets every voicing of a chord within some constraints, ordered from the lowest bass upward. The voicings are
+     * enumerated in parallel the first time, and cached thereafter.
+     * @param chord the chord to voice
+     * @param constraints the constraints on each voicing
+     * @return an unmodifiable list of every voicing of this chord
+     */
+    public static @NotNull List<Voicing> all(@NotNull Chord chord, @NotNull VoicingConstraints constraints) {
+        ConcurrentHashMap<Chord, List<Voicing>> byChord
+                = CACHE.computeIfAbsent(constraints, key -> new ConcurrentHashMap<>());
+        List<Voicing> voicings = byChord.get(chord);
+        if(voicings == null) {
+            voicings = Collections.unmodifiableList(stream(chord, constraints).parallel().collect(Collectors.toList()));
+            List<Voicing> previous = byChord.putIfAbsent(chord, voicings);
+            if(previous != null) voicings = previous;
+        }
+        return voicings;
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The chord which this voices */
+    private final Chord chord;
+    /** The pitch of every voice, from the lowest voice up */
+    private final List<Pitch> voices;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A private constructor for a voicing, which is only made by the enumerator
+     * @param chord the chord which this voices
+     * @param values the value of the pitch of every voice, from the lowest voice up
+     */
+    private Voicing(@NotNull Chord chord, @NotNull int[] values) {
+        this.chord = chord;
+        Pitch[] pitches = new Pitch[values.length];
+        for(int voice = 0; voice < values.length; voice++) {
+            pitches[voice] = VoicingConstraints.toPitch(values[voice]);
+        }
+        this.voices = Collections.unmodifiableList(Arrays.asList(pitches));
+    }
+    /**
+     * A getter for the chord which this voices
+     * @return the chord of this voicing
+     */
+    public @NotNull Chord getChord() {
+        return chord;
+    }
+    /**
+     * A getter for the pitch of every voice, from the lowest voice up
+     * @return an unmodifiable list of the pitch of every voice
+     */
+    public @NotNull List<Pitch> getVoices() {
+        return voices;
+    }
+    /**
+     * A getter for the pitch of one voice
+     * @param voice the voice, where 0 is the lowest voice
+     * @return the pitch of this voice
+     */
+    public @NotNull Pitch getVoice(int voice) {
+        return voices.get(voice);
+    }
+    /**
+     * A getter for the pitch of the lowest voice
+     * @return the bass of this voicing
+     */
+    public @NotNull Pitch getBass() {
+        return voices.get(0);
+    }
+    /**
+     * Gets the interval of each voice above the bass, starting with the unison of the bass itself
+     * @return a list of the interval of each voice above the bass
+     */
+    public @NotNull List<Interval> getIntervals() {
+        ArrayList<Interval> intervals = new ArrayList<>(voices.size());
+        for(Pitch pitch : voices) {
+            intervals.add(getBass().minus(pitch));
+        }
+        return intervals;
+    }
+    /**
+     * Gets the sonority of all the pitches in this voicing
+     * @return the sonority of this voicing
+     */
+    public @NotNull Sonority getSonority() {
+        return Sonority.get(voices);
+    }
+    /**
+     * Returns an iterator over the pitch of every voice, from the lowest voice up
+     * @return an iterator over the pitches of this voicing
+     */
+    @Override
+    public @NotNull Iterator<Pitch> iterator() {
+        return voices.iterator();
+    }
+    /**
+     * Returns a string representation of this voicing, such as C:maj [C3, G3, E4, C5]
+     * @return a string representation of this voicing
+     */
+    @Override
+    public @NotNull String toString() {
+        return chord + " " + voices;
+    }
+    /**
+     * Checks if this voicing is equal to another object
+     * @return if this voicing is equal to another
+     */
+    @Override
+    public boolean equals(Object object) {
+        if(this == object) return true;
+        if(!(object instanceof Voicing)) return false;
+        Voicing other = (Voicing) object;
+        return chord == other.chord && voices.equals(other.voices);
+    }
+    /**
+     * A hash code of this voicing
+     * @return the hash code for this voicing
+     */
     @Override
-    public Iterator<Interval> iterator() {
-        return factors.iterator();
+    public int hashCode() {
+        return 31 * chord.hashCode() + voices.hashCode();
+    }
+
+    /**
+     * A depth-first search over the voicings of a chord. It holds a list of prefixes (partial voicings from the bass
+     * up) and searches below each in turn. Splitting hands half of the untried prefixes to a new enumerator; when only
+     * one remains, it is first expanded into its children, so that the search can be split as finely as needed.
+     */
+    private static final class Enumerator implements Spliterator<Voicing> {
+        private final Chord chord;
+        private final VoicingConstraints constraints;
+        private final int numVoices;
+        /** The pitch classes of the chord */
+        private final int chordMask;
+        /** The pitch classes which every voicing must sound */
+        private final int requiredMask;
+        /** The pitch classes which may not be doubled */
+        private final int undoubledMask;
+
+        /** The prefixes to search below, of which those from lo (inclusive) to hi (exclusive) remain */
+        private List<int[]> prefixes;
+        private int lo;
+        private int hi;
+
+        /** If a prefix is being searched */
+        private boolean active = false;
+        /** The length of the prefix being searched, below which the search never backtracks */
+        private int base;
+        /** The voice being chosen */
+        private int depth;
+        /** The pitch value chosen for each voice */
+        private final int[] chosen;
+        /** The next pitch value to try for each voice */
+        private final int[] cursor;
+        /** The number of voices sounding each pitch class */
+        private final int[] counts = new int[PitchClass.TOTAL_NUM];
+        /** The pitch classes sounding */
+        private int covered;
+
+        Enumerator(Chord chord, VoicingConstraints constraints) {
+            this.chord = chord;
+            this.constraints = constraints;
+            this.numVoices = constraints.getNumVoices();
+            // The optional and undoubled chord tones are given above the root, so transpose them onto it
+            IntervalClass root = IntervalClass.get(chord.getRoot().getValue());
+            this.chordMask = chord.getHarmony().getID();
+            this.requiredMask = chordMask & ~Harmony.get(constraints.optionalMask()).transpose(root).getID();
+            this.undoubledMask = chordMask & Harmony.get(constraints.undoubledMask()).transpose(root).getID();
+            this.chosen = new int[numVoices];
+            this.cursor = new int[numVoices];
+            this.prefixes = Collections.singletonList(new int[0]);
+            this.lo = 0;
+            this.hi = 1;
+        }
+        private Enumerator(Enumerator parent, List<int[]> prefixes, int lo, int hi) {
+            this.chord = parent.chord;
+            this.constraints = parent.constraints;
+            this.numVoices = parent.numVoices;
+            this.chordMask = parent.chordMask;
+            this.requiredMask = parent.requiredMask;
+            this.undoubledMask = parent.undoubledMask;
+            this.chosen = new int[numVoices];
+            this.cursor = new int[numVoices];
+            this.prefixes = prefixes;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Voicing> action) {
+            while(true) {
+                if(!active) {
+                    if(lo >= hi) return false;
+                    start(prefixes.get(lo++));
+                    if(depth == numVoices) {
+                        active = false;
+                        if(Integer.bitCount(requiredMask & ~covered) == 0) {
+                            action.accept(new Voicing(chord, chosen.clone()));
+                            return true;
+                        }
+                        continue;
+                    }
+                    active = true;
+                }
+                int value = nextCandidate(depth);
+                if(value < 0) {
+                    // Backtrack, ending this prefix once its own voices are reached
+                    if(depth == base) {
+                        active = false;
+                    }
+                    else {
+                        depth--;
+                        remove(chosen[depth]);
+                    }
+                    continue;
+                }
+                add(depth, value);
+                if(depth + 1 == numVoices) {
+                    boolean complete = (requiredMask & ~covered) == 0;
+                    Voicing voicing = complete ? new Voicing(chord, chosen.clone()) : null;
+                    remove(value);
+                    if(complete) {
+                        action.accept(voicing);
+                        return true;
+                    }
+                }
+                else if(isFeasible(depth)) {
+                    depth++;
+                    cursor[depth] = lowerBound(depth);
+                }
+                else remove(value);
+            }
+        }
+        @Override
+        public Spliterator<Voicing> trySplit() {
+            if(!active && hi - lo == 1 && prefixes.get(lo).length < numVoices) {
+                prefixes = children(prefixes.get(lo));
+                lo = 0;
+                hi = prefixes.size();
+            }
+            if(hi - lo < 2) return null;
+            int mid = (lo + hi) >>> 1;
+            Enumerator split = new Enumerator(this, prefixes, lo, mid);
+            lo = mid;
+            return split;
+        }
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+        }
+
+        /** Begins the search below a prefix */
+        private void start(int[] prefix) {
+            Arrays.fill(counts, 0);
+            covered = 0;
+            for(int voice = 0; voice < prefix.length; voice++) {
+                add(voice, prefix[voice]);
+            }
+            base = depth = prefix.length;
+            if(depth < numVoices) cursor[depth] = lowerBound(depth);
+        }
+        /** Lists every feasible one-voice extension of a prefix */
+        private List<int[]> children(int[] prefix) {
+            start(prefix);
+            ArrayList<int[]> children = new ArrayList<>();
+            for(int value = nextCandidate(depth); value >= 0; value = nextCandidate(depth)) {
+                add(depth, value);
+                if(depth + 1 == numVoices ? (requiredMask & ~covered) == 0 : isFeasible(depth)) {
+                    int[] child = Arrays.copyOf(prefix, prefix.length + 1);
+                    child[prefix.length] = value;
+                    children.add(child);
+                }
+                remove(value);
+            }
+            return children;
+        }
+        /** Finds the next pitch value which a voice may take, or -1 if there is none */
+        private int nextCandidate(int voice) {
+            int upper = upperBound(voice);
+            for(int value = cursor[voice]; value <= upper; value++) {
+                int pitchClass = value % PitchClass.TOTAL_NUM;
+                if(((chordMask >> pitchClass) & 1) == 0) continue;
+                if(voice == 0 && constraints.bassValue() >= 0 && pitchClass != constraints.bassValue()) continue;
+                if(counts[pitchClass] >= constraints.maxDoublings()) continue;
+                if(counts[pitchClass] > 0 && ((undoubledMask >> pitchClass) & 1) == 1) continue;
+                cursor[voice] = value + 1;
+                return value;
+            }
+            cursor[voice] = upper + 1;
+            return -1;
+        }
+        /** Checks if the voices above a given voice are enough to sound every missing chord tone */
+        private boolean isFeasible(int voice) {
+            return Integer.bitCount(requiredMask & ~covered) <= numVoices - voice - 1;
+        }
+        private int lowerBound(int voice) {
+            return voice == 0 ? constraints.lowValue(0) : Math.max(constraints.lowValue(voice), chosen[voice - 1] + 1);
+        }
+        private int upperBound(int voice) {
+            return voice == 0 ? constraints.highValue(0)
+                              : Math.min(constraints.highValue(voice),
+                                         chosen[voice - 1] + constraints.maxSpacing(voice - 1));
+        }
+        private void add(int voice, int value) {
+            chosen[voice] = value;
+            int pitchClass = value % PitchClass.TOTAL_NUM;
+            counts[pitchClass]++;
+            covered |= 1 << pitchClass;
+        }
+        private void remove(int value) {
+            int pitchClass = value % PitchClass.TOTAL_NUM;
+            if(--counts[pitchClass] == 0) covered &= ~(1 << pitchClass);
+        }
     }
 }
@@ -0,0 +1,240 @@
+package theory.composite;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import properties.sound.Interval;
+import properties.sound.IntervalClass;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static properties.sound.PitchClass.*;
+
+/**
+ * <p> <b>Class overview:</b>
+ * Voicing constraints describe which {@link Voicing}s of a chord are acceptable- the range of each voice, how far apart
+ * neighbouring voices may be, which pitch class must be in the bass, and how chord tones may be doubled or left out.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i>, and every "with" method returns a new set of constraints. Constraints are compared by
+ * value, since they are used (together with a chord) as the key under which enumerated voicings are cached.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class VoicingConstraints {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The largest possible distance between two voices, which places no limit on spacing */
+    private static final int UNLIMITED = Pitch.MAX.getValue() - Pitch.MIN.getValue();
+    /** Four-part chorale writing: bass, tenor, alto and soprano in their usual ranges, with the upper voices no more
+     * than an octave apart */
+    public static final VoicingConstraints SATB = get(
+            Arrays.asList(Pitch.get(E_NATURAL, 2), Pitch.get(C_NATURAL, 3), Pitch.get(G_NATURAL, 3),
+                          Pitch.get(C_NATURAL, 4)),
+            Arrays.asList(Pitch.get(C_NATURAL, 4), Pitch.get(G_NATURAL, 4), Pitch.get(D_NATURAL, 5),
+                          Pitch.get(G_NATURAL, 5)))
+            .withMaxSpacing(1, Interval.get(12))
+            .withMaxSpacing(2, Interval.get(12));
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets the constraints of a number of voices, given the range of each from the lowest voice to the highest. The
+     * spacing of voices is unlimited, any chord tone may be in the bass, and every chord tone must be sounded.
+     * @param lows the lowest pitch of each voice, from the lowest voice up
+     * @param highs the highest pitch of each voice, from the lowest voice up
+     * @return the constraints of these voices
+     */
+    public static @NotNull VoicingConstraints get(@NotNull List<Pitch> lows, @NotNull List<Pitch> highs) {
+        if(lows.isEmpty() || lows.size() != highs.size()) {
+            throw Log.error("VoicingConstraints", "There must be a low and a high pitch for every voice!");
+        }
+        int[] lowValues = new int[lows.size()];
+        int[] highValues = new int[highs.size()];
+        for(int voice = 0; voice < lowValues.length; voice++) {
+            lowValues[voice] = lows.get(voice).getValue();
+            highValues[voice] = highs.get(voice).getValue();
+        }
+        int[] maxSpacings = new int[lowValues.length - 1];
+        Arrays.fill(maxSpacings, UNLIMITED);
+        return new VoicingConstraints(lowValues, highValues, maxSpacings, -1, lowValues.length, 0, 0);
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The value of the lowest pitch of each voice */
+    private final int[] lows;
+    /** The value of the highest pitch of each voice */
+    private final int[] highs;
+    /** The largest number of half steps between each voice and the voice above it */
+    private final int[] maxSpacings;
+    /** The value of the pitch class required in the bass, or -1 if any chord tone may be */
+    private final int bass;
+    /** The largest number of voices which may share one pitch class */
+    private final int maxDoublings;
+    /** A bitmask of the interval classes above the root which may be left out */
+    private final int optional;
+    /** A bitmask of the interval classes above the root which may not be doubled */
+    private final int undoubled;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A private constructor for voicing constraints (use get() instead)
+     */
+    private VoicingConstraints(int[] lows, int[] highs, int[] maxSpacings, int bass, int maxDoublings, int optional,
+                               int undoubled) {
+        this.lows = lows;
+        this.highs = highs;
+        this.maxSpacings = maxSpacings;
+        this.bass = bass;
+        this.maxDoublings = maxDoublings;
+        this.optional = optional;
+        this.undoubled = undoubled;
+    }
+    /**
+     * Returns these constraints with a limit on the distance between a voice and the voice above it
+     * @param voice the lower of the two voices, where 0 is the lowest voice
+     * @param interval the largest allowed distance between these voices
+     * @return the new constraints
+     */
+    public @NotNull VoicingConstraints withMaxSpacing(int voice, @NotNull Interval interval) {
+        if(voice < 0 || voice >= maxSpacings.length) {
+            throw Log.error("VoicingConstraints", "There is no voice " + voice + " with a voice above it!");
+        }
+        int[] newMaxSpacings = maxSpacings.clone();
+        newMaxSpacings[voice] = interval.getSize();
+        return new VoicingConstraints(lows, highs, newMaxSpacings, bass, maxDoublings, optional, undoubled);
+    }
+    /**
+     * Returns these constraints with a given pitch class required in the bass
+     * @param pitchClass the pitch class of the bass
+     * @return the new constraints
+     */
+    public @NotNull VoicingConstraints withBass(@NotNull PitchClass pitchClass) {
+        return new VoicingConstraints(lows, highs, maxSpacings, pitchClass.getValue(), maxDoublings, optional,
+                                      undoubled);
+    }
+    /**
+     * Returns these constraints with a limit on how many voices may share one pitch class
+     * @param maxDoublings the largest number of voices which may share a pitch class
+     * @return the new constraints
+     */
+    public @NotNull VoicingConstraints withMaxDoublings(int maxDoublings) {
+        return new VoicingConstraints(lows, highs, maxSpacings, bass, maxDoublings, optional, undoubled);
+    }
+    /**
+     * Returns these constraints with some chord tones allowed to be left out, such as the fifth
+     * @param factors the chord tones (as interval classes above the root) which may be left out
+     * @return the new constraints
+     */
+    public @NotNull VoicingConstraints withOptional(@NotNull IntervalClass... factors) {
+        return new VoicingConstraints(lows, highs, maxSpacings, bass, maxDoublings, optional | toMask(factors),
+                                      undoubled);
+    }
+    /**
+     * Returns these constraints with some chord tones forbidden from being doubled, such as the third
+     * @param factors the chord tones (as interval classes above the root) which may not be doubled
+     * @return the new constraints
+     */
+    public @NotNull VoicingConstraints withUndoubled(@NotNull IntervalClass... factors) {
+        return new VoicingConstraints(lows, highs, maxSpacings, bass, maxDoublings, optional,
+                                      undoubled | toMask(factors));
+    }
+    private static int toMask(IntervalClass[] factors) {
+        int mask = 0;
+        for(IntervalClass factor : factors) {
+            mask |= 1 << factor.getSize();
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the number of voices under these constraints
+     * @return the number of voices
+     */
+    public int getNumVoices() {
+        return lows.length;
+    }
+    /**
+     * Gets the lowest pitch of a voice
+     * @param voice the voice, where 0 is the lowest voice
+     * @return the lowest pitch of this voice
+     */
+    public @NotNull Pitch getLow(int voice) {
+        return toPitch(lows[voice]);
+    }
+    /**
+     * Gets the highest pitch of a voice
+     * @param voice the voice, where 0 is the lowest voice
+     * @return the highest pitch of this voice
+     */
+    public @NotNull Pitch getHigh(int voice) {
+        return toPitch(highs[voice]);
+    }
+    static @NotNull Pitch toPitch(int value) {
+        return Pitch.get(PitchClass.get(value % PitchClass.TOTAL_NUM), value / PitchClass.TOTAL_NUM - 1);
+    }
+
+    // Package-private accessors for the voicing enumerator
+    int lowValue(int voice) {
+        return lows[voice];
+    }
+    int highValue(int voice) {
+        return highs[voice];
+    }
+    int maxSpacing(int voice) {
+        return maxSpacings[voice];
+    }
+    int bassValue() {
+        return bass;
+    }
+    int maxDoublings() {
+        return maxDoublings;
+    }
+    int optionalMask() {
+        return optional;
+    }
+    int undoubledMask() {
+        return undoubled;
+    }
+
+    /**
+     * Checks if these constraints are equal to another object
+     * @return if these constraints are equal to another
+     */
+    @Override
+    public boolean equals(Object object) {
+        if(this == object) return true;
+        if(!(object instanceof VoicingConstraints)) return false;
+        VoicingConstraints other = (VoicingConstraints) object;
+        return bass == other.bass && maxDoublings == other.maxDoublings && optional == other.optional
+                && undoubled == other.undoubled && Arrays.equals(lows, other.lows) && Arrays.equals(highs, other.highs)
+                && Arrays.equals(maxSpacings, other.maxSpacings);
+    }
+    /**
+     * A hash code of these constraints
+     * @return the hash code for these constraints
+     */
+    @Override
+    public int hashCode() {
+        int hash = Arrays.hashCode(lows);
+        hash = 31 * hash + Arrays.hashCode(highs);
+        hash = 31 * hash + Arrays.hashCode(maxSpacings);
+        hash = 31 * hash + bass;
+        hash = 31 * hash + maxDoublings;
+        hash = 31 * hash + optional;
+        return 31 * hash + undoubled;
+    }
+}
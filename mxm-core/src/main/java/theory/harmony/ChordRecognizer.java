@@ -0,0 +1,209 @@
+package theory.harmony;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import properties.sound.Chord;
+import properties.sound.ChordClass;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import theory.composite.Sonority;
+
+import java.util.*;
+
+import static properties.sound.ChordClass.*;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * The chord recognizer goes from sounding pitch classes back to the {@link Chord}s that might name them, such as from
+ * C, E, G and A to both C6 and Am7. Interpretations are ranked- first the named chords of a fixed vocabulary which
+ * match exactly, then those which match up to a tolerance (with tones missing from or added to the chord), and last
+ * the literal, unnamed chord classes built above each sounding pitch class.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * Recognition is a table lookup. An inverted index from every one of the 4096 harmony bitmasks to its ranked
+ * interpretations is built once, when this class is first used. Each interpretation is packed into a single int whose
+ * natural ordering is its rank, so that the index is no more than one sorted int array per bitmask. The bass-aware
+ * variant for {@link Sonority} only reorders the few interpretations which the harmony's lookup returns.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class ChordRecognizer {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The largest number of pitch classes by which an interpretation may differ from the sounding harmony */
+    public static final int MAX_TOLERANCE = 2;
+    /** The named chord classes, from most to least preferred */
+    private static final ChordClass[] VOCABULARY = {
+            MAJOR, MINOR, DOM_SEVENTH, MIN_SEVENTH, MAJ_SEVENTH, HALF_DIM_SEVENTH, DIM_SEVENTH, DIMINISHED, AUGMENTED,
+            MAJ_SIXTH, MIN_SIXTH, MINOR_MAJOR_SEVENTH, AUG_SEVENTH, SUSPENDED_FOURTH, SUSPENDED_SECOND, DOM_NINTH,
+            MAJOR_NINTH, MINOR_NINTH, DOMINANT_ELEVENTH, MAJOR_ELEVENTH, MINOR_ELEVENTH, DOMINANT_THIRTEENTH,
+            MAJOR_THIRTEENTH, MINOR_THIRTEENTH, POWER_CHORD
+    };
+    /** The lowest bits of an interpretation hold its root and chord class, as they are packed in the chord table */
+    private static final int CHORD_BITS = 16;
+    /** Above those is the place of its chord class in the vocabulary */
+    private static final int RANK_SHIFT = CHORD_BITS;
+    /** Above that is set if the root of the chord is not sounding */
+    private static final int ROOTLESS_SHIFT = RANK_SHIFT + 5;
+    /** And highest is its tier- its distance from the harmony if it is named, or one past the tolerance if not */
+    private static final int TIER_SHIFT = ROOTLESS_SHIFT + 1;
+    /** The tier of literal interpretations, which are exact but unnamed */
+    private static final int LITERAL_TIER = MAX_TOLERANCE + 1;
+    /** The ranked interpretations of every harmony bitmask */
+    private static final int[][] INDEX = new int[Harmony.TOTAL_NUM][];
+    // Initializes the "INDEX" table
+    static {
+        // Keep track of the start time to know how long initialization takes
+        long startTime = System.nanoTime();
+
+        // Collect the named interpretations of every bitmask, by removing or adding up to MAX_TOLERANCE pitch classes
+        // to every named chord
+        int[][] interpretations = new int[Harmony.TOTAL_NUM][8];
+        int[] sizes = new int[Harmony.TOTAL_NUM];
+        int[] flips = new int[Harmony.TOTAL_NUM];
+        int numFlips = 0;
+        boolean[] named = new boolean[ChordClass.TOTAL_NUM];
+        for(int flipped = 0; flipped < Harmony.TOTAL_NUM; flipped++) {
+            if(Integer.bitCount(flipped) <= MAX_TOLERANCE) flips[numFlips++] = flipped;
+        }
+        flips = Arrays.copyOf(flips, numFlips);
+        for(int rank = 0; rank < VOCABULARY.length; rank++) {
+            named[VOCABULARY[rank].getID()] = true;
+            for(int root = 0; root < PitchClass.TOTAL_NUM; root++) {
+                int chordVal = root * ChordClass.TOTAL_NUM + VOCABULARY[rank].getID();
+                int chordMask = Harmony.rotate(VOCABULARY[rank].getID() | 1, root);
+                for(int flipped : flips) {
+                    int distance = Integer.bitCount(flipped);
+                    // Only pure subsets (removed tones) and pure supersets (added tones) are interpretations
+                    int id = chordMask ^ flipped;
+                    if(id != 0 && ((flipped & chordMask) == 0 || (flipped & ~chordMask) == 0)) {
+                        int rootless = (id >> root) & 1 ^ 1;
+                        add(interpretations, sizes, id, (distance << TIER_SHIFT) | (rootless << ROOTLESS_SHIFT)
+                                                         | (rank << RANK_SHIFT) | chordVal);
+                    }
+                }
+            }
+        }
+        // Then add the literal chord class above every sounding pitch class, unless it is named
+        for(int id = 1; id < Harmony.TOTAL_NUM; id++) {
+            for(int mask = id; mask != 0; mask &= mask - 1) {
+                int root = Integer.numberOfTrailingZeros(mask);
+                int chordClassId = Harmony.rotate(id, (PitchClass.TOTAL_NUM - root) % PitchClass.TOTAL_NUM) & ~1;
+                if(!named[chordClassId]) {
+                    add(interpretations, sizes, id, (LITERAL_TIER << TIER_SHIFT)
+                                                     | (root * ChordClass.TOTAL_NUM + chordClassId));
+                }
+            }
+        }
+        // Sort each bitmask's interpretations into rank order
+        for(int id = 0; id < Harmony.TOTAL_NUM; id++) {
+            INDEX[id] = Arrays.copyOf(interpretations[id], sizes[id]);
+            Arrays.sort(INDEX[id]);
+        }
+
+        // Log the initialization
+        Log.logStaticInit("Chord recognizer", Arrays.asList(VOCABULARY), System.nanoTime() - startTime);
+    }
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Finds the best interpretation of a harmony as a chord
+     * @param harmony the sounding harmony
+     * @return the best chord for this harmony, or null if the harmony is empty
+     */
+    public static @Nullable Chord recognize(@NotNull Harmony harmony) {
+        int[] interpretations = INDEX[harmony.getID()];
+        return interpretations.length == 0 ? null : toChord(interpretations[0]);
+    }
+    /**
+     * Finds every interpretation of a harmony as a chord within a given tolerance, in rank order. Named chords which
+     * differ from the harmony by up to tolerance pitch classes come first, nearest first, followed by the literal
+     * chord classes above each sounding pitch class.
+     * @param harmony the sounding harmony
+     * @param tolerance the largest number of pitch classes (up to {@link #MAX_TOLERANCE}) which may be missing from or
+     *                  added to a named chord
+     * @return a ranked list of chords for this harmony
+     */
+    public static @NotNull List<Chord> recognize(@NotNull Harmony harmony, int tolerance) {
+        return rank(harmony, tolerance, -1);
+    }
+    /**
+     * Finds the best interpretation of a sonority as a chord, preferring a chord rooted on the bass where it is
+     * otherwise as good as any other (so that C, E, G and A over a C bass is C6 rather than Am7)
+     * @param sonority the sounding sonority
+     * @return the best chord for this sonority, or null if the sonority is empty
+     */
+    public static @Nullable Chord recognize(@NotNull Sonority sonority) {
+        List<Chord> chords = recognize(sonority, 0);
+        return chords.isEmpty() ? null : chords.get(0);
+    }
+    /**
+     * Finds every interpretation of a sonority as a chord within a given tolerance, in rank order, with the chords
+     * rooted on the bass moved ahead of the others of their tier
+     * @param sonority the sounding sonority
+     * @param tolerance the largest number of pitch classes (up to {@link #MAX_TOLERANCE}) which may be missing from or
+     *                  added to a named chord
+     * @return a ranked list of chords for this sonority
+     */
+    public static @NotNull List<Chord> recognize(@NotNull Sonority sonority, int tolerance) {
+        Pitch bass = sonority.getLowest();
+        return rank(sonority.getHarmony(), tolerance, bass == null ? -1 : bass.getPitchClass().getValue());
+    }
+
+    /**
+     * Reads a harmony's interpretations within a tolerance, moving those rooted on the bass (if there is one) ahead
+     * of the others of their tier
+     */
+    private static List<Chord> rank(Harmony harmony, int tolerance, int bass) {
+        if(tolerance < 0 || tolerance > MAX_TOLERANCE) {
+            throw Log.error("ChordRecognizer", "The tolerance must be between 0 and " + MAX_TOLERANCE + "!");
+        }
+        int[] interpretations = INDEX[harmony.getID()];
+        ArrayList<Chord> chords = new ArrayList<>(interpretations.length);
+        int start = 0;
+        while(start < interpretations.length) {
+            int tier = interpretations[start] >>> TIER_SHIFT;
+            int end = start;
+            while(end < interpretations.length && interpretations[end] >>> TIER_SHIFT == tier) end++;
+            if(tier <= tolerance || tier == LITERAL_TIER) {
+                for(int i = start; i < end; i++) {
+                    if(rootOf(interpretations[i]) == bass) chords.add(toChord(interpretations[i]));
+                }
+                for(int i = start; i < end; i++) {
+                    if(rootOf(interpretations[i]) != bass) chords.add(toChord(interpretations[i]));
+                }
+            }
+            start = end;
+        }
+        return chords;
+    }
+    /** Unpacks the root of an interpretation */
+    private static int rootOf(int interpretation) {
+        return (interpretation & ((1 << CHORD_BITS) - 1)) / ChordClass.TOTAL_NUM;
+    }
+    /** Unpacks the chord of an interpretation */
+    private static Chord toChord(int interpretation) {
+        int chordVal = interpretation & ((1 << CHORD_BITS) - 1);
+        return Chord.get(PitchClass.get(chordVal / ChordClass.TOTAL_NUM),
+                         ChordClass.get(chordVal % ChordClass.TOTAL_NUM));
+    }
+    /** Appends an interpretation to a bitmask's growing list */
+    private static void add(int[][] interpretations, int[] sizes, int id, int interpretation) {
+        if(sizes[id] == interpretations[id].length) {
+            interpretations[id] = Arrays.copyOf(interpretations[id], sizes[id] * 2);
+        }
+        interpretations[id][sizes[id]++] = interpretation;
+    }
+
+    /**
+     * A private constructor, as the chord recognizer is never instantiated
+     */
+    private ChordRecognizer() {}
+}
@@ -1,4 +1,457 @@
 package theory.harmony;
 
-public class Function {
+import events.sound.Note;
+import events.time.KeyChange;
+import form.part.Line;
+import form.score.LeadSheet;
+import form.timeline.ITimeline;
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import properties.sound.Chord;
+import properties.sound.ChordClass;
+import properties.sound.PitchClass;
+import properties.time.ITime;
+import theory.composite.Sonority;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A function is the role a {@link Chord} plays in a {@link Key}, written as a Roman numeral: the scale degree of its
+ * root (in upper case for chords with a major third, lower case for those with a minor third) and its quality, such
+ * as ii7, V7/V (a secondary dominant) or bVI (borrowed from the parallel minor). Every function also belongs to one
+ * of the three broad harmonic roles: tonic, predominant, or dominant.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * The function of a chord depends only on the mode of the key, the distance from the tonic to the root, and the
+ * chord's quality- extensions such as ninths are set aside, and a missing fifth is assumed. The function of every
+ * chord class over every root in both modes (2 x 12 x 4096) is therefore computed once, when this class is first
+ * used, and finding the function of any chord in any of the 24 keys is a single read of a short array. Functions are
+ * flyweights, and there is exactly one instance of each.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class Function {
+
+    /**
+     * The broad harmonic roles a function may play
+     */
+    public enum Role {
+        TONIC, PREDOMINANT, DOMINANT;
+
+        /**
+         * Returns the usual abbreviation of this role
+         * @return T, PD, or D
+         */
+        @Override
+        public @NotNull String toString() {
+            switch(this) {
+                case TONIC:       return "T";
+                case PREDOMINANT: return "PD";
+                default:          return "D";
+            }
+        }
+    }
+
+    /**
+     * The qualities of chord which may be given a Roman numeral, by the intervals above their root
+     */
+    private enum Quality {
+        MAJOR(ChordClass.MAJOR, true, ""),
+        MINOR(ChordClass.MINOR, false, ""),
+        DIMINISHED(ChordClass.DIMINISHED, false, "\u00B0"),
+        AUGMENTED(ChordClass.AUGMENTED, true, "+"),
+        DOM_SEVENTH(ChordClass.DOM_SEVENTH, true, "7"),
+        MAJ_SEVENTH(ChordClass.MAJ_SEVENTH, true, "maj7"),
+        MIN_SEVENTH(ChordClass.MIN_SEVENTH, false, "7"),
+        HALF_DIM_SEVENTH(ChordClass.HALF_DIM_SEVENTH, false, "\u00F87"),
+        DIM_SEVENTH(ChordClass.DIM_SEVENTH, false, "\u00B07"),
+        MINOR_MAJOR_SEVENTH(ChordClass.MINOR_MAJOR_SEVENTH, false, "maj7"),
+        AUG_SEVENTH(ChordClass.AUG_SEVENTH, true, "+7");
+
+        private final ChordClass chordClass;
+        private final boolean upperCase;
+        private final String suffix;
+
+        Quality(ChordClass chordClass, boolean upperCase, String suffix) {
+            this.chordClass = chordClass;
+            this.upperCase = upperCase;
+            this.suffix = suffix;
+        }
+        /** If chords of this quality may be the dominant of another chord */
+        boolean isDominant() {
+            return this == MAJOR || this == DOM_SEVENTH;
+        }
+        /** If chords of this quality may be the leading-tone chord of another chord */
+        boolean isLeadingTone() {
+            return this == DIMINISHED || this == HALF_DIM_SEVENTH || this == DIM_SEVENTH;
+        }
+    }
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The Roman numeral of each scale degree */
+    private static final String[] NUMERALS = { "I", "II", "III", "IV", "V", "VI", "VII" };
+    /** The role of the chord on each scale degree */
+    private static final Role[] ROLES = {
+            Role.TONIC, Role.PREDOMINANT, Role.TONIC, Role.PREDOMINANT, Role.DOMINANT, Role.TONIC, Role.DOMINANT
+    };
+    /** The pitch classes of the major and natural minor scales above their tonic, by degree */
+    private static final int[][] SCALES = { { 0, 2, 4, 5, 7, 9, 11 }, { 0, 2, 3, 5, 7, 8, 10 } };
+    /** The degree of each pitch class above the tonic in each mode, or -1 for those outside it (in minor, both the
+     * subtonic and the leading tone are the seventh degree) */
+    private static final int[][] DEGREES = {
+            { 0, -1, 1, -1, 2, 3, -1, 4, -1, 5, -1, 6 }, { 0, -1, 1, 2, -1, 3, -1, 4, 5, -1, 6, 6 }
+    };
+    /** The pitch classes of the chords native to each mode: the major scale, and the natural minor scale */
+    private static final int[] COLLECTIONS = { 0b1010_1011_0101, 0b0101_1010_1101 };
+    /** The leading tone, which is native to the minor mode only in chords on the fifth and seventh degrees */
+    private static final int LEADING_TONE = 11;
+    /** The bits of the chord-class mask for each interval above the root used in finding a chord's quality */
+    private static final int MAJ_2ND = 1 << 2, MIN_3RD = 1 << 3, MAJ_3RD = 1 << 4, PERF_4TH = 1 << 5, TRITONE = 1 << 6,
+            PERF_5TH = 1 << 7, MIN_6TH = 1 << 8, MAJ_6TH = 1 << 9, MIN_7TH = 1 << 10, MAJ_7TH = 1 << 11;
+
+    /** Every function, by id */
+    private static final List<Function> ALL = new ArrayList<>();
+    /** The function of every chord class over every root in each mode, as one more than its id (or 0 for none),
+     * indexed by ((mode * 12) + root above the tonic) * 4096 + chord class */
+    private static final short[] TABLE = new short[Key.Mode.values().length * PitchClass.TOTAL_NUM * ChordClass.TOTAL_NUM];
+    // Initializes the function table
+    static {
+        // Keep track of the start time to know how long initialization takes
+        long startTime = System.nanoTime();
+
+        Map<String, Function> byLabel = new HashMap<>();
+        Quality[] qualities = Quality.values();
+        Quality[] qualityOf = new Quality[ChordClass.TOTAL_NUM];
+        for(int chordClass = 0; chordClass < ChordClass.TOTAL_NUM; chordClass++) {
+            qualityOf[chordClass] = qualityOf(chordClass);
+        }
+        for(Key.Mode mode : Key.Mode.values()) {
+            for(int root = 0; root < PitchClass.TOTAL_NUM; root++) {
+                // Each quality over this root has one function, shared by all of its chord classes
+                short[] entries = new short[qualities.length];
+                for(Quality quality : qualities) {
+                    Function function = analyze(mode.ordinal(), root, quality, byLabel);
+                    entries[quality.ordinal()] = (short) (function == null ? 0 : function.id + 1);
+                }
+                int offset = (mode.ordinal() * PitchClass.TOTAL_NUM + root) * ChordClass.TOTAL_NUM;
+                for(int chordClass = 0; chordClass < ChordClass.TOTAL_NUM; chordClass++) {
+                    Quality quality = qualityOf[chordClass];
+                    if(quality != null) TABLE[offset + chordClass] = entries[quality.ordinal()];
+                }
+            }
+        }
+
+        // Log the initialization
+        Log.logStaticInit("Function", ALL, System.nanoTime() - startTime);
+    }
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets the function of a chord in a key
+     * @param key the key
+     * @param chord the chord
+     * @return the function of this chord in this key, or null if it has no clear function (such as a chord without a
+     * third, or a chromatic chord which is neither borrowed nor a secondary dominant)
+     */
+    public static @Nullable Function get(@NotNull Key key, @NotNull Chord chord) {
+        int root = (chord.getRoot().getValue() - key.getTonic().getValue() + PitchClass.TOTAL_NUM) % PitchClass.TOTAL_NUM;
+        int entry = TABLE[(key.getMode().ordinal() * PitchClass.TOTAL_NUM + root) * ChordClass.TOTAL_NUM
+                          + chord.getChordClass().getID()];
+        return entry == 0 ? null : ALL.get(entry - 1);
+    }
+    /**
+     * Returns an immutable collection of every function
+     * @return an immutable collection of every function
+     */
+    public static @NotNull Collection<Function> all() {
+        return Collections.unmodifiableList(ALL);
+    }
+
+    /**
+     * Labels a sequence of chords in one key, in a single pass
+     * @param key the key
+     * @param chords the chords
+     * @return the function of each chord, in order, with null for those without a clear function
+     */
+    public static @NotNull List<Function> labelChords(@NotNull Key key, @NotNull Iterable<Chord> chords) {
+        List<Function> functions = new ArrayList<>();
+        for(Chord chord : chords) {
+            functions.add(get(key, chord));
+        }
+        return functions;
+    }
+    /**
+     * Labels a sequence of vertical slices in one key, in a single pass, by recognizing the chord of each slice
+     * @param key the key
+     * @param slices the vertical slices, such as the sonorities at each beat of a chorale
+     * @return the function of each slice, in order, with null for those without a chord or a clear function
+     */
+    public static @NotNull List<Function> labelSlices(@NotNull Key key, @NotNull Iterable<Sonority> slices) {
+        List<Function> functions = new ArrayList<>();
+        for(Sonority slice : slices) {
+            Chord chord = ChordRecognizer.recognize(slice);
+            functions.add(chord == null ? null : get(key, chord));
+        }
+        return functions;
+    }
+    /**
+     * Labels the changes of a lead sheet against a timeline of keys (such as that found by the {@link KeyFinder}), in
+     * a single pass over both. Each chord is labelled in the last key to begin at or before it, and chords before the
+     * first change of key are labelled in the first key.
+     * @param keys the timeline of key changes
+     * @param changes the changes, such as {@link LeadSheet#getChanges()}
+     * @return the function of each chord, in order, with null for those without a clear function
+     */
+    public static @NotNull List<Function> label(@NotNull ITimeline<KeyChange> keys, @NotNull Line<Chord> changes) {
+        List<Function> functions = new ArrayList<>();
+        Iterator<KeyChange> keyChanges = keys.iterator();
+        if(!keyChanges.hasNext()) {
+            for(Note<Chord> ignored : changes.getNotes()) functions.add(null);
+            return functions;
+        }
+        KeyChange current = keyChanges.next();
+        KeyChange next = keyChanges.hasNext() ? keyChanges.next() : null;
+        for(Note<Chord> note : changes.getNotes()) {
+            ITime time = note.getStart();
+            while(next != null && next.getTime().compareTo(time) <= 0) {
+                current = next;
+                next = keyChanges.hasNext() ? keyChanges.next() : null;
+            }
+            functions.add(get(current.getKey(), note.getSound()));
+        }
+        return functions;
+    }
+    /**
+     * Labels the changes of every lead sheet of a corpus in parallel, first finding the local key of each with the
+     * {@link KeyFinder}
+     * @param corpus the lead sheets
+     * @param window the length of the key finder's window, such as two measures
+     * @param step the time between the key finder's steps, such as a beat
+     * @return the functions of the changes of each lead sheet, in the same order as the corpus
+     */
+    public static @NotNull List<List<Function>> label(@NotNull Collection<LeadSheet> corpus, @NotNull ITime window,
+                                                      @NotNull ITime step) {
+        return new ArrayList<>(corpus).parallelStream()
+                .map(leadSheet -> label(KeyFinder.findKeys(leadSheet, window, step), leadSheet.getChanges()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the quality of a chord class, setting aside extensions and assuming a missing fifth
+     * @param chordClass the mask of the chord class
+     * @return the quality of this chord class, or null if it has none (such as a chord without a third)
+     */
+    private static @Nullable Quality qualityOf(int chordClass) {
+        int third, fifth, seventh = 0;
+        if((chordClass & MAJ_3RD) != 0) third = MAJ_3RD;
+        else if((chordClass & MIN_3RD) != 0) third = MIN_3RD;
+        // A suspended chord with a minor seventh acts as a dominant seventh
+        else if((chordClass & (MAJ_2ND | PERF_4TH)) != 0 && (chordClass & MIN_7TH) != 0) return Quality.DOM_SEVENTH;
+        else return null;
+        if((chordClass & PERF_5TH) != 0) fifth = PERF_5TH;
+        else if(third == MIN_3RD && (chordClass & TRITONE) != 0) fifth = TRITONE;
+        else if(third == MAJ_3RD && (chordClass & MIN_6TH) != 0) fifth = MIN_6TH;
+        else fifth = PERF_5TH;
+        if((chordClass & MIN_7TH) != 0) seventh = MIN_7TH;
+        else if((chordClass & MAJ_7TH) != 0) seventh = MAJ_7TH;
+        else if(third == MIN_3RD && fifth == TRITONE && (chordClass & MAJ_6TH) != 0) seventh = MAJ_6TH;
+        int core = third | fifth | seventh;
+        for(Quality quality : Quality.values()) {
+            if(quality.chordClass.getID() == core) return quality;
+        }
+        return null;
+    }
+    /**
+     * Finds the function of a chord of a given quality over a given root in a given mode: diatonic if all its pitch
+     * classes are native to the key, otherwise borrowed from the parallel key or a secondary dominant (trying the
+     * secondary reading first for diminished chords, which nearly always lead to something), or the Neapolitan.
+     * @return the function, or null if it has none
+     */
+    private static @Nullable Function analyze(int mode, int root, Quality quality, Map<String, Function> byLabel) {
+        int pitchClasses = Harmony.rotate(quality.chordClass.getID() | 1, root);
+        int[] scale = SCALES[mode];
+
+        // Diatonic
+        int degree = DEGREES[mode][root];
+        int collection = COLLECTIONS[mode];
+        if(mode == Key.Mode.MINOR.ordinal() && (degree == 4 || degree == 6)) collection |= 1 << LEADING_TONE;
+        if((pitchClasses & ~collection) == 0 && degree >= 0) {
+            return function(numeral(degree, quality, ""), ROLES[degree], root, quality, false, false, byLabel);
+        }
+        Function secondary = secondary(mode, root, quality, byLabel);
+        if(secondary != null && quality.isLeadingTone()) return secondary;
+        // Borrowed from the parallel key, named by its degree there with any accidental needed in this key
+        int parallel = 1 - mode;
+        int borrowedDegree = degreeOf(root, SCALES[parallel]);
+        if((pitchClasses & ~scaleMask(SCALES[parallel])) == 0 && borrowedDegree >= 0) {
+            int difference = root - scale[borrowedDegree];
+            String accidental = difference < 0 ? "b" : difference > 0 ? "#" : "";
+            return function(numeral(borrowedDegree, quality, accidental), ROLES[borrowedDegree], root, quality,
+                            false, true, byLabel);
+        }
+        if(secondary != null) return secondary;
+        // The Neapolitan, a major chord on the lowered second degree
+        if(root == 1 && (quality == Quality.MAJOR || quality == Quality.MAJ_SEVENTH)) {
+            return function(numeral(1, quality, "b"), Role.PREDOMINANT, root, quality, false, true, byLabel);
+        }
+        return null;
+    }
+    /**
+     * Finds the function of a chord as the dominant or leading-tone chord of a diatonic major or minor triad
+     * @return the secondary function, or null if the chord is not one
+     */
+    private static @Nullable Function secondary(int mode, int root, Quality quality, Map<String, Function> byLabel) {
+        String numeral;
+        int target;
+        if(quality.isDominant()) {
+            numeral = numeral(4, quality, "");
+            target = (root + 5) % PitchClass.TOTAL_NUM;
+        } else if(quality.isLeadingTone()) {
+            numeral = numeral(6, quality, "");
+            target = (root + 1) % PitchClass.TOTAL_NUM;
+        } else {
+            return null;
+        }
+        int[] scale = SCALES[mode];
+        int targetDegree = degreeOf(target, scale);
+        if(targetDegree <= 0) return null;
+        // The target must be a consonant triad, named in its own case; in minor, the dominant takes the leading tone
+        int thirdPitch = mode == Key.Mode.MINOR.ordinal() && targetDegree == 4 ? LEADING_TONE
+                : scale[(targetDegree + 2) % 7];
+        int third = (thirdPitch - target + PitchClass.TOTAL_NUM) % PitchClass.TOTAL_NUM;
+        int fifth = (scale[(targetDegree + 4) % 7] - target + PitchClass.TOTAL_NUM) % PitchClass.TOTAL_NUM;
+        if(fifth != 7) return null;
+        String targetNumeral = third == 4 ? NUMERALS[targetDegree] : NUMERALS[targetDegree].toLowerCase();
+        return function(numeral + "/" + targetNumeral, Role.DOMINANT, root, quality, true, false, byLabel);
+    }
+    private static int degreeOf(int pitchClass, int[] scale) {
+        for(int degree = 0; degree < scale.length; degree++) {
+            if(scale[degree] == pitchClass) return degree;
+        }
+        return -1;
+    }
+    private static int scaleMask(int[] scale) {
+        int mask = 0;
+        for(int pitchClass : scale) mask |= 1 << pitchClass;
+        return mask;
+    }
+    private static String numeral(int degree, Quality quality, String accidental) {
+        String numeral = quality.upperCase ? NUMERALS[degree] : NUMERALS[degree].toLowerCase();
+        return accidental + numeral + quality.suffix;
+    }
+    /**
+     * Gets the one function of a label and root, creating it if it has not been seen
+     */
+    private static Function function(String numeral, Role role, int root, Quality quality, boolean secondary,
+                                     boolean borrowed, Map<String, Function> byLabel) {
+        String label = numeral + (borrowed ? " (borrowed)" : "") + " " + role + " " + root;
+        return byLabel.computeIfAbsent(label, unused -> {
+            Function function = new Function(ALL.size(), numeral, role, root, quality.chordClass, secondary, borrowed);
+            ALL.add(function);
+            return function;
+        });
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The id of this function */
+    private final int id;
+    /** The Roman numeral of this function, such as "V7/ii" */
+    private final String numeral;
+    /** The broad role of this function */
+    private final Role role;
+    /** The number of half steps from the tonic up to the root */
+    private final int root;
+    /** The quality of the chord, without extensions */
+    private final ChordClass chordClass;
+    /** If this is a secondary (applied) chord */
+    private final boolean secondary;
+    /** If this chord is borrowed from another mode */
+    private final boolean borrowed;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A private constructor for a function, which is only called during static initialization
+     */
+    private Function(int id, @NotNull String numeral, @NotNull Role role, int root, @NotNull ChordClass chordClass,
+                     boolean secondary, boolean borrowed) {
+        this.id = id;
+        this.numeral = numeral;
+        this.role = role;
+        this.root = root;
+        this.chordClass = chordClass;
+        this.secondary = secondary;
+        this.borrowed = borrowed;
+    }
+    /**
+     * Gets the id of this function
+     * @return the id of this function
+     */
+    public int getID() {
+        return id;
+    }
+    /**
+     * Gets the Roman numeral of this function
+     * @return the Roman numeral of this function, such as "V7/ii" or "bVI"
+     */
+    public @NotNull String getNumeral() {
+        return numeral;
+    }
+    /**
+     * Gets the broad role of this function
+     * @return tonic, predominant, or dominant
+     */
+    public @NotNull Role getRole() {
+        return role;
+    }
+    /**
+     * Gets the root of this function above the tonic of its key
+     * @return the number of half steps from the tonic up to the root
+     */
+    public int getRootAboveTonic() {
+        return root;
+    }
+    /**
+     * Gets the quality of the chord of this function, without extensions
+     * @return the chord class of this function, such as a dominant seventh
+     */
+    public @NotNull ChordClass getChordClass() {
+        return chordClass;
+    }
+    /**
+     * Checks if this is a secondary (applied) chord, such as V/V
+     * @return if this is a secondary chord
+     */
+    public boolean isSecondary() {
+        return secondary;
+    }
+    /**
+     * Checks if this chord is borrowed from another mode, such as iv in a major key
+     * @return if this chord is borrowed
+     */
+    public boolean isBorrowed() {
+        return borrowed;
+    }
+    /**
+     * Returns the Roman numeral of this function
+     * @return the Roman numeral of this function
+     */
+    @Override
+    public @NotNull String toString() {
+        return numeral;
+    }
 }
@@ -20,22 +20,23 @@ import java.util.*;
  * This class is <i>immutable</i> and implements the <b>flyweight design pattern</b>- there is exactly one instance for
  * each value such that two ADTs (Abstract Data Types) with the same value are, in fact, the same instance. This
  * simplifies equality checks and can prevent memory waste. Unlike the <b>interning design pattern</b>, all possible
- * instances are created upfront during static initialization.
+ * instances are created upfront during static initialization. Each instance holds nothing but its bitmask, and its
+ * constituent sound classes are computed from that bitmask on demand.</p>
  *
  * @author Patrick Celentano
  */
 public class Harmony {
 
-    /** The total number of chord classes */
-    public static final int TOTAL_NUM = 2 << PitchClass.TOTAL_NUM;
-    /** A static array of all possible interval classes, stored to implement the flyweight pattern */
+    /** The total number of harmonies */
+    public static final int TOTAL_NUM = 1 << PitchClass.TOTAL_NUM;
+    /** A static array of all possible harmonies, stored to implement the flyweight pattern */
     private static final Harmony[] ALL;
     // Initializes the "ALL" array
     static {
         // Keep track of the start time to know how long initialization takes
         long startTime = System.nanoTime();
 
-        // Initialize all interval classes
+        // Initialize all harmonies, each of which is nothing more than its bitmask
         ALL = new Harmony[TOTAL_NUM];
         for(int val = 0; val < TOTAL_NUM; val++) {
             ALL[val] = new Harmony(val);
@@ -61,18 +62,18 @@ public class Harmony {
         return Arrays.asList(ALL).iterator();
     }
     /**
-     * Gets an instance of a given harmony. This method enforces the flyweight design pattern per noise.
+     * Gets an instance of a given harmony. This method enforces the flyweight design pattern per harmony.
      * @param id The id of this harmony, which is a special bitmask of all the sound classes
      * @return A harmony with this id
      */
-    private static @NotNull Harmony get(int id) {
-        if(id < TOTAL_NUM) {
+    public static @NotNull Harmony get(int id) {
+        if(id >= 0 && id < TOTAL_NUM) {
             return ALL[id];
         }
         else throw Log.error("Harmony","This id (" + id + ") does not exist!");
     }
     /**
-     * Gets an instance of a given harmony. This method enforces the flyweight design pattern per noise.
+     * Gets an instance of a given harmony. This method enforces the flyweight design pattern per harmony.
      * @param pitchClasses All of the sound classes in this harmony
      * @return A harmony with these sound classes
      */
@@ -85,7 +86,7 @@ public class Harmony {
         return get(pitchClassMask);
     }
     /**
-     * Gets an instance of a given harmony. This method enforces the flyweight design pattern per noise.
+     * Gets an instance of a given harmony. This method enforces the flyweight design pattern per harmony.
      * @param pitchClasses All of the sound classes in this harmony
      * @return A harmony with these sound classes
      */
@@ -102,10 +103,8 @@ public class Harmony {
     // Member variables         //
     //////////////////////////////
 
-    /** All factors of this Chord. */
+    /** The bitmask of all sound classes in this harmony, which is also its identity. */
     private final int id;
-    /** All factors of this Harmony. */
-    private final HashSet<PitchClass> pitchClasses;
 
     //////////////////////////////
     // Member methods           //
@@ -118,20 +117,41 @@ public class Harmony {
      */
     private Harmony(int id) {
         this.id = id;
-        // We use some fun bit-math in order to generate all permutations of sound classes
-        this.pitchClasses = new HashSet<>();
-        for(int pcVal = PitchClass.MIN_VALUE; pcVal < PitchClass.MAX_VALUE; pcVal++) {
-            if(((id >> (pcVal + IntervalClass.MIN_SIZE)) & 1) == 1)
-                pitchClasses.add(PitchClass.get(pcVal));
-        }
     }
     /**
-     * A getter for the id of this chord class, which is a unique identifier for this harmony.
+     * A getter for the id of this harmony, which is a unique identifier for this harmony.
      * @return the unique id of this harmony
      */
     public final int getID() {
         return id;
     }
+    /**
+     * Checks if a given sound class is in this harmony
+     * @param pitchClass the sound class to look for
+     * @return if this sound class is in this harmony
+     */
+    public final boolean contains(@NotNull PitchClass pitchClass) {
+        return ((id >> pitchClass.getValue()) & 1) == 1;
+    }
+    /**
+     * Gets all the sound classes in this harmony, in ascending order from C. Note that this list is computed from the
+     * bitmask on every call, so prefer {@link #contains(PitchClass)} or {@link #getID()} in tight loops.
+     * @return an unmodifiable list of the sound classes in this harmony
+     */
+    public final @NotNull List<PitchClass> getPitchClasses() {
+        ArrayList<PitchClass> pitchClasses = new ArrayList<>(Integer.bitCount(id));
+        for(int mask = id; mask != 0; mask &= mask - 1) {
+            pitchClasses.add(PitchClass.get(Integer.numberOfTrailingZeros(mask)));
+        }
+        return Collections.unmodifiableList(pitchClasses);
+    }
+    /**
+     * Gets the number of sound classes in this harmony
+     * @return the number of sound classes in this harmony
+     */
+    public final int size() {
+        return Integer.bitCount(id);
+    }
     /**
      * Returns a harmony that is the sum of this harmony and another. Note that this simply combines their constituent
      * sound classes into another, with overlapping meaning nothing.
@@ -139,7 +159,7 @@ public class Harmony {
      * @return a new harmony that is the sum of this and other
      */
     public final @NotNull Harmony plus(@NotNull Harmony other) {
-        return get(this.id & other.id);
+        return ALL[this.id | other.id];
     }
     /**
      * Returns a harmony that is the difference of this harmony and another. Note that this simply subtracts the
@@ -148,7 +168,160 @@ public class Harmony {
      * @return a new harmony that is the difference between this and other
      */
     public final @NotNull Harmony minus(@NotNull Harmony other) {
-        return get(this.id ^ ~other.id); // TODO: check this logic
+        return ALL[this.id & ~other.id];
+    }
+    /**
+     * Returns the union of this harmony and another- all sound classes in either. This is the same as
+     * {@link #plus(Harmony)}.
+     * @param other the other harmony
+     * @return the union of this harmony and other
+     */
+    public final @NotNull Harmony union(@NotNull Harmony other) {
+        return ALL[this.id | other.id];
+    }
+    /**
+     * Returns the intersection of this harmony and another- all sound classes in both.
+     * @param other the other harmony
+     * @return the intersection of this harmony and other
+     */
+    public final @NotNull Harmony intersection(@NotNull Harmony other) {
+        return ALL[this.id & other.id];
+    }
+    /**
+     * Returns the difference of this harmony and another- all sound classes in this but not other. This is the same as
+     * {@link #minus(Harmony)}.
+     * @param other the other harmony
+     * @return the difference between this harmony and other
+     */
+    public final @NotNull Harmony difference(@NotNull Harmony other) {
+        return ALL[this.id & ~other.id];
+    }
+    /**
+     * Returns the complement of this harmony- all sound classes not in this harmony.
+     * @return the complement of this harmony
+     */
+    public final @NotNull Harmony complement() {
+        return ALL[~id & (TOTAL_NUM - 1)];
+    }
+    /**
+     * Checks if every sound class of this harmony is also in another
+     * @param other the other harmony
+     * @return if this harmony is a subset of other
+     */
+    public final boolean isSubsetOf(@NotNull Harmony other) {
+        return (this.id & ~other.id) == 0;
+    }
+    /**
+     * Checks if every sound class of another harmony is also in this one
+     * @param other the other harmony
+     * @return if this harmony is a superset of other
+     */
+    public final boolean isSupersetOf(@NotNull Harmony other) {
+        return (other.id & ~this.id) == 0;
+    }
+    /**
+     * Transposes every sound class of this harmony up by an interval class, wrapping around the octave. This is a
+     * single lookup into a precomputed table of every harmony under every transposition.
+     * @param intervalClass the interval class to transpose by
+     * @return the transposed harmony
+     */
+    public final @NotNull Harmony transpose(@NotNull IntervalClass intervalClass) {
+        return ALL[Transpositions.TABLE[(intervalClass.getSize() << PitchClass.TOTAL_NUM) | id]];
+    }
+    /**
+     * Inverts this harmony about C, such that every sound class n becomes sound class (12 - n) mod 12. Combine this with
+     * {@link #transpose(IntervalClass)} to invert about any other axis.
+     * @return the inverted harmony
+     */
+    public final @NotNull Harmony invert() {
+        return ALL[invert(id)];
+    }
+    /**
+     * Gets the set class of this harmony, the family of all its transpositions and inversions
+     * @return the set class of this harmony
+     */
+    public final @NotNull SetClass getSetClass() {
+        return SetClass.get(this);
+    }
+    /**
+     * Gets the normal form of this harmony- its sound classes in their most compact ascending order, which starts on
+     * whichever sound class leaves the smallest span above it
+     * @return an unmodifiable list of the sound classes of this harmony, in normal form
+     */
+    public final @NotNull List<PitchClass> getNormalForm() {
+        int start = SetClass.getNormalFormStart(this).getValue();
+        ArrayList<PitchClass> normalForm = new ArrayList<>(Integer.bitCount(id));
+        for(int mask = rotate(id, (PitchClass.TOTAL_NUM - start) % PitchClass.TOTAL_NUM); mask != 0; mask &= mask - 1) {
+            normalForm.add(PitchClass.get((Integer.numberOfTrailingZeros(mask) + start) % PitchClass.TOTAL_NUM));
+        }
+        return Collections.unmodifiableList(normalForm);
+    }
+    /**
+     * Gets the interval-class vector of this harmony, from the minor second to the tritone
+     * @return a new array of the interval-class vector of this harmony
+     * @see HarmonyFeatures
+     */
+    public final @NotNull int[] getIntervalVector() {
+        return HarmonyFeatures.getIntervalVector(this);
+    }
+    /**
+     * Gets the magnitudes of the discrete Fourier transform of this harmony, from the zeroth component to the sixth
+     * @return a new array of the DFT magnitudes of this harmony
+     * @see HarmonyFeatures
+     */
+    public final @NotNull double[] getDFTMagnitudes() {
+        return HarmonyFeatures.getDFTMagnitudes(this);
+    }
+    /**
+     * Checks if this harmony is a transposition of another, such as any two major triads
+     * @param other the other harmony
+     * @return if these harmonies are Tn-equivalent
+     */
+    public final boolean isTnEquivalent(@NotNull Harmony other) {
+        return SetClass.isTnEquivalent(this, other);
+    }
+    /**
+     * Checks if this harmony is a transposition or an inversion of another, such as a major and a minor triad
+     * @param other the other harmony
+     * @return if these harmonies are TnI-equivalent
+     */
+    public final boolean isTnIEquivalent(@NotNull Harmony other) {
+        return SetClass.isTnIEquivalent(this, other);
+    }
+
+    /**
+     * Inverts a harmony's bitmask about C. Bits 1 through 11 are reversed by reversing all twelve bits (which sends
+     * bit n to bit 11 - n) and then rotating up by one.
+     * @param id the bitmask to invert
+     * @return the inverted bitmask
+     */
+    static int invert(int id) {
+        return rotate(Integer.reverse(id) >>> (Integer.SIZE - PitchClass.TOTAL_NUM), 1);
+    }
+    /**
+     * Rotates a harmony's bitmask up by a number of half steps within the twelve-bit octave.
+     * @param id the bitmask to rotate
+     * @param halfSteps the number of half steps to rotate by, between 0 and 11
+     * @return the rotated bitmask
+     */
+    static int rotate(int id, int halfSteps) {
+        return ((id << halfSteps) | (id >>> (PitchClass.TOTAL_NUM - halfSteps))) & (TOTAL_NUM - 1);
+    }
+
+    /**
+     * A holder for the table of every harmony under every transposition, initialized on first use (and thread-safely,
+     * by the class loader) so that it adds nothing to the start-up cost of {@link Harmony}.
+     */
+    private static final class Transpositions {
+        /** The id of each harmony transposed by each interval class, indexed by (interval class << 12) | id */
+        private static final short[] TABLE = new short[IntervalClass.all().size() * TOTAL_NUM];
+        static {
+            for(int halfSteps = 0; halfSteps < PitchClass.TOTAL_NUM; halfSteps++) {
+                for(int id = 0; id < TOTAL_NUM; id++) {
+                    TABLE[(halfSteps << PitchClass.TOTAL_NUM) | id] = (short) rotate(id, halfSteps);
+                }
+            }
+        }
     }
     /**
      * Returns a string representation of this harmony
@@ -156,11 +329,9 @@ public class Harmony {
      */
     public final @NotNull String toString() {
         StringBuilder toReturn = new StringBuilder();
-        PitchClass.all().forEach(pitchClass -> {
-            if(pitchClasses.contains(pitchClass)) {
-                toReturn.append(pitchClass.toString());
-            }
-        });
+        for(PitchClass pitchClass : getPitchClasses()) {
+            toReturn.append(pitchClass.toString());
+        }
         return toReturn.toString();
     }
     /**
@@ -0,0 +1,224 @@
+package theory.harmony;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import properties.sound.PitchClass;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * Harmony features are numeric descriptions of a {@link Harmony} used to measure how alike two harmonies sound: its
+ * interval-class vector (how many of each interval class its pitch classes form) and the magnitudes of its discrete
+ * Fourier transform (how strongly it leans toward each of the six evenly-divided subsets of the octave). Both are
+ * unchanged by transposition and inversion, so every member of a set class has the same features.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * Both features are computed once, for all 4096 harmonies, into flat primitive arrays when this class is first used.
+ * The batch distance functions read these arrays directly, so that ranking a corpus of harmonies against a query is
+ * a tight loop over ints and doubles, split across cores when the corpus is large.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class HarmonyFeatures {
+
+    /**
+     * The ways of measuring the distance between two harmonies
+     */
+    public enum Metric {
+        /** The sum of the differences between interval-class vectors */
+        INTERVAL_VECTOR_L1,
+        /** One minus the cosine similarity of interval-class vectors */
+        INTERVAL_VECTOR_COSINE,
+        /** The euclidean distance between DFT magnitudes, leaving out the zeroth (which is only cardinality) */
+        DFT_MAGNITUDE
+    }
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The length of an interval-class vector, one for each interval class from the minor second to the tritone */
+    public static final int VECTOR_LENGTH = PitchClass.TOTAL_NUM / 2;
+    /** The number of DFT magnitudes, from the zeroth to the sixth component */
+    public static final int DFT_LENGTH = PitchClass.TOTAL_NUM / 2 + 1;
+    /** The corpus size above which distances are computed in parallel */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    /** The interval-class vector of every harmony, VECTOR_LENGTH entries each */
+    private static final int[] INTERVAL_VECTORS = new int[Harmony.TOTAL_NUM * VECTOR_LENGTH];
+    /** The length of the interval-class vector of every harmony */
+    private static final double[] VECTOR_NORMS = new double[Harmony.TOTAL_NUM];
+    /** The DFT magnitudes of every harmony, DFT_LENGTH entries each */
+    private static final double[] DFT_MAGNITUDES = new double[Harmony.TOTAL_NUM * DFT_LENGTH];
+    // Initializes the feature tables
+    static {
+        // Keep track of the start time to know how long initialization takes
+        long startTime = System.nanoTime();
+
+        // Every root of unity used by the DFT
+        double[] cos = new double[PitchClass.TOTAL_NUM];
+        double[] sin = new double[PitchClass.TOTAL_NUM];
+        for(int n = 0; n < PitchClass.TOTAL_NUM; n++) {
+            cos[n] = Math.cos(2 * Math.PI * n / PitchClass.TOTAL_NUM);
+            sin[n] = Math.sin(2 * Math.PI * n / PitchClass.TOTAL_NUM);
+        }
+        for(int id = 0; id < Harmony.TOTAL_NUM; id++) {
+            // Interval class k occurs once for every pitch class which is also present k half steps higher, save the
+            // tritone, which is counted from both of its pitch classes
+            long squares = 0;
+            for(int size = 1; size <= VECTOR_LENGTH; size++) {
+                int count = Integer.bitCount(id & Harmony.rotate(id, size));
+                if(size == VECTOR_LENGTH) count /= 2;
+                INTERVAL_VECTORS[id * VECTOR_LENGTH + size - 1] = count;
+                squares += count * count;
+            }
+            VECTOR_NORMS[id] = Math.sqrt(squares);
+            // Each DFT component sums the roots of unity of the pitch classes present
+            for(int k = 0; k < DFT_LENGTH; k++) {
+                double real = 0, imaginary = 0;
+                for(int mask = id; mask != 0; mask &= mask - 1) {
+                    int n = (k * Integer.numberOfTrailingZeros(mask)) % PitchClass.TOTAL_NUM;
+                    real += cos[n];
+                    imaginary -= sin[n];
+                }
+                DFT_MAGNITUDES[id * DFT_LENGTH + k] = Math.sqrt(real * real + imaginary * imaginary);
+            }
+        }
+
+        // Log the initialization
+        Log.logStaticInit("Harmony features", Collections.emptyList(), System.nanoTime() - startTime);
+    }
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets the interval-class vector of a harmony- the number of minor seconds, major seconds, minor thirds, major
+     * thirds, perfect fourths, and tritones formed between its pitch classes
+     * @param harmony the harmony
+     * @return a new array of the interval-class vector of this harmony
+     */
+    public static @NotNull int[] getIntervalVector(@NotNull Harmony harmony) {
+        int offset = harmony.getID() * VECTOR_LENGTH;
+        return Arrays.copyOfRange(INTERVAL_VECTORS, offset, offset + VECTOR_LENGTH);
+    }
+    /**
+     * Gets the magnitudes of the DFT of a harmony, from the zeroth component (its size) to the sixth
+     * @param harmony the harmony
+     * @return a new array of the DFT magnitudes of this harmony
+     */
+    public static @NotNull double[] getDFTMagnitudes(@NotNull Harmony harmony) {
+        int offset = harmony.getID() * DFT_LENGTH;
+        return Arrays.copyOfRange(DFT_MAGNITUDES, offset, offset + DFT_LENGTH);
+    }
+
+    /**
+     * Measures the distance between two harmonies
+     * @param h1 the first harmony
+     * @param h2 the second harmony
+     * @param metric the way of measuring distance
+     * @return the distance between these harmonies
+     */
+    public static double distance(@NotNull Harmony h1, @NotNull Harmony h2, @NotNull Metric metric) {
+        return distance(h1.getID(), h2.getID(), metric);
+    }
+    /**
+     * Measures the distance between a query and every harmony of a corpus, given by their ids
+     * @param query the harmony to compare against
+     * @param corpus the ids of the harmonies of the corpus
+     * @param metric the way of measuring distance
+     * @return the distance of every harmony of the corpus from the query, in the same order
+     */
+    public static @NotNull double[] distances(@NotNull Harmony query, @NotNull int[] corpus, @NotNull Metric metric) {
+        int queryId = query.getID();
+        double[] distances = new double[corpus.length];
+        IntStream indices = IntStream.range(0, corpus.length);
+        if(corpus.length > PARALLEL_THRESHOLD) indices = indices.parallel();
+        indices.forEach(index -> distances[index] = distance(queryId, corpus[index], metric));
+        return distances;
+    }
+    /**
+     * Ranks the harmonies of a corpus by their distance from a query, nearest first
+     * @param query the harmony to compare against
+     * @param corpus the ids of the harmonies of the corpus
+     * @param metric the way of measuring distance
+     * @return the indices into the corpus, from the nearest harmony to the farthest
+     */
+    public static @NotNull int[] rank(@NotNull Harmony query, @NotNull int[] corpus, @NotNull Metric metric) {
+        double[] distances = distances(query, corpus, metric);
+        // Sort the indices by distance (to single precision), breaking ties by index so that the ranking is stable
+        long[] keys = new long[corpus.length];
+        for(int index = 0; index < corpus.length; index++) {
+            keys[index] = ((long) Float.floatToIntBits((float) distances[index]) << Integer.SIZE) | index;
+        }
+        if(keys.length > PARALLEL_THRESHOLD) Arrays.parallelSort(keys);
+        else Arrays.sort(keys);
+        int[] ranking = new int[corpus.length];
+        for(int index = 0; index < corpus.length; index++) {
+            ranking[index] = (int) keys[index];
+        }
+        return ranking;
+    }
+    /**
+     * Ranks the harmonies of a corpus by their distance from a query, nearest first
+     * @param query the harmony to compare against
+     * @param corpus the harmonies of the corpus
+     * @param metric the way of measuring distance
+     * @return the harmonies of the corpus, from the nearest to the farthest
+     */
+    public static @NotNull List<Harmony> rank(@NotNull Harmony query, @NotNull List<Harmony> corpus,
+                                              @NotNull Metric metric) {
+        int[] ids = new int[corpus.size()];
+        for(int index = 0; index < ids.length; index++) {
+            ids[index] = corpus.get(index).getID();
+        }
+        int[] ranking = rank(query, ids, metric);
+        ArrayList<Harmony> ranked = new ArrayList<>(ranking.length);
+        for(int index : ranking) {
+            ranked.add(corpus.get(index));
+        }
+        return ranked;
+    }
+
+    /** Measures the distance between two harmonies by their ids */
+    private static double distance(int id1, int id2, Metric metric) {
+        switch(metric) {
+            case INTERVAL_VECTOR_L1: {
+                int offset1 = id1 * VECTOR_LENGTH, offset2 = id2 * VECTOR_LENGTH;
+                int sum = 0;
+                for(int i = 0; i < VECTOR_LENGTH; i++) {
+                    sum += Math.abs(INTERVAL_VECTORS[offset1 + i] - INTERVAL_VECTORS[offset2 + i]);
+                }
+                return sum;
+            }
+            case INTERVAL_VECTOR_COSINE: {
+                // Harmonies of fewer than two pitch classes have no intervals, and so are only like one another
+                if(VECTOR_NORMS[id1] == 0 || VECTOR_NORMS[id2] == 0) {
+                    return VECTOR_NORMS[id1] == VECTOR_NORMS[id2] ? 0 : 1;
+                }
+                int offset1 = id1 * VECTOR_LENGTH, offset2 = id2 * VECTOR_LENGTH;
+                int dot = 0;
+                for(int i = 0; i < VECTOR_LENGTH; i++) {
+                    dot += INTERVAL_VECTORS[offset1 + i] * INTERVAL_VECTORS[offset2 + i];
+                }
+                return Math.max(0, 1 - dot / (VECTOR_NORMS[id1] * VECTOR_NORMS[id2]));
+            }
+            case DFT_MAGNITUDE: {
+                double sum = 0;
+                for(int k = 1; k < DFT_LENGTH; k++) {
+                    double difference = DFT_MAGNITUDES[id1 * DFT_LENGTH + k] - DFT_MAGNITUDES[id2 * DFT_LENGTH + k];
+                    sum += difference * difference;
+                }
+                return Math.sqrt(sum);
+            }
+            default: throw Log.error("HarmonyFeatures", "Unknown metric " + metric + "!");
+        }
+    }
+
+    /**
+     * A private constructor, as harmony features are never instantiated
+     */
+    private HarmonyFeatures() {}
+}
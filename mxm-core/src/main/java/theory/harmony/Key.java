@@ -1,24 +1,138 @@
 package theory.harmony;
 
+import io.Log;
+import properties.sound.Chord;
 import properties.sound.PitchClass;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Created by celenp on 5/13/2017.
- *
+ * <p> <b>Class overview:</b>
+ * A key is a tonic and a mode (major or minor), such as C major or A minor. There is no inherent ordering to pitches in
+ * a key... that's called a scale. A key does, however, suggest an underlying harmony: the seven pitch classes of its
+ * major or (natural) minor scale.</p>
  *
- * There is no inherent ordering to pitches in a key... that's called a scale.
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i> and implements the <b>flyweight design pattern</b>- all 24 keys are created upfront
+ * during static initialization, and each has an id from 0 to 23 (the twelve major keys, then the twelve minor keys, in
+ * order of tonic) with which analyses may index tables of keys.</p>
  *
  * @author Patrick Celentano
  */
-public class Key {
+public final class Key {
+
+    /**
+     * The modes of a key
+     */
+    public enum Mode {
+        MAJOR, MINOR
+    }
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The total number of keys */
+    public static final int TOTAL_NUM = Mode.values().length * PitchClass.TOTAL_NUM;
+    /** The pitch classes of the major scale above its tonic */
+    private static final int MAJOR_SCALE = 0b1010_1011_0101;
+    /** The pitch classes of the natural minor scale above its tonic */
+    private static final int MINOR_SCALE = 0b0101_1010_1101;
+
+    /** A static array of all possible keys, stored to implement the flyweight pattern */
+    private static final Key[] ALL;
+    // Static initialization block
+    static {
+        // Keep track of the start time to know how long initialization takes
+        long startTime = System.nanoTime();
+
+        // Initialize all keys
+        ALL = new Key[TOTAL_NUM];
+        for(int id = 0; id < TOTAL_NUM; id++) {
+            ALL[id] = new Key(id);
+        }
+
+        // Log the initialization
+        Log.logStaticInit("Key", Arrays.asList(ALL), System.nanoTime() - startTime);
+    }
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets the key of a given tonic and mode
+     * @param tonic the tonic of the key
+     * @param mode the mode of the key
+     * @return the key of this tonic and mode
+     */
+    public static @NotNull Key get(@NotNull PitchClass tonic, @NotNull Mode mode) {
+        return ALL[mode.ordinal() * PitchClass.TOTAL_NUM + tonic.getValue()];
+    }
+    /**
+     * Gets a key by its id
+     * @param id the id of the key, from 0 to 23
+     * @return the key with this id
+     */
+    public static @NotNull Key get(int id) {
+        if(id < 0 || id >= TOTAL_NUM) throw Log.error("Key", "This key id (" + id + ") does not exist!");
+        return ALL[id];
+    }
+    /**
+     * Returns an immutable collection of all keys, useful for iteration or streams
+     * @return an immutable collection of all keys
+     */
+    public static @NotNull Collection<Key> all() {
+        return Collections.unmodifiableList(Arrays.asList(ALL));
+    }
+    /**
+     * Returns a random key
+     * @return a random key
+     */
+    public static @NotNull Key random() {
+        return ALL[ThreadLocalRandom.current().nextInt(TOTAL_NUM)];
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
 
+    /** The id of this key */
+    private final int id;
     /** The tonic of this key, generally considered its most important sound class */
-    private PitchClass tonic;
+    private final PitchClass tonic;
     /** The type of key this is, i.e. major or minor */
+    private final Mode mode;
     /** All keys suggest an underlying harmony of constituent sound classes */
-    private Harmony harmony;
+    private final Harmony harmony;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
 
+    /**
+     * The key constructor, which is private to enforce the flyweight design pattern
+     * @param id the id of this key
+     */
+    private Key(int id) {
+        this.id = id;
+        this.tonic = PitchClass.get(id % PitchClass.TOTAL_NUM);
+        this.mode = Mode.values()[id / PitchClass.TOTAL_NUM];
+        int scale = mode == Mode.MAJOR ? MAJOR_SCALE : MINOR_SCALE;
+        this.harmony = Harmony.get(Harmony.rotate(scale, tonic.getValue()));
+    }
+    /**
+     * Gets the id of this key, from 0 to 23
+     * @return the id of this key
+     */
+    public int getID() {
+        return id;
+    }
     /**
      * A getter for the tonic (i.e. fundamental sound class) of this key
      * @return the tonic of this key
@@ -26,6 +140,20 @@ public class Key {
     public @NotNull PitchClass getTonic() {
         return tonic;
     }
+    /**
+     * Gets the mode of this key, major or minor
+     * @return the mode of this key
+     */
+    public @NotNull Mode getMode() {
+        return mode;
+    }
+    /**
+     * Checks if this is a major key
+     * @return if this is a major key
+     */
+    public boolean isMajor() {
+        return mode == Mode.MAJOR;
+    }
     /**
      * Gets the implicit harmony (set of sound classes) in this key
      * @return the harmony implied by this key
@@ -33,10 +161,44 @@ public class Key {
     public final @NotNull Harmony getHarmony() {
         return harmony;
     }
-
-    /*
-    public @NotNull Chord getFunction(@NotNull Function function) {
-
+    /**
+     * Gets the relative key, which shares the same harmony but has the other mode (i.e. A minor for C major)
+     * @return the relative key
+     */
+    public @NotNull Key getRelative() {
+        int shift = isMajor() ? 9 : 3;
+        return get(PitchClass.get((tonic.getValue() + shift) % PitchClass.TOTAL_NUM), isMajor() ? Mode.MINOR : Mode.MAJOR);
+    }
+    /**
+     * Gets the parallel key, which shares the same tonic but has the other mode (i.e. C minor for C major)
+     * @return the parallel key
+     */
+    public @NotNull Key getParallel() {
+        return get(tonic, isMajor() ? Mode.MINOR : Mode.MAJOR);
+    }
+    /**
+     * Returns a string representation of this key
+     * @return a string representation of this key, such as "C major"
+     */
+    @Override
+    public @NotNull String toString() {
+        return tonic + " " + mode.name().toLowerCase();
+    }
+    /**
+     * Gets the function of a chord in this key, such as V7 for G7 in C major
+     * @param chord the chord
+     * @return the function of this chord in this key, or null if it has no clear function
+     */
+    public @Nullable Function getFunction(@NotNull Chord chord) {
+        return Function.get(this, chord);
+    }
+    /**
+     * Gets the chord which plays a function in this key, such as G7 for V7 in C major
+     * @param function the function
+     * @return the chord of this function in this key, without extensions
+     */
+    public @NotNull Chord getChord(@NotNull Function function) {
+        PitchClass root = PitchClass.get((tonic.getValue() + function.getRootAboveTonic()) % PitchClass.TOTAL_NUM);
+        return Chord.get(root, function.getChordClass());
     }
-    */
 }
@@ -0,0 +1,343 @@
+package theory.harmony;
+
+import events.sound.Note;
+import events.time.KeyChange;
+import form.part.IPart;
+import form.part.Line;
+import form.part.PolyLine;
+import form.score.AbstractScore;
+import form.timeline.IFrame;
+import form.timeline.ITimeline;
+import form.timeline.SerialTimeline;
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import properties.sound.Chord;
+import properties.sound.ISound;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import properties.time.ITime;
+import properties.time.Time;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * The key finder estimates the local {@link Key} at regular steps through a score with the Krumhansl-Schmuckler
+ * algorithm: it weighs each pitch class by how long it sounds within a window centred on each step, and picks the key
+ * whose (Krumhansl-Kessler) profile correlates best with these weights.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * The profiles of all 24 keys are rotated, centred and normalized once, when this class is first used, so that scoring
+ * a window is 24 dot products. The window's histogram is never recomputed from its notes. Instead, the notes of each
+ * pitch class are kept as sorted arrays of start and end times, and each edge of the window sweeps forward through
+ * them, keeping a running count and sum of the starts and ends behind it- from which the total duration sounded before
+ * that edge follows directly. Each note thus enters the window once and leaves it once, and a whole score is analyzed
+ * in time proportional to its notes and steps. Scores share no state, so a corpus is analyzed in parallel.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class KeyFinder {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The Krumhansl-Kessler probe-tone ratings of each pitch class above the tonic of a major key */
+    private static final double[] MAJOR_PROFILE = {
+            6.35, 2.23, 3.48, 2.33, 4.38, 4.09, 2.52, 5.19, 2.39, 3.66, 2.29, 2.88
+    };
+    /** The Krumhansl-Kessler probe-tone ratings of each pitch class above the tonic of a minor key */
+    private static final double[] MINOR_PROFILE = {
+            6.33, 2.68, 3.52, 5.38, 2.60, 3.53, 2.54, 4.75, 3.98, 2.69, 3.34, 3.17
+    };
+    /** The profile of every key, indexed by key id then pitch class, centred on zero and of unit length */
+    private static final double[] PROFILES = new double[Key.TOTAL_NUM * PitchClass.TOTAL_NUM];
+    // Initializes the profile table
+    static {
+        for(Key key : Key.all()) {
+            double[] profile = key.isMajor() ? MAJOR_PROFILE : MINOR_PROFILE;
+            double mean = Arrays.stream(profile).sum() / PitchClass.TOTAL_NUM;
+            double norm = Math.sqrt(Arrays.stream(profile).map(rating -> (rating - mean) * (rating - mean)).sum());
+            for(int step = 0; step < PitchClass.TOTAL_NUM; step++) {
+                int pc = (key.getTonic().getValue() + step) % PitchClass.TOTAL_NUM;
+                PROFILES[key.getID() * PitchClass.TOTAL_NUM + pc] = (profile[step] - mean) / norm;
+            }
+        }
+    }
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Correlates a pitch-class histogram with the profile of every key
+     * @param histogram the weight of each pitch class, such as the duration for which it sounds
+     * @return a new array of the correlation with every key, indexed by key id, or all zeroes if every pitch class
+     * has the same weight
+     */
+    public static @NotNull double[] correlations(@NotNull double[] histogram) {
+        checkHistogram(histogram);
+        double[] correlations = new double[Key.TOTAL_NUM];
+        double deviation = deviation(histogram);
+        if(deviation == 0) return correlations;
+        for(int id = 0; id < Key.TOTAL_NUM; id++) {
+            correlations[id] = dot(histogram, id) / deviation;
+        }
+        return correlations;
+    }
+    /**
+     * Finds the key which best fits a pitch-class histogram
+     * @param histogram the weight of each pitch class, such as the duration for which it sounds
+     * @return the key which correlates best with this histogram, or null if every pitch class has the same weight
+     */
+    public static @Nullable Key findKey(@NotNull double[] histogram) {
+        checkHistogram(histogram);
+        int id = bestKey(histogram);
+        return id < 0 ? null : Key.get(id);
+    }
+    /**
+     * Finds the local key at regular steps through a set of notes, each given by its pitch class, start and end. The
+     * notes may be given in any order, and may overlap.
+     * @param pitchClasses the pitch class of each note
+     * @param starts the start time of each note
+     * @param ends the end time of each note
+     * @param from the time of the first step
+     * @param step the time between steps
+     * @param numSteps the number of steps
+     * @param window the length of the window centred on each step
+     * @return the id of the key at each step, or -1 where no pitch class sounds longer than another
+     */
+    public static @NotNull int[] findKeys(@NotNull int[] pitchClasses, @NotNull double[] starts, @NotNull double[] ends,
+                                          double from, double step, int numSteps, double window) {
+        if(pitchClasses.length != starts.length || starts.length != ends.length) {
+            throw Log.error("KeyFinder", "Every note must have a pitch class, start and end!");
+        }
+        if(!(window > 0) || !(step > 0)) throw Log.error("KeyFinder", "The window and step must be positive!");
+        SlidingHistogram sliding = new SlidingHistogram(pitchClasses, starts, ends);
+        double[] histogram = new double[PitchClass.TOTAL_NUM];
+        int[] keys = new int[numSteps];
+        for(int index = 0; index < numSteps; index++) {
+            double centre = from + index * step;
+            sliding.advance(centre - window / 2, centre + window / 2, histogram);
+            keys[index] = bestKey(histogram);
+        }
+        return keys;
+    }
+    /**
+     * Finds the local key at regular steps through a score, from its first note to its last, using every pitch and
+     * chord of its lines and poly lines
+     * @param score the score
+     * @param window the length of the window centred on each step, such as two measures
+     * @param step the time between steps, such as a beat
+     * @return a timeline of every change of key, beginning with the first key found
+     */
+    public static @NotNull ITimeline<KeyChange> findKeys(@NotNull AbstractScore score, @NotNull ITime window,
+                                                         @NotNull ITime step) {
+        // Gather the pitch class, start and end of every note
+        NoteArrays notes = new NoteArrays();
+        for(IPart<?> part : score.getParts()) {
+            if(part instanceof Line) {
+                for(Note<?> note : ((Line<?>) part).getNotes()) {
+                    notes.add(note);
+                }
+            } else if(part instanceof PolyLine) {
+                // Each note of a poly line starts in exactly one frame
+                for(IFrame<? extends Note<?>> frame : ((PolyLine<?>) part).getNotes()) {
+                    for(Note<?> note : frame.startedEvents()) {
+                        notes.add(note);
+                    }
+                }
+            }
+        }
+        SerialTimeline<KeyChange> changes = new SerialTimeline<>();
+        if(notes.size == 0) return changes;
+
+        // Step from the first note to the last, on a grid of exact times beginning at the first note
+        ITime first = notes.first, last = notes.last;
+        long stepNum = step.getNumerator(), stepDen = step.getDenominator();
+        long firstNum = first.getNumerator(), firstDen = first.getDenominator();
+        double stepValue = toDouble(step), firstValue = toDouble(first);
+        int numSteps = Math.max(1, (int) Math.ceil((toDouble(last) - firstValue) / stepValue));
+        int[] keys = findKeys(Arrays.copyOf(notes.pitchClasses, notes.size), Arrays.copyOf(notes.starts, notes.size),
+                              Arrays.copyOf(notes.ends, notes.size), firstValue, stepValue, numSteps,
+                              toDouble(window));
+
+        // Record each step at which the key changes
+        int previous = -1;
+        for(int index = 0; index < numSteps; index++) {
+            if(keys[index] < 0 || keys[index] == previous) continue;
+            previous = keys[index];
+            long num = firstNum * stepDen + index * stepNum * firstDen;
+            long den = firstDen * stepDen;
+            long gcd = gcd(Math.abs(num), den);
+            changes.add(new KeyChange(score, Time.get((int) (num / gcd), (int) (den / gcd)), Key.get(previous)));
+        }
+        return changes;
+    }
+    /**
+     * Finds the local key at regular steps through every score of a corpus, analyzing the scores in parallel
+     * @param corpus the scores
+     * @param window the length of the window centred on each step, such as two measures
+     * @param step the time between steps, such as a beat
+     * @return the timeline of key changes of each score, in the same order as the corpus
+     */
+    public static @NotNull List<ITimeline<KeyChange>> findKeys(@NotNull Collection<? extends AbstractScore> corpus,
+                                                               @NotNull ITime window, @NotNull ITime step) {
+        return new ArrayList<>(corpus).parallelStream()
+                .map(score -> findKeys(score, window, step))
+                .collect(Collectors.toList());
+    }
+
+    /** Finds the id of the key whose profile best fits a histogram, or -1 if every pitch class has the same weight */
+    private static int bestKey(double[] histogram) {
+        // The deviation of the histogram is the same for every key, so the largest dot product wins
+        if(deviation(histogram) == 0) return -1;
+        int best = 0;
+        double bestDot = dot(histogram, 0);
+        for(int id = 1; id < Key.TOTAL_NUM; id++) {
+            double dot = dot(histogram, id);
+            if(dot > bestDot) {
+                best = id;
+                bestDot = dot;
+            }
+        }
+        return best;
+    }
+    /** The dot product of a histogram with a key's profile- which, since the profile is centred, is their covariance */
+    private static double dot(double[] histogram, int keyId) {
+        int offset = keyId * PitchClass.TOTAL_NUM;
+        double dot = 0;
+        for(int pc = 0; pc < PitchClass.TOTAL_NUM; pc++) {
+            dot += histogram[pc] * PROFILES[offset + pc];
+        }
+        return dot;
+    }
+    /** The length of a histogram once it is centred on zero, or zero if it is too close to flat to have a key */
+    private static double deviation(double[] histogram) {
+        double sum = 0, squares = 0;
+        for(double weight : histogram) {
+            sum += weight;
+            squares += weight * weight;
+        }
+        double variance = squares - sum * sum / PitchClass.TOTAL_NUM;
+        return variance > 1e-12 * squares ? Math.sqrt(variance) : 0;
+    }
+    private static void checkHistogram(double[] histogram) {
+        if(histogram.length != PitchClass.TOTAL_NUM) {
+            throw Log.error("KeyFinder", "A histogram must have a weight for each of the 12 pitch classes!");
+        }
+    }
+    private static double toDouble(ITime time) {
+        return time.getNumerator() / (double) time.getDenominator();
+    }
+    private static long gcd(long a, long b) {
+        while(b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a == 0 ? 1 : a;
+    }
+
+    /**
+     * A private constructor, as the key finder is never instantiated
+     */
+    private KeyFinder() {}
+
+    /**
+     * The duration-weighted pitch-class histogram of a window which only ever moves forward. Each edge of the window
+     * keeps, for every pitch class, how many starts and ends lie behind it and their sums, from which the total time
+     * sounded before the edge is (count of starts - count of ends) * edge - (sum of starts - sum of ends).
+     */
+    private static final class SlidingHistogram {
+        /** The sorted start and end times of the notes of each pitch class */
+        private final double[][] starts = new double[PitchClass.TOTAL_NUM][], ends = new double[PitchClass.TOTAL_NUM][];
+        /** The leading and trailing edges of the window */
+        private final Edge lead = new Edge(), trail = new Edge();
+
+        SlidingHistogram(int[] pitchClasses, double[] noteStarts, double[] noteEnds) {
+            int[] counts = new int[PitchClass.TOTAL_NUM];
+            for(int pc : pitchClasses) {
+                if(pc < 0 || pc >= PitchClass.TOTAL_NUM) throw Log.error("KeyFinder", "Invalid pitch class " + pc);
+                counts[pc]++;
+            }
+            for(int pc = 0; pc < PitchClass.TOTAL_NUM; pc++) {
+                starts[pc] = new double[counts[pc]];
+                ends[pc] = new double[counts[pc]];
+                counts[pc] = 0;
+            }
+            for(int note = 0; note < pitchClasses.length; note++) {
+                int pc = pitchClasses[note];
+                starts[pc][counts[pc]] = noteStarts[note];
+                ends[pc][counts[pc]++] = Math.max(noteStarts[note], noteEnds[note]);
+            }
+            for(int pc = 0; pc < PitchClass.TOTAL_NUM; pc++) {
+                Arrays.sort(starts[pc]);
+                Arrays.sort(ends[pc]);
+            }
+        }
+        /**
+         * Moves the window forward to [from, to), and writes its histogram
+         */
+        void advance(double from, double to, double[] histogram) {
+            for(int pc = 0; pc < PitchClass.TOTAL_NUM; pc++) {
+                histogram[pc] = lead.soundedBefore(to, pc) - trail.soundedBefore(from, pc);
+            }
+        }
+
+        /** One edge of the window */
+        private final class Edge {
+            private final int[] numStarts = new int[PitchClass.TOTAL_NUM];
+            private final int[] numEnds = new int[PitchClass.TOTAL_NUM];
+            private final double[] sumStarts = new double[PitchClass.TOTAL_NUM];
+            private final double[] sumEnds = new double[PitchClass.TOTAL_NUM];
+
+            /** Moves this edge forward to a time, and returns how long a pitch class sounds before it */
+            double soundedBefore(double time, int pc) {
+                double[] pcStarts = starts[pc], pcEnds = ends[pc];
+                while(numStarts[pc] < pcStarts.length && pcStarts[numStarts[pc]] < time) {
+                    sumStarts[pc] += pcStarts[numStarts[pc]++];
+                }
+                while(numEnds[pc] < pcEnds.length && pcEnds[numEnds[pc]] < time) {
+                    sumEnds[pc] += pcEnds[numEnds[pc]++];
+                }
+                return (numStarts[pc] - numEnds[pc]) * time - (sumStarts[pc] - sumEnds[pc]);
+            }
+        }
+    }
+
+    /**
+     * A growing set of parallel arrays of the pitch class, start and end of each note of a score
+     */
+    private static final class NoteArrays {
+        private int[] pitchClasses = new int[64];
+        private double[] starts = new double[64], ends = new double[64];
+        private int size = 0;
+        private ITime first, last;
+
+        void add(Note<?> note) {
+            ISound sound = note.getSound();
+            if(sound instanceof Pitch) {
+                add(((Pitch) sound).getPitchClass(), note);
+            } else if(sound instanceof Chord) {
+                for(PitchClass pitchClass : (Chord) sound) {
+                    add(pitchClass, note);
+                }
+            }
+        }
+        private void add(PitchClass pitchClass, Note<?> note) {
+            if(size == pitchClasses.length) {
+                pitchClasses = Arrays.copyOf(pitchClasses, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            pitchClasses[size] = pitchClass.getValue();
+            starts[size] = toDouble(note.getStart());
+            ends[size++] = toDouble(note.getEnd());
+            if(first == null || note.getStart().compareTo(first) < 0) first = note.getStart();
+            if(last == null || note.getEnd().compareTo(last) > 0) last = note.getEnd();
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package theory.harmony;
+
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import properties.sound.PitchClass;
+
+import java.util.*;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A set class is the family of all {@link Harmony}s which are equivalent under transposition and inversion (TnI), such
+ * as every major and minor triad together forming set class 3-11. Set classes are named after Allen Forte's catalogue,
+ * and know their prime form, their cardinality, and their degree of symmetry.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i> and implements the <b>flyweight design pattern</b>- there is exactly one instance for
+ * each of the 224 set classes. All classification is done once, over every one of the 4096 harmony bitmasks, into
+ * small primitive tables. Finding a harmony's set class, normal form, or Tn/TnI equivalence is then a single array
+ * read. The tables are built on first use, so that they add nothing to the start-up cost of {@link Harmony}.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class SetClass {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /**
+     * Forte's prime forms for cardinalities zero through six, in catalogue order. The set classes of cardinalities
+     * seven through twelve are numbered after their complements, so they need not be listed.
+     */
+    private static final String[][] FORTE_PRIME_FORMS = {
+            { "" },
+            { "0" },
+            { "01", "02", "03", "04", "05", "06" },
+            { "012", "013", "014", "015", "016", "024", "025", "026", "027", "036", "037", "048" },
+            { "0123", "0124", "0134", "0125", "0126", "0127", "0145", "0156", "0167", "0235", "0135", "0236", "0136",
+              "0237", "0146", "0157", "0347", "0147", "0148", "0158", "0246", "0247", "0257", "0248", "0268", "0358",
+              "0258", "0369", "0137" },
+            { "01234", "01235", "01245", "01236", "01237", "01256", "01267", "02346", "01246", "01346", "02347",
+              "01356", "01248", "01257", "01268", "01347", "01348", "01457", "01367", "01378", "01458", "01478",
+              "02357", "01357", "02358", "02458", "01358", "02368", "01368", "01468", "01369", "01469", "02468",
+              "02469", "02479", "01247", "03458", "01258" },
+            { "012345", "012346", "012356", "012456", "012367", "012567", "012678", "023457", "012357", "013457",
+              "012457", "012467", "013467", "013458", "012458", "014568", "012478", "012578", "013478", "014589",
+              "023468", "012468", "023568", "013468", "013568", "013578", "013469", "013569", "013689", "013679",
+              "013589", "024579", "023579", "013579", "02468T", "012347", "012348", "012378", "023458", "012358",
+              "012368", "012369", "012568", "012569", "023469", "012469", "012479", "012579", "013479", "014679" }
+    };
+    /** The digits used to write pitch classes in a prime form, with T and E standing for ten and eleven */
+    private static final String DIGITS = "0123456789TE";
+    /** The Z-related set classes (those which share an interval vector with another) up to cardinality six */
+    private static final Set<String> Z_RELATED = new HashSet<>(Arrays.asList(
+            "4-15", "4-29", "5-12", "5-17", "5-18", "5-36", "5-37", "5-38",
+            "6-3", "6-4", "6-6", "6-10", "6-11", "6-12", "6-13", "6-17", "6-19", "6-23", "6-24", "6-25", "6-26",
+            "6-28", "6-29", "6-36", "6-37", "6-38", "6-39", "6-40", "6-41", "6-42", "6-43", "6-44", "6-45", "6-46",
+            "6-47", "6-48", "6-49", "6-50"));
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Gets the set class of a given harmony
+     * @param harmony the harmony to classify
+     * @return the set class of this harmony
+     */
+    public static @NotNull SetClass get(@NotNull Harmony harmony) {
+        return Tables.ALL[Tables.SET_CLASS[harmony.getID()]];
+    }
+    /**
+     * Gets a set class by its Forte name, such as "3-11" or "6-Z29" (the "Z" is optional)
+     * @param name the Forte name of the set class
+     * @return the set class with this name
+     */
+    public static @NotNull SetClass get(@NotNull String name) {
+        SetClass setClass = Tables.BY_NAME.get(name.replace("Z", ""));
+        if(setClass != null) return setClass;
+        else throw Log.error("SetClass", "No set class is named " + name + "!");
+    }
+    /**
+     * Returns an immutable collection of all set classes in Forte order, useful for iteration or streams
+     * @return an immutable collection of all set classes
+     */
+    public static @NotNull Collection<SetClass> all() {
+        return Collections.unmodifiableList(Arrays.asList(Tables.ALL));
+    }
+
+    /**
+     * Gets the lowest pitch class of a harmony's normal form (its most compact ordering)
+     * @param harmony the harmony
+     * @return the first pitch class of the normal form of this harmony
+     */
+    static @NotNull PitchClass getNormalFormStart(@NotNull Harmony harmony) {
+        return PitchClass.get(Tables.NORMAL_FORM_START[harmony.getID()]);
+    }
+    /**
+     * Checks if two harmonies are transpositions of each other
+     * @param h1 the first harmony
+     * @param h2 the second harmony
+     * @return if these harmonies are Tn-equivalent
+     */
+    static boolean isTnEquivalent(@NotNull Harmony h1, @NotNull Harmony h2) {
+        return Tables.TN_CLASS[h1.getID()] == Tables.TN_CLASS[h2.getID()];
+    }
+    /**
+     * Checks if two harmonies are transpositions or inversions of each other
+     * @param h1 the first harmony
+     * @param h2 the second harmony
+     * @return if these harmonies are TnI-equivalent
+     */
+    static boolean isTnIEquivalent(@NotNull Harmony h1, @NotNull Harmony h2) {
+        return Tables.SET_CLASS[h1.getID()] == Tables.SET_CLASS[h2.getID()];
+    }
+
+    /**
+     * Finds the first pitch class of the normal form of a bitmask: the rotation with the smallest span, with ties
+     * broken (after Forte) by the smallest interval from the first pitch class to the second, then to the third, etc.
+     * @param id the bitmask of the harmony
+     * @return the first pitch class of its normal form, or zero for the empty harmony
+     */
+    static int normalFormStart(int id) {
+        int best = -1;
+        int[] bestIntervals = null;
+        for(int start = 0; start < PitchClass.TOTAL_NUM; start++) {
+            if(((id >> start) & 1) == 0) continue;
+            int[] intervals = intervalsAbove(Harmony.rotate(id, (PitchClass.TOTAL_NUM - start) % PitchClass.TOTAL_NUM));
+            if(best < 0 || isMorePacked(intervals, bestIntervals)) {
+                best = start;
+                bestIntervals = intervals;
+            }
+        }
+        return Math.max(best, 0);
+    }
+    /**
+     * Finds Forte's prime form of a bitmask: the normal form of either the set or its inversion, whichever is more
+     * packed, transposed to begin on C
+     * @param id the bitmask of the harmony
+     * @return the bitmask of its prime form
+     */
+    static int primeForm(int id) {
+        int original = Harmony.rotate(id, (PitchClass.TOTAL_NUM - normalFormStart(id)) % PitchClass.TOTAL_NUM);
+        int inverted = Harmony.invert(id);
+        inverted = Harmony.rotate(inverted, (PitchClass.TOTAL_NUM - normalFormStart(inverted)) % PitchClass.TOTAL_NUM);
+        return isMorePacked(intervalsAbove(inverted), intervalsAbove(original)) ? inverted : original;
+    }
+    /**
+     * Lists the intervals above C of every member of a bitmask which contains C, from the highest member downward
+     * (that is, the span first) and then from the second member upward
+     */
+    private static int[] intervalsAbove(int id) {
+        int[] members = new int[Integer.bitCount(id)];
+        int index = 0;
+        for(int mask = id; mask != 0; mask &= mask - 1) {
+            members[index++] = Integer.numberOfTrailingZeros(mask);
+        }
+        int[] intervals = new int[Math.max(members.length - 1, 0)];
+        if(intervals.length > 0) {
+            intervals[0] = members[members.length - 1];
+            for(int i = 1; i < intervals.length; i++) {
+                intervals[i] = members[i];
+            }
+        }
+        return intervals;
+    }
+    private static boolean isMorePacked(int[] intervals, int[] other) {
+        for(int i = 0; i < intervals.length; i++) {
+            if(intervals[i] != other[i]) return intervals[i] < other[i];
+        }
+        return false;
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The place of this set class in Forte order, over all cardinalities */
+    private final int ordinal;
+    /** The Forte name of this set class, such as 3-11 */
+    private final String name;
+    /** The bitmask of the prime form of this set class */
+    private final int primeForm;
+    /** The number of transpositions (including T0) which map this set class onto itself */
+    private final int transpositionalSymmetry;
+    /** The number of inversions (TnI) which map this set class onto itself */
+    private final int inversionalSymmetry;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A private constructor for SetClass which is hidden by the flyweight design pattern (use get() instead).
+     * @param ordinal the place of this set class in Forte order
+     * @param name the Forte name of this set class
+     * @param primeForm the bitmask of the prime form of this set class
+     */
+    private SetClass(int ordinal, @NotNull String name, int primeForm) {
+        this.ordinal = ordinal;
+        this.name = name;
+        this.primeForm = primeForm;
+        int transpositions = 0;
+        int inversions = 0;
+        int inverted = Harmony.invert(primeForm);
+        for(int halfSteps = 0; halfSteps < PitchClass.TOTAL_NUM; halfSteps++) {
+            if(Harmony.rotate(primeForm, halfSteps) == primeForm) transpositions++;
+            if(Harmony.rotate(inverted, halfSteps) == primeForm) inversions++;
+        }
+        this.transpositionalSymmetry = transpositions;
+        this.inversionalSymmetry = inversions;
+    }
+    /**
+     * A getter for the place of this set class in Forte order, from 0 (the empty set) to 223 (the aggregate)
+     * @return the ordinal of this set class
+     */
+    public final int getOrdinal() {
+        return ordinal;
+    }
+    /**
+     * A getter for the Forte name of this set class, such as "3-11" or "6-Z29"
+     * @return the Forte name of this set class
+     */
+    public final @NotNull String getName() {
+        return name;
+    }
+    /**
+     * A getter for the number of pitch classes in each member of this set class
+     * @return the cardinality of this set class
+     */
+    public final int getCardinality() {
+        return Integer.bitCount(primeForm);
+    }
+    /**
+     * A getter for the prime form of this set class, as a harmony beginning on C
+     * @return the prime form of this set class
+     */
+    public final @NotNull Harmony getPrimeForm() {
+        return Harmony.get(primeForm);
+    }
+    /**
+     * A getter for the number of transpositions (T0 included) which map a member of this set class onto itself.
+     * This is 1 for most set classes, and 12 for the empty set and the aggregate.
+     * @return the transpositional symmetry of this set class
+     */
+    public final int getTranspositionalSymmetry() {
+        return transpositionalSymmetry;
+    }
+    /**
+     * A getter for the number of inversions which map a member of this set class onto itself
+     * @return the inversional symmetry of this set class
+     */
+    public final int getInversionalSymmetry() {
+        return inversionalSymmetry;
+    }
+    /**
+     * A getter for the degree of symmetry of this set class- the number of TnI operations which map a member onto
+     * itself. The number of distinct members of this set class is always 24 divided by this degree.
+     * @return the degree of symmetry of this set class
+     */
+    public final int getSymmetry() {
+        return transpositionalSymmetry + inversionalSymmetry;
+    }
+    /**
+     * Returns a string representation of this set class, such as "3-11 [037]"
+     * @return a string representation of this set class
+     */
+    @Override
+    public final @NotNull String toString() {
+        StringBuilder toReturn = new StringBuilder(name).append(" [");
+        for(int mask = primeForm; mask != 0; mask &= mask - 1) {
+            toReturn.append(DIGITS.charAt(Integer.numberOfTrailingZeros(mask)));
+        }
+        return toReturn.append("]").toString();
+    }
+    /**
+     * Checks if this set class is equal to another object. Note that since the flyweight pattern is used, literal
+     * (reference) equality is enough to ensure that these objects are actually equal.
+     * @return if this set class is equal to another
+     */
+    @Override
+    public final boolean equals(Object object) {
+        return this == object;
+    }
+    /**
+     * A simple hash code in order to allow storage in certain Collections.
+     * @return The hash code for this set class
+     */
+    @Override
+    public final int hashCode() {
+        return ordinal;
+    }
+
+    /**
+     * A holder for every table, initialized on first use (and thread-safely, by the class loader).
+     */
+    private static final class Tables {
+        /** Every set class, in Forte order */
+        private static final SetClass[] ALL;
+        /** Every set class by its Forte name, without any "Z" */
+        private static final Map<String, SetClass> BY_NAME = new HashMap<>();
+        /** The ordinal of the set class of every harmony bitmask */
+        private static final short[] SET_CLASS = new short[Harmony.TOTAL_NUM];
+        /** The smallest rotation of every harmony bitmask, which is shared by exactly its transpositions */
+        private static final short[] TN_CLASS = new short[Harmony.TOTAL_NUM];
+        /** The first pitch class of the normal form of every harmony bitmask */
+        private static final byte[] NORMAL_FORM_START = new byte[Harmony.TOTAL_NUM];
+
+        static {
+            // Keep track of the start time to know how long initialization takes
+            long startTime = System.nanoTime();
+
+            // Name every set class up to the hexachords, then name the larger ones after their complements
+            ArrayList<SetClass> all = new ArrayList<>();
+            SetClass[][] byCardinality = new SetClass[PitchClass.TOTAL_NUM + 1][];
+            for(int cardinality = 0; cardinality <= PitchClass.TOTAL_NUM; cardinality++) {
+                boolean listed = cardinality < FORTE_PRIME_FORMS.length;
+                int count = listed ? FORTE_PRIME_FORMS[cardinality].length
+                                   : FORTE_PRIME_FORMS[PitchClass.TOTAL_NUM - cardinality].length;
+                byCardinality[cardinality] = new SetClass[count];
+                for(int index = 0; index < count; index++) {
+                    int primeForm;
+                    if(listed) {
+                        primeForm = primeForm(parse(FORTE_PRIME_FORMS[cardinality][index]));
+                    }
+                    else {
+                        int complement = byCardinality[PitchClass.TOTAL_NUM - cardinality][index].primeForm;
+                        primeForm = primeForm(~complement & (Harmony.TOTAL_NUM - 1));
+                    }
+                    String number = cardinality + "-" + (index + 1);
+                    String complementNumber = (PitchClass.TOTAL_NUM - cardinality) + "-" + (index + 1);
+                    boolean zRelated = Z_RELATED.contains(number) || Z_RELATED.contains(complementNumber);
+                    String name = zRelated ? cardinality + "-Z" + (index + 1) : number;
+                    SetClass setClass = new SetClass(all.size(), name, primeForm);
+                    byCardinality[cardinality][index] = setClass;
+                    all.add(setClass);
+                    BY_NAME.put(number, setClass);
+                }
+            }
+            ALL = all.toArray(new SetClass[0]);
+
+            // Classify every bitmask by its smallest rotation, so that the normal form and set class need only be
+            // found once for each transposition class
+            HashMap<Integer, SetClass> byTnIClass = new HashMap<>();
+            for(SetClass setClass : ALL) {
+                byTnIClass.put(smallestRotation(setClass.primeForm) >>> 4, setClass);
+            }
+            int[] rotations = new int[Harmony.TOTAL_NUM];
+            for(int id = 0; id < Harmony.TOTAL_NUM; id++) {
+                int rotation = rotations[id] = smallestRotation(id);
+                int representative = rotation >>> 4;
+                TN_CLASS[id] = (short) representative;
+                if(representative == id) {
+                    NORMAL_FORM_START[id] = (byte) normalFormStart(id);
+                    int tnIClass = Math.min(id, smallestRotation(Harmony.invert(id)) >>> 4);
+                    SET_CLASS[id] = (short) byTnIClass.get(tnIClass).ordinal;
+                }
+            }
+            for(int id = 0; id < Harmony.TOTAL_NUM; id++) {
+                int representative = TN_CLASS[id];
+                int halfSteps = rotations[id] & 0xF;
+                NORMAL_FORM_START[id] = (byte) ((NORMAL_FORM_START[representative] + PitchClass.TOTAL_NUM - halfSteps)
+                        % PitchClass.TOTAL_NUM);
+                SET_CLASS[id] = SET_CLASS[representative];
+            }
+
+            // Log the initialization
+            Log.logStaticInit("Set class", Arrays.asList(ALL), System.nanoTime() - startTime);
+        }
+
+        /**
+         * Finds the smallest rotation of a bitmask, packed as that rotation shifted up by four bits together with the
+         * number of half steps (below 12) by which the bitmask must be rotated to reach it
+         */
+        private static int smallestRotation(int id) {
+            int smallest = id << 4;
+            for(int halfSteps = 1; halfSteps < PitchClass.TOTAL_NUM; halfSteps++) {
+                smallest = Math.min(smallest, (Harmony.rotate(id, halfSteps) << 4) | halfSteps);
+            }
+            return smallest;
+        }
+        /** Parses a prime form such as "02468T" into a bitmask */
+        private static int parse(String primeForm) {
+            int id = 0;
+            for(char digit : primeForm.toCharArray()) {
+                id |= 1 << DIGITS.indexOf(digit);
+            }
+            return id;
+        }
+    }
+}
@@ -1,4 +1,339 @@
 package theory.patterns;
 
-public class Arpeggio {
+import events.sound.Note;
+import form.part.Line;
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import properties.sound.Chord;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import properties.time.ITime;
+import properties.time.Time;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p> <b>Class overview:</b>
+ * An arpeggio is a pattern for breaking a {@link Chord} into a line of single pitches, such as playing its tones
+ * upward, or the alberti bass (root, fifth, third, fifth). Patterns are written as a series of steps separated by
+ * spaces, each lasting the same time:</p>
+ * <ul>
+ *     <li>a number picks a chord tone, counting from 0 for the root- the tones of a chord are its root and then its
+ *     other factors in ascending order within the octave, and numbers beyond the last tone continue into the next
+ *     octave (so that 3 is the root an octave up in a triad, but the seventh in a seventh chord)</li>
+ *     <li>each ' after a number raises it an octave, and each , lowers it an octave (so that 1' is a tenth)</li>
+ *     <li>"up" and "down" sweep through every tone of the chord, taking one step for each</li>
+ *     <li>"r" is a rest</li>
+ * </ul>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i>. A pattern is compiled once into a small index program (an operation, tone and
+ * octave for each step), and applying it to a chord runs this program with a {@link Cursor}, which computes each pitch
+ * from the chord's bitmask and hands back flyweight pitches and the step's own duration. Nothing is materialized per
+ * chord, so the changes of a long lead sheet can be arpeggiated straight into a {@link Line} in one pass.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class Arpeggio {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The operations of a compiled pattern */
+    private static final byte TONE = 0, SWEEP_UP = 1, SWEEP_DOWN = 2, REST = 3;
+    /** Every pitch, in order of value */
+    private static final List<Pitch> PITCHES = new ArrayList<>(Pitch.all());
+    /** An eighth of a measure, the step of the preset patterns */
+    private static final ITime EIGHTH = Time.get(1, 8);
+
+    /** Every tone of the chord, upward */
+    public static final Arpeggio UP = get("up", EIGHTH);
+    /** Every tone of the chord, downward */
+    public static final Arpeggio DOWN = get("down", EIGHTH);
+    /** The alberti bass: root, fifth, third, fifth */
+    public static final Arpeggio ALBERTI = get("0 2 1 2", EIGHTH);
+    /** Broken tenths: the root, then the third an octave above */
+    public static final Arpeggio BROKEN_TENTHS = get("0 1'", EIGHTH);
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Compiles an arpeggio pattern
+     * @param pattern the steps of the pattern, such as "0 2 1 2" (see the class overview)
+     * @param step the duration of each step
+     * @return the compiled arpeggio
+     */
+    public static @NotNull Arpeggio get(@NotNull String pattern, @NotNull ITime step) {
+        if(step.compareTo(Time.ZERO) <= 0) throw Log.error("Arpeggio", "The step of an arpeggio must be positive!");
+        String[] tokens = pattern.trim().split("\\s+");
+        if(tokens[0].isEmpty()) throw Log.error("Arpeggio", "An arpeggio must have at least one step!");
+        byte[] ops = new byte[tokens.length];
+        byte[] tones = new byte[tokens.length];
+        byte[] octaves = new byte[tokens.length];
+        for(int index = 0; index < tokens.length; index++) {
+            String token = tokens[index];
+            switch(token) {
+                case "up":   ops[index] = SWEEP_UP; break;
+                case "down": ops[index] = SWEEP_DOWN; break;
+                case "r":    ops[index] = REST; break;
+                default: {
+                    int end = token.length();
+                    int octave = 0;
+                    while(end > 0 && (token.charAt(end - 1) == '\'' || token.charAt(end - 1) == ',')) {
+                        octave += token.charAt(--end) == '\'' ? 1 : -1;
+                    }
+                    try {
+                        int tone = Integer.parseInt(token.substring(0, end));
+                        if(Math.abs(tone) > Byte.MAX_VALUE || Math.abs(octave) > Byte.MAX_VALUE) {
+                            throw new NumberFormatException();
+                        }
+                        ops[index] = TONE;
+                        tones[index] = (byte) tone;
+                        octaves[index] = (byte) octave;
+                    } catch(NumberFormatException e) {
+                        throw Log.error("Arpeggio", "Invalid step \"" + token + "\" in pattern \"" + pattern + "\"");
+                    }
+                }
+            }
+        }
+        return new Arpeggio(String.join(" ", tokens), step, ops, tones, octaves);
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The pattern this arpeggio was compiled from */
+    private final String pattern;
+    /** The duration of each step */
+    private final ITime step;
+    /** The operation of each step */
+    private final byte[] ops;
+    /** The chord tone of each step, for steps which play one */
+    private final byte[] tones;
+    /** The octave of each step above the chord tone, for steps which play one */
+    private final byte[] octaves;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A private constructor for a compiled arpeggio (use get() instead)
+     */
+    private Arpeggio(String pattern, ITime step, byte[] ops, byte[] tones, byte[] octaves) {
+        this.pattern = pattern;
+        this.step = step;
+        this.ops = ops;
+        this.tones = tones;
+        this.octaves = octaves;
+    }
+    /**
+     * Gets this arpeggio with every step lasting a different time
+     * @param step the new duration of each step
+     * @return this pattern with this step
+     */
+    public @NotNull Arpeggio withStep(@NotNull ITime step) {
+        return get(pattern, step);
+    }
+    /**
+     * Gets the duration of each step of this arpeggio
+     * @return the duration of each step
+     */
+    public @NotNull ITime getStep() {
+        return step;
+    }
+
+    /**
+     * Starts arpeggiating a chord, repeating this pattern until a length of time is filled (cutting the last step
+     * short if need be)
+     * @param chord the chord
+     * @param register the lowest pitch at which the root may be placed
+     * @param length the length of time to fill
+     * @return a cursor over the pitches and durations of the arpeggio
+     */
+    public @NotNull Cursor cursor(@NotNull Chord chord, @NotNull Pitch register, @NotNull ITime length) {
+        return new Cursor(chord, register, length);
+    }
+    /**
+     * Lazily arpeggiates a chord, leaving out any rests
+     * @param chord the chord
+     * @param register the lowest pitch at which the root may be placed
+     * @param length the length of time to fill
+     * @return a stream of the pitches of the arpeggio
+     */
+    public @NotNull Stream<Pitch> stream(@NotNull Chord chord, @NotNull Pitch register, @NotNull ITime length) {
+        Cursor cursor = cursor(chord, register, length);
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<Pitch>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Pitch> action) {
+                while(cursor.next()) {
+                    if(cursor.getPitch() != null) {
+                        action.accept(cursor.getPitch());
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }, false);
+    }
+    /**
+     * Arpeggiates a chord onto the end of a line
+     * @param line the line to write to
+     * @param chord the chord
+     * @param register the lowest pitch at which the root may be placed
+     * @param length the length of time to fill
+     * @return the line, for use in chaining such commands
+     */
+    public @NotNull Line<Pitch> writeTo(@NotNull Line<Pitch> line, @NotNull Chord chord, @NotNull Pitch register,
+                                        @NotNull ITime length) {
+        Cursor cursor = cursor(chord, register, length);
+        while(cursor.next()) {
+            if(cursor.getPitch() == null) line.add(cursor.getDuration());
+            else line.add(cursor.getPitch(), cursor.getDuration());
+        }
+        return line;
+    }
+    /**
+     * Arpeggiates every chord of a line of changes (such as those of a lead sheet) onto the end of a line, in one
+     * pass, leaving rests wherever the changes do. The line is assumed to begin where the changes do.
+     * @param line the line to write to
+     * @param changes the changes
+     * @param register the lowest pitch at which each root may be placed
+     * @return the line, for use in chaining such commands
+     */
+    public @NotNull Line<Pitch> writeTo(@NotNull Line<Pitch> line, @NotNull Line<Chord> changes,
+                                        @NotNull Pitch register) {
+        ITime time = null;
+        for(Note<Chord> note : changes.getNotes()) {
+            if(time != null && note.getStart().compareTo(time) > 0) line.add(note.getStart().minus(time));
+            writeTo(line, note.getSound(), register, note.getDuration());
+            time = note.getEnd();
+        }
+        return line;
+    }
+    /**
+     * Returns the pattern of this arpeggio
+     * @return the pattern of this arpeggio
+     */
+    @Override
+    public @NotNull String toString() {
+        return pattern;
+    }
+
+    /**
+     * <p> <b>Class overview:</b>
+     * A cursor runs an arpeggio over one chord, one step at a time. Call {@link #next()} to move to each step, then
+     * read its pitch (null for a rest) and duration.</p>
+     *
+     * <p> <b>Design Details:</b>
+     * The chord is kept as the value of its lowest root and a bitmask of its tones above the root, and each pitch is
+     * found by counting set bits. The remaining time is kept as a reduced fraction, and every step but a shortened
+     * last one reuses the arpeggio's step duration, so a cursor allocates nothing as it runs.</p>
+     */
+    public final class Cursor {
+        /** The value of the root in the register */
+        private final int root;
+        /** The tones of the chord above its root, as a twelve-bit mask which includes the root */
+        private final int toneMask;
+        /** The number of tones of the chord */
+        private final int size;
+        /** The time left to fill, as a reduced fraction */
+        private long remainingNum, remainingDen;
+        /** The step of the program being run */
+        private int op = -1;
+        /** How many tones of the current sweep have been played */
+        private int sweep = 0;
+        /** The pitch and duration of the current step */
+        private Pitch pitch;
+        private ITime duration;
+
+        private Cursor(Chord chord, Pitch register, ITime length) {
+            int offset = (chord.getRoot().getValue() - register.getPitchClass().getValue() + PitchClass.TOTAL_NUM)
+                    % PitchClass.TOTAL_NUM;
+            this.root = register.getValue() + offset;
+            this.toneMask = chord.getChordClass().getID() | 1;
+            this.size = Integer.bitCount(toneMask);
+            this.remainingNum = length.getNumerator();
+            this.remainingDen = length.getDenominator();
+        }
+        /**
+         * Moves to the next step of the arpeggio
+         * @return false if the length has been filled, and there are no more steps
+         */
+        public boolean next() {
+            if(remainingNum <= 0) return false;
+            // Move to the next step of the program, unless a sweep is still underway
+            if(sweep == 0) op = (op + 1) % ops.length;
+            switch(ops[op]) {
+                case TONE:       pitch = toPitch(tones[op], octaves[op]); break;
+                case SWEEP_UP:   pitch = toPitch(sweep, 0); break;
+                case SWEEP_DOWN: pitch = toPitch(size - 1 - sweep, 0); break;
+                default:         pitch = null;
+            }
+            if(ops[op] == SWEEP_UP || ops[op] == SWEEP_DOWN) sweep = (sweep + 1) % size;
+            // Take a whole step if there is time left for one, and otherwise whatever time is left
+            long stepNum = step.getNumerator(), stepDen = step.getDenominator();
+            if(stepNum * remainingDen <= remainingNum * stepDen) {
+                duration = step;
+                remainingNum = remainingNum * stepDen - stepNum * remainingDen;
+                remainingDen = remainingDen * stepDen;
+                long gcd = gcd(remainingNum, remainingDen);
+                remainingNum /= gcd;
+                remainingDen /= gcd;
+            } else {
+                duration = Time.get((int) remainingNum, (int) remainingDen);
+                remainingNum = 0;
+            }
+            return true;
+        }
+        /**
+         * Gets the pitch of the current step
+         * @return the pitch of the current step, or null if it is a rest
+         */
+        public @Nullable Pitch getPitch() {
+            return pitch;
+        }
+        /**
+         * Gets the duration of the current step
+         * @return the duration of the current step
+         */
+        public @NotNull ITime getDuration() {
+            return duration;
+        }
+        /** Finds the pitch of a chord tone (counting beyond the last tone into higher octaves) and octave */
+        private Pitch toPitch(int tone, int octave) {
+            int wrapped = Math.floorMod(tone, size);
+            octave += Math.floorDiv(tone, size);
+            // Find the wrapped-th set bit of the tone mask
+            int mask = toneMask;
+            for(int skipped = 0; skipped < wrapped; skipped++) {
+                mask &= mask - 1;
+            }
+            int value = root + Integer.numberOfTrailingZeros(mask) + octave * PitchClass.TOTAL_NUM;
+            if(value < Pitch.MIN.getValue() || value > Pitch.MAX.getValue()) {
+                throw Log.error("Arpeggio", "Pitch out of range.");
+            }
+            return PITCHES.get(value - Pitch.MIN.getValue());
+        }
+    }
+    private static long gcd(long a, long b) {
+        while(b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a == 0 ? 1 : a;
+    }
 }
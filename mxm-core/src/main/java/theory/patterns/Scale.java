@@ -1,4 +1,383 @@
 package theory.patterns;
 
-public class Scale {
+import io.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import theory.harmony.Harmony;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p> <b>Class overview:</b>
+ * A scale is an ordered collection of pitch classes built on a tonic, such as D dorian or Bb harmonic minor. Its
+ * intervals above the tonic are kept as a twelve-bit mask, in the same way as a {@link Harmony}, which always includes
+ * the tonic itself. The common scales are catalogued as constants on C, and may be moved to any other tonic with
+ * {@link #get(PitchClass, Scale)}.</p>
+ *
+ * <p> <b>Design Details:</b>
+ * This class is <i>immutable</i> and implements the <b>interning design pattern</b>- there is exactly one instance of
+ * each scale, created the first time it is asked for. Since melody generators query scales in their innermost loops,
+ * each scale precomputes its answers when it is created: the degree of every pitch class, the neighbouring scale tone
+ * above and below every pitch class, every pitch of the scale in order, how many of them lie below each pitch, and the
+ * nearest scale tone to each pitch. Every query is then an array index, with no allocation.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class Scale implements Iterable<PitchClass> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** The number of possible sets of intervals above a tonic, only half of which (those with a unison) are valid */
+    private static final int NUM_MASKS = Harmony.TOTAL_NUM;
+    /** The total number of scale ids, twelve tonics for each set of intervals */
+    private static final int TOTAL_NUM = NUM_MASKS * PitchClass.TOTAL_NUM;
+    /** A static table of all scales created so far, stored to implement the interning pattern */
+    private static final AtomicReferenceArray<Scale> ALL = new AtomicReferenceArray<>(TOTAL_NUM);
+    /** The name of each set of intervals in the catalog, indexed by mask */
+    private static final String[] NAMES = new String[NUM_MASKS];
+    /** Every scale in the catalog, on C */
+    private static final List<Scale> CATALOG = new ArrayList<>();
+    /** Every pitch, in order of value */
+    private static final List<Pitch> PITCHES = new ArrayList<>(Pitch.all());
+
+    /** The major scale */
+    public static final Scale MAJOR = named("major", 0b1010_1011_0101);
+    /** The natural minor scale */
+    public static final Scale NATURAL_MINOR = named("natural minor", 0b0101_1010_1101);
+    /** The harmonic minor scale, the natural minor with a raised seventh */
+    public static final Scale HARMONIC_MINOR = named("harmonic minor", 0b1001_1010_1101);
+    /** The (ascending) melodic minor scale, the natural minor with a raised sixth and seventh */
+    public static final Scale MELODIC_MINOR = named("melodic minor", 0b1010_1010_1101);
+
+    /** The first mode of the major scale */
+    public static final Scale IONIAN = named("ionian", MAJOR.getMode(0).mask);
+    /** The second mode of the major scale */
+    public static final Scale DORIAN = named("dorian", MAJOR.getMode(1).mask);
+    /** The third mode of the major scale */
+    public static final Scale PHRYGIAN = named("phrygian", MAJOR.getMode(2).mask);
+    /** The fourth mode of the major scale */
+    public static final Scale LYDIAN = named("lydian", MAJOR.getMode(3).mask);
+    /** The fifth mode of the major scale */
+    public static final Scale MIXOLYDIAN = named("mixolydian", MAJOR.getMode(4).mask);
+    /** The sixth mode of the major scale */
+    public static final Scale AEOLIAN = named("aeolian", MAJOR.getMode(5).mask);
+    /** The seventh mode of the major scale */
+    public static final Scale LOCRIAN = named("locrian", MAJOR.getMode(6).mask);
+
+    /** The major pentatonic scale */
+    public static final Scale MAJOR_PENTATONIC = named("major pentatonic", 0b0010_1001_0101);
+    /** The minor pentatonic scale */
+    public static final Scale MINOR_PENTATONIC = named("minor pentatonic", 0b0100_1010_1001);
+    /** The octatonic scale beginning with a half step */
+    public static final Scale OCTATONIC_HALF_WHOLE = named("octatonic (half-whole)", 0b0110_1101_1011);
+    /** The octatonic scale beginning with a whole step */
+    public static final Scale OCTATONIC_WHOLE_HALF = named("octatonic (whole-half)", 0b1011_0110_1101);
+    /** The whole tone scale */
+    public static final Scale WHOLE_TONE = named("whole tone", 0b0101_0101_0101);
+    /** The chromatic scale */
+    public static final Scale CHROMATIC = named("chromatic", 0b1111_1111_1111);
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Adds a scale on C to the catalog, naming its intervals if they have not been named already (so that the major
+     * scale is not renamed ionian)
+     */
+    private static Scale named(String name, int mask) {
+        Scale scale = get(PitchClass.C_NATURAL, mask);
+        if(NAMES[mask] == null) {
+            NAMES[mask] = name;
+            CATALOG.add(scale);
+        }
+        return scale;
+    }
+    /**
+     * Gets the scale of a given tonic and mask of intervals above it, creating it if it has not yet been encountered
+     * @param tonic the tonic of the scale
+     * @param mask the intervals above the tonic, as a twelve-bit mask which must include the unison
+     * @return the one instance of this scale
+     */
+    private static @NotNull Scale get(@NotNull PitchClass tonic, int mask) {
+        if(mask < 0 || mask >= NUM_MASKS || (mask & 1) == 0) {
+            throw Log.error("Scale", "A scale must include its tonic! (mask " + mask + ")");
+        }
+        int id = tonic.getValue() * NUM_MASKS + mask;
+        Scale scale = ALL.get(id);
+        if(scale == null) {
+            ALL.compareAndSet(id, null, new Scale(tonic, mask));
+            scale = ALL.get(id);
+        }
+        return scale;
+    }
+    /**
+     * Gets a scale of the same type as another, such as a catalogued scale, on a given tonic
+     * @param tonic the tonic of the scale
+     * @param type the scale whose intervals to use, such as {@link #DORIAN}
+     * @return the scale of this type on this tonic
+     */
+    public static @NotNull Scale get(@NotNull PitchClass tonic, @NotNull Scale type) {
+        return get(tonic, type.mask);
+    }
+    /**
+     * Gets the scale of a given tonic and intervals above it
+     * @param tonic the tonic of the scale
+     * @param intervals the intervals above the tonic, as a harmony over C which must include C (the unison)
+     * @return the scale of this tonic and these intervals
+     */
+    public static @NotNull Scale get(@NotNull PitchClass tonic, @NotNull Harmony intervals) {
+        return get(tonic, intervals.getID());
+    }
+    /**
+     * Returns an immutable list of every scale in the catalog, on C
+     * @return an immutable list of the catalogued scales
+     */
+    public static @NotNull List<Scale> catalog() {
+        return Collections.unmodifiableList(CATALOG);
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** The tonic of this scale */
+    private final PitchClass tonic;
+    /** The intervals of this scale above its tonic, as a twelve-bit mask */
+    private final int mask;
+    /** The pitch classes of this scale, as a twelve-bit mask */
+    private final int pitchClassMask;
+    /** The pitch class of each degree, from the tonic up */
+    private final PitchClass[] degrees;
+    /** The degree of each pitch class, or -1 for those not in this scale */
+    private final byte[] degreeOf = new byte[PitchClass.TOTAL_NUM];
+    /** The nearest pitch class of this scale strictly above and below each pitch class */
+    private final PitchClass[] above = new PitchClass[PitchClass.TOTAL_NUM], below = new PitchClass[PitchClass.TOTAL_NUM];
+    /** The intervals above the tonic of each mode of this scale, as masks */
+    private final int[] modeMasks;
+    /** Every pitch in this scale, in ascending order */
+    private final Pitch[] pitches;
+    /** The number of pitches of this scale strictly below each pitch, indexed by pitch value */
+    private final byte[] numBelow = new byte[PITCHES.size()];
+    /** The nearest pitch of this scale to each pitch (the lower, if two are equally near), indexed by pitch value */
+    private final Pitch[] snapped = new Pitch[PITCHES.size()];
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A private constructor for a scale, which builds its lookup tables
+     * @param tonic the tonic of this scale
+     * @param mask the intervals of this scale above its tonic, as a twelve-bit mask
+     */
+    private Scale(@NotNull PitchClass tonic, int mask) {
+        this.tonic = tonic;
+        this.mask = mask;
+        int size = Integer.bitCount(mask);
+
+        // Every degree, and the pitch classes between them
+        this.degrees = new PitchClass[size];
+        this.modeMasks = new int[size];
+        Arrays.fill(degreeOf, (byte) -1);
+        int pcMask = 0, degree = 0;
+        for(int interval = 0; interval < PitchClass.TOTAL_NUM; interval++) {
+            if((mask & (1 << interval)) == 0) continue;
+            int pc = (tonic.getValue() + interval) % PitchClass.TOTAL_NUM;
+            pcMask |= 1 << pc;
+            degrees[degree] = PitchClass.get(pc);
+            degreeOf[pc] = (byte) degree;
+            // The mode on this degree is this scale's mask rotated down to begin on it
+            modeMasks[degree++] = ((mask >>> interval) | (mask << (PitchClass.TOTAL_NUM - interval))) & (NUM_MASKS - 1);
+        }
+        this.pitchClassMask = pcMask;
+        for(int pc = 0; pc < PitchClass.TOTAL_NUM; pc++) {
+            for(int distance = 1; distance <= PitchClass.TOTAL_NUM; distance++) {
+                int up = (pc + distance) % PitchClass.TOTAL_NUM;
+                if(above[pc] == null && (pcMask & (1 << up)) != 0) above[pc] = PitchClass.get(up);
+                int down = (pc - distance + PitchClass.TOTAL_NUM) % PitchClass.TOTAL_NUM;
+                if(below[pc] == null && (pcMask & (1 << down)) != 0) below[pc] = PitchClass.get(down);
+            }
+        }
+
+        // Every pitch of the scale, and the place of every pitch among them
+        List<Pitch> inScale = new ArrayList<>();
+        for(Pitch pitch : PITCHES) {
+            int value = pitch.getValue() - Pitch.MIN.getValue();
+            numBelow[value] = (byte) inScale.size();
+            if((pcMask & (1 << pitch.getPitchClass().getValue())) != 0) inScale.add(pitch);
+        }
+        this.pitches = inScale.toArray(new Pitch[0]);
+        for(int value = 0; value < snapped.length; value++) {
+            int lower = numBelow[value] - 1;
+            int upper = numBelow[value];
+            if(upper < pitches.length && pitches[upper] == PITCHES.get(value)) {
+                snapped[value] = pitches[upper];
+            } else if(lower < 0) {
+                snapped[value] = pitches[upper];
+            } else if(upper >= pitches.length) {
+                snapped[value] = pitches[lower];
+            } else {
+                int downDistance = value - (pitches[lower].getValue() - Pitch.MIN.getValue());
+                int upDistance = (pitches[upper].getValue() - Pitch.MIN.getValue()) - value;
+                snapped[value] = upDistance < downDistance ? pitches[upper] : pitches[lower];
+            }
+        }
+    }
+
+    /**
+     * Gets the tonic of this scale
+     * @return the tonic of this scale
+     */
+    public @NotNull PitchClass getTonic() {
+        return tonic;
+    }
+    /**
+     * Gets the number of degrees of this scale, such as 7 for a diatonic scale
+     * @return the number of degrees of this scale
+     */
+    public int size() {
+        return degrees.length;
+    }
+    /**
+     * Gets the intervals of this scale above its tonic, as a harmony over C
+     * @return the intervals of this scale
+     */
+    public @NotNull Harmony getIntervals() {
+        return Harmony.get(mask);
+    }
+    /**
+     * Gets the pitch classes of this scale, as a harmony
+     * @return the harmony of this scale
+     */
+    public @NotNull Harmony getHarmony() {
+        return Harmony.get(pitchClassMask);
+    }
+    /**
+     * Checks if a pitch class is in this scale
+     * @param pitchClass the pitch class
+     * @return if this pitch class is in this scale
+     */
+    public boolean contains(@NotNull PitchClass pitchClass) {
+        return (pitchClassMask & (1 << pitchClass.getValue())) != 0;
+    }
+    /**
+     * Checks if a pitch is in this scale
+     * @param pitch the pitch
+     * @return if the pitch class of this pitch is in this scale
+     */
+    public boolean contains(@NotNull Pitch pitch) {
+        return contains(pitch.getPitchClass());
+    }
+    /**
+     * Gets the degree of a pitch class in this scale, where the tonic is degree 0
+     * @param pitchClass the pitch class
+     * @return the degree of this pitch class, or -1 if it is not in this scale
+     */
+    public int getDegree(@NotNull PitchClass pitchClass) {
+        return degreeOf[pitchClass.getValue()];
+    }
+    /**
+     * Gets the pitch class of a degree of this scale, where the tonic is degree 0. Degrees beyond the scale wrap
+     * around, so that degree 7 of a diatonic scale is its tonic.
+     * @param degree the degree
+     * @return the pitch class of this degree
+     */
+    public @NotNull PitchClass getPitchClass(int degree) {
+        return degrees[Math.floorMod(degree, degrees.length)];
+    }
+    /**
+     * Gets the nearest pitch class of this scale above a pitch class, which need not itself be in the scale
+     * @param pitchClass the pitch class
+     * @return the next pitch class of this scale above this one
+     */
+    public @NotNull PitchClass stepUp(@NotNull PitchClass pitchClass) {
+        return above[pitchClass.getValue()];
+    }
+    /**
+     * Gets the nearest pitch class of this scale below a pitch class, which need not itself be in the scale
+     * @param pitchClass the pitch class
+     * @return the next pitch class of this scale below this one
+     */
+    public @NotNull PitchClass stepDown(@NotNull PitchClass pitchClass) {
+        return below[pitchClass.getValue()];
+    }
+    /**
+     * Gets the nearest pitch of this scale above a pitch, which need not itself be in the scale
+     * @param pitch the pitch
+     * @return the next pitch of this scale above this one
+     */
+    public @NotNull Pitch stepUp(@NotNull Pitch pitch) {
+        return step(pitch, 1);
+    }
+    /**
+     * Gets the nearest pitch of this scale below a pitch, which need not itself be in the scale
+     * @param pitch the pitch
+     * @return the next pitch of this scale below this one
+     */
+    public @NotNull Pitch stepDown(@NotNull Pitch pitch) {
+        return step(pitch, -1);
+    }
+    /**
+     * Moves a pitch by a number of steps of this scale. A pitch not in this scale is first moved to the nearest pitch
+     * of the scale in the direction of motion, which counts as the first step (and with no steps, it is snapped).
+     * @param pitch the pitch
+     * @param steps the number of steps, positive to move up and negative to move down
+     * @return the pitch this many steps away in this scale
+     */
+    public @NotNull Pitch step(@NotNull Pitch pitch, int steps) {
+        int value = pitch.getValue() - Pitch.MIN.getValue();
+        if(steps == 0) return snapped[value];
+        int index = numBelow[value] + steps;
+        // Moving up from a pitch outside the scale, the first step lands on the next pitch of the scale above
+        if(steps > 0 && !contains(pitch)) index--;
+        if(index < 0 || index >= pitches.length) throw Log.error("Scale", "Pitch out of range.");
+        return pitches[index];
+    }
+    /**
+     * Gets the nearest pitch of this scale to a pitch, favouring the lower pitch if two are equally near
+     * @param pitch the pitch
+     * @return the nearest pitch of this scale
+     */
+    public @NotNull Pitch snap(@NotNull Pitch pitch) {
+        return snapped[pitch.getValue() - Pitch.MIN.getValue()];
+    }
+    /**
+     * Gets the mode of this scale beginning on one of its degrees, such as D dorian for degree 1 of C major
+     * @param degree the degree on which to begin, where the tonic is degree 0
+     * @return the mode of this scale beginning on this degree
+     */
+    public @NotNull Scale getMode(int degree) {
+        int wrapped = Math.floorMod(degree, degrees.length);
+        return get(degrees[wrapped], modeMasks[wrapped]);
+    }
+    /**
+     * Gets this scale's name in the catalog, if it has one
+     * @return the name of this scale's intervals, or null if they are not in the catalog
+     */
+    public @Nullable String getName() {
+        return NAMES[mask];
+    }
+    /**
+     * Returns a string representation of this scale
+     * @return a string representation of this scale, such as "D dorian"
+     */
+    @Override
+    public @NotNull String toString() {
+        String name = NAMES[mask];
+        return tonic + " " + (name != null ? name : getIntervals().toString());
+    }
+    /**
+     * Returns an iterator over the pitch classes of this scale, from the tonic up
+     * @return an iterator over the pitch classes of this scale
+     */
+    @Override
+    public @NotNull Iterator<PitchClass> iterator() {
+        return Collections.unmodifiableList(Arrays.asList(degrees)).iterator();
+    }
 }
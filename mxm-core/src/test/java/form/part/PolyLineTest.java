@@ -0,0 +1,55 @@
+package form.part;
+
+import events.sound.Note;
+import form.score.LeadSheet;
+import org.junit.jupiter.api.Test;
+import properties.note.Instrument;
+import properties.sound.Pitch;
+import properties.time.Time;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class PolyLineTest {
+    @Test
+    void chordTest() {
+        PolyLine<Pitch> piano = new PolyLine<>(new LeadSheet("Test"), Instrument.GRAND_PIANO);
+        piano.add(Arrays.asList(Pitch.get(C_NATURAL,4), Pitch.get(E_NATURAL,4), Pitch.get(G_NATURAL,4)), Time.get(1,2))
+                .add(Pitch.get(F_NATURAL,4), Time.get(1,2));
+
+        assertEquals(3, piano.getNotesAt(Time.get(0)).size());
+        assertEquals(3, piano.getNotesAt(Time.get(1,4)).size());
+        assertEquals(1, piano.getNotesAt(Time.get(1,2)).size());
+        assertEquals(0, piano.getNotesAt(Time.get(1)).size());
+        assertEquals(3, piano.getNotes().getAt(Time.get(1,2)).endedEvents().size());
+    }
+    @Test
+    void overlappingSpanTest() {
+        PolyLine<Pitch> piano = new PolyLine<>(new LeadSheet("Test"), Instrument.GRAND_PIANO);
+        // A held bass note, and a melody which is added later and splits its span
+        piano.addAll(Arrays.asList(new Note<>(piano, Pitch.get(C_NATURAL,2), Time.get(0), Time.get(1))));
+        piano.addAll(Arrays.asList(
+                new Note<>(piano, Pitch.get(E_NATURAL,4), Time.get(1,4), Time.get(1,2)),
+                new Note<>(piano, Pitch.get(G_NATURAL,4), Time.get(1,2), Time.get(3,4))));
+
+        assertEquals(1, piano.getNotesAt(Time.get(1,8)).size());
+        assertEquals(2, piano.getNotesAt(Time.get(1,4)).size());
+        assertEquals(2, piano.getNotesAt(Time.get(5,8)).size());
+        assertEquals(1, piano.getNotesAt(Time.get(7,8)).size());
+        assertEquals(1, piano.getNotes().getAt(Time.get(1,4)).continuedEvents().size());
+    }
+    @Test
+    void emptyTest() {
+        PolyLine<Pitch> piano = new PolyLine<>(new LeadSheet("Test"), Instrument.GRAND_PIANO);
+        assertNull(piano.getNotes().getFirst());
+        assertNull(piano.getNotes().getLast());
+        assertNull(piano.getNotes().getAt(Time.get(0)));
+        assertNull(piano.getNotes().getBefore(Time.get(1)));
+        assertNull(piano.getNotes().getAfter(Time.get(0)));
+        assertTrue(piano.getNotes().getStart() == Time.ZERO);
+        assertEquals(0, piano.getNotes().getLength().compareTo(Time.ZERO));
+        assertEquals(0, piano.getNotesAt(Time.get(0)).size());
+    }
+}
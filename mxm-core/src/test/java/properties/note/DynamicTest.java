@@ -1,5 +1,20 @@
 package properties.note;
 
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class DynamicTest {
 
-}
\ No newline at end of file
+    @Test
+    void flyweightTest() {
+        for(int value = 0; value <= 127; value++) {
+            assertTrue(Dynamic.get(value) == Dynamic.get(value));
+            assertEquals(value, Dynamic.get(value).getValue());
+        }
+        assertTrue(Dynamic.get(48) == Dynamic.PIANO);
+        assertTrue(Dynamic.MAX == Dynamic.FORTISSISSIMO);
+        assertThrows(Error.class, () -> Dynamic.get(128));
+        assertThrows(Error.class, () -> Dynamic.get(-1));
+    }
+}
@@ -1,5 +1,38 @@
 package properties.note;
 
+import org.junit.jupiter.api.Test;
+import properties.sound.Noise;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class NoiseTest {
 
-}
\ No newline at end of file
+    @Test
+    void internTest() {
+        assertNotNull(Noise.HIT);
+        assertTrue(Noise.get("HIT") == Noise.HIT);
+        assertTrue(Noise.get(Noise.CRASH.getID()) == Noise.CRASH);
+        assertTrue(Noise.all().contains(Noise.random()));
+    }
+    @Test
+    void concurrentTest() {
+        // Many threads registering the same new names must agree on one instance (and one id) per name
+        Set<Noise> seen = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 10000).parallel().forEach(i -> seen.add(Noise.get("concurrent " + (i % 100))));
+        assertEquals(100, seen.size());
+        Set<Integer> ids = new HashSet<>();
+        for(Noise noise : seen) {
+            assertTrue(Noise.get(noise.getID()) == noise);
+            ids.add(noise.getID());
+        }
+        assertEquals(100, ids.size());
+        // Ids are dense
+        for(int id = 0; id < Noise.all().size(); id++) {
+            assertEquals(id, Noise.get(id).getID());
+        }
+    }
+}
@@ -1,5 +1,32 @@
 package properties.sound;
 
-class ChordClassTest {
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
 
-}
\ No newline at end of file
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.ChordClass.*;
+import static properties.sound.IntervalClass.*;
+
+class ChordClassTest {
+    @Test
+    void flyweightTest() {
+        assertTrue(MAJOR == ChordClass.get(MAJOR_THIRD, PERFECT_FIFTH));
+        assertTrue(MAJOR == ChordClass.get(PERFECT_FIFTH, MAJOR_THIRD));
+        assertTrue(MAJOR == ChordClass.get(Arrays.asList(MAJOR_THIRD, PERFECT_FIFTH)));
+        assertTrue(MAJOR == ChordClass.get(MAJOR.getID()));
+        assertTrue(DOM_SEVENTH != MAJ_SEVENTH);
+    }
+    @Test
+    void idTest() {
+        assertEquals((1 << 4) | (1 << 7), MAJOR.getID());
+        assertEquals((1 << 3) | (1 << 7) | (1 << 11), MINOR_MAJOR_SEVENTH.getID());
+        for(ChordClass chordClass : ChordClass.all()) {
+            int id = 0;
+            for(IntervalClass factor : chordClass) {
+                id |= 1 << factor.getSize();
+            }
+            assertEquals(chordClass.getID(), id);
+        }
+    }
+}
@@ -1,5 +1,33 @@
 package properties.sound;
 
-class ChordTest {
+import org.junit.jupiter.api.Test;
+import theory.harmony.Harmony;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 
-}
\ No newline at end of file
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.ChordClass.*;
+import static properties.sound.PitchClass.*;
+
+class ChordTest {
+    @Test
+    void internTest() {
+        assertTrue(Chord.get(D_NATURAL, MINOR) == Chord.get(D_NATURAL, MINOR));
+        assertTrue(Chord.get(D_NATURAL, MINOR) != Chord.get(D_NATURAL, MAJOR));
+        assertEquals(Chord.TOTAL_NUM, Chord.all().size());
+    }
+    @Test
+    void factorTest() {
+        ArrayList<PitchClass> factors = new ArrayList<>();
+        Chord.get(G_NATURAL, DOM_SEVENTH).forEach(factors::add);
+        assertEquals(Arrays.asList(G_NATURAL, B_NATURAL, D_NATURAL, F_NATURAL), factors);
+    }
+    @Test
+    void harmonyTest() {
+        assertTrue(Chord.get(C_NATURAL, MAJOR).getHarmony() == Harmony.get(C_NATURAL, E_NATURAL, G_NATURAL));
+        assertTrue(Chord.get(A_NATURAL, MINOR).getHarmony() == Harmony.get(A_NATURAL, C_NATURAL, E_NATURAL));
+        assertTrue(Chord.get(B_NATURAL, HALF_DIM_SEVENTH).getHarmony()
+                == Harmony.get(B_NATURAL, D_NATURAL, F_NATURAL, A_NATURAL));
+    }
+}
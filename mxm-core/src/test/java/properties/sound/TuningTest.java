@@ -0,0 +1,58 @@
+package properties.sound;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class TuningTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void equalTemperamentTest() {
+        for(Pitch pitch : Pitch.all()) {
+            assertEquals(440 * Math.pow(2, (pitch.getValue() - 69) / 12.0), pitch.getFrequency(), 1e-9 * pitch.getFrequency());
+        }
+        assertEquals(261.6255653, Pitch.get(C_NATURAL, 4).getFrequency(), 1e-6);
+        // Baroque pitch is a half step lower
+        Tuning baroque = Tuning.equalTemperament(Tuning.A4, 415.0);
+        assertEquals(Tuning.EQUAL_TEMPERAMENT.getFrequency(Pitch.get(G_SHARP, 4)), baroque.getFrequency(Tuning.A4), 0.5);
+        assertEquals(-101.2706, baroque.getCentsDeviation(Pitch.get(C_NATURAL, 2)), 1e-3);
+    }
+    @Test
+    void justIntonationTest() {
+        Tuning just = Tuning.justIntonation(C_NATURAL, Pitch.get(C_NATURAL, 4), 256.0);
+        assertEquals(256.0, just.getFrequency(Pitch.get(C_NATURAL, 4)), EPSILON);
+        assertEquals(320.0, just.getFrequency(Pitch.get(E_NATURAL, 4)), EPSILON);
+        assertEquals(384.0, just.getFrequency(Pitch.get(G_NATURAL, 4)), EPSILON);
+        assertEquals(192.0, just.getFrequency(Pitch.get(G_NATURAL, 3)), EPSILON);
+        assertEquals(240.0, just.getFrequency(Pitch.get(B_NATURAL, 3)), EPSILON);
+        // The reference need not be the tonic
+        Tuning justA = Tuning.justIntonation(C_NATURAL, Tuning.A4, 440.0);
+        assertEquals(440.0, justA.getFrequency(Tuning.A4), EPSILON);
+        assertEquals(440.0 * 3 / 5, justA.getFrequency(Pitch.get(C_NATURAL, 4)), EPSILON);
+        assertEquals(-13.686, justA.getCentsDeviation(Pitch.get(E_NATURAL, 4)) - justA.getCentsDeviation(Pitch.get(C_NATURAL, 4)), 1e-3);
+    }
+    @Test
+    void scalaTest() {
+        // A twelve-step equal temperament written as a Scala file matches the built-in one
+        StringBuilder scl = new StringBuilder("! 12-tet.scl\n!\n12-tone equal temperament\n 12\n!\n");
+        for(int step = 1; step <= 11; step++) {
+            scl.append(' ').append(step * 100).append(".0\n");
+        }
+        scl.append(" 2/1\n");
+        Tuning tet = Tuning.fromScala(scl.toString(), Tuning.A4, 440.0);
+        assertEquals("12-tone equal temperament", tet.getName());
+        for(Pitch pitch : Pitch.all()) {
+            assertEquals(pitch.getFrequency(), tet.getFrequency(pitch), 1e-9 * pitch.getFrequency());
+        }
+        // A five-step scale repeats every five pitches
+        Tuning pentatonic = Tuning.fromScala("Pentatonic\n5\n9/8\n5/4\n3/2\n5/3\n2\n", Pitch.get(C_NATURAL, 4), 200.0);
+        assertEquals(250.0, pentatonic.getFrequency(Pitch.get(D_NATURAL, 4)), EPSILON);
+        assertEquals(400.0, pentatonic.getFrequency(Pitch.get(F_NATURAL, 4)), EPSILON);
+        assertEquals(450.0, pentatonic.getFrequency(Pitch.get(F_SHARP, 4)), EPSILON);
+        assertEquals(100.0 * 5 / 3, pentatonic.getFrequency(Pitch.get(B_NATURAL, 3)), EPSILON);
+        assertThrows(Error.class, () -> Tuning.fromScala("Broken\n2\n100.0\n", Tuning.A4, 440.0));
+    }
+}
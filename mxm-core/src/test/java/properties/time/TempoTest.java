@@ -1,5 +1,22 @@
 package properties.time;
 
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class TempoTest {
 
-}
\ No newline at end of file
+    @Test
+    void internTest() {
+        assertTrue(Tempo.get(120) == Tempo.DEFAULT);
+        for(int bpm = 1; bpm <= Tempo.MAX_CACHED_BPM; bpm++) {
+            assertTrue(Tempo.get(bpm) == Tempo.get(bpm));
+        }
+        // Tempi too fast to intern are still compared by value
+        Tempo fast = Tempo.get(Tempo.MAX_CACHED_BPM + 1);
+        assertEquals(fast, Tempo.get(Tempo.MAX_CACHED_BPM + 1));
+        assertEquals(fast.hashCode(), Tempo.get(Tempo.MAX_CACHED_BPM + 1).hashCode());
+        assertNotEquals(fast, Tempo.get(Tempo.MAX_CACHED_BPM));
+        assertThrows(Error.class, () -> Tempo.get(0));
+    }
+}
@@ -1,5 +1,28 @@
 package properties.time;
 
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class TimeSigTest {
 
-}
\ No newline at end of file
+    @Test
+    void internTest() {
+        assertTrue(TimeSig.COMMON_TIME == TimeSig.FOUR_FOUR);
+        assertTrue(TimeSig.get(6, 8) == TimeSig.SIX_EIGHT);
+        for(int num = 1; num <= TimeSig.MAX_CACHED_NUMERATOR; num++) {
+            for(int den = 1; den <= TimeSig.MAX_CACHED_DENOMINATOR; den *= 2) {
+                TimeSig timeSig = TimeSig.get(num, den);
+                assertTrue(timeSig == TimeSig.get(num, den));
+                assertEquals(num, timeSig.getNumerator());
+                assertEquals(den, timeSig.getDenominator());
+            }
+        }
+        // Time signatures too large to intern are still compared by value
+        assertEquals(TimeSig.get(65, 4), TimeSig.get(65, 4));
+        assertEquals(TimeSig.get(3, 256), TimeSig.get(3, 256));
+        assertNotEquals(TimeSig.get(65, 4), TimeSig.get(65, 8));
+        assertNotEquals(TimeSig.get(2, 2), TimeSig.get(4, 4));
+        assertThrows(Error.class, () -> TimeSig.get(3, 6));
+    }
+}
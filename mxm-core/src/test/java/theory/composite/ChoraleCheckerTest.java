@@ -0,0 +1,71 @@
+package theory.composite;
+
+import form.score.Chorale;
+import org.junit.jupiter.api.Test;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import properties.time.ITime;
+import properties.time.Time;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class ChoraleCheckerTest {
+
+    /** Adds a slice of four notes (bass, tenor, alto, soprano) to a chorale */
+    private static void add(Chorale chorale, ITime length, Pitch bass, Pitch tenor, Pitch alto, Pitch soprano) {
+        chorale.getBass().add(bass, length);
+        chorale.getTenor().add(tenor, length);
+        chorale.getAlto().add(alto, length);
+        chorale.getSoprano().add(soprano, length);
+    }
+    private static Pitch pitch(PitchClass pitchClass, int octave) {
+        return Pitch.get(pitchClass, octave);
+    }
+
+    @Test
+    void checkTest() {
+        Chorale chorale = new Chorale("Forbidden");
+        ITime quarter = Time.get(1, 4);
+        add(chorale, quarter, pitch(C_NATURAL, 3), pitch(G_NATURAL, 3), pitch(E_NATURAL, 4), pitch(C_NATURAL, 5));
+        add(chorale, quarter, pitch(D_NATURAL, 3), pitch(A_NATURAL, 3), pitch(F_NATURAL, 4), pitch(D_NATURAL, 5));
+        add(chorale, quarter, pitch(G_NATURAL, 2), pitch(B_NATURAL, 3), pitch(D_NATURAL, 4), pitch(B_NATURAL, 4));
+        add(chorale, quarter, pitch(C_NATURAL, 3), pitch(C_NATURAL, 4), pitch(E_NATURAL, 4), pitch(C_NATURAL, 5));
+        add(chorale, Time.get(1), pitch(C_NATURAL, 3), pitch(E_NATURAL, 4), pitch(C_NATURAL, 4), pitch(G_NATURAL, 4));
+        ChoraleChecker checker = new ChoraleChecker(chorale);
+        List<ChoraleChecker.Violation> violations = checker.check();
+        assertEquals(4, violations.size());
+        assertEquals("parallel fifths (bass, tenor) at 1/4", violations.get(0).toString());
+        assertTrue(violations.get(1).getRule() == ChoraleChecker.Rule.PARALLEL_OCTAVES);
+        assertEquals(3, violations.get(1).getOtherVoice());
+        assertTrue(violations.get(2).getRule() == ChoraleChecker.Rule.PARALLEL_OCTAVES);
+        assertEquals(1, violations.get(2).getVoice());
+        assertEquals(1, checker.getViolations(1).size());
+        assertTrue(checker.getViolations(1).get(0).getRule() == ChoraleChecker.Rule.CROSSING);
+        assertFalse(checker.isValid());
+        assertTrue(new ChoraleChecker(new Chorale("Empty")).check().isEmpty());
+    }
+    @Test
+    void recheckTest() {
+        Chorale chorale = new Chorale("Growing");
+        add(chorale, Time.get(1), pitch(C_NATURAL, 3), pitch(G_NATURAL, 3), pitch(E_NATURAL, 4), pitch(C_NATURAL, 5));
+        ChoraleChecker checker = new ChoraleChecker(chorale);
+        assertTrue(checker.check().isEmpty());
+        // A tenor too far below the alto, and a soprano too high
+        add(chorale, Time.get(1, 2), pitch(F_NATURAL, 2), pitch(D_NATURAL, 3), pitch(C_NATURAL, 5), pitch(A_NATURAL, 5));
+        add(chorale, Time.get(1, 2), pitch(F_NATURAL, 2), pitch(A_NATURAL, 3), pitch(F_NATURAL, 4), pitch(C_NATURAL, 5));
+        List<ChoraleChecker.Violation> rechecked = checker.recheck(1, 1);
+        assertEquals(2, rechecked.size());
+        assertTrue(rechecked.get(0).getRule() == ChoraleChecker.Rule.SPACING);
+        assertTrue(rechecked.get(1).getRule() == ChoraleChecker.Rule.RANGE);
+        assertEquals(3, rechecked.get(1).getVoice());
+        // Rechecking gives the same violations as checking from scratch
+        assertEquals(new ChoraleChecker(chorale).check().toString(), rechecked.toString());
+        // Measures beyond those already swept are filled in, rather than skipped
+        add(chorale, Time.get(1), pitch(C_NATURAL, 3), pitch(G_NATURAL, 3), pitch(E_NATURAL, 4), pitch(C_NATURAL, 5));
+        add(chorale, Time.get(1), pitch(D_NATURAL, 3), pitch(A_NATURAL, 3), pitch(F_NATURAL, 4), pitch(D_NATURAL, 5));
+        assertEquals(new ChoraleChecker(chorale).check().toString(), checker.recheck(3, 3).toString());
+    }
+}
@@ -0,0 +1,67 @@
+package theory.composite;
+
+import events.sound.Note;
+import form.part.Line;
+import form.score.Chorale;
+import form.score.LeadSheet;
+import org.junit.jupiter.api.Test;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import properties.time.Time;
+import theory.harmony.Key;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class HarmonizerTest {
+
+    /** Writes a melody of quarter notes, given as pitches such as "E5 D5 C5" */
+    private static Line<Pitch> melody(String pitches) {
+        Line<Pitch> line = new LeadSheet("Melody").getTune();
+        for(String name : pitches.trim().split("\\s+")) {
+            PitchClass pitchClass = null;
+            for(PitchClass candidate : PitchClass.all()) {
+                if(candidate.toString().equals(name.substring(0, name.length() - 1))) pitchClass = candidate;
+            }
+            assertNotNull(pitchClass);
+            line.add(Pitch.get(pitchClass, name.charAt(name.length() - 1) - '0'), Time.get(1, 4));
+        }
+        return line;
+    }
+    private static List<Pitch> pitches(Line<Pitch> line) {
+        List<Pitch> pitches = new ArrayList<>();
+        for(Note<Pitch> note : line.getNotes()) {
+            pitches.add(note.getSound());
+        }
+        return pitches;
+    }
+
+    @Test
+    void harmonizeTest() {
+        Line<Pitch> soprano = melody("E5 E5 D5 C5 D5 E5 F5 E5 D5 C5 B4 C5 D5 B4 C5 C5 "
+                                   + "G4 A4 B4 C5 D5 C5 B4 A4 G4 A4 B4 G4 A4 B4 C5 D5 "
+                                   + "E5 F5 G5 E5 D5 C5 D5 E5 C5 D5 E5 F5 E5 D5 D5 C5 "
+                                   + "C5 B4 A4 G4 A4 B4 C5 A4 G4 C5 B4 A4 G4 F4 D4 C4");
+        Chorale chorale = new Harmonizer(Key.get(C_NATURAL, Key.Mode.MAJOR)).harmonize(soprano, "Sixteen bars");
+        assertNotNull(chorale);
+        assertEquals(pitches(soprano), pitches(chorale.getSoprano()));
+        assertEquals(64, pitches(chorale.getBass()).size());
+        assertTrue(new ChoraleChecker(chorale).check().isEmpty());
+        // The last note is set to the tonic, in root position
+        Note<Pitch> last = chorale.getBass().getNotes().getLast();
+        assertNotNull(last);
+        assertTrue(last.getSound().getPitchClass() == C_NATURAL);
+    }
+    @Test
+    void minorTest() {
+        Line<Pitch> soprano = melody("C5 D5 E5 D5 C5 B4 C5 B4 A4");
+        Chorale chorale = new Harmonizer(Key.get(A_NATURAL, Key.Mode.MINOR)).harmonize(soprano, "Minor");
+        assertNotNull(chorale);
+        assertTrue(new ChoraleChecker(chorale).check().isEmpty());
+        // A note outside the key cannot be harmonized
+        assertNull(new Harmonizer(Key.get(C_NATURAL, Key.Mode.MAJOR)).harmonize(melody("C5 Db5 D5"), "Chromatic"));
+    }
+}
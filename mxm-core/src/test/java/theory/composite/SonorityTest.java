@@ -0,0 +1,58 @@
+package theory.composite;
+
+import org.junit.jupiter.api.Test;
+import properties.sound.Interval;
+import properties.sound.Pitch;
+import theory.harmony.Harmony;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class SonorityTest {
+    private static final Sonority C_MAJOR = Sonority.get(Pitch.get(C_NATURAL, 3), Pitch.get(E_NATURAL, 4),
+                                                         Pitch.get(G_NATURAL, 4));
+
+    @Test
+    void setTest() {
+        Sonority high = Sonority.get(Pitch.get(G_NATURAL, 4), Pitch.get(B_NATURAL, 8));
+        assertEquals(4, C_MAJOR.plus(high).size());
+        assertEquals(Sonority.get(Pitch.get(G_NATURAL, 4)), C_MAJOR.intersection(high));
+        assertEquals(Sonority.get(Pitch.get(C_NATURAL, 3), Pitch.get(E_NATURAL, 4)), C_MAJOR.minus(high));
+        assertEquals(Sonority.get(Pitch.get(E_NATURAL, 4)),
+                     C_MAJOR.subSonority(Pitch.get(D_NATURAL, 3), Pitch.get(G_NATURAL, 4)));
+        assertTrue(Pitch.get(C_NATURAL, 3) == C_MAJOR.getLowest());
+        assertTrue(Pitch.get(B_NATURAL, 8) == high.getHighest());
+        assertTrue(Sonority.EMPTY.getLowest() == null);
+    }
+    @Test
+    void transposeTest() {
+        Sonority wide = Sonority.get(Pitch.get(C_NATURAL, -1), Pitch.get(G_NATURAL, 4), Pitch.get(C_NATURAL, 9));
+        for(int halfSteps : new int[] { 1, 7, 12, 63, 64, 65, 70 }) {
+            Sonority low = Sonority.get(Pitch.get(C_NATURAL, -1), Pitch.get(E_NATURAL, 0));
+            Sonority up = low.transpose(Interval.get(halfSteps));
+            assertEquals(low.stream().map(pitch -> pitch.plus(Interval.get(halfSteps))).collect(Collectors.toList()),
+                         up.stream().collect(Collectors.toList()));
+            assertEquals(low, up.transpose(Interval.get(-halfSteps)));
+        }
+        assertThrows(Error.class, () -> wide.transpose(Interval.get(1)));
+    }
+    @Test
+    void harmonyTest() {
+        assertTrue(C_MAJOR.getHarmony() == Harmony.get(C_NATURAL, E_NATURAL, G_NATURAL));
+        // Every pitch folds onto its own pitch class, including those around the boundary of the two longs
+        for(Pitch pitch : Pitch.all()) {
+            assertTrue(Sonority.get(pitch).getHarmony() == Harmony.get(pitch.getPitchClass()));
+        }
+        assertEquals(Arrays.asList(Pitch.get(C_NATURAL, 3), Pitch.get(E_NATURAL, 4), Pitch.get(G_NATURAL, 4)),
+                     C_MAJOR.parallelStream().collect(Collectors.toList()));
+    }
+    @Test
+    void internTest() {
+        Sonority copy = Sonority.get(Pitch.get(G_NATURAL, 4), Pitch.get(E_NATURAL, 4), Pitch.get(C_NATURAL, 3));
+        assertFalse(copy == C_MAJOR);
+        assertTrue(copy.intern() == C_MAJOR.intern());
+    }
+}
@@ -0,0 +1,115 @@
+package theory.composite;
+
+import org.junit.jupiter.api.Test;
+import properties.sound.Chord;
+import properties.sound.ChordClass;
+import properties.sound.Interval;
+import properties.sound.Pitch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class VoiceLeadingTest {
+    private static final Sonority C_MAJOR = Sonority.get(Pitch.get(C_NATURAL, 4), Pitch.get(E_NATURAL, 4),
+                                                         Pitch.get(G_NATURAL, 4));
+
+    @Test
+    void leadTest() {
+        Sonority eMinor = Sonority.get(Pitch.get(B_NATURAL, 3), Pitch.get(E_NATURAL, 4), Pitch.get(G_NATURAL, 4));
+        VoiceLeading.Motion motion = VoiceLeading.TAXICAB.lead(C_MAJOR, eMinor);
+        assertEquals(1, motion.getCost());
+        assertEquals("[C4->B3, E4->E4, G4->G4] (1)", motion.toString());
+        assertTrue(motion.getInterval(0) == Interval.get(-1));
+        assertTrue(VoiceLeading.TAXICAB.lead(C_MAJOR, eMinor) == motion);
+        // A voice splits to reach the seventh
+        Sonority c7 = C_MAJOR.plus(Sonority.get(Pitch.get(B_FLAT, 4)));
+        assertEquals(3, VoiceLeading.TAXICAB.cost(C_MAJOR, c7));
+        assertEquals(4, VoiceLeading.TAXICAB.lead(C_MAJOR, c7).size());
+        assertEquals("[C4->C4, E4->E4, G4->G4, G4->Bb4] (3)", VoiceLeading.TAXICAB.lead(C_MAJOR, c7).toString());
+        assertEquals(3, VoiceLeading.TAXICAB.cost(c7, C_MAJOR));
+        assertEquals(0, VoiceLeading.TAXICAB.cost(Sonority.EMPTY, Sonority.EMPTY));
+        assertThrows(Error.class, () -> VoiceLeading.TAXICAB.lead(C_MAJOR, Sonority.EMPTY));
+    }
+    @Test
+    void voicingTest() {
+        // Each voice of a voicing is a voice of the motion
+        List<Voicing> voicings = Voicing.all(Chord.get(C_NATURAL, ChordClass.MAJOR), VoicingConstraints.SATB);
+        Voicing first = voicings.get(0);
+        VoiceLeading.Motion motion = VoiceLeading.TAXICAB.lead(first, first);
+        assertEquals(first.getVoices().size(), motion.size());
+        assertEquals(0, motion.getCost());
+        for(int voice = 0; voice < motion.size(); voice++) {
+            assertTrue(motion.getFrom(voice) == first.getVoice(voice));
+            assertTrue(motion.getTo(voice) == first.getVoice(voice));
+        }
+        Voicing last = voicings.get(voicings.size() - 1);
+        assertEquals(VoiceLeading.TAXICAB.cost(first.getSonority(), last.getSonority()),
+                     VoiceLeading.TAXICAB.lead(first, last).getCost());
+    }
+    @Test
+    void costTableTest() {
+        // Holding a common tone is free, steps are cheap, and every leap costs the same
+        VoiceLeading stepwise = VoiceLeading.get(0, 1, 1, 5);
+        assertEquals(5, stepwise.getCost(Interval.get(-12)));
+        Sonority fMajor = Sonority.get(Pitch.get(C_NATURAL, 4), Pitch.get(F_NATURAL, 4), Pitch.get(A_NATURAL, 4));
+        assertEquals(2, stepwise.cost(C_MAJOR, fMajor));
+        assertThrows(Error.class, () -> VoiceLeading.get(0, -1));
+    }
+    @Test
+    void bruteForceTest() {
+        Random random = new Random(42);
+        VoiceLeading costs = VoiceLeading.get(0, 1, 2, 4, 4, 6, 9, 3, 8);
+        for(int trial = 0; trial < 200; trial++) {
+            int[] from = randomValues(random, 5);
+            int[] to = randomValues(random, 5);
+            Sonority a = sonority(from);
+            Sonority b = sonority(to);
+            // The values of a sonority are ascending, as is the order of its iterator
+            from = values(a);
+            to = values(b);
+            assertEquals(bruteForce(costs, from, to, new boolean[to.length], 0), costs.cost(a, b));
+        }
+    }
+
+    private static int[] randomValues(Random random, int size) {
+        int[] values = new int[size];
+        for(int index = 0; index < size; index++) {
+            values[index] = 48 + random.nextInt(24);
+        }
+        return values;
+    }
+    private static Sonority sonority(int[] values) {
+        List<Pitch> pitches = new ArrayList<>();
+        for(int value : values) {
+            pitches.add(Pitch.get(C_NATURAL, 4).plus(Interval.get(value - 60)));
+        }
+        return Sonority.get(pitches);
+    }
+    private static int[] values(Sonority sonority) {
+        return sonority.stream().mapToInt(Pitch::getValue).toArray();
+    }
+    /** Tries every assignment when the sizes match, and otherwise every surjection from the larger to the smaller */
+    private static int bruteForce(VoiceLeading costs, int[] from, int[] to, boolean[] used, int index) {
+        if(from.length < to.length) return bruteForce(costs, to, from, new boolean[from.length], 0);
+        if(index == from.length) {
+            for(boolean reached : used) {
+                if(!reached) return Integer.MAX_VALUE;
+            }
+            return 0;
+        }
+        int best = Integer.MAX_VALUE;
+        for(int j = 0; j < to.length; j++) {
+            boolean previous = used[j];
+            used[j] = true;
+            int rest = bruteForce(costs, from, to, used, index + 1);
+            used[j] = previous;
+            if(rest == Integer.MAX_VALUE) continue;
+            best = Math.min(best, rest + costs.getCost(Interval.get(to[j] - from[index])));
+        }
+        return best;
+    }
+}
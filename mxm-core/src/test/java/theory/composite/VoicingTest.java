@@ -0,0 +1,81 @@
+package theory.composite;
+
+import org.junit.jupiter.api.Test;
+import properties.sound.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class VoicingTest {
+    private static final Chord C_MAJOR = Chord.get(C_NATURAL, ChordClass.MAJOR);
+    private static final Chord G_SEVENTH = Chord.get(G_NATURAL, ChordClass.DOM_SEVENTH);
+
+    @Test
+    void enumerateTest() {
+        VoicingConstraints constraints = VoicingConstraints.SATB.withBass(C_NATURAL);
+        List<Voicing> voicings = Voicing.stream(C_MAJOR, constraints).collect(Collectors.toList());
+        assertEquals(bruteForce(C_MAJOR, constraints), voicesOf(voicings));
+        assertFalse(voicings.isEmpty());
+        for(Voicing voicing : voicings) {
+            assertTrue(voicing.getBass().getPitchClass() == C_NATURAL);
+            assertTrue(voicing.getSonority().getHarmony() == C_MAJOR.getHarmony());
+        }
+    }
+    @Test
+    void constraintTest() {
+        VoicingConstraints constraints = VoicingConstraints.SATB.withOptional(IntervalClass.PERFECT_FIFTH)
+                .withUndoubled(IntervalClass.MAJOR_THIRD, IntervalClass.MINOR_SEVENTH);
+        List<Voicing> voicings = Voicing.stream(G_SEVENTH, constraints).collect(Collectors.toList());
+        assertEquals(bruteForce(G_SEVENTH, constraints), voicesOf(voicings));
+        assertTrue(voicings.stream().anyMatch(voicing -> !voicing.getSonority().getHarmony().contains(D_NATURAL)));
+    }
+    @Test
+    void parallelTest() {
+        VoicingConstraints constraints = VoicingConstraints.SATB;
+        List<Voicing> sequential = Voicing.stream(G_SEVENTH, constraints).collect(Collectors.toList());
+        assertEquals(sequential, Voicing.stream(G_SEVENTH, constraints).parallel().collect(Collectors.toList()));
+        assertEquals(sequential, Voicing.all(G_SEVENTH, constraints));
+        assertTrue(Voicing.all(G_SEVENTH, constraints) == Voicing.all(G_SEVENTH, VoicingConstraints.SATB));
+    }
+
+    /** Lists every acceptable voicing of four voices by trying every combination of pitches in their ranges */
+    private static List<List<Pitch>> bruteForce(Chord chord, VoicingConstraints constraints) {
+        List<List<Pitch>> voicings = new ArrayList<>();
+        for(int bass = constraints.lowValue(0); bass <= constraints.highValue(0); bass++)
+        for(int tenor = constraints.lowValue(1); tenor <= constraints.highValue(1); tenor++)
+        for(int alto = constraints.lowValue(2); alto <= constraints.highValue(2); alto++)
+        for(int soprano = constraints.lowValue(3); soprano <= constraints.highValue(3); soprano++) {
+            Pitch[] voices = { VoicingConstraints.toPitch(bass), VoicingConstraints.toPitch(tenor),
+                               VoicingConstraints.toPitch(alto), VoicingConstraints.toPitch(soprano) };
+            if(isAcceptable(chord, constraints, voices)) voicings.add(Arrays.asList(voices));
+        }
+        return voicings;
+    }
+    private static List<List<Pitch>> voicesOf(List<Voicing> voicings) {
+        return voicings.stream().map(Voicing::getVoices).collect(Collectors.toList());
+    }
+    private static boolean isAcceptable(Chord chord, VoicingConstraints constraints, Pitch[] voices) {
+        for(int voice = 0; voice < voices.length; voice++) {
+            int value = voices[voice].getValue();
+            if(value < constraints.lowValue(voice) || value > constraints.highValue(voice)) return false;
+            if(!chord.getHarmony().contains(voices[voice].getPitchClass())) return false;
+            if(voice > 0 && (value <= voices[voice - 1].getValue()
+                             || value - voices[voice - 1].getValue() > constraints.maxSpacing(voice - 1))) return false;
+        }
+        if(constraints.bassValue() >= 0 && voices[0].getPitchClass().getValue() != constraints.bassValue()) return false;
+        int root = chord.getRoot().getValue();
+        for(PitchClass pitchClass : chord) {
+            int factor = 1 << ((pitchClass.getValue() - root + 12) % 12);
+            long count = Arrays.asList(voices).stream().filter(pitch -> pitch.getPitchClass() == pitchClass).count();
+            if(count == 0 && (constraints.optionalMask() & factor) == 0) return false;
+            if(count > 1 && (constraints.undoubledMask() & factor) != 0) return false;
+            if(count > constraints.maxDoublings()) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package theory.harmony;
+
+import org.junit.jupiter.api.Test;
+import properties.sound.Chord;
+import properties.sound.ChordClass;
+import properties.sound.Pitch;
+import theory.composite.Sonority;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class ChordRecognizerTest {
+
+    @Test
+    void exactTest() {
+        assertTrue(ChordRecognizer.recognize(Harmony.get(C_NATURAL, E_NATURAL, G_NATURAL))
+                == Chord.get(C_NATURAL, ChordClass.MAJOR));
+        assertTrue(ChordRecognizer.recognize(Harmony.get(G_NATURAL, B_NATURAL, D_NATURAL, F_NATURAL))
+                == Chord.get(G_NATURAL, ChordClass.DOM_SEVENTH));
+        assertTrue(ChordRecognizer.recognize(Harmony.EMPTY) == null);
+        // Every non-empty harmony has an exact reading whose harmony is itself
+        for(int id = 1; id < Harmony.TOTAL_NUM; id++) {
+            Harmony harmony = Harmony.get(id);
+            for(Chord chord : ChordRecognizer.recognize(harmony, 0)) {
+                assertTrue(chord.getHarmony() == harmony);
+            }
+            assertFalse(ChordRecognizer.recognize(harmony, 0).isEmpty());
+        }
+    }
+    @Test
+    void toleranceTest() {
+        Harmony noFifth = Harmony.get(C_NATURAL, E_NATURAL, B_FLAT);
+        List<Chord> chords = ChordRecognizer.recognize(noFifth, 1);
+        assertTrue(chords.get(0) == Chord.get(C_NATURAL, ChordClass.DOM_SEVENTH));
+        assertFalse(ChordRecognizer.recognize(noFifth, 0).contains(Chord.get(C_NATURAL, ChordClass.DOM_SEVENTH)));
+        Harmony addedTone = Harmony.get(C_NATURAL, E_NATURAL, G_NATURAL, F_SHARP);
+        assertTrue(ChordRecognizer.recognize(addedTone, 1).get(0) == Chord.get(C_NATURAL, ChordClass.MAJOR));
+    }
+    @Test
+    void bassTest() {
+        Sonority c6 = Sonority.get(Pitch.get(C_NATURAL, 3), Pitch.get(E_NATURAL, 4), Pitch.get(G_NATURAL, 4),
+                                   Pitch.get(A_NATURAL, 4));
+        Sonority am7 = Sonority.get(Pitch.get(A_NATURAL, 2), Pitch.get(C_NATURAL, 4), Pitch.get(E_NATURAL, 4),
+                                    Pitch.get(G_NATURAL, 4));
+        assertTrue(ChordRecognizer.recognize(c6) == Chord.get(C_NATURAL, ChordClass.MAJ_SIXTH));
+        assertTrue(ChordRecognizer.recognize(am7) == Chord.get(A_NATURAL, ChordClass.MIN_SEVENTH));
+    }
+}
@@ -0,0 +1,108 @@
+package theory.harmony;
+
+import form.score.LeadSheet;
+import org.junit.jupiter.api.Test;
+import properties.sound.Chord;
+import properties.sound.ChordClass;
+import properties.sound.IntervalClass;
+import properties.sound.PitchClass;
+import properties.time.ITime;
+import properties.time.Time;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.ChordClass.*;
+import static properties.sound.PitchClass.*;
+
+class FunctionTest {
+
+    private static final Key C_MAJOR = Key.get(C_NATURAL, Key.Mode.MAJOR);
+    private static final Key A_MINOR = Key.get(A_NATURAL, Key.Mode.MINOR);
+
+    private static String numeral(Key key, PitchClass root, ChordClass chordClass) {
+        Function function = Function.get(key, Chord.get(root, chordClass));
+        return function == null ? null : function.getNumeral();
+    }
+
+    @Test
+    void diatonicTest() {
+        assertEquals("I", numeral(C_MAJOR, C_NATURAL, MAJOR));
+        assertEquals("ii7", numeral(C_MAJOR, D_NATURAL, MIN_SEVENTH));
+        assertEquals("V7", numeral(C_MAJOR, G_NATURAL, DOM_SEVENTH));
+        assertEquals("V7", numeral(C_MAJOR, G_NATURAL, DOMINANT_THIRTEENTH));
+        assertEquals("V7", numeral(C_MAJOR, G_NATURAL, ChordClass.get(IntervalClass.PERFECT_FOURTH,
+                IntervalClass.PERFECT_FIFTH, IntervalClass.MINOR_SEVENTH)));
+        assertEquals("vii\u00F87", numeral(C_MAJOR, B_NATURAL, HALF_DIM_SEVENTH));
+        assertEquals("IVmaj7", numeral(C_MAJOR, F_NATURAL, MAJOR_NINTH));
+        assertEquals("i", numeral(A_MINOR, A_NATURAL, MINOR));
+        assertEquals("III", numeral(A_MINOR, C_NATURAL, MAJOR));
+        assertEquals("V7", numeral(A_MINOR, E_NATURAL, DOM_SEVENTH));
+        assertEquals("vii\u00B07", numeral(A_MINOR, G_SHARP, DIM_SEVENTH));
+        assertEquals("VII", numeral(A_MINOR, G_NATURAL, MAJOR));
+        assertTrue(Function.get(C_MAJOR, Chord.get(G_NATURAL, DOM_SEVENTH)).getRole() == Function.Role.DOMINANT);
+        assertTrue(Function.get(C_MAJOR, Chord.get(F_NATURAL, MAJOR)).getRole() == Function.Role.PREDOMINANT);
+        assertTrue(Function.get(C_MAJOR, Chord.get(A_NATURAL, MINOR)).getRole() == Function.Role.TONIC);
+        assertNull(Function.get(C_MAJOR, Chord.get(C_NATURAL, POWER_CHORD)));
+    }
+    @Test
+    void chromaticTest() {
+        assertEquals("V7/V", numeral(C_MAJOR, D_NATURAL, DOM_SEVENTH));
+        assertEquals("V/vi", numeral(C_MAJOR, E_NATURAL, MAJOR));
+        assertEquals("V7/IV", numeral(C_MAJOR, C_NATURAL, DOM_SEVENTH));
+        assertEquals("vii\u00B07/V", numeral(C_MAJOR, F_SHARP, DIM_SEVENTH));
+        assertEquals("iv", numeral(C_MAJOR, F_NATURAL, MINOR));
+        assertEquals("bVI", numeral(C_MAJOR, A_FLAT, MAJOR));
+        assertEquals("bVII", numeral(C_MAJOR, B_FLAT, MAJOR));
+        assertEquals("bII", numeral(C_MAJOR, D_FLAT, MAJOR));
+        assertEquals("V7/VI", numeral(A_MINOR, C_NATURAL, DOM_SEVENTH));
+        assertEquals("I", numeral(A_MINOR, A_NATURAL, MAJOR));
+        assertEquals("V/V", numeral(A_MINOR, B_NATURAL, MAJOR));
+        assertEquals("V7/V", numeral(A_MINOR, B_NATURAL, DOM_SEVENTH));
+        assertEquals("vii\u00B07/V", numeral(A_MINOR, D_SHARP, DIM_SEVENTH));
+        assertEquals("V7/iv", numeral(A_MINOR, A_NATURAL, DOM_SEVENTH));
+        assertTrue(Function.get(C_MAJOR, Chord.get(F_NATURAL, MINOR)).isBorrowed());
+        assertTrue(Function.get(C_MAJOR, Chord.get(D_NATURAL, DOM_SEVENTH)).isSecondary());
+        assertNull(Function.get(C_MAJOR, Chord.get(F_SHARP, MAJOR)));
+    }
+    @Test
+    void tableTest() {
+        // Functions are the same in every key, and the key finds the chord of each of its functions
+        for(Key key : Key.all()) {
+            Key onC = Key.get(C_NATURAL, key.getMode());
+            for(ChordClass chordClass : Arrays.asList(MAJOR, MINOR, DOM_SEVENTH, DIM_SEVENTH, MINOR_NINTH)) {
+                for(PitchClass root : PitchClass.all()) {
+                    Chord chord = Chord.get(root, chordClass);
+                    Function function = key.getFunction(chord);
+                    PitchClass rootOnC = PitchClass.get((root.getValue() - key.getTonic().getValue() + 12) % 12);
+                    assertTrue(function == onC.getFunction(Chord.get(rootOnC, chordClass)));
+                    if(function != null) {
+                        assertTrue(key.getChord(function).getRoot() == root);
+                        assertTrue(key.getFunction(key.getChord(function)) == function);
+                    }
+                }
+            }
+        }
+    }
+    @Test
+    void labelTest() {
+        LeadSheet leadSheet = new LeadSheet("ii-V-I");
+        ITime whole = Time.get(1);
+        leadSheet.getChanges().add(Chord.get(D_NATURAL, MIN_SEVENTH), whole)
+                              .add(Chord.get(G_NATURAL, DOM_SEVENTH), whole)
+                              .add(Chord.get(C_NATURAL, MAJ_SEVENTH), whole)
+                              .add(Chord.get(A_NATURAL, DOM_SEVENTH), whole)
+                              .add(Chord.get(D_NATURAL, MIN_SEVENTH), whole)
+                              .add(Chord.get(G_NATURAL, DOM_SEVENTH), whole)
+                              .add(Chord.get(C_NATURAL, MAJ_SEVENTH), whole);
+        List<Chord> chords = Arrays.asList(Chord.get(D_NATURAL, MIN_SEVENTH), Chord.get(G_NATURAL, DOM_SEVENTH),
+                                           Chord.get(C_NATURAL, MAJ_SEVENTH));
+        assertEquals("[ii7, V7, Imaj7]", Function.labelChords(C_MAJOR, chords).toString());
+        List<List<Function>> labelled = Function.label(Collections.nCopies(8, leadSheet), Time.get(16), Time.get(1));
+        for(List<Function> functions : labelled) {
+            assertEquals("[ii7, V7, Imaj7, V7/ii, ii7, V7, Imaj7]", functions.toString());
+        }
+    }
+}
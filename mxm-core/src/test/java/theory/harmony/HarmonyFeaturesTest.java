@@ -0,0 +1,53 @@
+package theory.harmony;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+import static theory.harmony.HarmonyFeatures.Metric.*;
+
+class HarmonyFeaturesTest {
+    private static final Harmony C_MAJOR = Harmony.get(C_NATURAL, E_NATURAL, G_NATURAL);
+    private static final Harmony DIATONIC = Harmony.get(C_NATURAL, D_NATURAL, E_NATURAL, F_NATURAL, G_NATURAL,
+                                                        A_NATURAL, B_NATURAL);
+
+    @Test
+    void intervalVectorTest() {
+        assertArrayEquals(new int[] { 0, 0, 1, 1, 1, 0 }, C_MAJOR.getIntervalVector());
+        assertArrayEquals(new int[] { 2, 5, 4, 3, 6, 1 }, DIATONIC.getIntervalVector());
+        assertArrayEquals(new int[] { 0, 0, 4, 0, 0, 2 },
+                          Harmony.get(C_NATURAL, E_FLAT, F_SHARP, A_NATURAL).getIntervalVector());
+        // Z-related set classes share their interval vector
+        assertArrayEquals(SetClass.get("4-Z15").getPrimeForm().getIntervalVector(),
+                          SetClass.get("4-Z29").getPrimeForm().getIntervalVector());
+    }
+    @Test
+    void dftTest() {
+        double[] magnitudes = C_MAJOR.getDFTMagnitudes();
+        assertEquals(3, magnitudes[0], 1e-9);
+        // An augmented triad is perfectly even in thirds, and so has only a third (and sixth) component
+        double[] augmented = Harmony.get(C_NATURAL, E_NATURAL, G_SHARP).getDFTMagnitudes();
+        assertEquals(3, augmented[3], 1e-9);
+        assertEquals(0, augmented[1], 1e-9);
+        // Transposition and inversion leave the magnitudes unchanged
+        assertArrayEquals(magnitudes, C_MAJOR.invert().getDFTMagnitudes(), 1e-9);
+    }
+    @Test
+    void rankTest() {
+        Harmony aMinor = Harmony.get(A_NATURAL, C_NATURAL, E_NATURAL);
+        Harmony cluster = Harmony.get(C_NATURAL, C_SHARP, D_NATURAL);
+        Harmony cSeventh = Harmony.get(C_NATURAL, E_NATURAL, G_NATURAL, B_FLAT);
+        List<Harmony> corpus = Arrays.asList(cluster, cSeventh, aMinor);
+        for(HarmonyFeatures.Metric metric : HarmonyFeatures.Metric.values()) {
+            List<Harmony> ranked = HarmonyFeatures.rank(C_MAJOR, corpus, metric);
+            assertTrue(ranked.get(0) == aMinor);
+            assertEquals(0, HarmonyFeatures.distance(C_MAJOR, aMinor, metric), 1e-9);
+            assertEquals(HarmonyFeatures.distance(C_MAJOR, cluster, metric),
+                         HarmonyFeatures.distance(cluster, C_MAJOR, metric), 1e-9);
+        }
+        assertTrue(HarmonyFeatures.rank(C_MAJOR, corpus, DFT_MAGNITUDE).get(2) == cluster);
+    }
+}
@@ -1,5 +1,56 @@
 package theory.harmony;
 
+import org.junit.jupiter.api.Test;
+import properties.sound.IntervalClass;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
 class HarmonyTest {
+    private static final Harmony C_MAJOR = Harmony.get(C_NATURAL, E_NATURAL, G_NATURAL);
+    private static final Harmony A_MINOR = Harmony.get(A_NATURAL, C_NATURAL, E_NATURAL);
 
-}
\ No newline at end of file
+    @Test
+    void algebraTest() {
+        assertTrue(C_MAJOR.union(A_MINOR) == Harmony.get(C_NATURAL, E_NATURAL, G_NATURAL, A_NATURAL));
+        assertTrue(C_MAJOR.plus(A_MINOR) == C_MAJOR.union(A_MINOR));
+        assertTrue(C_MAJOR.intersection(A_MINOR) == Harmony.get(C_NATURAL, E_NATURAL));
+        assertTrue(C_MAJOR.difference(A_MINOR) == Harmony.get(G_NATURAL));
+        assertTrue(C_MAJOR.minus(A_MINOR) == C_MAJOR.difference(A_MINOR));
+        assertTrue(C_MAJOR.complement().union(C_MAJOR) == Harmony.FULL);
+        assertTrue(C_MAJOR.complement().intersection(C_MAJOR) == Harmony.EMPTY);
+        assertEquals(3, C_MAJOR.size());
+        assertEquals(9, C_MAJOR.complement().size());
+    }
+    @Test
+    void subsetTest() {
+        assertTrue(Harmony.get(C_NATURAL, G_NATURAL).isSubsetOf(C_MAJOR));
+        assertTrue(C_MAJOR.isSupersetOf(Harmony.get(C_NATURAL, G_NATURAL)));
+        assertFalse(C_MAJOR.isSubsetOf(A_MINOR));
+        assertTrue(Harmony.EMPTY.isSubsetOf(C_MAJOR));
+        assertTrue(C_MAJOR.isSubsetOf(C_MAJOR));
+        assertTrue(B_NATURAL.equals(Harmony.get(B_NATURAL).getPitchClasses().get(0)));
+    }
+    @Test
+    void transposeTest() {
+        assertTrue(C_MAJOR.transpose(IntervalClass.PERFECT_FIFTH) == Harmony.get(G_NATURAL, B_NATURAL, D_NATURAL));
+        assertTrue(C_MAJOR.transpose(IntervalClass.UNISON) == C_MAJOR);
+        for(int id = 0; id < Harmony.TOTAL_NUM; id++) {
+            Harmony harmony = Harmony.get(id);
+            Harmony transposed = harmony;
+            for(int i = 0; i < 12; i++) {
+                assertEquals(harmony.size(), transposed.size());
+                transposed = transposed.transpose(IntervalClass.MINOR_SECOND);
+            }
+            assertTrue(transposed == harmony);
+        }
+    }
+    @Test
+    void invertTest() {
+        // C major inverts to F minor (C, Ab, F)
+        assertTrue(C_MAJOR.invert() == Harmony.get(C_NATURAL, A_FLAT, F_NATURAL));
+        for(int id = 0; id < Harmony.TOTAL_NUM; id++) {
+            assertTrue(Harmony.get(id).invert().invert() == Harmony.get(id));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package theory.harmony;
+
+import events.time.KeyChange;
+import form.part.PolyLine;
+import form.score.AbstractScore;
+import form.score.LeadSheet;
+import form.timeline.ITimeline;
+import org.junit.jupiter.api.Test;
+import properties.note.Instrument;
+import properties.sound.Chord;
+import properties.sound.ChordClass;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+import properties.time.ITime;
+import properties.time.Time;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class KeyFinderTest {
+
+    /** A score of a single piano part */
+    private static final class PianoScore extends AbstractScore {
+        private final PolyLine<Pitch> piano = new PolyLine<>(this, Instrument.GRAND_PIANO);
+
+        PianoScore(String title) {
+            super(title);
+            add(piano);
+        }
+    }
+    /** Gets the pitches of a chord in root position from the fourth octave, by half steps above its root */
+    private static List<Pitch> voicing(PitchClass root, int... halfSteps) {
+        List<Pitch> pitches = new ArrayList<>();
+        for(int halfStep : halfSteps) {
+            int value = root.getValue() + halfStep;
+            pitches.add(Pitch.get(PitchClass.get(value % 12), 4 + value / 12));
+        }
+        return pitches;
+    }
+
+    @Test
+    void findKeyTest() {
+        // Every key's own scale, weighted toward its tonic triad, is found as that key
+        for(Key key : Key.all()) {
+            double[] histogram = new double[PitchClass.TOTAL_NUM];
+            for(PitchClass pitchClass : PitchClass.all()) {
+                if(key.getHarmony().contains(pitchClass)) histogram[pitchClass.getValue()] = 1;
+            }
+            int tonic = key.getTonic().getValue();
+            histogram[tonic] += 2;
+            histogram[(tonic + (key.isMajor() ? 4 : 3)) % 12] += 1;
+            histogram[(tonic + 7) % 12] += 1;
+            assertTrue(KeyFinder.findKey(histogram) == key, key.toString());
+            double[] correlations = KeyFinder.correlations(histogram);
+            for(double correlation : correlations) {
+                assertTrue(correlation <= correlations[key.getID()] && correlation >= -1 && correlation <= 1);
+            }
+        }
+        assertNull(KeyFinder.findKey(new double[12]));
+    }
+    @Test
+    void slidingTest() {
+        // The incrementally maintained histogram agrees with one recomputed from scratch for every window
+        Random random = new Random(38);
+        int numNotes = 500;
+        int[] pitchClasses = new int[numNotes];
+        double[] starts = new double[numNotes], ends = new double[numNotes];
+        for(int note = 0; note < numNotes; note++) {
+            pitchClasses[note] = random.nextInt(12);
+            starts[note] = random.nextInt(400) / 4.0;
+            ends[note] = starts[note] + (1 + random.nextInt(8)) / 4.0;
+        }
+        double window = 3.0, step = 0.25;
+        int numSteps = 420;
+        int[] keys = KeyFinder.findKeys(pitchClasses, starts, ends, 0, step, numSteps, window);
+        for(int index = 0; index < numSteps; index++) {
+            double from = index * step - window / 2, to = index * step + window / 2;
+            double[] histogram = new double[12];
+            for(int note = 0; note < numNotes; note++) {
+                histogram[pitchClasses[note]] += Math.max(0, Math.min(ends[note], to) - Math.max(starts[note], from));
+            }
+            Key expected = KeyFinder.findKey(histogram);
+            assertEquals(expected == null ? -1 : expected.getID(), keys[index], "step " + index);
+        }
+    }
+    @Test
+    void scoreTest() {
+        // Two measures of C major, then two of Eb major, then two of A minor
+        LeadSheet leadSheet = new LeadSheet("Modulations");
+        ITime half = Time.get(1, 2);
+        for(PitchClass root : new PitchClass[] { C_NATURAL, F_NATURAL, G_NATURAL, C_NATURAL }) {
+            leadSheet.getChanges().add(Chord.get(root, root == G_NATURAL ? ChordClass.DOM_SEVENTH : ChordClass.MAJOR),
+                                       half);
+        }
+        for(PitchClass root : new PitchClass[] { E_FLAT, A_FLAT, B_FLAT, E_FLAT }) {
+            leadSheet.getChanges().add(Chord.get(root, root == B_FLAT ? ChordClass.DOM_SEVENTH : ChordClass.MAJOR),
+                                       half);
+        }
+        for(PitchClass root : new PitchClass[] { A_NATURAL, D_NATURAL, E_NATURAL, A_NATURAL }) {
+            leadSheet.getChanges().add(Chord.get(root, root == E_NATURAL ? ChordClass.DOM_SEVENTH : ChordClass.MINOR),
+                                       half);
+        }
+        ITimeline<KeyChange> changes = KeyFinder.findKeys(leadSheet, Time.get(2), Time.get(1, 4));
+        List<Key> keys = new ArrayList<>();
+        for(KeyChange change : changes) keys.add(change.getKey());
+        assertTrue(changes.getFirst().getKey() == Key.get(C_NATURAL, Key.Mode.MAJOR));
+        assertTrue(keys.contains(Key.get(E_FLAT, Key.Mode.MAJOR)));
+        assertTrue(changes.getLast().getKey() == Key.get(A_NATURAL, Key.Mode.MINOR));
+        assertTrue(changes.getBefore(Time.get(3)).getKey() == Key.get(E_FLAT, Key.Mode.MAJOR));
+
+        // A corpus is analyzed in parallel, in order
+        List<LeadSheet> corpus = Collections.nCopies(32, leadSheet);
+        for(ITimeline<KeyChange> timeline : KeyFinder.findKeys(corpus, Time.get(2), Time.get(1, 4))) {
+            assertTrue(timeline.getLast().getKey() == changes.getLast().getKey());
+        }
+    }
+    @Test
+    void polyLineTest() {
+        // The same modulations as chords of pitches on a piano, which is a poly line rather than a line
+        PianoScore score = new PianoScore("Piano");
+        ITime half = Time.get(1, 2);
+        for(PitchClass root : new PitchClass[] { C_NATURAL, F_NATURAL, G_NATURAL, C_NATURAL,
+                                                 E_FLAT, A_FLAT, B_FLAT, E_FLAT }) {
+            score.piano.add(root == G_NATURAL || root == B_FLAT ? voicing(root, 0, 4, 7, 10) : voicing(root, 0, 4, 7),
+                            half);
+        }
+        for(PitchClass root : new PitchClass[] { A_NATURAL, D_NATURAL, E_NATURAL, A_NATURAL }) {
+            score.piano.add(root == E_NATURAL ? voicing(root, 0, 4, 7, 10) : voicing(root, 0, 3, 7), half);
+        }
+        ITimeline<KeyChange> changes = KeyFinder.findKeys(score, Time.get(2), Time.get(1, 4));
+        assertTrue(changes.getFirst().getKey() == Key.get(C_NATURAL, Key.Mode.MAJOR));
+        assertTrue(changes.getBefore(Time.get(3)).getKey() == Key.get(E_FLAT, Key.Mode.MAJOR));
+        assertTrue(changes.getLast().getKey() == Key.get(A_NATURAL, Key.Mode.MINOR));
+        // A score with no notes has no keys
+        assertNull(KeyFinder.findKeys(new PianoScore("Silence"), Time.get(2), Time.get(1, 4)).getFirst());
+    }
+}
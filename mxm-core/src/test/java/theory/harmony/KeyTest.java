@@ -1,5 +1,24 @@
 package theory.harmony;
 
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
 class KeyTest {
 
-}
\ No newline at end of file
+    @Test
+    void keyTest() {
+        assertEquals(24, Key.all().size());
+        Key cMajor = Key.get(C_NATURAL, Key.Mode.MAJOR);
+        assertTrue(cMajor.getRelative() == Key.get(A_NATURAL, Key.Mode.MINOR));
+        assertTrue(cMajor.getRelative().getHarmony() == cMajor.getHarmony());
+        assertTrue(cMajor.getParallel().getRelative() == Key.get(E_FLAT, Key.Mode.MAJOR));
+        assertTrue(Key.get(G_NATURAL, Key.Mode.MAJOR).getHarmony().contains(F_SHARP));
+        for(Key key : Key.all()) {
+            assertTrue(Key.get(key.getID()) == key);
+            assertTrue(Key.get(key.getTonic(), key.getMode()) == key);
+            assertEquals(7, key.getHarmony().size());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package theory.harmony;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class SetClassTest {
+
+    @Test
+    void catalogueTest() {
+        assertEquals(224, SetClass.all().size());
+        int[] counts = new int[13];
+        for(SetClass setClass : SetClass.all()) {
+            counts[setClass.getCardinality()]++;
+            assertTrue(setClass.getPrimeForm().getSetClass() == setClass);
+            assertTrue(SetClass.primeForm(setClass.getPrimeForm().getID()) == setClass.getPrimeForm().getID());
+            assertTrue(SetClass.get(setClass.getName()) == setClass);
+        }
+        assertArrayEquals(new int[] { 1, 1, 6, 12, 29, 38, 50, 38, 29, 12, 6, 1, 1 }, counts);
+        // Every harmony belongs to exactly as many distinct harmonies as its symmetry allows
+        int[] members = new int[224];
+        for(int id = 0; id < Harmony.TOTAL_NUM; id++) {
+            members[Harmony.get(id).getSetClass().getOrdinal()]++;
+        }
+        for(SetClass setClass : SetClass.all()) {
+            assertEquals(24 / setClass.getSymmetry(), members[setClass.getOrdinal()]);
+        }
+    }
+    @Test
+    void forteTest() {
+        assertEquals("3-11", Harmony.get(C_NATURAL, E_NATURAL, G_NATURAL).getSetClass().getName());
+        assertEquals("3-11 [037]", Harmony.get(A_NATURAL, C_NATURAL, E_NATURAL).getSetClass().toString());
+        assertEquals("4-Z29", Harmony.get(C_NATURAL, C_SHARP, D_SHARP, G_NATURAL).getSetClass().getName());
+        assertEquals("5-20 [01378]", SetClass.get("5-20").toString());
+        assertEquals("7-35", Harmony.get(C_NATURAL, D_NATURAL, E_NATURAL, F_NATURAL, G_NATURAL, A_NATURAL, B_NATURAL)
+                .getSetClass().getName());
+        assertEquals("8-28", SetClass.get("4-28").getPrimeForm().complement().getSetClass().getName());
+        assertEquals(8, SetClass.get("4-28").getSymmetry());
+        assertEquals(1, SetClass.get("3-11").getSymmetry());
+        assertEquals(6, SetClass.get("3-12").getSymmetry());
+        assertEquals(24, SetClass.get("12-1").getSymmetry());
+    }
+    @Test
+    void equivalenceTest() {
+        Harmony cMajor = Harmony.get(C_NATURAL, E_NATURAL, G_NATURAL);
+        Harmony dMajor = Harmony.get(D_NATURAL, F_SHARP, A_NATURAL);
+        Harmony aMinor = Harmony.get(A_NATURAL, C_NATURAL, E_NATURAL);
+        assertTrue(cMajor.isTnEquivalent(dMajor));
+        assertFalse(cMajor.isTnEquivalent(aMinor));
+        assertTrue(cMajor.isTnIEquivalent(aMinor));
+        assertEquals(Arrays.asList(A_NATURAL, C_NATURAL, E_NATURAL), aMinor.getNormalForm());
+        assertEquals(Arrays.asList(B_NATURAL, C_NATURAL, E_NATURAL),
+                Harmony.get(C_NATURAL, E_NATURAL, B_NATURAL).getNormalForm());
+        // Z-related set classes share their interval content but not their set class
+        SetClass z15 = SetClass.get("4-Z15");
+        SetClass z29 = SetClass.get("4-Z29");
+        assertArrayEquals(new int[] { 1, 1, 1, 1, 1, 1 }, z15.getPrimeForm().getIntervalVector());
+        assertArrayEquals(new int[] { 1, 1, 1, 1, 1, 1 }, z29.getPrimeForm().getIntervalVector());
+        assertNotEquals(z15, z29);
+        assertFalse(z15.getPrimeForm().isTnIEquivalent(z29.getPrimeForm()));
+        assertTrue(SetClass.get("4-15") == z15);
+    }
+}
@@ -0,0 +1,71 @@
+package theory.patterns;
+
+import events.sound.Note;
+import form.score.LeadSheet;
+import org.junit.jupiter.api.Test;
+import properties.sound.Chord;
+import properties.sound.Pitch;
+import properties.time.ITime;
+import properties.time.Time;
+
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.ChordClass.*;
+import static properties.sound.PitchClass.*;
+
+class ArpeggioTest {
+
+    private static String arpeggiate(Arpeggio arpeggio, Chord chord, Pitch register, ITime length) {
+        return arpeggio.stream(chord, register, length).map(Pitch::toString).collect(Collectors.joining(" "));
+    }
+
+    @Test
+    void patternTest() {
+        Chord cMajor = Chord.get(C_NATURAL, MAJOR);
+        Pitch c3 = Pitch.get(C_NATURAL, 3);
+        assertEquals("C3 G3 E3 G3 C3 G3 E3 G3", arpeggiate(Arpeggio.ALBERTI, cMajor, c3, Time.get(1)));
+        assertEquals("C3 E4 C3 E4", arpeggiate(Arpeggio.BROKEN_TENTHS, cMajor, c3, Time.get(1, 2)));
+        assertEquals("C3 E3 G3 C3", arpeggiate(Arpeggio.UP, cMajor, c3, Time.get(1, 2)));
+        assertEquals("G3 E3 C3 G3", arpeggiate(Arpeggio.DOWN, cMajor, c3, Time.get(1, 2)));
+        // Tones beyond the chord continue into the next octave, so 3 is the seventh of a seventh chord
+        Arpeggio wrap = Arpeggio.get("3 4 0, r", Time.get(1, 4));
+        assertEquals("C4 E4 C2", arpeggiate(wrap, cMajor, c3, Time.get(1)));
+        assertEquals("B3 C4 C2", arpeggiate(wrap, Chord.get(C_NATURAL, MAJ_SEVENTH), c3, Time.get(1)));
+        // The root is placed at the lowest pitch at or above the register
+        assertEquals("A3 C4 E4", arpeggiate(Arpeggio.UP, Chord.get(A_NATURAL, MINOR), c3, Time.get(3, 8)));
+        assertThrows(Error.class, () -> Arpeggio.get("0 x", Time.get(1, 8)));
+        assertThrows(Error.class, () -> Arpeggio.get(" ", Time.get(1, 8)));
+    }
+    @Test
+    void cursorTest() {
+        // The last step is cut short to fill the length exactly
+        Arpeggio.Cursor cursor = Arpeggio.ALBERTI.cursor(Chord.get(C_NATURAL, MAJOR), Pitch.get(C_NATURAL, 3),
+                                                          Time.get(3, 16));
+        assertTrue(cursor.next());
+        assertTrue(cursor.getDuration() == Arpeggio.ALBERTI.getStep());
+        assertTrue(cursor.next());
+        assertEquals("G3", cursor.getPitch().toString());
+        assertEquals(0, cursor.getDuration().compareTo(Time.get(1, 16)));
+        assertFalse(cursor.next());
+    }
+    @Test
+    void writeTest() {
+        LeadSheet leadSheet = new LeadSheet("Arpeggios");
+        leadSheet.getChanges().add(Chord.get(C_NATURAL, MAJOR), Time.get(1))
+                              .add(Time.get(1))
+                              .add(Chord.get(G_NATURAL, DOM_SEVENTH), Time.get(1));
+        Arpeggio.UP.writeTo(leadSheet.getTune(), leadSheet.getChanges(), Pitch.get(C_NATURAL, 3));
+        Note<Pitch> first = leadSheet.getTune().getNotes().getAt(Time.get(0));
+        Note<Pitch> third = leadSheet.getTune().getNotes().getAt(Time.get(2));
+        Note<Pitch> last = leadSheet.getTune().getNotes().getAt(Time.get(23, 8));
+        assertNotNull(first);
+        assertNotNull(third);
+        assertNotNull(last);
+        assertEquals("C3", first.getSound().toString());
+        assertEquals("G3", third.getSound().toString());
+        assertEquals("F4", last.getSound().toString());
+        assertNull(leadSheet.getTune().getNotes().getAt(Time.get(3, 2)));
+        assertEquals(0, leadSheet.getTune().getNotes().getEnd().compareTo(Time.get(23, 8)));
+    }
+}
@@ -0,0 +1,83 @@
+package theory.patterns;
+
+import org.junit.jupiter.api.Test;
+import properties.sound.Pitch;
+import properties.sound.PitchClass;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static properties.sound.PitchClass.*;
+
+class ScaleTest {
+
+    @Test
+    void catalogTest() {
+        assertTrue(Scale.IONIAN == Scale.MAJOR);
+        assertTrue(Scale.AEOLIAN == Scale.NATURAL_MINOR);
+        assertEquals("C major", Scale.MAJOR.toString());
+        Scale dDorian = Scale.MAJOR.getMode(1);
+        assertTrue(dDorian == Scale.get(D_NATURAL, Scale.DORIAN));
+        assertEquals("D dorian", dDorian.toString());
+        assertTrue(dDorian.getHarmony() == Scale.MAJOR.getHarmony());
+        assertTrue(Scale.MAJOR.getMode(7) == Scale.MAJOR);
+        // Every mode of the octatonic scale is one of the two octatonic scales
+        for(int degree = 0; degree < 8; degree++) {
+            Scale mode = Scale.OCTATONIC_HALF_WHOLE.getMode(degree);
+            assertTrue(mode.getIntervals() == (degree % 2 == 0 ? Scale.OCTATONIC_HALF_WHOLE : Scale.OCTATONIC_WHOLE_HALF).getIntervals());
+        }
+        Set<Scale> unique = new HashSet<>(Scale.catalog());
+        assertEquals(Scale.catalog().size(), unique.size());
+        assertEquals(6, Scale.WHOLE_TONE.size());
+        assertEquals(5, Scale.MINOR_PENTATONIC.size());
+        assertThrows(Error.class, () -> Scale.get(C_NATURAL, theory.harmony.Harmony.get(D_NATURAL, E_NATURAL)));
+    }
+    @Test
+    void degreeTest() {
+        Scale bFlatMinor = Scale.get(B_FLAT, Scale.HARMONIC_MINOR);
+        assertEquals(0, bFlatMinor.getDegree(B_FLAT));
+        assertEquals(6, bFlatMinor.getDegree(A_NATURAL));
+        assertEquals(-1, bFlatMinor.getDegree(A_FLAT));
+        assertTrue(bFlatMinor.getPitchClass(2) == D_FLAT);
+        assertTrue(bFlatMinor.getPitchClass(-1) == A_NATURAL);
+        assertTrue(bFlatMinor.stepUp(A_NATURAL) == B_FLAT);
+        assertTrue(bFlatMinor.stepDown(B_FLAT) == A_NATURAL);
+        assertTrue(bFlatMinor.stepUp(A_FLAT) == A_NATURAL);
+        assertTrue(bFlatMinor.stepDown(A_FLAT) == G_FLAT);
+        int degree = 0;
+        for(PitchClass pitchClass : bFlatMinor) {
+            assertEquals(degree++, bFlatMinor.getDegree(pitchClass));
+        }
+    }
+    @Test
+    void pitchTest() {
+        Scale cMajor = Scale.MAJOR;
+        Pitch c4 = Pitch.get(C_NATURAL, 4);
+        assertTrue(cMajor.stepUp(c4) == Pitch.get(D_NATURAL, 4));
+        assertTrue(cMajor.stepDown(c4) == Pitch.get(B_NATURAL, 3));
+        assertTrue(cMajor.step(c4, 7) == Pitch.get(C_NATURAL, 5));
+        assertTrue(cMajor.step(c4, -9) == Pitch.get(A_NATURAL, 2));
+        Pitch cSharp4 = Pitch.get(C_SHARP, 4);
+        assertTrue(cMajor.stepUp(cSharp4) == Pitch.get(D_NATURAL, 4));
+        assertTrue(cMajor.stepDown(cSharp4) == c4);
+        assertTrue(cMajor.step(cSharp4, 2) == Pitch.get(E_NATURAL, 4));
+        assertTrue(cMajor.snap(cSharp4) == c4);
+        assertTrue(Scale.MAJOR_PENTATONIC.snap(Pitch.get(F_SHARP, 4)) == Pitch.get(G_NATURAL, 4));
+        assertThrows(Error.class, () -> cMajor.stepDown(Pitch.MIN));
+        // Every snapped pitch is in the scale and no farther than any other pitch of the scale
+        for(Scale scale : Scale.catalog()) {
+            for(Pitch pitch : Pitch.all()) {
+                Pitch snapped = scale.snap(pitch);
+                assertTrue(scale.contains(snapped));
+                int distance = Math.abs(snapped.getValue() - pitch.getValue());
+                for(Pitch other : Pitch.all()) {
+                    if(scale.contains(other)) assertTrue(Math.abs(other.getValue() - pitch.getValue()) >= distance);
+                }
+                if(scale.contains(pitch) && pitch != Pitch.MAX) {
+                    assertTrue(scale.stepDown(scale.stepUp(pitch)) == pitch);
+                }
+            }
+        }
+    }
+}